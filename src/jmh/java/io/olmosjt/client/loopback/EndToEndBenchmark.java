@@ -0,0 +1,133 @@
+package io.olmosjt.client.loopback;
+
+import io.olmosjt.client.model.Command;
+import io.olmosjt.client.model.CommandType;
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.model.MessageType;
+import io.olmosjt.client.net.CorrelatingNetworkService;
+import io.olmosjt.client.net.LinkStatus;
+import io.olmosjt.client.net.SocketNetworkService;
+import io.olmosjt.client.rooms.RoomTab;
+import io.olmosjt.client.search.SearchHit;
+import io.olmosjt.client.ui.ChatClient;
+import io.olmosjt.client.ui.UIController;
+import io.olmosjt.client.ui.UIView;
+import io.olmosjt.client.ui.state.ClientState;
+import io.olmosjt.client.ui.state.UIState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * End-to-end costs against an in-process {@link LoopbackServer}: the round trip of one request
+ * through the real socket transport, and delivering a burst of chat messages from the server
+ * into ChatClient and on to a view that only counts them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EndToEndBenchmark {
+  private static final int BURST = 1000;
+
+  private LoopbackServer server;
+  private CorrelatingNetworkService requests;
+  private ChatClient client;
+  private final CountingView view = new CountingView();
+  private final Command listRooms = new Command(CommandType.LIST_ROOMS, "");
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    server = new LoopbackServer();
+
+    requests = new CorrelatingNetworkService(new SocketNetworkService())
+            .expect(CommandType.LOGIN, m -> m.content().startsWith("Welcome,"))
+            .expect(CommandType.LIST_ROOMS, m -> m.content().startsWith("Available rooms:"));
+    requests.setMessageListener(message -> { });
+    requests.connect(server.host(), server.port());
+    requests.request(new Command(CommandType.LOGIN, "rtt")).get(5, TimeUnit.SECONDS);
+
+    client = new ChatClient(new SocketNetworkService(), null, null);
+    client.setView(view);
+    if (!client.start(server.host(), server.port())) {
+      throw new IOException("Could not connect to the loopback server");
+    }
+    await(() -> client.getClientState() == ClientState.AWAITING_LOGIN);
+    client.attemptLogin("bench");
+    await(() -> view.state == UIState.LOBBY);
+    client.joinRoom("#1");
+    await(() -> view.state == UIState.IN_ROOM);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    client.shutdown();
+    requests.disconnect();
+    server.close();
+  }
+
+  @Benchmark
+  public Message requestRoundTrip() throws Exception {
+    return requests.request(listRooms).get(5, TimeUnit.SECONDS);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BURST)
+  public long burstDelivery() {
+    long target = view.messages + BURST;
+    server.burst(1, "sender", BURST, "The quick brown fox jumps over the lazy dog");
+    while (view.messages < target) {
+      Thread.onSpinWait();
+    }
+    return view.messages;
+  }
+
+  private static void await(BooleanSupplier done) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!done.getAsBoolean()) {
+      if (System.nanoTime() > deadline) {
+        throw new IllegalStateException("Loopback server did not answer in time");
+      }
+      Thread.sleep(1);
+    }
+  }
+
+  static final class CountingView implements UIView {
+    volatile UIState state;
+    volatile long messages;
+
+    @Override public void setController(UIController controller) { }
+    @Override public void start() { }
+    @Override public void showState(UIState state) { this.state = state; }
+    @Override public void updateRoomList(List<String> rooms) { }
+    @Override public void addMessage(Message message) { count(message); }
+    @Override public void addMessages(List<Message> messages) { messages.forEach(this::count); }
+    @Override public void prependMessages(List<Message> messages) { }
+    @Override public void showSearchResults(String query, List<SearchHit> hits) { }
+    @Override public void showLoginError(String reason) { }
+    @Override public void setRoomDetails(String channelName, String channelId) { }
+    @Override public void drawInitialConnectionError() { }
+    @Override public void showConnectionState(ClientState state) { }
+    @Override public void showLinkStatus(LinkStatus status) { }
+    @Override public void updateRoomTabs(List<RoomTab> tabs) { }
+    @Override public void showFeedback(String text, boolean isError) { }
+
+    // Only the client's event loop writes
+    private void count(Message message) {
+      if (message.type() == MessageType.USER) {
+        messages++;
+      }
+    }
+  }
+}
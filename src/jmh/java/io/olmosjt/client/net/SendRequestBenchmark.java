@@ -0,0 +1,71 @@
+package io.olmosjt.client.net;
+
+import io.olmosjt.client.model.Command;
+import io.olmosjt.client.model.CommandType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding and writing one request through SocketNetworkService to a loopback
+ * server that discards everything it reads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SendRequestBenchmark {
+
+  @Param({"16", "256", "4096"})
+  public int payloadSize;
+
+  private ServerSocket server;
+  private SocketNetworkService service;
+  private Command command;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    Thread.ofPlatform().daemon().start(this::discard);
+
+    service = new SocketNetworkService();
+    service.setMessageListener(message -> { });
+    service.connect(server.getInetAddress().getHostAddress(), server.getLocalPort());
+    command = new Command(CommandType.MSG, "x".repeat(payloadSize));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    service.disconnect();
+    server.close();
+  }
+
+  @Benchmark
+  public void sendRequest() {
+    service.sendRequest(command);
+  }
+
+  private void discard() {
+    try (Socket socket = server.accept(); InputStream in = socket.getInputStream()) {
+      byte[] sink = new byte[64 * 1024];
+      while (in.read(sink) >= 0) {
+        // Discard
+      }
+    } catch (IOException e) {
+      // Server closed at teardown
+    }
+  }
+}
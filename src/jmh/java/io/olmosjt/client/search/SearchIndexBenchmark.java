@@ -0,0 +1,70 @@
+package io.olmosjt.client.search;
+
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.model.MessageType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of {@link SearchIndex} over a few hundred thousand chat messages, from a rare
+ * term to a conjunction of common ones and a sender-filtered query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchIndexBenchmark {
+  private static final String[] WORDS = (
+          "the a to and of is it in that you for on this with be are have was not but at"
+                  + " chat server client latency buffer socket deploy release merge build test"
+                  + " hello thanks meeting lunch today tomorrow review ticket branch").split(" ");
+
+  @Param({"300000"})
+  public int messages;
+
+  @Param({"zebra", "deploy release", "from:user7 merge", "in:#3 zebra review"})
+  public String query;
+
+  private SearchIndex index;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    index = new SearchIndex(messages);
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < messages; i++) {
+      text.setLength(0);
+      int words = 4 + random.nextInt(12);
+      for (int w = 0; w < words; w++) {
+        text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+      }
+      if (i % 1000 == 0) {
+        text.append("zebra");
+      }
+      String room = "#" + random.nextInt(8);
+      index.add(new Message(MessageType.USER, "user" + random.nextInt(64), room, text.toString(),
+              Instant.ofEpochMilli(1_700_000_000_000L + i * 1000L)), room);
+    }
+  }
+
+  @Benchmark
+  public List<SearchHit> search() {
+    return index.search(query, 100);
+  }
+
+  @Benchmark
+  public int add() {
+    return index.add(new Message(MessageType.USER, "bench", "#0", "deploy the release branch today",
+            Instant.now()), "#0");
+  }
+}
@@ -0,0 +1,126 @@
+package io.olmosjt.client.store;
+
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.model.MessageType;
+import io.olmosjt.client.ui.layout.WrappedMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory held per scrollback message: formatted lines in a {@code List<String>}, the same
+ * lines with their wrapped rows as the scrollback used to keep them, and a
+ * {@link MessageStore} with its content on and off the heap.
+ * <p>
+ * Each iteration fills a fresh scrollback with chat from a few hundred senders, collects
+ * garbage and prints the growth in used heap and in direct buffer memory per message next to
+ * the iteration. The time score only says how long collecting and filling took. The store's
+ * content budget is the client's default, 256 bytes per message, of which it allocates only
+ * what the messages take.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xms3g", "-Xmx3g", "-XX:+UseG1GC"})
+public class ScrollbackFootprintBenchmark {
+  private static final String[] WORDS = (
+          "the a to and of is it in that you for on this with be are have was not but at"
+                  + " chat server client latency buffer socket deploy release merge build test"
+                  + " hello thanks meeting lunch today tomorrow review ticket branch").split(" ");
+
+  @Param({"100000", "1000000"})
+  public int messages;
+
+  @Param({"strings", "wrapped", "compact", "compactOffHeap"})
+  public String layout;
+
+  // The scrollback of the current iteration, kept reachable until it is measured; not
+  // returned, so the blackhole cannot keep it alive into the next iteration
+  private Object held;
+
+  @Benchmark
+  public void fill() throws InterruptedException {
+    held = null;
+    long heapBefore = usedHeap();
+    // Direct buffers are freed by a cleaner after the collection that finds them unreachable
+    Thread.sleep(200);
+    long directBefore = usedDirect();
+
+    Random random = new Random(42);
+    if (layout.equals("strings")) {
+      List<String> lines = new ArrayList<>();
+      for (int i = 0; i < messages; i++) {
+        Message message = message(random, i);
+        lines.add("<" + message.sender() + "> " + message.content());
+      }
+      held = lines;
+    } else if (layout.equals("wrapped")) {
+      List<WrappedMessage> lines = new ArrayList<>();
+      for (int i = 0; i < messages; i++) {
+        Message message = message(random, i);
+        lines.add(new WrappedMessage("<" + message.sender() + "> " + message.content(), 74));
+      }
+      held = lines;
+    } else {
+      MessageStore store = new MessageStore(messages, messages * 256L, layout.equals("compactOffHeap"));
+      for (int i = 0; i < messages; i++) {
+        store.append(message(random, i));
+      }
+      held = store;
+    }
+    double heap = (double) (usedHeap() - heapBefore) / messages;
+    double offHeap = (double) (usedDirect() - directBefore) / messages;
+    System.out.printf("retained %.1f heap + %.1f off-heap bytes/message ", heap, offHeap);
+  }
+
+  /**
+   * A chat line as decoded from the wire, with its own copy of the sender's name.
+   */
+  private static Message message(Random random, int i) {
+    StringBuilder text = new StringBuilder();
+    int words = 4 + random.nextInt(10);
+    for (int w = 0; w < words; w++) {
+      text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+    }
+    if (i % 20 == 0) {
+      text.append("привет 🚀");
+    }
+    return new Message(MessageType.USER, "user" + random.nextInt(300), "#7",
+            text.toString(), Instant.ofEpochMilli(1_700_000_000_000L + i * 1000L));
+  }
+
+  private static long usedHeap() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static long usedDirect() {
+    long used = 0;
+    for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+      if (pool.getName().equals("direct")) {
+        used += pool.getMemoryUsed();
+      }
+    }
+    return used;
+  }
+}
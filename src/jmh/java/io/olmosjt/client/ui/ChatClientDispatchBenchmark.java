@@ -0,0 +1,135 @@
+package io.olmosjt.client.ui;
+
+import io.olmosjt.client.model.Command;
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.model.MessageType;
+import io.olmosjt.client.net.LinkStatus;
+import io.olmosjt.client.net.MessageListener;
+import io.olmosjt.client.net.NetworkService;
+import io.olmosjt.client.rooms.RoomTab;
+import io.olmosjt.client.search.SearchHit;
+import io.olmosjt.client.ui.state.ClientState;
+import io.olmosjt.client.ui.state.UIState;
+import io.olmosjt.client.util.EventLoop;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of routing one inbound message through ChatClient.onMessage in each ClientState,
+ * with the network and view stubbed out: posting it to the client's event loop, driven by
+ * the benchmark thread, and handling it there. The heartbeat is off, so no pings or link
+ * status changes are posted to the loop while it is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChatClientDispatchBenchmark {
+
+  @Param({"CONNECTING", "AWAITING_LOGIN", "AUTHENTICATED"})
+  public ClientState state;
+
+  private final EventLoop loop = new EventLoop("dispatch-benchmark");
+  private ChatClient client;
+
+  private final Message chat = message(MessageType.USER, "Hello everyone!");
+  private final Message unmatchedOk = message(MessageType.OK, "Topic changed to 'benchmarks'");
+  private final Message nok = message(MessageType.NOK, "Room not found.");
+  private final Message roomList = message(MessageType.OK,
+          "Available rooms: #1 general (3), #2 random (12), #3 dev (7), #4 ops (1), #5 music (9), #6 news (4)");
+  private final Message joined = message(MessageType.OK, "Joined room 'general'");
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    System.setProperty("termitalk.ping", "false");
+    client = new ChatClient(new NoOpNetworkService(), null, null, loop);
+    client.setView(new NoOpView());
+    client.start("127.0.0.1", 0);
+
+    if (state != ClientState.CONNECTING) {
+      client.onMessage(message(MessageType.OK, "Welcome! Please log in."));
+    }
+    if (state == ClientState.AUTHENTICATED) {
+      client.onMessage(message(MessageType.OK, "Welcome, bench"));
+    }
+    loop.runPending();
+    if (client.getClientState() != state) {
+      throw new IllegalStateException("Expected " + state + " but was " + client.getClientState());
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    client.shutdown();
+    loop.runPending();
+  }
+
+  @Benchmark
+  public int chatMessage() {
+    client.onMessage(chat);
+    return loop.runPending();
+  }
+
+  @Benchmark
+  public int unmatchedOkResponse() {
+    client.onMessage(unmatchedOk);
+    return loop.runPending();
+  }
+
+  @Benchmark
+  public int nokResponse() {
+    client.onMessage(nok);
+    return loop.runPending();
+  }
+
+  @Benchmark
+  public int roomListResponse() {
+    client.onMessage(roomList);
+    return loop.runPending();
+  }
+
+  @Benchmark
+  public int joinedRoomResponse() {
+    client.onMessage(joined);
+    return loop.runPending();
+  }
+
+  private static Message message(MessageType type, String content) {
+    return new Message(type, "SERVER", null, content, null);
+  }
+
+  static final class NoOpNetworkService implements NetworkService {
+    @Override public void connect(String host, Integer port) { }
+    @Override public void disconnect() { }
+    @Override public boolean sendRequest(Command command) { return true; }
+    @Override public void setMessageListener(MessageListener listener) { }
+  }
+
+  static final class NoOpView implements UIView {
+    @Override public void setController(UIController controller) { }
+    @Override public void start() { }
+    @Override public void showState(UIState state) { }
+    @Override public void updateRoomList(List<String> rooms) { }
+    @Override public void addMessage(Message message) { }
+    @Override public void addMessages(List<Message> messages) { }
+    @Override public void prependMessages(List<Message> messages) { }
+    @Override public void showSearchResults(String query, List<SearchHit> hits) { }
+    @Override public void showLoginError(String reason) { }
+    @Override public void setRoomDetails(String channelName, String channelId) { }
+    @Override public void drawInitialConnectionError() { }
+    @Override public void showConnectionState(ClientState state) { }
+    @Override public void showLinkStatus(LinkStatus status) { }
+    @Override public void updateRoomTabs(List<RoomTab> tabs) { }
+    @Override public void showFeedback(String text, boolean isError) { }
+  }
+}
@@ -0,0 +1,112 @@
+package io.olmosjt.client.ui;
+
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.screen.TerminalScreen;
+import com.googlecode.lanterna.terminal.virtual.DefaultVirtualTerminal;
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.model.MessageType;
+import io.olmosjt.client.ui.render.Region;
+import io.olmosjt.client.ui.state.UIState;
+import io.olmosjt.client.util.EventLoop;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of painting TermiTalkClient into Lanterna's virtual terminal at common sizes:
+ * a complete repaint, a full-frame delta repaint, and the steady-state input-line repaint.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DrawBenchmark {
+
+  @Param({"80x24", "120x40", "200x60"})
+  public String size;
+
+  @Param({"LOGIN", "LOBBY", "IN_ROOM"})
+  public UIState state;
+
+  private TerminalScreen screen;
+  private TermiTalkClient client;
+
+  private final Set<Region> allRegions = EnumSet.allOf(Region.class);
+  private final Set<Region> inputRegion = EnumSet.of(Region.INPUT);
+
+  @Setup
+  public void setUp() throws IOException {
+    String[] dimensions = size.split("x");
+    TerminalSize terminalSize = new TerminalSize(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]));
+    screen = new TerminalScreen(new DefaultVirtualTerminal(terminalSize));
+    screen.startScreen();
+
+    // Driven by this thread, so the view state is published before the first frame
+    EventLoop loop = new EventLoop("draw-benchmark");
+    client = new TermiTalkClient(loop);
+    client.setController(new NoOpController());
+
+    List<String> rooms = new ArrayList<>();
+    for (int i = 1; i <= 100; i++) {
+      rooms.add("#" + i + " room-" + i);
+    }
+    loop.execute(() -> {
+      client.updateRoomList(rooms);
+      client.setRoomDetails("general", "#1");
+      for (int i = 0; i < 1000; i++) {
+        client.addMessage(new Message(MessageType.USER, "user" + (i % 20), "#1", "message number " + i, null));
+      }
+      client.showState(state);
+    });
+    loop.runPending();
+    client.draw(screen);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    screen.stopScreen();
+  }
+
+  @Benchmark
+  public void completeRepaint() throws IOException {
+    client.draw(screen);
+  }
+
+  @Benchmark
+  public void fullFrameDelta() throws IOException {
+    client.render(screen, allRegions, false);
+  }
+
+  @Benchmark
+  public void inputLineOnly() throws IOException {
+    client.render(screen, inputRegion, false);
+  }
+
+  static final class NoOpController implements UIController {
+    @Override public boolean start(String host, int port) { return true; }
+    @Override public void attemptLogin(String username) { }
+    @Override public void requestRoomList() { }
+    @Override public void createRoom(String roomName) { }
+    @Override public void joinRoom(String roomId) { }
+    @Override public void switchRoom(String roomId) { }
+    @Override public void showLobby() { }
+    @Override public void sendMessage(String text) { }
+    @Override public void sendMessages(List<String> lines) { }
+    @Override public void leaveRoom() { }
+    @Override public void loadOlderHistory() { }
+    @Override public void search(String query) { }
+    @Override public void shutdown() { }
+  }
+}
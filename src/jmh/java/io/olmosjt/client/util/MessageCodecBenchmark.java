@@ -0,0 +1,93 @@
+package io.olmosjt.client.util;
+
+import io.olmosjt.client.model.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding cost of inbound server lines by payload size and share of malformed lines.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MessageCodecBenchmark {
+  private static final int LINES = 1024;
+
+  @Param({"16", "256", "4096"})
+  public int payloadSize;
+
+  @Param({"0", "10", "50"})
+  public int malformedPercent;
+
+  private String[] lines;
+  private ByteBuffer buffer;
+  private int[] starts;
+  private int[] ends;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    lines = new String[LINES];
+    for (int i = 0; i < LINES; i++) {
+      String payload = randomText(random, payloadSize);
+      if (random.nextInt(100) < malformedPercent) {
+        // Alternate between an unknown type and a missing delimiter
+        lines[i] = (i % 2 == 0) ? "UNKNOWN|bob|#1|" + payload : "USER|bob " + payload;
+      } else {
+        lines[i] = "USER|bob|#1|" + payload;
+      }
+    }
+
+    starts = new int[LINES];
+    ends = new int[LINES];
+    byte[][] encoded = new byte[LINES][];
+    int total = 0;
+    for (int i = 0; i < LINES; i++) {
+      encoded[i] = lines[i].getBytes(StandardCharsets.UTF_8);
+      total += encoded[i].length;
+    }
+    buffer = ByteBuffer.allocateDirect(total);
+    for (int i = 0; i < LINES; i++) {
+      starts[i] = buffer.position();
+      buffer.put(encoded[i]);
+      ends[i] = buffer.position();
+    }
+  }
+
+  @Benchmark
+  public Message decodeString() {
+    return MessageCodec.decode(lines[nextIndex()]);
+  }
+
+  @Benchmark
+  public Message decodeDirectBuffer() {
+    int i = nextIndex();
+    return MessageCodec.decode(buffer, starts[i], ends[i]);
+  }
+
+  private int nextIndex() {
+    int i = next;
+    next = (i + 1) & (LINES - 1);
+    return i;
+  }
+
+  private static String randomText(Random random, int length) {
+    StringBuilder sb = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      sb.append((char) ('a' + random.nextInt(26)));
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,41 @@
+package io.olmosjt.client.history;
+
+import java.time.Duration;
+
+/**
+ * Sizing and retention of a {@link HistoryStore}.
+ *
+ * @param segmentBytes size of each memory-mapped segment file
+ * @param maxSegmentsPerRoom segments kept per room; the oldest are deleted first
+ * @param retention segments whose newest record is older than this are deleted
+ * @param indexInterval a timestamp index entry is written every this many records
+ */
+public record HistoryConfig(int segmentBytes, int maxSegmentsPerRoom, Duration retention, int indexInterval) {
+
+  public HistoryConfig {
+    if (segmentBytes < 4096) {
+      throw new IllegalArgumentException("segmentBytes must be at least 4096: " + segmentBytes);
+    }
+    if (maxSegmentsPerRoom < 1 || indexInterval < 1) {
+      throw new IllegalArgumentException("maxSegmentsPerRoom and indexInterval must be positive");
+    }
+  }
+
+  public static HistoryConfig defaults() {
+    return new HistoryConfig(1024 * 1024, 16, Duration.ofDays(30), 64);
+  }
+
+  /**
+   * Defaults, overridden by {@code termitalk.history.segmentBytes}, {@code .maxSegments},
+   * {@code .retentionDays} and {@code .indexInterval}.
+   */
+  public static HistoryConfig fromSystemProperties() {
+    HistoryConfig defaults = defaults();
+    return new HistoryConfig(
+            Integer.getInteger("termitalk.history.segmentBytes", defaults.segmentBytes()),
+            Integer.getInteger("termitalk.history.maxSegments", defaults.maxSegmentsPerRoom()),
+            Duration.ofDays(Long.getLong("termitalk.history.retentionDays", defaults.retention().toDays())),
+            Integer.getInteger("termitalk.history.indexInterval", defaults.indexInterval())
+    );
+  }
+}
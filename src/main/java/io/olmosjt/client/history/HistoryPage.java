@@ -0,0 +1,15 @@
+package io.olmosjt.client.history;
+
+import io.olmosjt.client.model.Message;
+
+import java.util.List;
+
+/**
+ * A run of consecutive messages from a room's history, oldest first.
+ *
+ * @param messages the messages
+ * @param cursor pass to {@link HistoryStore#before} for the page preceding this one
+ * @param exhausted true if nothing older is stored
+ */
+public record HistoryPage(List<Message> messages, long cursor, boolean exhausted) {
+}
@@ -0,0 +1,197 @@
+package io.olmosjt.client.history;
+
+import io.olmosjt.client.metrics.ClientMetrics;
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.util.LoggerUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Append-only, on-disk message history, one directory of memory-mapped segments per room
+ * (see {@link Segment} for the record format).
+ * <p>
+ * {@link #append} only queues the messages; a background thread writes whatever has queued
+ * up in one go. Reads return pages of consecutive messages, so a room can be opened by
+ * loading just its tail and scrolled back a page at a time.
+ */
+public final class HistoryStore implements Closeable {
+  private record PendingWrite(String room, List<Message> messages) { }
+
+  private final Path directory;
+  private final HistoryConfig config;
+  private final Map<String, RoomLog> rooms = new ConcurrentHashMap<>();
+
+  private final BlockingQueue<PendingWrite> pending = new LinkedBlockingQueue<>();
+  // Counted in the history queue gauge until closed
+  private final LongSupplier queueDepth = pending::size;
+  private final AtomicLong submitted = new AtomicLong();
+  private final AtomicLong completed = new AtomicLong();
+  private final Thread writer;
+  private volatile boolean closed = false;
+
+  public HistoryStore(Path directory, HistoryConfig config) throws IOException {
+    this.directory = directory;
+    this.config = config;
+    Files.createDirectories(directory);
+    this.writer = Thread.ofVirtual().name("history-writer").start(this::writeLoop);
+    ClientMetrics.HISTORY_QUEUE.add(queueDepth);
+  }
+
+  /**
+   * Opens the store configured by system properties: {@code termitalk.history.dir}
+   * (default ~/.termitalk/history) and those read by {@link HistoryConfig#fromSystemProperties()}.
+   *
+   * @return the store, or null if history is disabled ({@code -Dtermitalk.history=false})
+   *         or the directory cannot be used
+   */
+  public static HistoryStore openDefault() {
+    if ("false".equalsIgnoreCase(System.getProperty("termitalk.history"))) {
+      return null;
+    }
+    Path dir = Path.of(System.getProperty("termitalk.history.dir",
+            Path.of(System.getProperty("user.home"), ".termitalk", "history").toString()));
+    try {
+      return new HistoryStore(dir, HistoryConfig.fromSystemProperties());
+    } catch (IOException | RuntimeException e) {
+      LoggerUtil.error("Message history disabled: " + e.getMessage());
+      return null;
+    }
+  }
+
+  // --- Writing ---
+
+  /**
+   * Queues messages to be appended to a room's history. Returns immediately.
+   */
+  public void append(String room, List<Message> messages) {
+    if (closed || messages.isEmpty()) return;
+    pending.add(new PendingWrite(room, List.copyOf(messages)));
+    submitted.incrementAndGet();
+  }
+
+  private void writeLoop() {
+    List<PendingWrite> batch = new ArrayList<>();
+    while (!closed || !pending.isEmpty()) {
+      try {
+        PendingWrite first = pending.poll(250, TimeUnit.MILLISECONDS);
+        if (first == null) continue;
+        batch.add(first);
+      } catch (InterruptedException e) {
+        if (closed) {
+          pending.drainTo(batch);
+        } else {
+          continue;
+        }
+      }
+      pending.drainTo(batch);
+
+      for (PendingWrite write : batch) {
+        try {
+          log(write.room()).append(write.messages());
+        } catch (IOException | UncheckedIOException e) {
+          LoggerUtil.error("Writing history for " + write.room() + " failed: " + e.getMessage());
+        }
+      }
+      completed.addAndGet(batch.size());
+      batch.clear();
+    }
+  }
+
+  /**
+   * Waits (up to two seconds) until everything appended so far has been written.
+   */
+  public void flush() {
+    long target = submitted.get();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+    while (completed.get() < target && System.nanoTime() < deadline) {
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+  }
+
+  // --- Reading ---
+
+  /**
+   * The newest {@code count} messages of a room, including any still queued for writing.
+   */
+  public HistoryPage tail(String room, int count) throws IOException {
+    flush();
+    return log(room).tail(count);
+  }
+
+  /**
+   * Up to {@code count} messages preceding {@code cursor} (from an earlier page).
+   */
+  public HistoryPage before(String room, long cursor, int count) throws IOException {
+    return log(room).before(cursor, count);
+  }
+
+  /**
+   * Up to {@code max} messages stamped at or after {@code from}, oldest first.
+   */
+  public List<Message> since(String room, Instant from, int max) throws IOException {
+    flush();
+    return log(room).since(from.toEpochMilli(), max);
+  }
+
+  private RoomLog log(String room) throws IOException {
+    try {
+      return rooms.computeIfAbsent(directoryName(room), name -> {
+        try {
+          return RoomLog.open(directory.resolve(name), config);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Maps a room key to a safe directory name.
+   */
+  static String directoryName(String room) {
+    StringBuilder name = new StringBuilder(room.length());
+    for (int i = 0; i < room.length(); i++) {
+      char c = room.charAt(i);
+      boolean safe = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+              || c == '.' || c == '-' || c == '_';
+      name.append(safe ? c : '_');
+    }
+    String result = name.toString();
+    return result.isEmpty() || result.chars().allMatch(c -> c == '.') ? "_" + result : result;
+  }
+
+  /**
+   * Writes what is queued and releases the room files.
+   */
+  @Override
+  public void close() {
+    if (closed) return;
+    flush();
+    closed = true;
+    writer.interrupt();
+    try {
+      writer.join(TimeUnit.SECONDS.toMillis(2));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    rooms.values().forEach(RoomLog::close);
+    ClientMetrics.HISTORY_QUEUE.remove(queueDepth);
+  }
+}
@@ -0,0 +1,171 @@
+package io.olmosjt.client.history;
+
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.util.LoggerUtil;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The segments of one room, oldest first. Positions across segments are byte offsets:
+ * a segment's base is the offset of its first record, and names its files.
+ */
+final class RoomLog {
+  private final Path dir;
+  private final HistoryConfig config;
+  private final List<Segment> segments = new ArrayList<>();
+
+  private RoomLog(Path dir, HistoryConfig config) {
+    this.dir = dir;
+    this.config = config;
+  }
+
+  static RoomLog open(Path dir, HistoryConfig config) throws IOException {
+    Files.createDirectories(dir);
+    RoomLog log = new RoomLog(dir, config);
+
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + Segment.LOG_SUFFIX)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        try {
+          long base = Long.parseLong(name.substring(0, name.length() - Segment.LOG_SUFFIX.length()));
+          log.segments.add(Segment.open(file, base, config.indexInterval()));
+        } catch (NumberFormatException e) {
+          LoggerUtil.warn("Ignoring unexpected history file " + file);
+        }
+      }
+    }
+    log.segments.sort(Comparator.comparingLong(segment -> segment.base));
+
+    if (log.segments.isEmpty()) {
+      log.segments.add(Segment.create(dir, 0, config.segmentBytes(), config.indexInterval()));
+    }
+    log.applyRetention();
+    return log;
+  }
+
+  synchronized void append(List<Message> messages) throws IOException {
+    for (Message message : messages) {
+      Segment active = segments.getLast();
+      if (active.append(message)) continue;
+
+      if (active.end() == 0) {
+        LoggerUtil.warn("Not storing a message larger than the history segment size");
+        continue;
+      }
+      active = roll(active);
+      if (!active.append(message)) {
+        LoggerUtil.warn("Not storing a message larger than the history segment size");
+      }
+    }
+  }
+
+  private Segment roll(Segment full) throws IOException {
+    Segment next = Segment.create(dir, full.base + full.end(), config.segmentBytes(), config.indexInterval());
+    full.close();
+    segments.add(next);
+    applyRetention();
+    return next;
+  }
+
+  /**
+   * Deletes the oldest segments beyond the configured count, and those whose newest record
+   * (bounded by the first record of the following segment) is past the retention period.
+   * The active segment is always kept.
+   */
+  private void applyRetention() throws IOException {
+    long cutoff = System.currentTimeMillis() - config.retention().toMillis();
+    while (segments.size() > 1
+            && (segments.size() > config.maxSegmentsPerRoom() || segments.get(1).firstTimestamp() < cutoff)) {
+      segments.removeFirst().delete();
+    }
+  }
+
+  // --- Reading ---
+
+  synchronized HistoryPage tail(int count) throws IOException {
+    Segment active = segments.getLast();
+    return before(active.base + active.end(), count);
+  }
+
+  /**
+   * Up to {@code count} records ending just before {@code cursor}, oldest first.
+   */
+  synchronized HistoryPage before(long cursor, int count) throws IOException {
+    int index = segmentFor(cursor);
+    if (index < 0) {
+      return new HistoryPage(List.of(), cursor, true);
+    }
+    Segment segment = segments.get(index);
+    int pos = (int) Math.min(cursor - segment.base, segment.end());
+
+    List<Message> page = new ArrayList<>(count);
+    while (page.size() < count) {
+      if (pos == 0) {
+        if (index == 0) break;
+        segment = segments.get(--index);
+        pos = segment.end();
+        continue;
+      }
+      pos = segment.recordBefore(pos);
+      page.add(segment.readAt(pos));
+    }
+    Collections.reverse(page);
+
+    // An empty older segment still counts as the start
+    boolean exhausted = pos == 0 && index == 0;
+    return new HistoryPage(page, segment.base + pos, exhausted);
+  }
+
+  /**
+   * Up to {@code max} records stamped at or after {@code fromMillis}, oldest first, located
+   * through the sparse timestamp index.
+   */
+  synchronized List<Message> since(long fromMillis, int max) throws IOException {
+    int index = 0;
+    // Last segment starting at or before the requested time
+    for (int i = segments.size() - 1; i > 0; i--) {
+      if (segments.get(i).firstTimestamp() <= fromMillis) {
+        index = i;
+        break;
+      }
+    }
+
+    List<Message> result = new ArrayList<>();
+    for (int i = index; i < segments.size() && result.size() < max; i++) {
+      Segment segment = segments.get(i);
+      int end = segment.end();
+      int pos = i == index ? segment.seek(fromMillis) : 0;
+      while (pos < end && result.size() < max) {
+        if (segment.timestampAt(pos) >= fromMillis) {
+          result.add(segment.readAt(pos));
+        }
+        pos = segment.recordAfter(pos);
+      }
+    }
+    return result;
+  }
+
+  private int segmentFor(long cursor) {
+    for (int i = segments.size() - 1; i >= 0; i--) {
+      if (segments.get(i).base <= cursor) return i;
+    }
+    return -1;
+  }
+
+  synchronized void close() {
+    for (Segment segment : segments) {
+      try {
+        segment.close();
+      } catch (IOException e) {
+        LoggerUtil.error("Closing history segment failed: " + e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,301 @@
+package io.olmosjt.client.history;
+
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.model.MessageType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * One memory-mapped, preallocated segment file of a room's history, plus its sparse
+ * timestamp index.
+ * <p>
+ * Record layout: {@code [int length][payload][int length]}, where the payload is
+ * {@code [byte type][long epochMillis][string sender][string recipient][string content]}
+ * and a string is {@code [int byteLength, -1 for null][UTF-8 bytes]}. The length at the end
+ * lets the segment be read backwards from any record boundary. The leading length is written
+ * last, so a record torn by a crash reads as the end of the segment. A zero length marks the
+ * end of the data.
+ * <p>
+ * The index file holds {@code [long epochMillis][int position]} for every
+ * {@code indexInterval}-th record, always including the first.
+ */
+final class Segment {
+  static final String LOG_SUFFIX = ".log";
+  static final String INDEX_SUFFIX = ".idx";
+
+  private static final MessageType[] TYPES = MessageType.values();
+  private static final int FRAME_OVERHEAD = 8;
+  private static final int INDEX_ENTRY_BYTES = 12;
+
+  final long base;
+  private final Path logFile;
+  private final Path indexFile;
+  private final int capacity;
+  private final int indexInterval;
+
+  private MappedByteBuffer map;
+  private int end = -1;
+  private int records;
+
+  private long[] indexTimes = new long[16];
+  private int[] indexPositions = new int[16];
+  private int indexSize = -1;
+  private FileChannel indexChannel;
+
+  private Segment(Path dir, long base, int capacity, int indexInterval) {
+    this.base = base;
+    this.logFile = dir.resolve(fileName(base) + LOG_SUFFIX);
+    this.indexFile = dir.resolve(fileName(base) + INDEX_SUFFIX);
+    this.capacity = capacity;
+    this.indexInterval = indexInterval;
+  }
+
+  static String fileName(long base) {
+    return String.format("%020d", base);
+  }
+
+  /**
+   * Creates and preallocates a new, empty segment.
+   */
+  static Segment create(Path dir, long base, int capacity, int indexInterval) throws IOException {
+    Segment segment = new Segment(dir, base, capacity, indexInterval);
+    try (FileChannel channel = FileChannel.open(segment.logFile,
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate(1), capacity - 1L);
+    }
+    Files.deleteIfExists(segment.indexFile);
+    return segment;
+  }
+
+  /**
+   * Opens an existing segment; nothing is mapped until it is first read or written.
+   */
+  static Segment open(Path logFile, long base, int indexInterval) throws IOException {
+    long size = Files.size(logFile);
+    return new Segment(logFile.getParent(), base, (int) Math.min(size, Integer.MAX_VALUE), indexInterval);
+  }
+
+  // --- Writing ---
+
+  /**
+   * @return false if the record does not fit in the space left
+   */
+  boolean append(Message message) throws IOException {
+    ensureMapped();
+
+    byte[] sender = message.sender().getBytes(StandardCharsets.UTF_8);
+    byte[] recipient = message.recipient() == null ? null : message.recipient().getBytes(StandardCharsets.UTF_8);
+    byte[] content = message.content().getBytes(StandardCharsets.UTF_8);
+    int payload = 1 + 8 + 4 + sender.length + 4 + (recipient == null ? 0 : recipient.length) + 4 + content.length;
+    if ((long) end + payload + FRAME_OVERHEAD > capacity) {
+      return false;
+    }
+
+    long millis = message.timestamp().toEpochMilli();
+    int pos = end + 4;
+    map.put(pos, (byte) message.type().ordinal());
+    map.putLong(pos + 1, millis);
+    pos = putString(pos + 9, sender);
+    pos = putString(pos, recipient);
+    pos = putString(pos, content);
+    map.putInt(pos, payload);
+    // Commit: the record becomes visible once its leading length is set
+    map.putInt(end, payload);
+
+    if (records % indexInterval == 0) {
+      addIndexEntry(millis, end);
+    }
+    records++;
+    end += payload + FRAME_OVERHEAD;
+    return true;
+  }
+
+  private int putString(int pos, byte[] bytes) {
+    if (bytes == null) {
+      map.putInt(pos, -1);
+      return pos + 4;
+    }
+    map.putInt(pos, bytes.length);
+    map.put(pos + 4, bytes);
+    return pos + 4 + bytes.length;
+  }
+
+  private void addIndexEntry(long millis, int position) throws IOException {
+    loadIndex();
+    if (indexSize == indexTimes.length) {
+      indexTimes = Arrays.copyOf(indexTimes, indexSize * 2);
+      indexPositions = Arrays.copyOf(indexPositions, indexSize * 2);
+    }
+    indexTimes[indexSize] = millis;
+    indexPositions[indexSize] = position;
+    indexSize++;
+
+    if (indexChannel == null) {
+      indexChannel = FileChannel.open(indexFile, StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+    ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES).putLong(millis).putInt(position).flip();
+    while (entry.hasRemaining()) {
+      indexChannel.write(entry);
+    }
+  }
+
+  // --- Reading ---
+
+  /**
+   * Offset just past the last record.
+   */
+  int end() throws IOException {
+    ensureMapped();
+    return end;
+  }
+
+  Message readAt(int pos) throws IOException {
+    ensureMapped();
+    int at = pos + 4;
+    MessageType type = TYPES[map.get(at)];
+    long millis = map.getLong(at + 1);
+    at += 9;
+    String sender = getString(at);
+    at += 4 + Math.max(0, map.getInt(at));
+    String recipient = getString(at);
+    at += 4 + Math.max(0, map.getInt(at));
+    String content = getString(at);
+    return new Message(type, sender, recipient, content, Instant.ofEpochMilli(millis));
+  }
+
+  private String getString(int pos) {
+    int length = map.getInt(pos);
+    if (length < 0) return null;
+    byte[] bytes = new byte[length];
+    map.get(pos + 4, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Start of the record that ends at {@code pos}.
+   */
+  int recordBefore(int pos) throws IOException {
+    ensureMapped();
+    return pos - FRAME_OVERHEAD - map.getInt(pos - 4);
+  }
+
+  /**
+   * Start of the record after the one at {@code pos}.
+   */
+  int recordAfter(int pos) {
+    return pos + FRAME_OVERHEAD + map.getInt(pos);
+  }
+
+  long timestampAt(int pos) {
+    return map.getLong(pos + 5);
+  }
+
+  /**
+   * Timestamp of the first record, or Long.MAX_VALUE if the segment is empty.
+   */
+  long firstTimestamp() throws IOException {
+    loadIndex();
+    return indexSize == 0 ? Long.MAX_VALUE : indexTimes[0];
+  }
+
+  /**
+   * Position of the last indexed record at or before {@code millis}; 0 if there is none.
+   */
+  int seek(long millis) throws IOException {
+    loadIndex();
+    int lo = 0;
+    int hi = indexSize - 1;
+    int found = 0;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if (indexTimes[mid] <= millis) {
+        found = indexPositions[mid];
+        lo = mid + 1;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return found;
+  }
+
+  // --- Lifecycle ---
+
+  /**
+   * Maps the file and finds the end of the data by walking the record lengths.
+   */
+  private void ensureMapped() throws IOException {
+    if (map != null) return;
+    try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      map = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    int pos = 0;
+    int count = 0;
+    while (pos + FRAME_OVERHEAD <= capacity) {
+      int length = map.getInt(pos);
+      if (length <= 0 || (long) pos + FRAME_OVERHEAD + length > capacity
+              || map.getInt(pos + 4 + length) != length) {
+        break;
+      }
+      pos += FRAME_OVERHEAD + length;
+      count++;
+    }
+    end = pos;
+    records = count;
+  }
+
+  private void loadIndex() throws IOException {
+    if (indexSize >= 0) return;
+    indexSize = 0;
+    if (!Files.exists(indexFile)) return;
+
+    byte[] bytes = Files.readAllBytes(indexFile);
+    if (bytes.length % INDEX_ENTRY_BYTES != 0) {
+      // Drop a torn trailing entry so later appends stay aligned
+      try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.WRITE)) {
+        channel.truncate(bytes.length - bytes.length % INDEX_ENTRY_BYTES);
+      }
+    }
+    ByteBuffer entries = ByteBuffer.wrap(bytes);
+    while (entries.remaining() >= INDEX_ENTRY_BYTES) {
+      if (indexSize == indexTimes.length) {
+        indexTimes = Arrays.copyOf(indexTimes, indexSize * 2);
+        indexPositions = Arrays.copyOf(indexPositions, indexSize * 2);
+      }
+      indexTimes[indexSize] = entries.getLong();
+      indexPositions[indexSize] = entries.getInt();
+      indexSize++;
+    }
+  }
+
+  void close() throws IOException {
+    if (map != null) {
+      map.force();
+      map = null;
+    }
+    if (indexChannel != null) {
+      indexChannel.close();
+      indexChannel = null;
+    }
+  }
+
+  void delete() throws IOException {
+    if (indexChannel != null) {
+      indexChannel.close();
+      indexChannel = null;
+    }
+    map = null;
+    Files.deleteIfExists(logFile);
+    Files.deleteIfExists(indexFile);
+  }
+}
@@ -0,0 +1,152 @@
+package io.olmosjt.client.load;
+
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.net.LinkStatus;
+import io.olmosjt.client.rooms.RoomTab;
+import io.olmosjt.client.search.SearchHit;
+import io.olmosjt.client.ui.UIController;
+import io.olmosjt.client.ui.UIView;
+import io.olmosjt.client.ui.state.ClientState;
+import io.olmosjt.client.ui.state.UIState;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A {@link UIView} that draws nothing. It counts what the controller shows, passes the
+ * session's own chat messages back to it, and lets the session wait for the controller to
+ * reach a state.
+ * <p>
+ * Waiting uses a {@link ReentrantLock} rather than a monitor, so thousands of sessions can
+ * block on it without pinning the virtual threads' carriers.
+ */
+final class HeadlessView implements UIView {
+  private final LoadSession session;
+  private final LoadStats stats;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+
+  private volatile UIState state = UIState.LOGIN;
+  private volatile int roomLists = 0;
+
+  HeadlessView(LoadSession session, LoadStats stats) {
+    this.session = session;
+    this.stats = stats;
+  }
+
+  UIState state() {
+    return state;
+  }
+
+  int roomLists() {
+    return roomLists;
+  }
+
+  /**
+   * Waits until {@code condition} holds, re-checking whenever the controller updates the view.
+   *
+   * @return false if it still does not hold after {@code timeout}
+   */
+  boolean await(BooleanSupplier condition, Duration timeout) throws InterruptedException {
+    long remaining = timeout.toNanos();
+    lock.lock();
+    try {
+      while (!condition.getAsBoolean()) {
+        if (remaining <= 0) return false;
+        remaining = changed.awaitNanos(remaining);
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void signal() {
+    lock.lock();
+    try {
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // --- UIView ---
+
+  @Override
+  public void setController(UIController controller) { }
+
+  @Override
+  public void start() { }
+
+  @Override
+  public void showState(UIState state) {
+    this.state = state;
+    signal();
+  }
+
+  @Override
+  public void updateRoomList(List<String> rooms) {
+    roomLists++;
+    signal();
+  }
+
+  @Override
+  public void addMessage(Message message) {
+    received(message);
+    signal();
+  }
+
+  @Override
+  public void addMessages(List<Message> messages) {
+    for (Message message : messages) {
+      received(message);
+    }
+    signal();
+  }
+
+  private void received(Message message) {
+    stats.received.increment();
+    session.onMessage(message);
+  }
+
+  @Override
+  public void prependMessages(List<Message> messages) { }
+
+  @Override
+  public void showSearchResults(String query, List<SearchHit> hits) { }
+
+  @Override
+  public void showLoginError(String reason) {
+    stats.error(reason);
+    signal();
+  }
+
+  @Override
+  public void setRoomDetails(String channelName, String channelId) { }
+
+  @Override
+  public void drawInitialConnectionError() { }
+
+  @Override
+  public void showConnectionState(ClientState state) {
+    signal();
+  }
+
+  @Override
+  public void showLinkStatus(LinkStatus status) { }
+
+  @Override
+  public void updateRoomTabs(List<RoomTab> tabs) { }
+
+  @Override
+  public void showFeedback(String text, boolean isError) {
+    if (isError) {
+      stats.error(text);
+    }
+    signal();
+  }
+}
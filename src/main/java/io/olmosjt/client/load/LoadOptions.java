@@ -0,0 +1,100 @@
+package io.olmosjt.client.load;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Settings for a load run, parsed from {@code --name=value} arguments.
+ *
+ * @param sessions simulated clients
+ * @param rampUp time over which session starts are spread
+ * @param messagesPerSecond chat messages each session sends per second while in its room
+ * @param duration how long each session stays in its room sending
+ * @param messageSize characters per chat message (at least enough for the sequence tag)
+ * @param rooms room ids (without '#'); sessions are spread over them round-robin
+ * @param stepTimeout how long a scripted step may wait for the server before the session fails
+ * @param loopback run against an in-process {@link LocalServer} instead of host and port;
+ *                 needs the test fixtures on the class path
+ */
+public record LoadOptions(
+        String host,
+        int port,
+        int sessions,
+        Duration rampUp,
+        double messagesPerSecond,
+        Duration duration,
+        int messageSize,
+        List<String> rooms,
+        boolean nio,
+        Duration reportInterval,
+        Duration stepTimeout,
+        boolean loopback
+) {
+  public static final String USAGE = """
+          Usage: load [--host=127.0.0.1] [--port=9000] [--sessions=100] [--rampUp=10s]
+                      [--rate=1.0] [--duration=60s] [--size=32] [--rooms=1[,2...]]
+                      [--nio] [--report=5s] [--stepTimeout=15s] [--loopback]""";
+
+  private static final Set<String> NAMES = Set.of(
+          "host", "port", "sessions", "rampUp", "rate", "duration", "size", "rooms", "nio", "report", "stepTimeout",
+          "loopback");
+
+  /**
+   * @throws IllegalArgumentException for an unknown option or a malformed value
+   */
+  public static LoadOptions parse(String[] args) {
+    Map<String, String> values = new HashMap<>();
+    for (String arg : args) {
+      if (!arg.startsWith("--")) {
+        throw new IllegalArgumentException("Unexpected argument: " + arg);
+      }
+      int eq = arg.indexOf('=');
+      String name = eq < 0 ? arg.substring(2) : arg.substring(2, eq);
+      if (!NAMES.contains(name)) {
+        throw new IllegalArgumentException("Unknown option: --" + name);
+      }
+      values.put(name, eq < 0 ? "true" : arg.substring(eq + 1));
+    }
+
+    LoadOptions options = new LoadOptions(
+            values.getOrDefault("host", "127.0.0.1"),
+            Integer.parseInt(values.getOrDefault("port", "9000")),
+            Integer.parseInt(values.getOrDefault("sessions", "100")),
+            duration(values.getOrDefault("rampUp", "10s")),
+            Double.parseDouble(values.getOrDefault("rate", "1")),
+            duration(values.getOrDefault("duration", "60s")),
+            Integer.parseInt(values.getOrDefault("size", "32")),
+            Arrays.asList(values.getOrDefault("rooms", "1").replace("#", "").split(",")),
+            Boolean.parseBoolean(values.getOrDefault("nio", "false")),
+            duration(values.getOrDefault("report", "5s")),
+            duration(values.getOrDefault("stepTimeout", "15s")),
+            Boolean.parseBoolean(values.getOrDefault("loopback", "false"))
+    );
+    if (options.sessions < 1 || options.messagesPerSecond < 0 || options.reportInterval.isZero()) {
+      throw new IllegalArgumentException("sessions must be positive, rate non-negative and report non-zero");
+    }
+    return options;
+  }
+
+  /**
+   * The same settings aimed at another server.
+   */
+  public LoadOptions withServer(String host, int port) {
+    return new LoadOptions(host, port, sessions, rampUp, messagesPerSecond, duration, messageSize, rooms, nio,
+            reportInterval, stepTimeout, loopback);
+  }
+
+  /**
+   * "500ms", "30s", "2m", or a bare number of seconds.
+   */
+  static Duration duration(String value) {
+    if (value.endsWith("ms")) return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+    if (value.endsWith("s")) return Duration.ofMillis((long) (Double.parseDouble(value.substring(0, value.length() - 1)) * 1000));
+    if (value.endsWith("m")) return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)) * 60);
+    return Duration.ofMillis((long) (Double.parseDouble(value) * 1000));
+  }
+}
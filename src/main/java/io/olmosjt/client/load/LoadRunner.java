@@ -0,0 +1,181 @@
+package io.olmosjt.client.load;
+
+import io.olmosjt.client.metrics.ClientMetrics;
+import io.olmosjt.client.metrics.Counter;
+import io.olmosjt.client.metrics.Histogram;
+import io.olmosjt.client.metrics.Metric;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Headless load generator: runs many simulated clients against a server from one JVM, each on
+ * virtual threads, and reports throughput, round-trip percentiles and errors.
+ * <p>
+ * Started with {@code TermiTalkClient load [options]}, through this class's main method, or
+ * with {@code ./gradlew load --args="[options]"}; see {@link LoadOptions#USAGE}. Only
+ * {@code --loopback} needs more than the client jar: its server is in the test fixtures,
+ * which {@code ./gradlew load} puts on the class path.
+ */
+public final class LoadRunner {
+  // In the test fixtures, so looked up by name
+  private static final String LOOPBACK_SERVER = "io.olmosjt.client.loopback.LoopbackLocalServer";
+
+  private final LoadOptions options;
+  private final LoadStats stats = new LoadStats();
+  private final PrintStream out;
+
+  public LoadRunner(LoadOptions options, PrintStream out) {
+    this.options = options;
+    this.out = out;
+  }
+
+  public static void main(String[] args) {
+    LoadOptions options;
+    try {
+      options = LoadOptions.parse(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(LoadOptions.USAGE);
+      System.exit(2);
+      return;
+    }
+    if (!options.loopback()) {
+      System.exit(new LoadRunner(options, System.out).run() ? 0 : 1);
+      return;
+    }
+
+    Class<? extends LocalServer> loopback;
+    try {
+      loopback = Class.forName(LOOPBACK_SERVER).asSubclass(LocalServer.class);
+    } catch (ClassNotFoundException e) {
+      System.err.println("--loopback needs the test fixtures, which the client jar does not contain;"
+              + " run it with ./gradlew load, or give --host and --port instead");
+      System.exit(2);
+      return;
+    }
+
+    boolean passed;
+    try (LocalServer server = startLoopback(loopback, options)) {
+      passed = new LoadRunner(options.withServer(server.host(), server.port()), System.out).run();
+    } catch (IOException e) {
+      System.err.println("Could not start the loopback server: " + e.getMessage());
+      passed = false;
+    }
+    System.exit(passed ? 0 : 1);
+  }
+
+  /**
+   * Starts an in-process server with every room the options name.
+   */
+  private static LocalServer startLoopback(Class<? extends LocalServer> type, LoadOptions options) throws IOException {
+    try {
+      return type.getConstructor(LoadOptions.class).newInstance(options);
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof IOException io) throw io;
+      throw new IOException(e.getCause());
+    } catch (ReflectiveOperationException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Runs every session to completion and prints the report.
+   *
+   * @return true if every session completed its scenario
+   */
+  public boolean run() {
+    out.printf("Load: %d sessions against %s:%d started over %.1fs, %.2f msg/s each for %.1fs, rooms %s%n",
+            options.sessions(), options.host(), options.port(), options.rampUp().toMillis() / 1000.0,
+            options.messagesPerSecond(), options.duration().toMillis() / 1000.0, String.join(",", options.rooms()));
+
+    long start = System.nanoTime();
+    Thread reporter = Thread.ofVirtual().name("load-report").start(() -> reportLoop(start));
+    try (ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor()) {
+      long rampNanos = options.rampUp().toNanos();
+      for (int i = 0; i < options.sessions(); i++) {
+        long delay = options.sessions() == 1 ? 0 : rampNanos * i / (options.sessions() - 1);
+        sessions.submit(new LoadSession(i, options, stats, delay));
+      }
+    } // Waits for every session
+    reporter.interrupt();
+
+    printSummary(System.nanoTime() - start);
+    return stats.failed.sum() == 0 && stats.completed.sum() == options.sessions();
+  }
+
+  private void reportLoop(long start) {
+    long lastSent = 0;
+    long lastReceived = 0;
+    long intervalNanos = options.reportInterval().toNanos();
+    try {
+      while (true) {
+        Thread.sleep(options.reportInterval());
+        long sent = stats.sent.sum();
+        long received = stats.received.sum();
+        double seconds = intervalNanos / 1e9;
+        Histogram.Snapshot echo = stats.echo.snapshot();
+        out.printf("[%5.0fs] active %d, done %d, failed %d | sent %.0f msg/s | received %.0f msg/s | echo p50 %s p99 %s | errors %d%n",
+                (System.nanoTime() - start) / 1e9, stats.active.get(), stats.completed.sum(), stats.failed.sum(),
+                (sent - lastSent) / seconds, (received - lastReceived) / seconds,
+                Histogram.formatNanos(echo.valueAt(0.5)), Histogram.formatNanos(echo.valueAt(0.99)),
+                stats.errorCount());
+        lastSent = sent;
+        lastReceived = received;
+      }
+    } catch (InterruptedException e) {
+      // Run finished
+    }
+  }
+
+  private void printSummary(long elapsedNanos) {
+    double seconds = elapsedNanos / 1e9;
+    out.println();
+    out.printf("Finished in %.1fs: %d sessions started, %d completed, %d failed%n",
+            seconds, stats.started.sum(), stats.completed.sum(), stats.failed.sum());
+    out.printf("Messages: %d sent (%.0f/s), %d received (%.0f/s)%n",
+            stats.sent.sum(), stats.sent.sum() / seconds, stats.received.sum(), stats.received.sum() / seconds);
+
+    out.println();
+    out.printf("%-24s %9s %10s %10s %10s %10s %9s%n", "Round trip", "count", "p50", "p90", "p99", "max", "timeouts");
+    for (Metric metric : ClientMetrics.REGISTRY.metrics()) {
+      if (metric instanceof Histogram histogram && metric.name().startsWith("termitalk_rtt_")) {
+        String type = metric.name().substring("termitalk_rtt_".length(), metric.name().length() - "_seconds".length());
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        long timeouts = timeouts(type);
+        if (snapshot.count() > 0 || timeouts > 0) {
+          printRoundTrips(type.toUpperCase(), snapshot, timeouts);
+        }
+      }
+    }
+    printRoundTrips("MSG (echo)", stats.echo.snapshot(), -1);
+    if (stats.sent.sum() > 0 && stats.echo.snapshot().count() == 0) {
+      out.println("No chat message came back to its sender; echo times need a server that broadcasts to the sender too.");
+    }
+
+    Map<String, Long> errors = stats.errors();
+    out.println();
+    out.println(errors.isEmpty() ? "Errors: none" : "Errors:");
+    errors.forEach((reason, count) -> out.printf("  %8d  %s%n", count, reason));
+  }
+
+  private void printRoundTrips(String label, Histogram.Snapshot snapshot, long timeouts) {
+    out.printf("%-24s %9d %10s %10s %10s %10s %9s%n", label, snapshot.count(),
+            Histogram.formatNanos(snapshot.valueAt(0.5)), Histogram.formatNanos(snapshot.valueAt(0.9)),
+            Histogram.formatNanos(snapshot.valueAt(0.99)), Histogram.formatNanos(snapshot.max()),
+            timeouts < 0 ? "-" : Long.toString(timeouts));
+  }
+
+  private static long timeouts(String type) {
+    for (Metric metric : ClientMetrics.REGISTRY.metrics()) {
+      if (metric instanceof Counter counter && metric.name().equals("termitalk_rtt_" + type + "_timeouts_total")) {
+        return counter.get();
+      }
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,155 @@
+package io.olmosjt.client.load;
+
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.model.MessageType;
+import io.olmosjt.client.net.NetworkService;
+import io.olmosjt.client.net.NioNetworkService;
+import io.olmosjt.client.net.SocketNetworkService;
+import io.olmosjt.client.ui.ChatClient;
+import io.olmosjt.client.ui.state.ClientState;
+import io.olmosjt.client.ui.state.UIState;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+
+/**
+ * One simulated client: a {@link ChatClient} on its own transport, without history or search,
+ * running the scripted scenario connect, log in, list rooms, join, send at the configured
+ * rate, leave.
+ * <p>
+ * Each chat message is tagged with a sequence number so its broadcast back to this session can
+ * be matched to the send time.
+ */
+final class LoadSession implements Runnable {
+  private static final int SEND_TIMES = 1024;
+
+  private final String username;
+  private final String room;
+  private final LoadOptions options;
+  private final LoadStats stats;
+  private final long startDelayNanos;
+
+  // Send time of message seq at seq % SEND_TIMES; written by the session, read on the I/O thread
+  private final AtomicLongArray sendTimes = new AtomicLongArray(SEND_TIMES);
+  private final String padding;
+
+  LoadSession(int id, LoadOptions options, LoadStats stats, long startDelayNanos) {
+    this.username = "load-" + id;
+    this.room = options.rooms().get(id % options.rooms().size());
+    this.options = options;
+    this.stats = stats;
+    this.startDelayNanos = startDelayNanos;
+    this.padding = "x".repeat(Math.max(0, options.messageSize() - 8));
+  }
+
+  private static final class StepFailed extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    StepFailed(String step) {
+      super(step, null, false, false);
+    }
+  }
+
+  @Override
+  public void run() {
+    try {
+      Thread.sleep(Duration.ofNanos(startDelayNanos));
+    } catch (InterruptedException e) {
+      return;
+    }
+    stats.started.increment();
+    stats.active.incrementAndGet();
+
+    NetworkService transport = options.nio() ? new NioNetworkService() : new SocketNetworkService();
+    ChatClient client = new ChatClient(transport, null, null);
+    HeadlessView view = new HeadlessView(this, stats);
+    client.setView(view);
+    view.setController(client);
+    try {
+      if (!client.start(options.host(), options.port())) {
+        throw new StepFailed("connect");
+      }
+      step(view, "welcome", () -> client.getClientState() == ClientState.AWAITING_LOGIN);
+
+      client.attemptLogin(username);
+      step(view, "login", () -> view.state() == UIState.LOBBY);
+
+      int lists = view.roomLists();
+      client.requestRoomList();
+      step(view, "list rooms", () -> view.roomLists() > lists);
+
+      client.joinRoom("#" + room);
+      step(view, "join", () -> view.state() == UIState.IN_ROOM);
+
+      sendMessages(client);
+
+      client.leaveRoom();
+      step(view, "leave", () -> view.state() == UIState.LOBBY);
+      stats.completed.increment();
+    } catch (StepFailed e) {
+      stats.failed.increment();
+      stats.error("session failed at " + e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      stats.active.decrementAndGet();
+      client.shutdown();
+    }
+  }
+
+  private void step(HeadlessView view, String name, BooleanSupplier done) throws StepFailed, InterruptedException {
+    if (!view.await(done, options.stepTimeout())) {
+      throw new StepFailed(name);
+    }
+  }
+
+  /**
+   * Sends at the configured rate for the configured duration, on a fixed schedule so a slow
+   * send does not lower the rate. The first send is offset randomly so sessions do not send
+   * in lockstep.
+   */
+  private void sendMessages(ChatClient client) throws StepFailed, InterruptedException {
+    if (options.messagesPerSecond() <= 0) {
+      Thread.sleep(options.duration());
+      return;
+    }
+    long interval = (long) (TimeUnit.SECONDS.toNanos(1) / options.messagesPerSecond());
+    long end = System.nanoTime() + options.duration().toNanos();
+    long next = System.nanoTime() + ThreadLocalRandom.current().nextLong(Math.max(1, interval));
+
+    for (long seq = 0; next < end; seq++, next += interval) {
+      long wait = next - System.nanoTime();
+      if (wait > 0) {
+        Thread.sleep(Duration.ofNanos(wait));
+      }
+      if (client.getClientState() == ClientState.DISCONNECTED) {
+        throw new StepFailed("chat (disconnected)");
+      }
+      sendTimes.set((int) (seq % SEND_TIMES), System.nanoTime());
+      client.sendMessage("#" + seq + " " + padding);
+      stats.sent.increment();
+    }
+  }
+
+  /**
+   * Called for every message the controller shows; times the broadcasts of our own messages.
+   */
+  void onMessage(Message message) {
+    if (message.type() != MessageType.USER || !username.equals(message.sender())) return;
+    String content = message.content();
+    int space = content.indexOf(' ');
+    if (!content.startsWith("#") || space < 0) return;
+    try {
+      long seq = Long.parseLong(content, 1, space, 10);
+      long sentAt = sendTimes.get((int) (seq % SEND_TIMES));
+      if (sentAt != 0) {
+        stats.echo.record(System.nanoTime() - sentAt);
+      }
+    } catch (NumberFormatException e) {
+      // Not one of ours
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package io.olmosjt.client.load;
+
+import io.olmosjt.client.metrics.ClientMetrics;
+import io.olmosjt.client.metrics.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters shared by every session of a load run.
+ */
+final class LoadStats {
+  final AtomicInteger active = new AtomicInteger();
+  final LongAdder started = new LongAdder();
+  final LongAdder completed = new LongAdder();
+  final LongAdder failed = new LongAdder();
+
+  final LongAdder sent = new LongAdder();
+  final LongAdder received = new LongAdder();
+
+  // Send to the server's broadcast of the same message back to its sender
+  final Histogram echo = ClientMetrics.REGISTRY.histogram("termitalk_load_echo_seconds",
+          "Time from sending a chat message to receiving it back from the server.");
+
+  private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+  void error(String reason) {
+    errors.computeIfAbsent(reason, r -> new LongAdder()).increment();
+  }
+
+  long errorCount() {
+    long total = 0;
+    for (LongAdder count : errors.values()) {
+      total += count.sum();
+    }
+    return total;
+  }
+
+  /**
+   * Error counts by reason, sorted by reason.
+   */
+  Map<String, Long> errors() {
+    Map<String, Long> copy = new TreeMap<>();
+    errors.forEach((reason, count) -> copy.put(reason, count.sum()));
+    return copy;
+  }
+}
@@ -0,0 +1,19 @@
+package io.olmosjt.client.load;
+
+/**
+ * An in-process server a load run targets with {@code --loopback} instead of a real one.
+ * <p>
+ * The implementation is backed by the loopback server of the test fixtures, which the client
+ * jar does not contain; {@link LoadRunner} looks it up by name and reports it missing when
+ * run from the jar. An implementation has a public constructor taking the {@link LoadOptions}
+ * and starts listening in it.
+ */
+public interface LocalServer extends AutoCloseable {
+
+  String host();
+
+  int port();
+
+  @Override
+  void close();
+}
@@ -0,0 +1,70 @@
+package io.olmosjt.client.metrics;
+
+import io.olmosjt.client.util.LoggerUtil;
+
+/**
+ * The client's metrics and the points that update them.
+ * <p>
+ * Counters are always kept; they cost one striped add. Timing needs two clock reads, so it
+ * is skipped when the client runs with {@code -Dtermitalk.metrics=false}: {@link #start()}
+ * then returns {@link #OFF} and {@link Histogram#recordSince} ignores it.
+ */
+public final class ClientMetrics {
+  public static final boolean ENABLED = !"false".equals(System.getProperty("termitalk.metrics"));
+
+  /**
+   * Start time returned while timing is disabled.
+   */
+  public static final long OFF = Long.MIN_VALUE;
+
+  public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+  // --- Network ---
+  public static final Counter BYTES_IN = REGISTRY.counter("termitalk_net_bytes_in_total", "Bytes read from the server.");
+  public static final Counter BYTES_OUT = REGISTRY.counter("termitalk_net_bytes_out_total", "Bytes written to the server.");
+  public static final Counter PAYLOAD_BYTES_IN = REGISTRY.counter("termitalk_net_payload_bytes_in_total", "Bytes of protocol text received, after decompression.");
+  public static final Counter PAYLOAD_BYTES_OUT = REGISTRY.counter("termitalk_net_payload_bytes_out_total", "Bytes of protocol text sent, before compression.");
+  public static final Gauge COMPRESSION = REGISTRY.gauge("termitalk_net_wire_percent", "Bytes on the wire per 100 bytes of protocol text, both directions.", ClientMetrics::wirePercent);
+  public static final Counter LINES_IN = REGISTRY.counter("termitalk_net_lines_in_total", "Lines read from the server.");
+  public static final Counter LINES_OUT = REGISTRY.counter("termitalk_net_lines_out_total", "Requests written to the server.");
+  public static final Gauge REQUESTS_IN_FLIGHT = REGISTRY.gauge("termitalk_requests_in_flight", "Requests waiting for a response.");
+  public static final Histogram FLUSH_TIME = REGISTRY.histogram("termitalk_net_flush_seconds", "Time to write and flush one batch of requests.");
+
+  // --- Decoding and dispatch ---
+  public static final Histogram DECODE_TIME = REGISTRY.histogram("termitalk_decode_seconds", "Time to decode one server line.");
+  public static final Counter MALFORMED = REGISTRY.counter("termitalk_decode_malformed_total", "Server lines that could not be decoded.");
+  public static final Histogram DISPATCH_TIME = REGISTRY.histogram("termitalk_dispatch_seconds", "Time for the controller to handle one delivery from the transport.");
+
+  // --- Rooms ---
+  public static final Gauge ROOM_BUFFER = REGISTRY.gauge("termitalk_rooms_buffered_messages", "Messages kept in the scrollback of joined rooms.");
+  public static final Counter ROOM_EVICTIONS = REGISTRY.counter("termitalk_rooms_evicted_total", "Room messages dropped to stay within the scrollback budget.");
+
+  // --- Rendering ---
+  public static final Histogram FRAME_TIME = REGISTRY.histogram("termitalk_frame_seconds", "Time to paint and refresh one frame.");
+  public static final Counter FRAMES = REGISTRY.counter("termitalk_frames_total", "Frames painted.");
+  public static final Counter UI_EVENTS = REGISTRY.counter("termitalk_ui_events_total", "Messages, keystrokes and state changes applied to the view.");
+  public static final Counter FRAMES_SKIPPED = REGISTRY.counter("termitalk_frames_skipped_total", "Render loop wake-ups with nothing to repaint.");
+  public static final Counter CELLS_WRITTEN = REGISTRY.counter("termitalk_cells_written_total", "Screen cells sent to the terminal.");
+
+  // --- Queues ---
+  public static final Gauge SEND_QUEUE = REGISTRY.gauge("termitalk_send_queue_depth", "Requests waiting to be written.");
+  public static final Counter SEND_DROPPED = REGISTRY.counter("termitalk_send_dropped_total", "Requests rejected or dropped because the send queue was full.");
+  public static final Gauge LOG_QUEUE = REGISTRY.gauge("termitalk_log_queue_depth", "Log records waiting to be written.", LoggerUtil::queued);
+  public static final Gauge LOG_DROPPED = REGISTRY.gauge("termitalk_log_dropped", "Log records discarded because the queue was full.", LoggerUtil::dropped);
+  public static final Gauge HISTORY_QUEUE = REGISTRY.gauge("termitalk_history_queue_depth", "History writes waiting for the writer thread.");
+  public static final Gauge INPUT_QUEUE = REGISTRY.gauge("termitalk_input_queue_depth", "Keystrokes waiting for the event loop.");
+
+  private ClientMetrics() { }
+
+  private static long wirePercent() {
+    long payload = PAYLOAD_BYTES_IN.get() + PAYLOAD_BYTES_OUT.get();
+    return payload == 0 ? 100 : (BYTES_IN.get() + BYTES_OUT.get()) * 100 / payload;
+  }
+
+  /**
+   * Start time for {@link Histogram#recordSince}, or {@link #OFF} when timing is disabled.
+   */
+  public static long start() {
+    return ENABLED ? System.nanoTime() : OFF;
+  }
+}
@@ -0,0 +1,45 @@
+package io.olmosjt.client.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing count. Backed by a {@link LongAdder}, so concurrent increments
+ * from the network, render and input threads do not contend on one cache line.
+ */
+public final class Counter implements Metric {
+  private final String name;
+  private final String help;
+  private final LongAdder value = new LongAdder();
+
+  Counter(String name, String help) {
+    this.name = name;
+    this.help = help;
+  }
+
+  public void increment() {
+    value.increment();
+  }
+
+  public void add(long amount) {
+    value.add(amount);
+  }
+
+  public long get() {
+    return value.sum();
+  }
+
+  @Override
+  public String name() {
+    return name;
+  }
+
+  @Override
+  public String help() {
+    return help;
+  }
+
+  @Override
+  public String summary() {
+    return Long.toString(get());
+  }
+}
@@ -0,0 +1,59 @@
+package io.olmosjt.client.metrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+/**
+ * A value sampled when it is read, such as a queue depth: the sum of its sources. Each
+ * instance that owns a part of it, a transport's send queue or a client's room buffers,
+ * adds a source while it is open and removes it when it closes, so a process running many
+ * clients reports their total and keeps no closed one reachable.
+ */
+public final class Gauge implements Metric {
+  private final String name;
+  private final String help;
+  private final List<LongSupplier> sources = new CopyOnWriteArrayList<>();
+
+  Gauge(String name, String help) {
+    this.name = name;
+    this.help = help;
+  }
+
+  /**
+   * Counts {@code source} in the value from now on.
+   */
+  public void add(LongSupplier source) {
+    sources.add(source);
+  }
+
+  /**
+   * Stops counting a source previously passed to {@link #add}, the same instance.
+   */
+  public void remove(LongSupplier source) {
+    sources.remove(source);
+  }
+
+  public long get() {
+    long sum = 0;
+    for (LongSupplier source : sources) {
+      sum += source.getAsLong();
+    }
+    return sum;
+  }
+
+  @Override
+  public String name() {
+    return name;
+  }
+
+  @Override
+  public String help() {
+    return help;
+  }
+
+  @Override
+  public String summary() {
+    return Long.toString(get());
+  }
+}
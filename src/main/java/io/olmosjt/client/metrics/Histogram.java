@@ -0,0 +1,150 @@
+package io.olmosjt.client.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of durations in nanoseconds, in the style of HdrHistogram.
+ * <p>
+ * Values below 64 get a bucket each; above that every power of two is split into 32 linear
+ * sub-buckets, so any recorded value is reported within about 3% while the whole range of a
+ * {@code long} fits in 1888 buckets. Recording is an index computation and one atomic
+ * increment; nothing is allocated.
+ */
+public final class Histogram implements Metric {
+  private static final int SUB_BITS = 5;
+  private static final int SUB_COUNT = 1 << SUB_BITS;
+  private static final int BUCKETS = (62 - SUB_BITS) * SUB_COUNT + 2 * SUB_COUNT;
+
+  private final String name;
+  private final String help;
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  Histogram(String name, String help) {
+    this.name = name;
+    this.help = help;
+  }
+
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    buckets.incrementAndGet(index(value));
+    count.increment();
+    sum.add(value);
+    if (value > max.get()) {
+      max.accumulateAndGet(value, Math::max);
+    }
+  }
+
+  /**
+   * Records the time elapsed since {@code start}, a value from {@link ClientMetrics#start()}.
+   * Does nothing when metrics are disabled.
+   */
+  public void recordSince(long start) {
+    if (start != ClientMetrics.OFF) {
+      record(System.nanoTime() - start);
+    }
+  }
+
+  public Snapshot snapshot() {
+    long[] counts = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+      total += counts[i];
+    }
+    return new Snapshot(counts, total, sum.sum(), max.get());
+  }
+
+  static int index(long value) {
+    int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+    return shift * SUB_COUNT + (int) (value >>> shift);
+  }
+
+  /**
+   * Largest value that falls in the bucket, as HdrHistogram reports it.
+   */
+  static long highestValue(int index) {
+    if (index < 2 * SUB_COUNT) return index;
+    int shift = index / SUB_COUNT - 1;
+    long lowest = (long) (index - shift * SUB_COUNT) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+  @Override
+  public String name() {
+    return name;
+  }
+
+  @Override
+  public String help() {
+    return help;
+  }
+
+  @Override
+  public String summary() {
+    Snapshot snapshot = snapshot();
+    if (snapshot.count() == 0) return "-";
+    return String.format("n=%d p50=%s p99=%s max=%s", snapshot.count(),
+            formatNanos(snapshot.valueAt(0.5)), formatNanos(snapshot.valueAt(0.99)), formatNanos(snapshot.max()));
+  }
+
+  /**
+   * A duration in the largest unit that keeps it above 1, e.g. "840ns", "2.4ms".
+   */
+  public static String formatNanos(long nanos) {
+    if (nanos < 1_000) return nanos + "ns";
+    if (nanos < 1_000_000) return String.format("%.1fus", nanos / 1e3);
+    if (nanos < 1_000_000_000) return String.format("%.1fms", nanos / 1e6);
+    return String.format("%.2fs", nanos / 1e9);
+  }
+
+  /**
+   * A consistent copy of the distribution. Counts recorded while it was being taken may be
+   * partly included, so {@link #count()} is the sum of the copied buckets.
+   */
+  public static final class Snapshot {
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    private Snapshot(long[] counts, long count, long sum, long max) {
+      this.counts = counts;
+      this.count = count;
+      this.sum = sum;
+      this.max = max;
+    }
+
+    public long count() {
+      return count;
+    }
+
+    public long sum() {
+      return sum;
+    }
+
+    public long max() {
+      return max;
+    }
+
+    /**
+     * Value at the given quantile (0..1), or 0 if nothing was recorded.
+     */
+    public long valueAt(double quantile) {
+      if (count == 0) return 0;
+      long rank = Math.max(1, (long) Math.ceil(quantile * count));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(highestValue(i), max);
+        }
+      }
+      return max;
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package io.olmosjt.client.metrics;
+
+/**
+ * A named value kept by a {@link MetricsRegistry}.
+ */
+public sealed interface Metric permits Counter, Gauge, Histogram {
+  /**
+   * Prometheus-style name, e.g. {@code termitalk_net_bytes_in_total}.
+   */
+  String name();
+
+  String help();
+
+  /**
+   * Short human-readable rendering of the current value, for the diagnostics panel.
+   */
+  String summary();
+}
@@ -0,0 +1,140 @@
+package io.olmosjt.client.metrics;
+
+import io.olmosjt.client.util.LoggerUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+/**
+ * The set of metrics, in registration order. Registering a name twice returns the metric
+ * already registered under it.
+ */
+public final class MetricsRegistry {
+  private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+  private final Map<String, Metric> byName = new ConcurrentHashMap<>();
+  private final List<Metric> metrics = new CopyOnWriteArrayList<>();
+
+  public Counter counter(String name, String help) {
+    return register(name, new Counter(name, help), Counter.class);
+  }
+
+  public Histogram histogram(String name, String help) {
+    return register(name, new Histogram(name, help), Histogram.class);
+  }
+
+  /**
+   * Registers a gauge with no sources yet; its owners add theirs with {@link Gauge#add}.
+   */
+  public Gauge gauge(String name, String help) {
+    return register(name, new Gauge(name, help), Gauge.class);
+  }
+
+  /**
+   * Registers a gauge that samples {@code source}. A gauge already registered under the name
+   * is returned as it is.
+   */
+  public Gauge gauge(String name, String help, LongSupplier source) {
+    Gauge created = new Gauge(name, help);
+    Gauge gauge = register(name, created, Gauge.class);
+    if (gauge == created) {
+      gauge.add(source);
+    }
+    return gauge;
+  }
+
+  private synchronized <M extends Metric> M register(String name, M metric, Class<M> type) {
+    Metric existing = byName.get(name);
+    if (existing != null) {
+      if (!type.isInstance(existing)) {
+        throw new IllegalArgumentException(name + " is already registered as a " + existing.getClass().getSimpleName());
+      }
+      return type.cast(existing);
+    }
+    byName.put(name, metric);
+    metrics.add(metric);
+    return metric;
+  }
+
+  public List<Metric> metrics() {
+    return List.copyOf(metrics);
+  }
+
+  // --- Export ---
+
+  /**
+   * Writes every metric in the Prometheus text exposition format. Histograms are exported as
+   * summaries in seconds.
+   */
+  public void writePrometheus(Appendable out) throws IOException {
+    for (Metric metric : metrics) {
+      out.append("# HELP ").append(metric.name()).append(' ').append(metric.help()).append('\n');
+      switch (metric) {
+        case Counter counter -> {
+          out.append("# TYPE ").append(metric.name()).append(" counter\n");
+          out.append(metric.name()).append(' ').append(Long.toString(counter.get())).append('\n');
+        }
+        case Gauge gauge -> {
+          out.append("# TYPE ").append(metric.name()).append(" gauge\n");
+          out.append(metric.name()).append(' ').append(Long.toString(gauge.get())).append('\n');
+        }
+        case Histogram histogram -> {
+          Histogram.Snapshot snapshot = histogram.snapshot();
+          out.append("# TYPE ").append(metric.name()).append(" summary\n");
+          for (double quantile : QUANTILES) {
+            out.append(metric.name()).append("{quantile=\"").append(Double.toString(quantile)).append("\"} ")
+                    .append(seconds(snapshot.valueAt(quantile))).append('\n');
+          }
+          out.append(metric.name()).append("_sum ").append(seconds(snapshot.sum())).append('\n');
+          out.append(metric.name()).append("_count ").append(Long.toString(snapshot.count())).append('\n');
+        }
+      }
+    }
+  }
+
+  public String toPrometheus() {
+    StringBuilder text = new StringBuilder(4096);
+    try {
+      writePrometheus(text);
+    } catch (IOException e) {
+      throw new IllegalStateException(e); // StringBuilder does not throw
+    }
+    return text.toString();
+  }
+
+  private static String seconds(long nanos) {
+    return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+  }
+
+  /**
+   * Rewrites {@code file} with the Prometheus text of every metric once per {@code interval},
+   * on a virtual thread, for as long as the process runs. Each dump replaces the file in one
+   * step, so a scraper never reads a half-written one.
+   */
+  public void startPeriodicDump(Path file, Duration interval) {
+    Thread.ofVirtual().name("metrics-dump").start(() -> {
+      Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+      while (true) {
+        try {
+          Thread.sleep(interval);
+          Files.writeString(temp, toPrometheus(), StandardCharsets.UTF_8);
+          Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (InterruptedException e) {
+          return;
+        } catch (IOException e) {
+          LoggerUtil.warn("Metrics dump to " + file + " failed: " + e.getMessage());
+        }
+      }
+    });
+  }
+}
@@ -14,6 +14,8 @@ public enum CommandType {
   PRIVMSG,
   QUIT,
   HELP,
+  COMPRESS,
+  PING,
   UNKNOWN;
 
   public static CommandType fromString(String raw) {
@@ -0,0 +1,54 @@
+package io.olmosjt.client.net;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of equally sized direct ByteBuffers.
+ * Direct buffers are expensive to allocate and free, so transports borrow them here
+ * instead of allocating per read or per request. Safe for use from any thread.
+ */
+public final class BufferPool {
+  private final int bufferSize;
+  private final int maxPooled;
+  private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pooled = new AtomicInteger();
+
+  public BufferPool(int bufferSize, int maxPooled) {
+    if (bufferSize <= 0) throw new IllegalArgumentException("bufferSize must be positive");
+    this.bufferSize = bufferSize;
+    this.maxPooled = maxPooled;
+  }
+
+  public int bufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * Returns a cleared buffer of {@link #bufferSize()} bytes.
+   */
+  public ByteBuffer acquire() {
+    ByteBuffer buffer = free.poll();
+    if (buffer == null) {
+      return ByteBuffer.allocateDirect(bufferSize);
+    }
+    pooled.decrementAndGet();
+    return buffer;
+  }
+
+  /**
+   * Hands a buffer back to the pool. Buffers of a foreign size, and buffers beyond the
+   * pool's capacity, are simply dropped.
+   */
+  public void release(ByteBuffer buffer) {
+    if (buffer == null || !buffer.isDirect() || buffer.capacity() != bufferSize) return;
+    if (pooled.incrementAndGet() > maxPooled) {
+      pooled.decrementAndGet();
+      return;
+    }
+    buffer.clear();
+    free.offer(buffer);
+  }
+}
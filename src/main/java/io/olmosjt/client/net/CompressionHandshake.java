@@ -0,0 +1,77 @@
+package io.olmosjt.client.net;
+
+import io.olmosjt.client.util.LoggerUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Client side of the compression handshake described in {@link WireCompression}.
+ * <p>
+ * It reads the raw stream a byte at a time, so nothing after the server's answer, which may
+ * already be compressed, is consumed as text. Lines the server sends before answering (the
+ * greeting) are kept for the listener.
+ */
+final class CompressionHandshake {
+  static final String ACCEPTED_PREFIX = "OK|SERVER||Compression: ";
+  private static final int MAX_EARLY_LINES = 32;
+  private static final int MAX_LINE = 64 * 1024;
+
+  private CompressionHandshake() { }
+
+  /**
+   * Offers the modes and waits for the answer. The caller sets the socket read timeout.
+   *
+   * @param early receives the lines that arrived before the answer
+   * @return the accepted mode, or {@link WireCompression#NONE} if the server refused or did
+   *         not answer in time
+   */
+  static WireCompression negotiate(List<WireCompression> offer, InputStream in, OutputStream out,
+                                   List<String> early) throws IOException {
+    String modes = offer.stream().map(WireCompression::token).collect(Collectors.joining(","));
+    out.write(("REQ|COMPRESS|" + modes + "\n").getBytes(StandardCharsets.UTF_8));
+    out.flush();
+
+    try {
+      while (early.size() < MAX_EARLY_LINES) {
+        String line = readLine(in);
+        if (line.startsWith(ACCEPTED_PREFIX)) {
+          WireCompression mode = WireCompression.fromToken(line.substring(ACCEPTED_PREFIX.length()));
+          if (mode == null || !offer.contains(mode)) {
+            throw new IOException("Server chose a compression mode that was not offered: " + line);
+          }
+          return mode;
+        }
+        if (line.startsWith("NOK|")) {
+          // Before logging in, COMPRESS is the only request a NOK can answer
+          LoggerUtil.info("Server does not support compression, continuing uncompressed");
+          return WireCompression.NONE;
+        }
+        early.add(line);
+      }
+      LoggerUtil.warn("No answer to the compression offer, continuing uncompressed");
+    } catch (SocketTimeoutException e) {
+      LoggerUtil.warn("No answer to the compression offer in time, continuing uncompressed");
+    }
+    return WireCompression.NONE;
+  }
+
+  private static String readLine(InputStream in) throws IOException {
+    ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+    int b;
+    while ((b = in.read()) != '\n') {
+      if (b < 0) throw new EOFException("Connection closed during the compression handshake");
+      if (line.size() >= MAX_LINE) throw new IOException("Line too long during the compression handshake");
+      line.write(b);
+    }
+    String text = line.toString(StandardCharsets.UTF_8);
+    return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+  }
+}
@@ -0,0 +1,466 @@
+package io.olmosjt.client.net;
+
+import io.olmosjt.client.metrics.ClientMetrics;
+import io.olmosjt.client.metrics.Counter;
+import io.olmosjt.client.metrics.Histogram;
+import io.olmosjt.client.model.Command;
+import io.olmosjt.client.model.CommandType;
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.model.MessageType;
+import io.olmosjt.client.util.LoggerUtil;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiPredicate;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Matches OK/NOK responses to the requests that caused them and times each round trip.
+ * <p>
+ * The protocol carries no request id, but the server answers requests in the order it reads
+ * them. So requests of every type registered with {@link #expect} are kept in a FIFO queue in
+ * the order they were written. An OK response belongs to the oldest queued request whose
+ * matcher accepts it; an OK no queued request accepts is unsolicited (a greeting, another
+ * user joining) and is only passed on. A NOK always answers the oldest request. Requests
+ * passed over by a later response were never answered and are failed. Types that were not
+ * registered are sent without being tracked.
+ * <p>
+ * Requests that get no answer when they succeed, such as MSG, are registered with
+ * {@link #expectRefusal} and queued all the same, so the NOK refusing one is not taken for
+ * the answer to a request sent after it. They are taken as carried out once a later request
+ * is answered, a message shows they were (a chat line coming back to its sender), or the
+ * timeout passes.
+ * <p>
+ * Only requests the transport takes are queued: one it refuses, because it is not connected
+ * or its send queue is full, and one it drops from its queue before writing it (reported
+ * through {@link MessageListener#onDropped}) never reach the server and must not take the
+ * answer to another request. A refused {@link #request} fails at once with an
+ * {@link IOException}. Senders take turns handing requests to the transport, so the queue
+ * stays in wire order, but responses are matched without waiting for them; a sender blocked
+ * on a full send queue does not hold up the thread reading responses.
+ * <p>
+ * Responses to {@link #request} complete its future and are not passed to the listener; the
+ * caller handles them. Responses to {@link #sendRequest} are passed on as before. A request
+ * still unanswered after the timeout is reported and its future fails with a
+ * {@link TimeoutException}; if its response turns up later, it is passed on.
+ * <p>
+ * Round trips are recorded per command type in {@link ClientMetrics#REGISTRY}.
+ */
+public class CorrelatingNetworkService implements NetworkService {
+  private static final long DEFAULT_TIMEOUT_MILLIS = 10_000;
+
+  /**
+   * For a request answered when it succeeds, {@code accepts} tests the OK; for one answered
+   * only when refused, it tests other messages for a sign that the request was carried out.
+   */
+  private record Expectation(BiPredicate<Command, Message> accepts, boolean answersSuccess,
+                             Histogram roundTrips, Counter timeouts) { }
+
+  private static final class InFlight {
+    final Command command;
+    final Expectation expectation;
+    final long sentNanos;
+    final CompletableFuture<Message> response = new CompletableFuture<>();
+    final boolean claimsResponse;
+
+    InFlight(Command command, Expectation expectation, boolean claimsResponse) {
+      this.command = command;
+      this.expectation = expectation;
+      this.claimsResponse = claimsResponse;
+      this.sentNanos = System.nanoTime();
+    }
+  }
+
+  private final NetworkService delegate;
+  private final long timeoutMillis;
+  private final Map<CommandType, Expectation> expectations = new EnumMap<>(CommandType.class);
+  private final ArrayDeque<InFlight> inFlight = new ArrayDeque<>();
+  // Held while a tracked request is queued and handed to the transport, never while matching
+  private final Object sendOrder = new Object();
+  // Counted in the in-flight gauge while connected
+  private final LongSupplier inFlightGauge = this::inFlight;
+
+  // Set once a refusal-only type can be acknowledged by a message
+  private volatile boolean acknowledgeable = false;
+
+  private MessageListener messageListener;
+  private volatile Runnable inboundObserver = () -> { };
+
+  public CorrelatingNetworkService(NetworkService delegate) {
+    this(delegate, Long.getLong("termitalk.requestTimeout", DEFAULT_TIMEOUT_MILLIS));
+  }
+
+  /**
+   * @param timeoutMillis how long to wait for a response before reporting a timeout
+   */
+  public CorrelatingNetworkService(NetworkService delegate, long timeoutMillis) {
+    this.delegate = delegate;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  /**
+   * Declares that requests of this type are answered with an OK the matcher accepts, or a NOK.
+   * Call before connecting.
+   */
+  public CorrelatingNetworkService expect(CommandType type, Predicate<Message> isResponse) {
+    String name = type.name().toLowerCase(Locale.ROOT);
+    expectations.put(type, new Expectation((command, message) -> isResponse.test(message), true,
+            ClientMetrics.REGISTRY.histogram("termitalk_rtt_" + name + "_seconds", "Round trip of " + type + " requests."),
+            ClientMetrics.REGISTRY.counter("termitalk_rtt_" + name + "_timeouts_total", type + " requests that timed out.")));
+    return this;
+  }
+
+  /**
+   * Declares that requests of this type are answered only when refused, with a NOK. They are
+   * neither timed nor reported when no answer comes. Call before connecting.
+   */
+  public CorrelatingNetworkService expectRefusal(CommandType type) {
+    expectations.put(type, new Expectation((command, message) -> false, false, null, null));
+    return this;
+  }
+
+  /**
+   * Like {@link #expectRefusal(CommandType)}, but a message other than OK or NOK that the
+   * predicate accepts for a queued request shows that the request was carried out.
+   */
+  public CorrelatingNetworkService expectRefusal(CommandType type, BiPredicate<Command, Message> carriedOut) {
+    expectations.put(type, new Expectation(carriedOut, false, null, null));
+    acknowledgeable = true;
+    return this;
+  }
+
+  // --- NetworkService ---
+
+  @Override
+  public void connect(String host, Integer port) throws IOException {
+    ClientMetrics.REQUESTS_IN_FLIGHT.remove(inFlightGauge);
+    ClientMetrics.REQUESTS_IN_FLIGHT.add(inFlightGauge);
+    try {
+      delegate.connect(host, port);
+    } catch (IOException e) {
+      ClientMetrics.REQUESTS_IN_FLIGHT.remove(inFlightGauge);
+      throw e;
+    }
+  }
+
+  @Override
+  public void disconnect() {
+    delegate.disconnect();
+    failAll("Disconnected");
+    ClientMetrics.REQUESTS_IN_FLIGHT.remove(inFlightGauge);
+  }
+
+  @Override
+  public void dropConnection() {
+    delegate.dropConnection();
+    failAll("Connection dropped");
+  }
+
+  @Override
+  public boolean sendRequest(Command command) {
+    Expectation expectation = expectations.get(command.type());
+    if (expectation == null) {
+      return delegate.sendRequest(command);
+    }
+    return send(new InFlight(command, expectation, false));
+  }
+
+  /**
+   * Sends a request and returns a future for its response, an OK or NOK message. The future
+   * fails with a {@link TimeoutException} if no response arrives in time, or with an
+   * {@link IOException} if the transport does not send it, the connection is lost first or
+   * the server answers a later request instead. Several requests can be in flight at once.
+   *
+   * @throws IllegalArgumentException if no response was declared for the command type, or
+   *         only a refusal
+   */
+  @Override
+  public CompletableFuture<Message> request(Command command) {
+    Expectation expectation = expectations.get(command.type());
+    if (expectation == null || !expectation.answersSuccess()) {
+      throw new IllegalArgumentException("No response is expected for " + command.type());
+    }
+    InFlight request = new InFlight(command, expectation, true);
+    send(request);
+    return request.response;
+  }
+
+  @Override
+  public void setMessageListener(MessageListener listener) {
+    this.messageListener = listener;
+    delegate.setMessageListener(new Listener());
+  }
+
+  /**
+   * Registers a callback run on the transport's thread for every message or batch received,
+   * including responses that are claimed by a {@link #request} future.
+   */
+  public void onInbound(Runnable observer) {
+    this.inboundObserver = observer;
+  }
+
+  // --- Statistics ---
+
+  /**
+   * Round-trip times of answered requests of this type, or null if the type is not tracked.
+   */
+  public Histogram.Snapshot roundTrips(CommandType type) {
+    Expectation expectation = expectations.get(type);
+    return expectation == null || !expectation.answersSuccess() ? null : expectation.roundTrips().snapshot();
+  }
+
+  /**
+   * Requests of this type that were not answered in time.
+   */
+  public long timeouts(CommandType type) {
+    Expectation expectation = expectations.get(type);
+    return expectation == null || !expectation.answersSuccess() ? 0 : expectation.timeouts().get();
+  }
+
+  public int inFlight() {
+    synchronized (inFlight) {
+      return inFlight.size();
+    }
+  }
+
+  // --- Tracking ---
+
+  /**
+   * Queues the request and hands it to the transport, or takes it out again if the transport
+   * refuses it.
+   *
+   * @return whether the transport took it
+   */
+  private boolean send(InFlight request) {
+    Command command = request.command;
+    Expectation expectation = request.expectation;
+    boolean accepted;
+    // Queued before it is sent, so a quick answer finds it, and in turn with other senders so
+    // the queue order is the order on the wire. The transport may block, so it is called
+    // outside the inFlight lock that matching takes.
+    synchronized (sendOrder) {
+      synchronized (inFlight) {
+        dropStale();
+        inFlight.addLast(request);
+      }
+      accepted = delegate.sendRequest(command);
+      if (!accepted) {
+        synchronized (inFlight) {
+          inFlight.remove(request);
+        }
+      }
+    }
+    if (!accepted) {
+      request.response.completeExceptionally(new IOException(command.type() + " was not sent"));
+      return false;
+    }
+    if (!expectation.answersSuccess()) return true;
+    request.response
+            .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+            .exceptionally(error -> {
+              if (error instanceof TimeoutException) {
+                expectation.timeouts().increment();
+                LoggerUtil.warn("No response to " + command.type() + " after " + timeoutMillis + " ms");
+              }
+              return null;
+            });
+    return true;
+  }
+
+  /**
+   * Forgets timed-out requests that were never answered, so the queue cannot grow forever,
+   * and takes refusal-only requests unrefused after the timeout as carried out.
+   */
+  private void dropStale() {
+    long now = System.nanoTime();
+    long refusedBefore = now - TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    long staleBefore = now - TimeUnit.MILLISECONDS.toNanos(timeoutMillis) * 6;
+    while (!inFlight.isEmpty()) {
+      InFlight first = inFlight.peekFirst();
+      boolean stale = first.expectation.answersSuccess()
+              ? first.response.isDone() && first.sentNanos - staleBefore < 0
+              : first.sentNanos - refusedBefore < 0;
+      if (!stale) break;
+      inFlight.pollFirst();
+      first.response.complete(null);
+    }
+  }
+
+  /**
+   * Finds and removes the request a response answers, or with any other message, the
+   * refusal-only request it shows was carried out.
+   *
+   * @return the request, or null if the message answers none
+   */
+  private InFlight match(Message message) {
+    boolean response = message.type() == MessageType.OK || message.type() == MessageType.NOK;
+    List<InFlight> passedOver = null;
+    InFlight matched = null;
+    synchronized (inFlight) {
+      dropStale();
+      int ahead = 0;
+      Iterator<InFlight> it = inFlight.iterator();
+      while (it.hasNext()) {
+        InFlight request = it.next();
+        Expectation expectation = request.expectation;
+        // A message proves nothing about a request still waiting for its answer
+        if (!response && expectation.answersSuccess()) break;
+        boolean matches = response
+                ? message.type() == MessageType.NOK
+                  || (expectation.answersSuccess() && expectation.accepts().test(request.command, message))
+                : expectation.accepts().test(request.command, message);
+        if (matches) {
+          matched = request;
+          it.remove();
+          break;
+        }
+        ahead++;
+      }
+      if (matched != null && ahead > 0) {
+        // Everything ahead of the match was passed over by the server
+        passedOver = new ArrayList<>(ahead);
+        for (int i = 0; i < ahead; i++) {
+          passedOver.add(inFlight.pollFirst());
+        }
+      }
+    }
+    if (passedOver != null) {
+      for (InFlight request : passedOver) {
+        if (request.expectation.answersSuccess()) {
+          request.response.completeExceptionally(new IOException("Server did not answer " + request.command.type()));
+        } else {
+          request.response.complete(null);
+        }
+      }
+    }
+    return matched;
+  }
+
+  /**
+   * Forgets a request the transport dropped before writing it.
+   */
+  private void dropped(Command command) {
+    InFlight removed = null;
+    synchronized (inFlight) {
+      Iterator<InFlight> it = inFlight.iterator();
+      while (it.hasNext()) {
+        InFlight request = it.next();
+        if (request.command == command) {
+          removed = request;
+          it.remove();
+          break;
+        }
+      }
+    }
+    if (removed != null) {
+      removed.response.completeExceptionally(new IOException(command.type() + " was dropped before it was sent"));
+    }
+  }
+
+  private void failAll(String reason) {
+    List<InFlight> failed;
+    synchronized (inFlight) {
+      failed = new ArrayList<>(inFlight);
+      inFlight.clear();
+    }
+    for (InFlight request : failed) {
+      request.response.completeExceptionally(new IOException(reason + " before " + request.command.type() + " was answered"));
+    }
+  }
+
+  /**
+   * @return true if the response was handed to a {@link #request} future and must not be
+   *         passed on
+   */
+  private boolean claim(Message message) {
+    if (message.type() != MessageType.OK && message.type() != MessageType.NOK) {
+      if (isDisconnectNotice(message)) {
+        failAll("Connection lost");
+      } else if (acknowledgeable) {
+        InFlight request = match(message);
+        if (request != null) {
+          request.response.complete(null);
+        }
+      }
+      return false;
+    }
+    InFlight request = match(message);
+    if (request == null) return false;
+
+    if (request.expectation.answersSuccess()) {
+      request.expectation.roundTrips().record(System.nanoTime() - request.sentNanos);
+    }
+    boolean delivered = request.response.complete(message);
+    return delivered && request.claimsResponse;
+  }
+
+  private static boolean isDisconnectNotice(Message message) {
+    return message.type() == MessageType.SYSTEM
+            && ("SOCKET_DISCONNECT".equals(message.sender()) || "You have been disconnected.".equals(message.content()));
+  }
+
+  /**
+   * Sits between the transport and the real listener.
+   */
+  private final class Listener implements MessageListener {
+    @Override
+    public void onMessage(Message message) {
+      inboundObserver.run();
+      if (!claim(message) && messageListener != null) {
+        messageListener.onMessage(message);
+      }
+    }
+
+    @Override
+    public void onMessages(List<Message> messages) {
+      inboundObserver.run();
+      List<Message> passOn = messages;
+      for (int i = 0; i < messages.size(); i++) {
+        Message message = messages.get(i);
+        if (claim(message)) {
+          if (passOn == messages) {
+            passOn = new ArrayList<>(messages.subList(0, i));
+          }
+        } else if (passOn != messages) {
+          passOn.add(message);
+        }
+      }
+      if (!passOn.isEmpty() && messageListener != null) {
+        messageListener.onMessages(passOn);
+      }
+    }
+
+    @Override
+    public void onReconnecting(int attempt, long delayMillis) {
+      failAll("Connection lost");
+      if (messageListener != null) {
+        messageListener.onReconnecting(attempt, delayMillis);
+      }
+    }
+
+    @Override
+    public void onReconnected() {
+      if (messageListener != null) {
+        messageListener.onReconnected();
+      }
+    }
+
+    @Override
+    public void onDropped(Command command) {
+      dropped(command);
+      if (messageListener != null) {
+        messageListener.onDropped(command);
+      }
+    }
+  }
+}
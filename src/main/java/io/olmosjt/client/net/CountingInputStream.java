@@ -0,0 +1,38 @@
+package io.olmosjt.client.net;
+
+import io.olmosjt.client.metrics.Counter;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Adds the number of bytes read to a {@link Counter}. Sits under the reader's buffer, so it
+ * is called once per socket read rather than once per character.
+ */
+final class CountingInputStream extends FilterInputStream {
+  private final Counter bytes;
+
+  CountingInputStream(InputStream in, Counter bytes) {
+    super(in);
+    this.bytes = bytes;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = super.read();
+    if (b >= 0) {
+      bytes.increment();
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    int read = in.read(buffer, offset, length);
+    if (read > 0) {
+      bytes.add(read);
+    }
+    return read;
+  }
+}
@@ -0,0 +1,33 @@
+package io.olmosjt.client.net;
+
+import io.olmosjt.client.metrics.Counter;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Adds the number of bytes written to a {@link Counter}. Sits under the writer's buffer, so
+ * it is called once per flushed chunk.
+ */
+final class CountingOutputStream extends FilterOutputStream {
+  private final Counter bytes;
+
+  CountingOutputStream(OutputStream out, Counter bytes) {
+    super(out);
+    this.bytes = bytes;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    out.write(b);
+    bytes.increment();
+  }
+
+  @Override
+  public void write(byte[] buffer, int offset, int length) throws IOException {
+    // FilterOutputStream would write byte by byte
+    out.write(buffer, offset, length);
+    bytes.add(length);
+  }
+}
@@ -0,0 +1,186 @@
+package io.olmosjt.client.net;
+
+import io.olmosjt.client.model.Command;
+import io.olmosjt.client.model.CommandType;
+import io.olmosjt.client.util.LoggerUtil;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Watches a connection for signs of life and measures its latency.
+ * <p>
+ * Every {@code pingInterval} a PING request goes through the {@link CorrelatingNetworkService},
+ * so its round trip feeds a smoothed RTT and jitter estimate. A server that does not know
+ * PING answers with a NOK, which is just as good for timing. Anything received counts as a
+ * sign of life. Once nothing has arrived for {@code staleAfter} the link is reported STALE;
+ * after {@code offlineAfter} it is reported OFFLINE and the connection is dropped with
+ * {@link NetworkService#dropConnection()}, so a supervising transport reconnects within
+ * seconds instead of waiting for a write to fail.
+ * <p>
+ * If pings go unanswered while other traffic keeps arriving, the server ignores them. Pinging
+ * then stops and only the read-idle timer is left: the link can still turn STALE, but a silent
+ * link is no longer dropped, since a quiet room and a dead one look the same. TCP keepalive on
+ * the socket (see {@link SocketNetworkService}) still catches dead peers.
+ * <p>
+ * Checks run on one virtual thread. The listener is only called when something shown changes.
+ */
+public final class Heartbeat {
+  private static final long CHECK_MILLIS = 250;
+
+  private final CorrelatingNetworkService service;
+  private final Consumer<LinkStatus> listener;
+  private final long pingIntervalNanos;
+  private final long staleAfterNanos;
+  private final long offlineAfterNanos;
+  private final RttEstimator rtt = new RttEstimator();
+
+  private volatile long lastHeardNanos = System.nanoTime();
+  private volatile boolean pingsAnswered = true;
+  private volatile boolean pingInFlight = false;
+  private volatile boolean rttChanged = false;
+  private volatile boolean paused = false;
+  private volatile Thread checker;
+
+  // Checker thread only
+  private long lastPingNanos = System.nanoTime();
+  private LinkStatus published = LinkStatus.UNKNOWN;
+
+  /**
+   * Reads {@code termitalk.ping.interval} (default 5000), {@code termitalk.ping.staleAfter}
+   * (default 8000) and {@code termitalk.ping.offlineAfter} (default 15000), in milliseconds.
+   */
+  public Heartbeat(CorrelatingNetworkService service, Consumer<LinkStatus> listener) {
+    this(service, listener,
+            Duration.ofMillis(Long.getLong("termitalk.ping.interval", 5000)),
+            Duration.ofMillis(Long.getLong("termitalk.ping.staleAfter", 8000)),
+            Duration.ofMillis(Long.getLong("termitalk.ping.offlineAfter", 15000)));
+  }
+
+  public Heartbeat(CorrelatingNetworkService service, Consumer<LinkStatus> listener,
+                   Duration pingInterval, Duration staleAfter, Duration offlineAfter) {
+    this.service = service;
+    this.listener = listener;
+    this.pingIntervalNanos = pingInterval.toNanos();
+    this.staleAfterNanos = staleAfter.toNanos();
+    this.offlineAfterNanos = offlineAfter.toNanos();
+    service.expect(CommandType.PING, message -> message.content().startsWith("PONG"));
+    service.onInbound(this::heard);
+  }
+
+  public synchronized void start() {
+    if (checker != null) return;
+    lastHeardNanos = System.nanoTime();
+    checker = Thread.ofVirtual().name("heartbeat").start(this::checkLoop);
+  }
+
+  public synchronized void stop() {
+    Thread thread = checker;
+    checker = null;
+    if (thread != null) {
+      thread.interrupt();
+    }
+  }
+
+  /**
+   * Something arrived from the server.
+   */
+  public void heard() {
+    lastHeardNanos = System.nanoTime();
+  }
+
+  /**
+   * The connection is being replaced; stops judging it until {@link #resume()}.
+   */
+  public void pause() {
+    paused = true;
+  }
+
+  /**
+   * A new connection is up: starts afresh, assuming the server answers pings again.
+   */
+  public void resume() {
+    lastHeardNanos = System.nanoTime();
+    pingsAnswered = true;
+    paused = false;
+  }
+
+  public LinkStatus status() {
+    return published;
+  }
+
+  private void checkLoop() {
+    while (checker == Thread.currentThread()) {
+      try {
+        Thread.sleep(CHECK_MILLIS);
+      } catch (InterruptedException e) {
+        return;
+      }
+      if (!paused) {
+        check(System.nanoTime());
+      }
+    }
+  }
+
+  private void check(long now) {
+    if (pingsAnswered && !pingInFlight && now - lastPingNanos >= pingIntervalNanos) {
+      ping(now);
+    }
+
+    long silent = now - lastHeardNanos;
+    LinkStatus.Liveness liveness;
+    if (pingsAnswered && silent >= offlineAfterNanos) {
+      liveness = LinkStatus.Liveness.OFFLINE;
+    } else if (silent >= staleAfterNanos) {
+      liveness = LinkStatus.Liveness.STALE;
+    } else {
+      liveness = LinkStatus.Liveness.LIVE;
+    }
+    publish(liveness, silent);
+
+    if (liveness == LinkStatus.Liveness.OFFLINE) {
+      paused = true; // Until the replacement connection is up
+      LoggerUtil.warn("Nothing received from the server for " + TimeUnit.NANOSECONDS.toMillis(silent)
+              + " ms, dropping the connection");
+      service.dropConnection();
+    }
+  }
+
+  private void ping(long sentNanos) {
+    pingInFlight = true;
+    lastPingNanos = sentNanos;
+    service.request(new Command(CommandType.PING, "")).whenComplete((response, error) -> {
+      pingInFlight = false;
+      if (error == null) {
+        synchronized (rtt) {
+          rtt.sample(System.nanoTime() - sentNanos);
+        }
+        rttChanged = true;
+      } else if (error instanceof TimeoutException && lastHeardNanos - sentNanos > 0 && pingsAnswered) {
+        pingsAnswered = false;
+        LoggerUtil.info("Server does not answer pings; watching for read idleness only");
+      }
+    });
+  }
+
+  /**
+   * Tells the listener if the liveness, the RTT estimate or, while not live, the whole
+   * seconds of silence changed.
+   */
+  private void publish(LinkStatus.Liveness liveness, long silentNanos) {
+    LinkStatus previous = published;
+    boolean silenceShown = liveness != LinkStatus.Liveness.LIVE
+            && TimeUnit.NANOSECONDS.toSeconds(silentNanos) != TimeUnit.NANOSECONDS.toSeconds(previous.silentNanos());
+    if (liveness == previous.liveness() && !rttChanged && !silenceShown) return;
+
+    rttChanged = false;
+    LinkStatus status;
+    synchronized (rtt) {
+      status = new LinkStatus(liveness, rtt.smoothedNanos(), rtt.variationNanos(), silentNanos);
+    }
+    published = status;
+    listener.accept(status);
+  }
+}
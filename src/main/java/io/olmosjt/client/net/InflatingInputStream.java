@@ -0,0 +1,101 @@
+package io.olmosjt.client.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decompresses a sync-flushed zlib stream.
+ * <p>
+ * Unlike {@link InflaterInputStream}, {@link #available()} is exact: it inflates whatever
+ * compressed bytes have already arrived and reports how many decompressed bytes that gave,
+ * without blocking. The listener relies on this to collect buffered lines into one batch
+ * and stop at the end of what the server has sent.
+ */
+final class InflatingInputStream extends InputStream {
+  private final InputStream in;
+  private final Inflater inflater;
+  private final byte[] dictionary;
+  private final byte[] input = new byte[8192];
+  private final byte[] output = new byte[8192];
+  private int position = 0;
+  private int limit = 0;
+
+  /**
+   * @param dictionary the preset dictionary the sender used, or null
+   */
+  InflatingInputStream(InputStream in, Inflater inflater, byte[] dictionary) {
+    this.in = in;
+    this.inflater = inflater;
+    this.dictionary = dictionary;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (position == limit && !fill(true)) return -1;
+    return output[position++] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (length == 0) return 0;
+    if (position == limit && !fill(true)) return -1;
+    int count = Math.min(length, limit - position);
+    System.arraycopy(output, position, buffer, offset, count);
+    position += count;
+    return count;
+  }
+
+  @Override
+  public int available() throws IOException {
+    if (position == limit) {
+      fill(false);
+    }
+    return limit - position;
+  }
+
+  @Override
+  public void close() throws IOException {
+    inflater.end();
+    in.close();
+  }
+
+  /**
+   * Inflates the next run of output into the empty output buffer.
+   *
+   * @param block whether to wait for compressed bytes; if not, only those already
+   *              available are used and the buffer may stay empty
+   * @return false at the end of the stream
+   */
+  private boolean fill(boolean block) throws IOException {
+    position = 0;
+    limit = 0;
+    while (true) {
+      try {
+        int inflated = inflater.inflate(output);
+        if (inflated > 0) {
+          limit = inflated;
+          return true;
+        }
+      } catch (DataFormatException e) {
+        throw new IOException("Corrupt compressed stream: " + e.getMessage(), e);
+      }
+      if (inflater.needsDictionary()) {
+        if (dictionary == null) {
+          throw new IOException("Compressed stream needs a dictionary");
+        }
+        inflater.setDictionary(dictionary);
+      } else if (inflater.finished()) {
+        return false;
+      } else if (inflater.needsInput()) {
+        int ready = in.available();
+        if (!block && ready <= 0) return true;
+        int read = in.read(input, 0, block ? input.length : Math.min(ready, input.length));
+        if (read < 0) return false;
+        inflater.setInput(input, 0, read);
+      }
+    }
+  }
+}
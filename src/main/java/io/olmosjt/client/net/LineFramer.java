@@ -0,0 +1,64 @@
+package io.olmosjt.client.net;
+
+import io.olmosjt.client.util.LoggerUtil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Splits a byte stream into newline-delimited frames in place.
+ * Bytes are read straight into {@link #buffer()}; {@link #drain(FrameHandler)} then reports
+ * each complete line as a [start, end) range of that same buffer, without copying it.
+ * A trailing '\r' is stripped. Lines longer than the buffer are discarded.
+ */
+final class LineFramer {
+
+  @FunctionalInterface
+  interface FrameHandler {
+    /**
+     * Called for each complete line. The range is only valid for the duration of the call.
+     */
+    void onFrame(ByteBuffer buffer, int start, int end);
+  }
+
+  private final ByteBuffer buffer;
+  private boolean discarding = false;
+
+  LineFramer(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  /**
+   * The buffer to read into. It is always in write mode between calls to {@link #drain}.
+   */
+  ByteBuffer buffer() {
+    return buffer;
+  }
+
+  void drain(FrameHandler handler) {
+    buffer.flip();
+    int start = buffer.position();
+    int limit = buffer.limit();
+
+    for (int i = start; i < limit; i++) {
+      if (buffer.get(i) != '\n') continue;
+
+      if (discarding) {
+        discarding = false;
+      } else {
+        int end = i;
+        if (end > start && buffer.get(end - 1) == '\r') end--;
+        handler.onFrame(buffer, start, end);
+      }
+      start = i + 1;
+    }
+
+    buffer.position(start);
+    buffer.compact();
+
+    if (!buffer.hasRemaining()) {
+      LoggerUtil.warn("Discarding line longer than " + buffer.capacity() + " bytes");
+      buffer.clear();
+      discarding = true;
+    }
+  }
+}
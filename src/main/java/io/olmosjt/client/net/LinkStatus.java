@@ -0,0 +1,23 @@
+package io.olmosjt.client.net;
+
+/**
+ * How the connection to the server is doing, as last judged by a {@link Heartbeat}.
+ *
+ * @param liveness whether the server has been heard from recently
+ * @param rttNanos smoothed round trip of heartbeat pings, or -1 if none was answered yet
+ * @param jitterNanos mean deviation of the round trip
+ * @param silentNanos time since anything was last received
+ */
+public record LinkStatus(Liveness liveness, long rttNanos, long jitterNanos, long silentNanos) {
+
+  public enum Liveness {
+    /** Heard from within the stale threshold. */
+    LIVE,
+    /** Quiet for longer than expected; the link may be failing. */
+    STALE,
+    /** Quiet for so long the connection is considered dead and is being replaced. */
+    OFFLINE
+  }
+
+  public static final LinkStatus UNKNOWN = new LinkStatus(Liveness.LIVE, -1, 0, 0);
+}
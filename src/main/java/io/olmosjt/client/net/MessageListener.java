@@ -1,8 +1,42 @@
 package io.olmosjt.client.net;
 
+import io.olmosjt.client.model.Command;
 import io.olmosjt.client.model.Message;
 
+import java.util.List;
+
 @FunctionalInterface
 public interface MessageListener {
   void onMessage(Message message);
+
+  /**
+   * Delivers every message a transport already had buffered, in arrival order.
+   * The list is only valid for the duration of the call; transports may reuse it.
+   * By default each message is passed to {@link #onMessage(Message)} in turn.
+   */
+  default void onMessages(List<Message> messages) {
+    for (Message message : messages) {
+      onMessage(message);
+    }
+  }
+
+  /**
+   * Called by a reconnecting transport before each attempt to restore a lost connection.
+   *
+   * @param attempt 1 for the first attempt after the loss
+   * @param delayMillis how long the transport waits before this attempt
+   */
+  default void onReconnecting(int attempt, long delayMillis) { }
+
+  /**
+   * Called once a reconnecting transport has a new connection. The server session (login,
+   * room membership) has to be established again.
+   */
+  default void onReconnected() { }
+
+  /**
+   * Called by a transport that discards a request it had accepted, before writing it, to
+   * make room for another; the server never sees it.
+   */
+  default void onDropped(Command command) { }
 }
@@ -1,14 +1,42 @@
 package io.olmosjt.client.net;
 
 import io.olmosjt.client.model.Command;
+import io.olmosjt.client.model.Message;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 public interface NetworkService {
   void connect(String host, Integer port) throws IOException;
   void disconnect();
 
-  void sendRequest(Command command);
+  /**
+   * Closes the current connection because it appears dead, so a supervising transport such
+   * as {@link ReconnectingNetworkService} replaces it. By default this is {@link #disconnect()}.
+   */
+  default void dropConnection() {
+    disconnect();
+  }
+
+  /**
+   * Hands a request to the transport for sending.
+   *
+   * @return false if the transport did not take it, because it is not connected or its send
+   *         queue is full; such a request never reaches the server
+   */
+  boolean sendRequest(Command command);
+
+  /**
+   * Sends a request and returns a future for the server's OK or NOK response to it.
+   * Only transports that match responses to requests, such as
+   * {@link CorrelatingNetworkService}, support this; by default the request is sent and the
+   * future fails with {@link UnsupportedOperationException}.
+   */
+  default CompletableFuture<Message> request(Command command) {
+    sendRequest(command);
+    return CompletableFuture.failedFuture(
+            new UnsupportedOperationException(getClass().getSimpleName() + " does not match responses to requests"));
+  }
 
   /**
    * Registers a callback that will be invoked for every message received from the server.
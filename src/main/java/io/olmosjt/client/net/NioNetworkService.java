@@ -0,0 +1,355 @@
+package io.olmosjt.client.net;
+
+import io.olmosjt.client.metrics.ClientMetrics;
+import io.olmosjt.client.model.Command;
+import io.olmosjt.client.model.CommandType;
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.model.MessageType;
+import io.olmosjt.client.util.LoggerUtil;
+import io.olmosjt.client.util.MessageCodec;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * A non-blocking {@link NetworkService} built on a {@link SocketChannel} and a selector.
+ * <p>
+ * Inbound bytes land in a pooled direct buffer and are framed in place by {@link LineFramer};
+ * each line is handed to {@link MessageCodec#decode(java.nio.ByteBuffer, int, int)}, which
+ * decodes the fields straight from the buffer, so no String is built for the whole line.
+ * <p>
+ * Requests go into a bounded {@link OutboundQueue}, as with {@link SocketNetworkService}, and
+ * the {@link OverflowPolicy} decides what happens when it is full. The I/O thread encodes
+ * them back to back into one pooled direct write buffer per connection, as many as fit, and
+ * writes it whenever the socket takes more; a stalled peer therefore holds at most the queue
+ * and one buffer, however many lines are sent. A request larger than the whole buffer is
+ * encoded into a heap buffer of its own once the write buffer has drained.
+ * <p>
+ * The listener is invoked on the I/O thread, as with {@link SocketNetworkService}.
+ */
+public class NioNetworkService implements NetworkService {
+  private static final int BUFFER_SIZE = 16 * 1024;
+  private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+  private static final BufferPool SHARED_POOL = new BufferPool(BUFFER_SIZE, 256);
+
+  private static final byte[][] REQUEST_PREFIXES = new byte[CommandType.values().length][];
+
+  static {
+    for (CommandType type : CommandType.values()) {
+      REQUEST_PREFIXES[type.ordinal()] = ("REQ|" + type.name() + "|").getBytes(StandardCharsets.US_ASCII);
+    }
+  }
+
+  private final BufferPool pool;
+  private final int queueCapacity;
+  private final OverflowPolicy overflowPolicy;
+  private volatile OutboundQueue outbound;
+  // Counted in the send queue gauge while connected
+  private LongSupplier sendQueueDepth;
+
+  // Owned by the I/O thread
+  private final List<Message> batch = new ArrayList<>();
+  // Encoded requests not yet written, in fill mode
+  private ByteBuffer writeBuffer;
+  // A request larger than the write buffer, being written on its own
+  private ByteBuffer oversized;
+  // Taken from the queue but left for the next round, as the write buffer was too full
+  private Command carried;
+
+  private SocketChannel channel;
+  private Selector selector;
+  private LineFramer framer;
+  private volatile boolean running = false;
+
+  private MessageListener messageListener;
+
+  public NioNetworkService() {
+    this(SHARED_POOL,
+            Integer.getInteger("termitalk.sendQueue", DEFAULT_QUEUE_CAPACITY),
+            OverflowPolicy.valueOf(System.getProperty("termitalk.sendQueue.overflow", OverflowPolicy.FAIL.name())));
+  }
+
+  public NioNetworkService(BufferPool pool) {
+    this(pool, DEFAULT_QUEUE_CAPACITY, OverflowPolicy.FAIL);
+  }
+
+  public NioNetworkService(BufferPool pool, int queueCapacity, OverflowPolicy overflowPolicy) {
+    this.pool = pool;
+    this.queueCapacity = queueCapacity;
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  @Override
+  public void connect(String host, Integer port) throws IOException {
+    channel = SocketChannel.open(new InetSocketAddress(host, port));
+    channel.configureBlocking(false);
+    selector = Selector.open();
+    channel.register(selector, SelectionKey.OP_READ);
+    framer = new LineFramer(pool.acquire());
+    writeBuffer = pool.acquire();
+    OutboundQueue queue = new OutboundQueue(queueCapacity, overflowPolicy);
+    outbound = queue;
+    sendQueueDepth = queue::size;
+    ClientMetrics.SEND_QUEUE.add(sendQueueDepth);
+    running = true;
+
+    Thread.ofVirtual().name("nio-io-" + host + ":" + port).start(this::ioLoop);
+  }
+
+  /**
+   * Queues the request for the I/O thread. Only blocks, and then only on the queue, under
+   * {@link OverflowPolicy#BLOCK}.
+   */
+  @Override
+  public boolean sendRequest(Command command) {
+    OutboundQueue queue = outbound;
+    if (queue == null || !running) return false;
+
+    Command lost;
+    try {
+      lost = queue.offer(command);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      lost = command;
+    }
+    if (lost != command) {
+      selector.wakeup();
+    }
+
+    if (lost != null && running && messageListener != null) {
+      if (lost != command) {
+        messageListener.onDropped(lost);
+      }
+      String text = lost == command
+              ? "Not sent, outgoing queue is full: " + command.payload()
+              : "Dropped unsent message, outgoing queue is full: " + lost.payload();
+      messageListener.onMessage(new Message(MessageType.SYSTEM, "CLIENT", null, text, Instant.now()));
+    }
+    return lost != command;
+  }
+
+  @Override
+  public void setMessageListener(MessageListener listener) {
+    this.messageListener = listener;
+  }
+
+  @Override
+  public void disconnect() {
+    if (!running) return;
+    running = false;
+    if (outbound != null) {
+      outbound.close();
+    }
+    ClientMetrics.SEND_QUEUE.remove(sendQueueDepth);
+    try {
+      if (selector != null) {
+        selector.close();
+      }
+      if (channel != null) {
+        channel.close();
+      }
+    } catch (IOException e) {
+      LoggerUtil.error(e.getMessage());
+    } finally {
+      if (messageListener != null) {
+        Message disconnectMsg = new Message(MessageType.SYSTEM, "CLIENT", null, "You have been disconnected.", Instant.now());
+        messageListener.onMessage(disconnectMsg);
+      }
+    }
+  }
+
+  private void ioLoop() {
+    try {
+      while (running) {
+        selector.select();
+        if (!running) break;
+
+        SelectionKey key = channel.keyFor(selector);
+        if (key.isValid() && key.isReadable()) {
+          int read = channel.read(framer.buffer());
+          if (read < 0) {
+            break; // Server closed the connection
+          }
+          ClientMetrics.BYTES_IN.add(read);
+          ClientMetrics.PAYLOAD_BYTES_IN.add(read); // Never compressed
+          framer.drain(this::onFrame);
+          if (!batch.isEmpty()) {
+            // Everything framed from this read is delivered as one batch
+            if (messageListener != null) {
+              messageListener.onMessages(batch);
+            }
+            batch.clear();
+          }
+        }
+        selector.selectedKeys().clear();
+
+        flushWrites(key);
+      }
+    } catch (IOException e) {
+      if (running) {
+        Message disconnectMsg = new Message(
+                MessageType.SYSTEM, "SOCKET_DISCONNECT", null, "Connection lost to server.", Instant.now()
+        );
+        if (messageListener != null) {
+          messageListener.onMessage(disconnectMsg);
+        }
+      }
+    } catch (ClosedSelectorException | CancelledKeyException e) {
+      // disconnect() closed the selector from another thread
+    } finally {
+      disconnect();
+      releaseBuffers();
+    }
+  }
+
+  /**
+   * Encodes queued requests into the write buffer and writes it until the queue is empty or
+   * the socket takes no more, and only asks the selector for OP_WRITE while something is
+   * left over.
+   */
+  private void flushWrites(SelectionKey key) throws IOException {
+    long begin = ClientMetrics.start();
+    boolean wrote = false;
+    while (true) {
+      if (oversized != null) {
+        wrote = true;
+        write(oversized);
+        if (oversized.hasRemaining()) break; // Socket send buffer is full
+        oversized = null;
+      }
+      fillWriteBuffer();
+      if (writeBuffer.position() == 0) {
+        if (oversized == null) break;
+        continue;
+      }
+      wrote = true;
+      writeBuffer.flip();
+      write(writeBuffer);
+      writeBuffer.compact();
+      if (writeBuffer.position() > 0) break; // Socket send buffer is full
+    }
+    if (wrote) {
+      ClientMetrics.FLUSH_TIME.recordSince(begin);
+    }
+
+    boolean pending = writeBuffer.position() > 0 || oversized != null || carried != null;
+    key.interestOps(pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+  }
+
+  /**
+   * Appends queued requests to the write buffer while they fit. One larger than the whole
+   * buffer becomes {@link #oversized}, but only once the buffer is empty, to keep the order.
+   */
+  private void fillWriteBuffer() {
+    while (true) {
+      Command command = carried != null ? carried : outbound.poll();
+      carried = null;
+      if (command == null) return;
+
+      byte[] prefix = REQUEST_PREFIXES[command.type().ordinal()];
+      String payload = command.payload() == null ? "null" : command.payload();
+      int length = prefix.length + utf8Length(payload) + 1;
+      ByteBuffer target;
+      if (length <= writeBuffer.remaining()) {
+        target = writeBuffer;
+      } else if (writeBuffer.position() == 0 && length > writeBuffer.capacity()) {
+        oversized = ByteBuffer.allocate(length);
+        target = oversized;
+      } else {
+        carried = command;
+        return;
+      }
+      target.put(prefix);
+      putUtf8(payload, target);
+      target.put((byte) '\n');
+      ClientMetrics.LINES_OUT.increment();
+      if (target == oversized) {
+        oversized.flip();
+        return;
+      }
+    }
+  }
+
+  private void write(ByteBuffer buffer) throws IOException {
+    int written = channel.write(buffer);
+    ClientMetrics.BYTES_OUT.add(written);
+    ClientMetrics.PAYLOAD_BYTES_OUT.add(written);
+  }
+
+  private void releaseBuffers() {
+    if (framer != null) {
+      pool.release(framer.buffer());
+    }
+    pool.release(writeBuffer);
+    writeBuffer = null;
+    oversized = null;
+    carried = null;
+  }
+
+  // --- Inbound decoding ---
+
+  private void onFrame(ByteBuffer buffer, int start, int end) {
+    ClientMetrics.LINES_IN.increment();
+    Message message = MessageCodec.decode(buffer, start, end);
+    if (message != null) {
+      batch.add(message);
+    }
+  }
+
+  // --- Outbound encoding ---
+
+  private static int utf8Length(String s) {
+    int length = 0;
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        length++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  private static void putUtf8(String s, ByteBuffer out) {
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        out.put((byte) c);
+      } else if (c < 0x800) {
+        out.put((byte) (0xC0 | (c >> 6)));
+        out.put((byte) (0x80 | (c & 0x3F)));
+      } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+        int cp = Character.toCodePoint(c, s.charAt(++i));
+        out.put((byte) (0xF0 | (cp >> 18)));
+        out.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+        out.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+        out.put((byte) (0x80 | (cp & 0x3F)));
+      } else if (Character.isSurrogate(c)) {
+        out.put((byte) '?'); // Unpaired surrogate, replaced as String.getBytes would do
+      } else {
+        out.put((byte) (0xE0 | (c >> 12)));
+        out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+        out.put((byte) (0x80 | (c & 0x3F)));
+      }
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package io.olmosjt.client.net;
+
+import io.olmosjt.client.metrics.ClientMetrics;
+import io.olmosjt.client.model.Command;
+import io.olmosjt.client.model.CommandType;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue of requests between the sending threads and a single writer thread.
+ * A blocking writer takes everything queued at once so it can write the batch with one
+ * flush; a selector-driven one polls as much as fits its write buffer.
+ */
+final class OutboundQueue {
+  private final ArrayDeque<Command> queue = new ArrayDeque<>();
+  private final int capacity;
+  private final OverflowPolicy policy;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+  private boolean closed = false;
+
+  OutboundQueue(int capacity, OverflowPolicy policy) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+    this.policy = policy;
+  }
+
+  /**
+   * Queues a command according to the overflow policy.
+   *
+   * @return the command that was lost, either {@code command} itself if it was rejected or
+   *         a queued message dropped to make room for it; null if nothing was lost
+   */
+  Command offer(Command command) throws InterruptedException {
+    lock.lock();
+    try {
+      if (closed) return command;
+      Command lost = null;
+
+      if (queue.size() >= capacity) {
+        switch (policy) {
+          case BLOCK -> {
+            while (queue.size() >= capacity && !closed) {
+              notFull.await();
+            }
+            if (closed) return command;
+          }
+          case DROP_OLDEST_MSG -> {
+            lost = removeOldestMessage();
+            if (lost == null) return reject(command);
+            ClientMetrics.SEND_DROPPED.increment();
+          }
+          case FAIL -> {
+            return reject(command);
+          }
+        }
+      }
+
+      queue.addLast(command);
+      notEmpty.signal();
+      return lost;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Command reject(Command command) {
+    ClientMetrics.SEND_DROPPED.increment();
+    return command;
+  }
+
+  private Command removeOldestMessage() {
+    Iterator<Command> it = queue.iterator();
+    while (it.hasNext()) {
+      Command queued = it.next();
+      if (queued.type() == CommandType.MSG) {
+        it.remove();
+        return queued;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Waits for at least one command and moves everything queued into {@code batch}.
+   *
+   * @return false once the queue is closed
+   */
+  boolean takeAll(List<Command> batch) throws InterruptedException {
+    lock.lock();
+    try {
+      while (queue.isEmpty() && !closed) {
+        notEmpty.await(1, TimeUnit.SECONDS);
+      }
+      if (closed) return false;
+
+      Command command;
+      while ((command = queue.pollFirst()) != null) {
+        batch.add(command);
+      }
+      notFull.signalAll();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Takes the oldest queued command without waiting, for a writer driven by a selector.
+   *
+   * @return the command, or null if none is queued or the queue is closed
+   */
+  Command poll() {
+    lock.lock();
+    try {
+      if (closed) return null;
+      Command command = queue.pollFirst();
+      if (command != null) {
+        notFull.signal();
+      }
+      return command;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int size() {
+    lock.lock();
+    try {
+      return queue.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Discards queued commands and releases any waiting threads.
+   */
+  void close() {
+    lock.lock();
+    try {
+      closed = true;
+      queue.clear();
+      notEmpty.signalAll();
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,14 @@
+package io.olmosjt.client.net;
+
+/**
+ * What {@link SocketNetworkService#sendRequest} and {@link NioNetworkService#sendRequest} do
+ * when the outbound queue is full.
+ */
+public enum OverflowPolicy {
+  /** Wait for the writer to make room. The caller blocks on the queue, never on the socket. */
+  BLOCK,
+  /** Discard the oldest queued chat message (MSG) to make room; rejects if none is queued. */
+  DROP_OLDEST_MSG,
+  /** Reject the new request. */
+  FAIL
+}
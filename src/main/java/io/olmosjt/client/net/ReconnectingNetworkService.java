@@ -0,0 +1,212 @@
+package io.olmosjt.client.net;
+
+import io.olmosjt.client.model.Command;
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.model.MessageType;
+import io.olmosjt.client.util.LoggerUtil;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Supervises a {@link NetworkService} and replaces it when the connection is lost.
+ * <p>
+ * A lost connection is not passed on as a disconnect. Instead a fresh transport from the
+ * factory is connected to the same address, with jittered exponential backoff between
+ * attempts, and the listener is told through {@link MessageListener#onReconnecting} and
+ * {@link MessageListener#onReconnected}. Restoring the server session is up to the listener.
+ * Once {@code maxAttempts} attempts have failed the loss is reported as usual, with a
+ * SOCKET_DISCONNECT message.
+ * <p>
+ * Requests sent while no connection is up are not taken: {@link #sendRequest} returns false.
+ */
+public class ReconnectingNetworkService implements NetworkService {
+  private static final long DEFAULT_INITIAL_DELAY_MILLIS = 500;
+  private static final long DEFAULT_MAX_DELAY_MILLIS = 30_000;
+
+  // Sent by the transports' own disconnect(); from the current transport it means the connection ended
+  private static final String CLIENT_DISCONNECT_NOTICE = "You have been disconnected.";
+
+  private final Supplier<NetworkService> factory;
+  private final long initialDelayMillis;
+  private final long maxDelayMillis;
+  private final int maxAttempts;
+
+  private String host;
+  private Integer port;
+  private MessageListener messageListener;
+
+  // The transport whose events are passed on; null while reconnecting
+  private volatile NetworkService current;
+  private volatile boolean closed = false;
+  private volatile Thread reconnectThread;
+
+  public ReconnectingNetworkService(Supplier<NetworkService> factory) {
+    this(factory, DEFAULT_INITIAL_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param factory creates a new, unconnected transport for every connection
+   * @param initialDelayMillis backoff ceiling for the first attempt; doubles on each failure
+   * @param maxDelayMillis upper bound for the backoff ceiling
+   * @param maxAttempts attempts before the connection is reported as lost
+   */
+  public ReconnectingNetworkService(Supplier<NetworkService> factory, long initialDelayMillis,
+                                    long maxDelayMillis, int maxAttempts) {
+    this.factory = factory;
+    this.initialDelayMillis = initialDelayMillis;
+    this.maxDelayMillis = maxDelayMillis;
+    this.maxAttempts = maxAttempts;
+  }
+
+  @Override
+  public void connect(String host, Integer port) throws IOException {
+    this.host = host;
+    this.port = port;
+    this.closed = false;
+    open();
+  }
+
+  private void open() throws IOException {
+    NetworkService service = factory.get();
+    service.setMessageListener(new Relay(service));
+    // Current before connecting, so the server's first lines are not dropped by the relay
+    current = service;
+    try {
+      service.connect(host, port);
+    } catch (IOException e) {
+      current = null;
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean sendRequest(Command command) {
+    NetworkService service = current;
+    return service != null && service.sendRequest(command);
+  }
+
+  @Override
+  public void setMessageListener(MessageListener listener) {
+    this.messageListener = listener;
+  }
+
+  @Override
+  public void disconnect() {
+    closed = true;
+    Thread reconnecting = reconnectThread;
+    if (reconnecting != null) {
+      reconnecting.interrupt();
+    }
+    NetworkService service = current;
+    if (service != null) {
+      service.disconnect();
+    }
+  }
+
+  /**
+   * Closes the current transport; its disconnect notice then starts a reconnect as if the
+   * connection had been lost.
+   */
+  @Override
+  public void dropConnection() {
+    NetworkService service = current;
+    if (service != null) {
+      service.disconnect();
+    }
+  }
+
+  /**
+   * Starts reconnecting unless that is already under way for this transport.
+   */
+  private synchronized void connectionLost(NetworkService lost) {
+    if (closed || current != lost) return;
+    current = null;
+    reconnectThread = Thread.ofVirtual().name("reconnect-" + host + ":" + port).start(this::reconnectLoop);
+  }
+
+  private void reconnectLoop() {
+    for (int attempt = 1; attempt <= maxAttempts && !closed; attempt++) {
+      long delay = backoffMillis(attempt);
+      if (messageListener != null) {
+        messageListener.onReconnecting(attempt, delay);
+      }
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException e) {
+        return; // disconnect() was called
+      }
+      if (closed) return;
+
+      try {
+        open();
+        reconnectThread = null;
+        if (messageListener != null) {
+          messageListener.onReconnected();
+        }
+        return;
+      } catch (IOException e) {
+        LoggerUtil.error("Reconnect attempt " + attempt + " failed: " + e.getMessage());
+      }
+    }
+
+    reconnectThread = null;
+    if (!closed && messageListener != null) {
+      messageListener.onMessage(new Message(
+              MessageType.SYSTEM, "SOCKET_DISCONNECT", null, "Connection lost to server.", Instant.now()
+      ));
+    }
+  }
+
+  /**
+   * "Equal jitter": half of the exponential ceiling plus a random share of the other half,
+   * so clients that lost the same server do not all come back at once.
+   */
+  private long backoffMillis(int attempt) {
+    long ceiling = Math.min(maxDelayMillis, initialDelayMillis << Math.min(attempt - 1, 20));
+    long half = ceiling / 2;
+    return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+  }
+
+  private static boolean isDisconnectNotice(Message message) {
+    if (message.type() != MessageType.SYSTEM) return false;
+    return "SOCKET_DISCONNECT".equals(message.sender())
+            || ("CLIENT".equals(message.sender()) && CLIENT_DISCONNECT_NOTICE.equals(message.content()));
+  }
+
+  /**
+   * Listener installed on each transport; drops events from transports that were replaced.
+   */
+  private final class Relay implements MessageListener {
+    private final NetworkService source;
+
+    Relay(NetworkService source) {
+      this.source = source;
+    }
+
+    @Override
+    public void onMessage(Message message) {
+      if (current != source || messageListener == null) return;
+      if (!closed && isDisconnectNotice(message)) {
+        connectionLost(source);
+        return;
+      }
+      messageListener.onMessage(message);
+    }
+
+    @Override
+    public void onMessages(List<Message> messages) {
+      if (current != source || messageListener == null) return;
+      messageListener.onMessages(messages);
+    }
+
+    @Override
+    public void onDropped(Command command) {
+      if (current != source || messageListener == null) return;
+      messageListener.onDropped(command);
+    }
+  }
+}
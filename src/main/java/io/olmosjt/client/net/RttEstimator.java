@@ -0,0 +1,40 @@
+package io.olmosjt.client.net;
+
+/**
+ * Smoothed round-trip time and its variation, as TCP estimates them (RFC 6298): each sample
+ * moves the average an eighth of the way and the mean deviation a quarter of the way, so one
+ * slow response shifts the estimate without swamping it.
+ * <p>
+ * Not thread-safe; callers synchronize.
+ */
+final class RttEstimator {
+  private long smoothedNanos = -1;
+  private long variationNanos = 0;
+  private long lastNanos = -1;
+
+  void sample(long rttNanos) {
+    lastNanos = rttNanos;
+    if (smoothedNanos < 0) {
+      smoothedNanos = rttNanos;
+      variationNanos = rttNanos / 2;
+      return;
+    }
+    variationNanos += (Math.abs(smoothedNanos - rttNanos) - variationNanos) / 4;
+    smoothedNanos += (rttNanos - smoothedNanos) / 8;
+  }
+
+  /**
+   * @return the smoothed round trip, or -1 before the first sample
+   */
+  long smoothedNanos() {
+    return smoothedNanos;
+  }
+
+  long variationNanos() {
+    return variationNanos;
+  }
+
+  long lastNanos() {
+    return lastNanos;
+  }
+}
@@ -1,47 +1,164 @@
 package io.olmosjt.client.net;
 
+import io.olmosjt.client.metrics.ClientMetrics;
 import io.olmosjt.client.model.Command;
 import io.olmosjt.client.model.Message;
 import io.olmosjt.client.model.MessageType;
 import io.olmosjt.client.util.LoggerUtil;
 import io.olmosjt.client.util.MessageCodec;
+import jdk.net.ExtendedSocketOptions;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.net.Socket;
+import java.net.SocketOption;
+import java.net.SocketTimeoutException;
 import java.time.Instant;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+/**
+ * A {@link NetworkService} over a blocking {@link Socket}.
+ * <p>
+ * Reads happen on one virtual thread. Requests are not written by the caller: they go into
+ * a bounded {@link OutboundQueue} that a second virtual thread drains, writing each batch and
+ * flushing once. A slow or stalled server therefore never blocks the thread calling
+ * {@link #sendRequest}; when the queue fills up, the {@link OverflowPolicy} decides what happens.
+ * <p>
+ * With {@code -Dtermitalk.compression=on} (or a list of {@link WireCompression} modes) the
+ * connection offers compression right after connecting and stays plain if the server does
+ * not take it up.
+ * <p>
+ * TCP keepalive probes an idle connection after {@code termitalk.keepAlive.idle} seconds
+ * (default 5), every {@code termitalk.keepAlive.interval} seconds (default 2), and the kernel
+ * closes it after {@code termitalk.keepAlive.count} unanswered probes (default 3), so a
+ * vanished peer ends the blocked read within seconds even when nothing is being sent. With
+ * {@code termitalk.readTimeout} set, in milliseconds, a connection that receives nothing for
+ * that long is treated as lost too; only use it with a server that answers
+ * {@link Heartbeat} pings, or a quiet room will look dead.
+ */
 public class SocketNetworkService implements NetworkService {
+  private static final int MAX_BATCH = 256;
+  private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+  private static final int HANDSHAKE_TIMEOUT_MILLIS = 3000;
+  private static final int READ_TIMEOUT_MILLIS = Integer.getInteger("termitalk.readTimeout", 0);
+
   private Socket socket;
-  private PrintWriter out;
+  private BufferedWriter out;
   private BufferedReader in;
   private volatile boolean running = false;
 
+  private final int queueCapacity;
+  private final OverflowPolicy overflowPolicy;
+  private volatile OutboundQueue outbound;
+  // Counted in the send queue gauge while connected
+  private LongSupplier sendQueueDepth;
+
+  private final List<WireCompression> compressionOffer;
+  private volatile WireCompression compression = WireCompression.NONE;
+  // Lines that arrived during the compression handshake, delivered first
+  private final List<String> early = new ArrayList<>();
+
   private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
 
   private MessageListener messageListener;
 
+  public SocketNetworkService() {
+    this(Integer.getInteger("termitalk.sendQueue", DEFAULT_QUEUE_CAPACITY),
+            OverflowPolicy.valueOf(System.getProperty("termitalk.sendQueue.overflow", OverflowPolicy.FAIL.name())),
+            WireCompression.parseOffer(System.getProperty("termitalk.compression")));
+  }
+
+  public SocketNetworkService(int queueCapacity, OverflowPolicy overflowPolicy) {
+    this(queueCapacity, overflowPolicy, List.of());
+  }
+
+  /**
+   * @param compressionOffer modes to offer the server in order of preference, empty for none
+   */
+  public SocketNetworkService(int queueCapacity, OverflowPolicy overflowPolicy, List<WireCompression> compressionOffer) {
+    this.queueCapacity = queueCapacity;
+    this.overflowPolicy = overflowPolicy;
+    this.compressionOffer = List.copyOf(compressionOffer);
+  }
+
   @Override
   public void connect(String host, Integer port) throws IOException {
     socket = new Socket(host, port);
-    out = new PrintWriter(socket.getOutputStream(), true);
-    in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+    InputStream wireIn = new CountingInputStream(socket.getInputStream(), ClientMetrics.BYTES_IN);
+    OutputStream wireOut = new CountingOutputStream(socket.getOutputStream(), ClientMetrics.BYTES_OUT);
+    try {
+      enableKeepAlive(socket);
+      if (!compressionOffer.isEmpty()) {
+        socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+        // The handshake is plain text: its bytes are payload as well as wire bytes
+        compression = CompressionHandshake.negotiate(compressionOffer,
+                new CountingInputStream(wireIn, ClientMetrics.PAYLOAD_BYTES_IN),
+                new CountingOutputStream(wireOut, ClientMetrics.PAYLOAD_BYTES_OUT), early);
+      }
+      socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+    } catch (IOException e) {
+      closeSocketQuietly();
+      throw e;
+    }
+    OutputStream encodedOut = compression.wrapOutput(wireOut);
+    InputStream decodedIn = compression.wrapInput(wireIn);
+    out = new BufferedWriter(new OutputStreamWriter(new CountingOutputStream(encodedOut, ClientMetrics.PAYLOAD_BYTES_OUT)));
+    in = new BufferedReader(new InputStreamReader(new CountingInputStream(decodedIn, ClientMetrics.PAYLOAD_BYTES_IN)));
+    OutboundQueue queue = new OutboundQueue(queueCapacity, overflowPolicy);
+    outbound = queue;
+    sendQueueDepth = queue::size;
+    ClientMetrics.SEND_QUEUE.add(sendQueueDepth);
     running = true;
 
-    executor.submit(this::listenLoop);
+    executor.submit(() -> listenLoop(decodedIn));
+    executor.submit(() -> writeLoop(encodedOut));
   }
 
+  /**
+   * Queues the request for the writer thread. Only blocks, and then only on the queue,
+   * under {@link OverflowPolicy#BLOCK}.
+   */
   @Override
-  public void sendRequest(Command command) {
-    if (out != null && running) {
-      String request = "REQ|" + command.type().name() + "|" + command.payload();
-      out.println(request);
+  public boolean sendRequest(Command command) {
+    OutboundQueue queue = outbound;
+    if (queue == null || !running) return false;
+
+    Command lost;
+    try {
+      lost = queue.offer(command);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      lost = command;
     }
+
+    if (lost != null && running && messageListener != null) {
+      if (lost != command) {
+        messageListener.onDropped(lost);
+      }
+      String text = lost == command
+              ? "Not sent, outgoing queue is full: " + command.payload()
+              : "Dropped unsent message, outgoing queue is full: " + lost.payload();
+      messageListener.onMessage(new Message(MessageType.SYSTEM, "CLIENT", null, text, Instant.now()));
+    }
+    return lost != command;
+  }
+
+  /**
+   * The compression the server accepted, {@link WireCompression#NONE} until connected or if
+   * it accepted none.
+   */
+  public WireCompression compression() {
+    return compression;
   }
 
   @Override
@@ -53,6 +170,10 @@ public class SocketNetworkService implements NetworkService {
   public void disconnect() {
     if (!running) return;
     running = false;
+    if (outbound != null) {
+      outbound.close();
+    }
+    ClientMetrics.SEND_QUEUE.remove(sendQueueDepth);
     try {
       if (socket != null) {
         socket.close();
@@ -68,16 +189,40 @@ public class SocketNetworkService implements NetworkService {
     }
   }
 
-
-
-  private void listenLoop() {
+  /**
+   * @param decodedIn the stream under the reader, closed at the end to release an inflater
+   */
+  private void listenLoop(InputStream decodedIn) {
+    List<Message> batch = new ArrayList<>();
     try {
+      for (String line : early) {
+        decodeInto(line, batch);
+      }
+      early.clear();
+      if (!batch.isEmpty()) {
+        messageListener.onMessages(batch);
+        batch.clear();
+      }
+
       String serverLine;
       while (running && (serverLine = in.readLine()) != null) {
-        MessageCodec.decode(serverLine).ifPresent(msg -> messageListener.onMessage(msg));
+        decodeInto(serverLine, batch);
+
+        // Collect every further line that is already buffered and deliver them together
+        while (batch.size() < MAX_BATCH && in.ready() && (serverLine = in.readLine()) != null) {
+          decodeInto(serverLine, batch);
+        }
+
+        if (!batch.isEmpty()) {
+          messageListener.onMessages(batch);
+          batch.clear();
+        }
       }
     } catch (IOException e) {
       if (running) {
+        if (e instanceof SocketTimeoutException) {
+          LoggerUtil.warn("Nothing received from the server for " + READ_TIMEOUT_MILLIS + " ms");
+        }
         Message disconnectMsg = new Message(
                 MessageType.SYSTEM, "SOCKET_DISCONNECT", null, "Connection lost to server.", Instant.now()
         );
@@ -86,7 +231,83 @@ public class SocketNetworkService implements NetworkService {
         }
       }
     } finally {
+      closeQuietly(decodedIn);
       disconnect();
     }
   }
+
+  /**
+   * Drains the outbound queue, writing everything that queued up while the previous batch
+   * was being written and flushing once per batch.
+   *
+   * @param encodedOut the stream under the writer, closed at the end to release a deflater
+   */
+  private void writeLoop(OutputStream encodedOut) {
+    OutboundQueue queue = outbound;
+    List<Command> batch = new ArrayList<>();
+    try {
+      while (running && queue.takeAll(batch)) {
+        long begin = ClientMetrics.start();
+        for (Command command : batch) {
+          out.write("REQ|");
+          out.write(command.type().name());
+          out.write('|');
+          out.write(String.valueOf(command.payload()));
+          out.newLine();
+        }
+        out.flush();
+        ClientMetrics.LINES_OUT.add(batch.size());
+        ClientMetrics.FLUSH_TIME.recordSince(begin);
+        batch.clear();
+      }
+    } catch (InterruptedException e) {
+      // disconnect() shut the executor down
+    } catch (IOException e) {
+      if (running) {
+        // Closing the socket makes the listen loop report the lost connection
+        LoggerUtil.error("Write failed: " + e.getMessage());
+        closeSocketQuietly();
+      }
+    } finally {
+      closeQuietly(encodedOut);
+    }
+  }
+
+  private static void enableKeepAlive(Socket socket) throws IOException {
+    socket.setKeepAlive(true);
+    // Tuning is platform-specific; where it is unsupported the system defaults (often hours) apply
+    setIfSupported(socket, ExtendedSocketOptions.TCP_KEEPIDLE, Integer.getInteger("termitalk.keepAlive.idle", 5));
+    setIfSupported(socket, ExtendedSocketOptions.TCP_KEEPINTERVAL, Integer.getInteger("termitalk.keepAlive.interval", 2));
+    setIfSupported(socket, ExtendedSocketOptions.TCP_KEEPCOUNT, Integer.getInteger("termitalk.keepAlive.count", 3));
+  }
+
+  private static void setIfSupported(Socket socket, SocketOption<Integer> option, int value) throws IOException {
+    if (socket.supportedOptions().contains(option)) {
+      socket.setOption(option, value);
+    }
+  }
+
+  private static void closeQuietly(Closeable stream) {
+    try {
+      stream.close();
+    } catch (IOException ignored) {
+      // The socket is gone; only the native state matters
+    }
+  }
+
+  private void closeSocketQuietly() {
+    try {
+      socket.close();
+    } catch (IOException ignored) {
+      // Already closed
+    }
+  }
+
+  private static void decodeInto(String serverLine, List<Message> batch) {
+    ClientMetrics.LINES_IN.increment();
+    Message msg = MessageCodec.decode(serverLine);
+    if (msg != null) {
+      batch.add(msg);
+    }
+  }
 }
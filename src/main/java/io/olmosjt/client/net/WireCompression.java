@@ -0,0 +1,122 @@
+package io.olmosjt.client.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * How the bytes of a connection are encoded once the handshake is over.
+ * <p>
+ * Compression is negotiated right after connecting: the client sends
+ * {@code REQ|COMPRESS|<mode>[,<mode>...]} in order of preference, and a server that supports
+ * one of them answers {@code OK|SERVER||Compression: <mode>} and switches both directions to
+ * it after that line. A server that answers NOK, or not at all, keeps the connection plain.
+ * <p>
+ * The compressed modes are one zlib stream per direction for the whole connection, flushed
+ * with {@link Deflater#SYNC_FLUSH} after every batch of lines so each batch can be decoded as
+ * soon as it arrives while the window keeps earlier lines as context. {@link #DEFLATE_DICT}
+ * primes both ends with a dictionary of protocol phrases, which mostly helps the first lines
+ * of a connection.
+ */
+public enum WireCompression {
+  NONE("none"),
+  DEFLATE("deflate"),
+  DEFLATE_DICT("deflate-dict");
+
+  /**
+   * Phrases the server repeats, most frequent last (closest to the data, cheapest to refer to).
+   */
+  private static final byte[] DICTIONARY = String.join("\n",
+          "Available rooms: ", "Users in room: ", " created with id #", "Room not found.", "Joined room '",
+          "You have left the room.", "has left the room.", "has joined the room.", "Welcome, ",
+          "PRIVATE|", "SYSTEM|SERVER|", "NOK|SERVER||", "OK|SERVER||", "REQ|MSG|", "USER|"
+  ).getBytes(StandardCharsets.UTF_8);
+
+  private final String token;
+
+  WireCompression(String token) {
+    this.token = token;
+  }
+
+  /**
+   * The name used in the handshake.
+   */
+  public String token() {
+    return token;
+  }
+
+  /**
+   * @return the mode with this handshake name, or null
+   */
+  public static WireCompression fromToken(String token) {
+    for (WireCompression mode : values()) {
+      if (mode.token.equals(token.trim().toLowerCase(Locale.ROOT))) return mode;
+    }
+    return null;
+  }
+
+  /**
+   * Parses the {@code termitalk.compression} setting: "off" (or empty), "on" for every
+   * compressed mode, or a comma-separated list of modes in order of preference.
+   *
+   * @return the modes to offer, empty for none
+   * @throws IllegalArgumentException for an unknown mode
+   */
+  public static List<WireCompression> parseOffer(String setting) {
+    List<WireCompression> offer = new ArrayList<>();
+    if (setting == null || setting.isBlank() || setting.equalsIgnoreCase("off")) return offer;
+    if (setting.equalsIgnoreCase("on")) return List.of(DEFLATE_DICT, DEFLATE);
+    for (String token : setting.split(",")) {
+      WireCompression mode = fromToken(token);
+      if (mode == null) {
+        throw new IllegalArgumentException("Unknown compression mode: " + token);
+      }
+      if (mode != NONE) {
+        offer.add(mode);
+      }
+    }
+    return offer;
+  }
+
+  /**
+   * Wraps the raw stream so reads return decompressed bytes. Closing the wrapper releases
+   * its inflater.
+   */
+  public InputStream wrapInput(InputStream in) {
+    return switch (this) {
+      case NONE -> in;
+      case DEFLATE -> new InflatingInputStream(in, new Inflater(), null);
+      case DEFLATE_DICT -> new InflatingInputStream(in, new Inflater(), DICTIONARY);
+    };
+  }
+
+  /**
+   * Wraps the raw stream so writes are compressed; every flush is a sync flush. Closing the
+   * wrapper releases its deflater.
+   */
+  public OutputStream wrapOutput(OutputStream out) {
+    if (this == NONE) return out;
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    if (this == DEFLATE_DICT) {
+      deflater.setDictionary(DICTIONARY);
+    }
+    // Given a deflater, DeflaterOutputStream leaves ending it to the caller
+    return new DeflaterOutputStream(out, deflater, 8192, true) {
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+        } finally {
+          deflater.end();
+        }
+      }
+    };
+  }
+}
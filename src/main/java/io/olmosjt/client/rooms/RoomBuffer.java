@@ -0,0 +1,158 @@
+package io.olmosjt.client.rooms;
+
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.model.MessageType;
+import io.olmosjt.client.store.SymbolTable;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The messages one room keeps, oldest first, stored as columns rather than objects.
+ * <p>
+ * Like {@link io.olmosjt.client.store.MessageStore}, each message keeps its timestamp as
+ * epoch millis, its type as a byte and its sender and recipient as ids into a
+ * {@link SymbolTable}, here one shared by all rooms; only the content stays a String. That is
+ * 21 bytes besides the content, where a {@link Message} with its own {@link Instant} and name
+ * strings takes well over a hundred. The columns form a ring that doubles as it fills, up to
+ * the room's capacity, so a quiet room takes little. Messages are rebuilt when the room is
+ * shown.
+ * <p>
+ * Not thread-safe, like the {@link RoomSessions} that owns it.
+ */
+final class RoomBuffer {
+  private static final MessageType[] TYPES = MessageType.values();
+  private static final int NO_RECIPIENT = -1;
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final SymbolTable names;
+  private final int maxCapacity;
+
+  private long[] stamps = new long[0];
+  private byte[] types = new byte[0];
+  private int[] senders = new int[0];
+  private int[] recipients = new int[0];
+  private String[] contents = new String[0];
+  // Slot of the oldest message
+  private int head;
+  private int size;
+
+  /**
+   * @param maxCapacity the most messages it will be asked to hold
+   */
+  RoomBuffer(SymbolTable names, int maxCapacity) {
+    this.names = names;
+    this.maxCapacity = maxCapacity;
+  }
+
+  int size() {
+    return size;
+  }
+
+  void addLast(Message message) {
+    ensureRoom();
+    write((head + size) % contents.length, message);
+    size++;
+  }
+
+  void addFirst(Message message) {
+    ensureRoom();
+    head = (head - 1 + contents.length) % contents.length;
+    write(head, message);
+    size++;
+  }
+
+  void removeFirst() {
+    if (size == 0) return;
+    contents[head] = null;
+    head = (head + 1) % contents.length;
+    size--;
+  }
+
+  /**
+   * Drops every message and gives back the columns.
+   */
+  void clear() {
+    stamps = new long[0];
+    types = new byte[0];
+    senders = new int[0];
+    recipients = new int[0];
+    contents = new String[0];
+    head = 0;
+    size = 0;
+  }
+
+  /**
+   * The messages, oldest first, rebuilt.
+   */
+  List<Message> toList() {
+    List<Message> messages = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      int slot = (head + i) % contents.length;
+      messages.add(new Message(
+              TYPES[types[slot]],
+              names.name(senders[slot]),
+              recipients[slot] == NO_RECIPIENT ? null : names.name(recipients[slot]),
+              contents[slot],
+              Instant.ofEpochMilli(stamps[slot])));
+    }
+    return messages;
+  }
+
+  private void write(int slot, Message message) {
+    stamps[slot] = message.timestamp().toEpochMilli();
+    types[slot] = (byte) message.type().ordinal();
+    senders[slot] = names.intern(message.sender());
+    recipients[slot] = message.recipient() == null ? NO_RECIPIENT : names.intern(message.recipient());
+    contents[slot] = message.content();
+  }
+
+  private void ensureRoom() {
+    int capacity = contents.length;
+    if (size < capacity) return;
+    if (capacity == maxCapacity) {
+      throw new IllegalStateException("Room buffer is full: " + capacity);
+    }
+    int grown = Math.min(maxCapacity, Math.max(INITIAL_CAPACITY, capacity * 2));
+    stamps = unwrap(stamps, grown);
+    types = unwrap(types, grown);
+    senders = unwrap(senders, grown);
+    recipients = unwrap(recipients, grown);
+    contents = unwrap(contents, grown);
+    head = 0;
+  }
+
+  // Copies the ring into a larger array, oldest first
+  private long[] unwrap(long[] column, int length) {
+    long[] copy = new long[length];
+    for (int i = 0; i < size; i++) {
+      copy[i] = column[(head + i) % column.length];
+    }
+    return copy;
+  }
+
+  private byte[] unwrap(byte[] column, int length) {
+    byte[] copy = new byte[length];
+    for (int i = 0; i < size; i++) {
+      copy[i] = column[(head + i) % column.length];
+    }
+    return copy;
+  }
+
+  private int[] unwrap(int[] column, int length) {
+    int[] copy = new int[length];
+    for (int i = 0; i < size; i++) {
+      copy[i] = column[(head + i) % column.length];
+    }
+    return copy;
+  }
+
+  private String[] unwrap(String[] column, int length) {
+    String[] copy = new String[length];
+    for (int i = 0; i < size; i++) {
+      copy[i] = column[(head + i) % column.length];
+    }
+    return copy;
+  }
+}
@@ -0,0 +1,129 @@
+package io.olmosjt.client.rooms;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The server's rooms, sorted by name, with prefix filtering.
+ * <p>
+ * {@link #update} compares a freshly received room list with the current one and only
+ * rebuilds when rooms were added, removed or changed; an identical list, the usual case when
+ * the lobby is revisited, costs one hash lookup per room and allocates no index. The index is
+ * two sorted arrays, by name and by id, so a filter is answered with two binary searches and
+ * the result is a view of a contiguous range. Callers that draw a window of rows only touch
+ * those rows.
+ * <p>
+ * Updates replace the arrays wholesale, so any thread may read while another updates.
+ */
+public final class RoomDirectory {
+  private static final Comparator<RoomEntry> BY_ID = Comparator.comparing(RoomEntry::key);
+
+  /**
+   * What changed in an update.
+   */
+  public record Diff(int added, int removed, int changed) {
+    public boolean isEmpty() {
+      return added == 0 && removed == 0 && changed == 0;
+    }
+  }
+
+  private record Index(RoomEntry[] byName, RoomEntry[] byId, Map<String, RoomEntry> byKey) { }
+
+  private static final Index EMPTY = new Index(new RoomEntry[0], new RoomEntry[0], Map.of());
+
+  private volatile Index index = EMPTY;
+
+  /**
+   * Replaces the directory with the given entries, as sent by the server.
+   *
+   * @return what changed; nothing was rebuilt if it is empty
+   */
+  public Diff update(List<String> entries) {
+    Index current = index;
+    Map<String, RoomEntry> byKey = new HashMap<>(entries.size() * 2);
+    int added = 0;
+    int changed = 0;
+    for (String text : entries) {
+      RoomEntry previous = current.byKey().get(keyOf(text));
+      RoomEntry room = previous != null && previous.text().equals(text) ? previous : RoomEntry.parse(text);
+      if (byKey.put(room.key(), room) != null) continue; // Duplicate entry, keep the last
+      if (previous == null) {
+        added++;
+      } else if (previous != room) {
+        changed++;
+      }
+    }
+    int removed = current.byKey().size() - (byKey.size() - added);
+
+    Diff diff = new Diff(added, removed, changed);
+    if (!diff.isEmpty()) {
+      RoomEntry[] byName = byKey.values().toArray(new RoomEntry[0]);
+      Arrays.sort(byName, RoomEntry.BY_NAME);
+      RoomEntry[] byId = byName.clone();
+      Arrays.sort(byId, BY_ID);
+      index = new Index(byName, byId, byKey);
+    }
+    return diff;
+  }
+
+  public int size() {
+    return index.byName().length;
+  }
+
+  /**
+   * Rooms whose name starts with the filter, ignoring case, in name order. A filter starting
+   * with '#' matches room ids instead. An empty filter matches every room.
+   */
+  public List<RoomEntry> filter(String prefix) {
+    Index current = index;
+    if (prefix.isEmpty()) {
+      return Collections.unmodifiableList(Arrays.asList(current.byName()));
+    }
+    if (prefix.startsWith("#")) {
+      return range(current.byId(), prefix, RoomEntry::key);
+    }
+    String lower = prefix.toLowerCase(Locale.ROOT);
+    return range(current.byName(), lower, room -> room.name().toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * The sorted entries whose key starts with the prefix: every such key sorts at or after the
+   * prefix and before the prefix followed by the highest character.
+   */
+  private static List<RoomEntry> range(RoomEntry[] sorted, String prefix, Function<RoomEntry, String> key) {
+    int from = lowerBound(sorted, prefix, key);
+    int to = lowerBound(sorted, prefix + Character.MAX_VALUE, key);
+    return Collections.unmodifiableList(Arrays.asList(sorted).subList(from, to));
+  }
+
+  private static int lowerBound(RoomEntry[] sorted, String value, Function<RoomEntry, String> key) {
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (key.apply(sorted[mid]).compareTo(value) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * The key {@link RoomEntry#parse} would give, without parsing the rest of the entry.
+   */
+  private static String keyOf(String text) {
+    if (!text.startsWith("#")) {
+      return RoomEntry.parse(text).key();
+    }
+    int space = text.indexOf(' ');
+    return space < 0 ? text : text.substring(0, space);
+  }
+}
@@ -0,0 +1,46 @@
+package io.olmosjt.client.rooms;
+
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * One room of the server's room list.
+ *
+ * @param id the room reference used to join it, such as "#12", or null if the entry has none
+ * @param name the room name, without the id and any trailing "(...)" detail
+ * @param text the entry as the server sent it, which is what the lobby shows
+ */
+public record RoomEntry(String id, String name, String text) {
+
+  /**
+   * Directory order: by name ignoring case, then by id.
+   */
+  public static final Comparator<RoomEntry> BY_NAME = Comparator
+          .comparing((RoomEntry room) -> room.name().toLowerCase(Locale.ROOT))
+          .thenComparing(RoomEntry::key);
+
+  /**
+   * Parses an entry such as "#12 general (3)".
+   */
+  public static RoomEntry parse(String text) {
+    String id = null;
+    String rest = text;
+    if (text.startsWith("#")) {
+      int space = text.indexOf(' ');
+      id = space < 0 ? text : text.substring(0, space);
+      rest = space < 0 ? "" : text.substring(space + 1).trim();
+    }
+    int detail = rest.lastIndexOf(" (");
+    if (detail > 0 && rest.endsWith(")")) {
+      rest = rest.substring(0, detail).trim();
+    }
+    return new RoomEntry(id, rest.isEmpty() ? text : rest, text);
+  }
+
+  /**
+   * What identifies the room across updates: the id, or the name if there is none.
+   */
+  public String key() {
+    return id != null ? id : name;
+  }
+}
@@ -0,0 +1,365 @@
+package io.olmosjt.client.rooms;
+
+import io.olmosjt.client.metrics.ClientMetrics;
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.model.MessageType;
+import io.olmosjt.client.store.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The rooms joined over one connection, each with its own scrollback and counters.
+ * <p>
+ * One room is active: the one on screen, or last on screen while the lobby is shown, and
+ * the one the server delivers MSG to. {@link #route} sorts chat messages into rooms by
+ * recipient ("#12"). Those for the active room while it is shown, and those addressed to no
+ * joined room such as private messages, are returned for display. Chat in any other room
+ * counts as unread, and as a mention when it contains the user's name as a word.
+ * <p>
+ * Each room keeps its newest {@code roomCapacity} messages unformatted, so switching back to
+ * it shows them without asking the server. They are kept compactly in a {@link RoomBuffer},
+ * with sender and room names interned once for all rooms. A capacity of zero keeps just the
+ * counters. With messages also kept on disk, a room's buffer can be seeded with the
+ * stored tail through {@link #prepend}; it stays seeded until a message is dropped from it,
+ * so it can be shown instead of reading the tail again. All rooms together hold at most
+ * {@code totalCapacity} messages. Past that, rooms give up their oldest messages in order of
+ * when they were last shown, least recent first, until an eighth of the budget is free, so a
+ * dozen busy background rooms cannot grow the heap and the room being read is trimmed last.
+ * <p>
+ * Not thread-safe: the client's event loop owns it. Only {@link #buffered}, which feeds a
+ * metrics gauge, may be read from other threads.
+ */
+public final class RoomSessions {
+  private static final Comparator<Room> LEAST_RECENTLY_SHOWN = Comparator.comparingLong(room -> room.lastShown);
+
+  /**
+   * What a room holds when it is shown.
+   *
+   * @param name the room name
+   * @param messages buffered messages, oldest first
+   * @param seeded whether they run unbroken from the first message given to {@link #prepend}
+   */
+  public record Backlog(String name, List<Message> messages, boolean seeded) { }
+
+  private static final class Room {
+    final String id;
+    final String name;
+    final RoomBuffer buffer;
+    int unread;
+    int mentions;
+    long lastShown;
+    // Nothing dropped since the buffer was seeded
+    boolean seeded;
+
+    Room(String id, String name, RoomBuffer buffer) {
+      this.id = id;
+      this.name = name;
+      this.buffer = buffer;
+    }
+  }
+
+  private final int roomCapacity;
+  private final int totalCapacity;
+  // Sender and room names of every buffered message
+  private final SymbolTable names = new SymbolTable();
+
+  // Join order, which is also the tab order
+  private final Map<String, Room> rooms = new LinkedHashMap<>();
+  private String active;
+  private boolean showing;
+  private long clock;
+  // Written by the owning thread only
+  private volatile int buffered;
+  private boolean changed;
+
+  /**
+   * @param roomCapacity messages kept per room, or 0 to keep none
+   * @param totalCapacity messages kept across all rooms
+   */
+  public RoomSessions(int roomCapacity, int totalCapacity) {
+    if (roomCapacity < 0 || totalCapacity < roomCapacity) {
+      throw new IllegalArgumentException("Invalid capacities: " + roomCapacity + " per room, " + totalCapacity + " in total");
+    }
+    this.roomCapacity = roomCapacity;
+    this.totalCapacity = totalCapacity;
+  }
+
+  /**
+   * Adds a joined room, after the others.
+   *
+   * @return false if it was already open
+   */
+  public boolean open(String id, String name) {
+    if (rooms.containsKey(id)) return false;
+    Room room = new Room(id, name, new RoomBuffer(names, roomCapacity));
+    room.lastShown = ++clock;
+    rooms.put(id, room);
+    changed = true;
+    return true;
+  }
+
+  /**
+   * Makes an open room the active one and marks it read.
+   *
+   * @return what it holds, or null if the room is not open
+   */
+  public Backlog show(String id) {
+    Room room = rooms.get(id);
+    if (room == null) return null;
+    active = id;
+    showing = true;
+    room.unread = 0;
+    room.mentions = 0;
+    room.lastShown = ++clock;
+    changed = true;
+    return new Backlog(room.name, room.buffer.toList(), room.seeded);
+  }
+
+  /**
+   * Empties a room's buffer, e.g. before its stored tail is read to seed it again.
+   */
+  public void discard(String id) {
+    Room room = rooms.get(id);
+    if (room == null) return;
+    buffered -= room.buffer.size();
+    room.buffer.clear();
+    room.seeded = false;
+  }
+
+  /**
+   * Puts older messages, oldest first, in front of those a room holds. If they do not all
+   * fit, the newest that do are kept and the room is not seeded.
+   *
+   * @return whether the room is now seeded with all of them
+   */
+  public boolean prepend(String id, List<Message> older) {
+    Room room = rooms.get(id);
+    if (room == null || roomCapacity == 0) return false;
+    int fit = Math.min(older.size(), roomCapacity - room.buffer.size());
+    for (int i = older.size() - 1; i >= older.size() - fit; i--) {
+      room.buffer.addFirst(older.get(i));
+    }
+    buffered += fit;
+    room.seeded = fit == older.size();
+    if (buffered > totalCapacity) {
+      evict();
+    }
+    return room.seeded;
+  }
+
+  /**
+   * The lobby is shown instead of the active room; its chat counts as unread until it is
+   * shown again.
+   */
+  public void hide() {
+    if (!showing) return;
+    showing = false;
+    Room room = rooms.get(active);
+    if (room != null) {
+      room.lastShown = ++clock;
+    }
+  }
+
+  /**
+   * Removes a room.
+   *
+   * @return the room next to it in tab order, to show if it was the active one, or null if
+   *         no room is left or it was not open
+   */
+  public String close(String id) {
+    Room room = rooms.get(id);
+    if (room == null) return null;
+
+    String before = null;
+    String after = null;
+    boolean found = false;
+    for (String key : rooms.keySet()) {
+      if (key.equals(id)) {
+        found = true;
+      } else if (!found) {
+        before = key;
+      } else {
+        after = key;
+        break;
+      }
+    }
+    rooms.remove(id);
+    buffered -= room.buffer.size();
+    changed = true;
+    if (id.equals(active)) {
+      active = null;
+      showing = false;
+    }
+    return after != null ? after : before;
+  }
+
+  public void clear() {
+    rooms.clear();
+    active = null;
+    showing = false;
+    buffered = 0;
+    changed = true;
+  }
+
+  public boolean contains(String id) {
+    return rooms.containsKey(id);
+  }
+
+  /**
+   * The active room, or null if none has been shown since it was last closed.
+   */
+  public String active() {
+    return active;
+  }
+
+  /**
+   * Whether the active room is on screen rather than the lobby.
+   */
+  public boolean showing() {
+    return showing;
+  }
+
+  public boolean isEmpty() {
+    return rooms.isEmpty();
+  }
+
+  /**
+   * Every open room in tab order, except that the active room comes last; rejoining in this
+   * order leaves the server delivering MSG to the active room.
+   */
+  public List<String> joinOrder() {
+    List<String> order = new ArrayList<>(rooms.size());
+    for (String id : rooms.keySet()) {
+      if (!id.equals(active)) {
+        order.add(id);
+      }
+    }
+    if (active != null && rooms.containsKey(active)) {
+      order.add(active);
+    }
+    return order;
+  }
+
+  /**
+   * The open room a message was sent to, or null if it was not sent to one (a private
+   * message, a server notice).
+   */
+  public String roomOf(Message message) {
+    String recipient = message.recipient();
+    return recipient != null && rooms.containsKey(recipient) ? recipient : null;
+  }
+
+  /**
+   * Sorts received chat messages into their rooms.
+   *
+   * @param self the user's name, for counting mentions, or null
+   * @return the messages to display now, in order; the given list itself if that is all of them
+   */
+  public List<Message> route(List<Message> messages, String self) {
+    List<Message> shown = null;
+    for (int i = 0; i < messages.size(); i++) {
+      Message message = messages.get(i);
+      Room room = message.recipient() == null ? null : rooms.get(message.recipient());
+      boolean display = room == null || (showing && room.id.equals(active));
+      if (room != null) {
+        keep(room, message);
+        if (!display && message.type() == MessageType.USER) {
+          room.unread++;
+          if (self != null && !message.sender().equalsIgnoreCase(self) && mentions(message.content(), self)) {
+            room.mentions++;
+          }
+          changed = true;
+        }
+      }
+      if (display) {
+        if (shown != null) {
+          shown.add(message);
+        }
+      } else if (shown == null) {
+        shown = new ArrayList<>(messages.subList(0, i));
+      }
+    }
+    return shown == null ? messages : shown;
+  }
+
+  /**
+   * Whether the tabs changed since the last call: a room was opened, closed or shown, or a
+   * background room received chat.
+   */
+  public boolean takeChanged() {
+    boolean was = changed;
+    changed = false;
+    return was;
+  }
+
+  public List<RoomTab> tabs() {
+    List<RoomTab> tabs = new ArrayList<>(rooms.size());
+    for (Room room : rooms.values()) {
+      tabs.add(new RoomTab(room.id, room.name, room.unread, room.mentions, room.id.equals(active)));
+    }
+    return tabs;
+  }
+
+  /**
+   * Messages currently held across all rooms.
+   */
+  public int buffered() {
+    return buffered;
+  }
+
+  private void keep(Room room, Message message) {
+    if (roomCapacity == 0) return;
+    if (room.buffer.size() == roomCapacity) {
+      room.buffer.removeFirst();
+      room.seeded = false;
+      buffered--;
+    }
+    room.buffer.addLast(message);
+    buffered++;
+    if (buffered > totalCapacity) {
+      evict();
+    }
+  }
+
+  /**
+   * Frees an eighth of the budget, taking the oldest messages of the rooms shown least
+   * recently first.
+   */
+  private void evict() {
+    int target = totalCapacity - totalCapacity / 8;
+    List<Room> candidates = new ArrayList<>(rooms.values());
+    candidates.sort(LEAST_RECENTLY_SHOWN);
+    for (Room room : candidates) {
+      int take = Math.min(room.buffer.size(), buffered - target);
+      for (int i = 0; i < take; i++) {
+        room.buffer.removeFirst();
+      }
+      if (take > 0) {
+        room.seeded = false;
+      }
+      buffered -= take;
+      ClientMetrics.ROOM_EVICTIONS.add(take);
+      if (buffered <= target) return;
+    }
+  }
+
+  /**
+   * Whether the text contains the name, ignoring case, not as part of a longer word.
+   */
+  static boolean mentions(String text, String name) {
+    int length = name.length();
+    if (length == 0) return false;
+    for (int i = 0; i + length <= text.length(); i++) {
+      if (text.regionMatches(true, i, name, 0, length)
+              && (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)))
+              && (i + length == text.length() || !Character.isLetterOrDigit(text.charAt(i + length)))) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
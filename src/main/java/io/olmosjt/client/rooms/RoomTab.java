@@ -0,0 +1,13 @@
+package io.olmosjt.client.rooms;
+
+/**
+ * A joined room as the tab bar shows it.
+ *
+ * @param id the room reference, such as "#12"
+ * @param name the room name
+ * @param unread messages that arrived while the room was not shown
+ * @param mentions those of them that mention the user
+ * @param active whether this is the room shown, or last shown before going to the lobby
+ */
+public record RoomTab(String id, String name, int unread, int mentions, boolean active) {
+}
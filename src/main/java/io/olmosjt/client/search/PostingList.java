@@ -0,0 +1,166 @@
+package io.olmosjt.client.search;
+
+import java.util.Arrays;
+
+/**
+ * List of (message id, term frequency) pairs, ids strictly increasing, appended to at the end
+ * and trimmed at the start.
+ * <p>
+ * Stored as varint-encoded id deltas and frequencies, mostly one byte each. Every
+ * {@link #SKIP_INTERVAL} entries a skip point records where decoding can resume, so
+ * {@link Cursor#advance} can jump over long runs while intersecting lists.
+ */
+final class PostingList {
+  private static final int SKIP_INTERVAL = 64;
+
+  private byte[] data = new byte[8];
+  private int length = 0;
+  private int count = 0;
+  private int lastId = -1;
+
+  // Skip point k: decoding from skipOffsets[k] continues after id skipIds[k]
+  private int[] skipIds = new int[0];
+  private int[] skipOffsets = new int[0];
+  private int skipCount = 0;
+
+  void add(int id, int frequency) {
+    if (id <= lastId) {
+      throw new IllegalArgumentException("ids must increase: " + id + " after " + lastId);
+    }
+    if (count > 0 && count % SKIP_INTERVAL == 0) {
+      if (skipCount == skipIds.length) {
+        int capacity = Math.max(4, skipCount * 2);
+        skipIds = Arrays.copyOf(skipIds, capacity);
+        skipOffsets = Arrays.copyOf(skipOffsets, capacity);
+      }
+      skipIds[skipCount] = lastId;
+      skipOffsets[skipCount] = length;
+      skipCount++;
+    }
+    writeVarInt(id - lastId);
+    writeVarInt(frequency);
+    lastId = id;
+    count++;
+  }
+
+  int count() {
+    return count;
+  }
+
+  /**
+   * Removes the entries with ids below {@code id}, re-encoding the rest.
+   */
+  void dropBefore(int id) {
+    Cursor cursor = cursor();
+    if (!cursor.next() || cursor.id() >= id) return;
+
+    PostingList kept = new PostingList();
+    if (cursor.advance(id)) {
+      do {
+        kept.add(cursor.id(), cursor.frequency());
+      } while (cursor.next());
+    }
+    data = kept.data;
+    length = kept.length;
+    count = kept.count;
+    lastId = kept.lastId;
+    skipIds = kept.skipIds;
+    skipOffsets = kept.skipOffsets;
+    skipCount = kept.skipCount;
+  }
+
+  /**
+   * Bytes held, for reporting.
+   */
+  int sizeInBytes() {
+    return length + skipCount * 8;
+  }
+
+  Cursor cursor() {
+    return new Cursor();
+  }
+
+  private void writeVarInt(int value) {
+    if (length + 5 > data.length) {
+      data = Arrays.copyOf(data, data.length * 2);
+    }
+    while ((value & ~0x7F) != 0) {
+      data[length++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    data[length++] = (byte) value;
+  }
+
+  /**
+   * Reads a list in id order. Only valid while the list is not being appended to.
+   */
+  final class Cursor {
+    private int offset = 0;
+    private int id = -1;
+    private int frequency = 0;
+
+    int id() {
+      return id;
+    }
+
+    int frequency() {
+      return frequency;
+    }
+
+    /**
+     * Moves to the next entry.
+     *
+     * @return false when the list is exhausted
+     */
+    boolean next() {
+      if (offset >= length) return false;
+      id += readVarInt();
+      frequency = readVarInt();
+      return true;
+    }
+
+    /**
+     * Moves to the first entry with an id of at least {@code target}.
+     *
+     * @return false if there is none
+     */
+    boolean advance(int target) {
+      if (id >= target) return true;
+
+      // Jump to the last skip point before the target, if that is ahead of us
+      int lo = 0;
+      int hi = skipCount - 1;
+      int best = -1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        if (skipIds[mid] < target) {
+          best = mid;
+          lo = mid + 1;
+        } else {
+          hi = mid - 1;
+        }
+      }
+      if (best >= 0 && skipIds[best] > id) {
+        id = skipIds[best];
+        offset = skipOffsets[best];
+      }
+
+      while (next()) {
+        if (id >= target) return true;
+      }
+      return false;
+    }
+
+    private int readVarInt() {
+      int value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = data[offset++];
+        value |= (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+      return value;
+    }
+  }
+}
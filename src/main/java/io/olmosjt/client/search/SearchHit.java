@@ -0,0 +1,22 @@
+package io.olmosjt.client.search;
+
+import io.olmosjt.client.model.MessageType;
+
+import java.time.Instant;
+
+/**
+ * A matching message.
+ *
+ * @param highlights char ranges of matched terms in {@code content}, as start/end pairs
+ */
+public record SearchHit(
+        int id,
+        MessageType type,
+        String sender,
+        String room,
+        Instant timestamp,
+        String content,
+        double score,
+        int[] highlights
+) {
+}
@@ -0,0 +1,304 @@
+package io.olmosjt.client.search;
+
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.model.MessageType;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory, incrementally built inverted index over chat messages.
+ * <p>
+ * Each message added gets the next id. Every term maps to a compressed {@link PostingList} of
+ * the ids containing it, as do senders and rooms, so filters are just more lists to
+ * intersect. A query intersects the lists shortest first, leapfrogging with skip points, and
+ * ranks matches by BM25 with newer messages winning ties.
+ * <p>
+ * Only the newest {@code maxMessages} messages are kept. Older ones stop matching at once and
+ * drop their content; their postings are trimmed in batches, as are the columns.
+ * <p>
+ * {@link #add} and {@link #search} may be called from different threads.
+ */
+public final class SearchIndex {
+  public static final int DEFAULT_MAX_MESSAGES = 100_000;
+
+  private static final double K1 = 1.2;
+  private static final double B = 0.75;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private final Map<String, PostingList> terms = new HashMap<>();
+  private final Map<String, PostingList> senders = new HashMap<>();
+  private final Map<String, PostingList> rooms = new HashMap<>();
+
+  private final int maxMessages;
+  // Dropped messages left in the postings before they are trimmed
+  private final int trimAfter;
+
+  // Per-message columns, indexed by id - base
+  private String[] contents = new String[1024];
+  private String[] senderNames = new String[1024];
+  private String[] roomNames = new String[1024];
+  private long[] timestamps = new long[1024];
+  private int[] lengths = new int[1024];
+  private byte[] types = new byte[1024];
+  private int base = 0;
+  // Ids first until next are kept
+  private int first = 0;
+  private int next = 0;
+  private long totalLength = 0;
+
+  // Reused by add(), under the write lock
+  private final Map<String, int[]> frequencies = new HashMap<>();
+
+  /**
+   * An index of the newest {@code termitalk.search.messages} messages (default 100000).
+   */
+  public SearchIndex() {
+    this(Integer.getInteger("termitalk.search.messages", DEFAULT_MAX_MESSAGES));
+  }
+
+  /**
+   * @param maxMessages newest messages kept; older ones are dropped
+   */
+  public SearchIndex(int maxMessages) {
+    if (maxMessages <= 0) {
+      throw new IllegalArgumentException("maxMessages " + maxMessages);
+    }
+    this.maxMessages = maxMessages;
+    this.trimAfter = Math.max(1, maxMessages / 4);
+  }
+
+  /**
+   * Indexes a message under the given room.
+   *
+   * @return the message id
+   */
+  public int add(Message message, String room) {
+    String roomName = room == null ? "" : room;
+    lock.writeLock().lock();
+    try {
+      int id = next;
+      ensureCapacity(id - base + 1);
+
+      frequencies.clear();
+      int[] termCount = new int[1];
+      Tokenizer.tokenize(message.content(), (term, start, end) -> {
+        frequencies.computeIfAbsent(term, t -> new int[1])[0]++;
+        termCount[0]++;
+      });
+      for (Map.Entry<String, int[]> entry : frequencies.entrySet()) {
+        terms.computeIfAbsent(entry.getKey(), t -> new PostingList()).add(id, entry.getValue()[0]);
+      }
+      senders.computeIfAbsent(message.sender().toLowerCase(), s -> new PostingList()).add(id, 1);
+      rooms.computeIfAbsent(roomName.toLowerCase(), r -> new PostingList()).add(id, 1);
+
+      int slot = id - base;
+      contents[slot] = message.content();
+      senderNames[slot] = message.sender();
+      roomNames[slot] = roomName;
+      timestamps[slot] = message.timestamp().toEpochMilli();
+      lengths[slot] = termCount[0];
+      types[slot] = (byte) message.type().ordinal();
+      totalLength += termCount[0];
+      next++;
+
+      if (next - first > maxMessages) {
+        dropOldest();
+      }
+      return id;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return next - first;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public List<SearchHit> search(String query, int limit) {
+    return search(SearchQuery.parse(query), limit);
+  }
+
+  /**
+   * Returns up to {@code limit} messages containing every query term and passing the
+   * filters, best first. A query with only filters lists the newest matching messages.
+   */
+  public List<SearchHit> search(SearchQuery query, int limit) {
+    if (query.isEmpty() || limit <= 0) return List.of();
+
+    lock.readLock().lock();
+    try {
+      List<PostingList> scored = new ArrayList<>(query.terms().size());
+      for (String term : query.terms()) {
+        PostingList list = terms.get(term);
+        if (list == null) return List.of();
+        scored.add(list);
+      }
+      List<PostingList> filters = new ArrayList<>(2);
+      if (query.sender() != null) {
+        PostingList list = senders.get(query.sender().toLowerCase());
+        if (list == null) return List.of();
+        filters.add(list);
+      }
+      if (query.room() != null) {
+        PostingList list = rooms.get(query.room().toLowerCase());
+        if (list == null) return List.of();
+        filters.add(list);
+      }
+      return collect(query, scored, filters, limit);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private record Candidate(int id, double score) { }
+
+  private List<SearchHit> collect(SearchQuery query, List<PostingList> scored, List<PostingList> filters, int limit) {
+    int termCount = scored.size();
+    int listCount = termCount + filters.size();
+    int size = next - first;
+
+    PostingList.Cursor[] cursors = new PostingList.Cursor[listCount];
+    double[] idf = new double[listCount];
+    for (int i = 0; i < termCount; i++) {
+      PostingList list = scored.get(i);
+      cursors[i] = list.cursor();
+      int count = Math.min(list.count(), size);
+      idf[i] = Math.log(1 + (size - count + 0.5) / (count + 0.5));
+    }
+    for (int i = 0; i < filters.size(); i++) {
+      cursors[termCount + i] = filters.get(i).cursor();
+    }
+
+    // Shortest list leads the intersection; only term lists contribute to the score
+    Integer[] order = new Integer[listCount];
+    for (int i = 0; i < listCount; i++) order[i] = i;
+    Arrays.sort(order, (a, b) -> Integer.compare(countOf(a, scored, filters), countOf(b, scored, filters)));
+
+    double averageLength = size == 0 ? 1 : Math.max(1, (double) totalLength / size);
+    PriorityQueue<Candidate> top = new PriorityQueue<>(limit + 1,
+            (a, b) -> a.score() != b.score() ? Double.compare(a.score(), b.score()) : Integer.compare(a.id(), b.id()));
+
+    PostingList.Cursor lead = cursors[order[0]];
+    // Dropped messages may still be in the lists
+    int doc = first - 1;
+    outer:
+    while (lead.advance(doc + 1)) {
+      doc = lead.id();
+      for (int k = 1; k < listCount; k++) {
+        PostingList.Cursor cursor = cursors[order[k]];
+        if (!cursor.advance(doc)) break outer;
+        if (cursor.id() != doc) {
+          doc = cursor.id() - 1; // Lead catches up to this id next
+          continue outer;
+        }
+      }
+
+      double score = 0;
+      double norm = K1 * (1 - B + B * lengths[doc - base] / averageLength);
+      for (int i = 0; i < termCount; i++) {
+        int tf = cursors[i].frequency();
+        score += idf[i] * tf * (K1 + 1) / (tf + norm);
+      }
+      top.add(new Candidate(doc, score));
+      if (top.size() > limit) {
+        top.poll();
+      }
+    }
+
+    Set<String> highlightTerms = new HashSet<>(query.terms());
+    List<SearchHit> hits = new ArrayList<>(top.size());
+    while (!top.isEmpty()) {
+      Candidate candidate = top.poll();
+      hits.add(hit(candidate, highlightTerms));
+    }
+    return hits.reversed();
+  }
+
+  private static int countOf(int index, List<PostingList> scored, List<PostingList> filters) {
+    return index < scored.size() ? scored.get(index).count() : filters.get(index - scored.size()).count();
+  }
+
+  private SearchHit hit(Candidate candidate, Set<String> queryTerms) {
+    int id = candidate.id();
+    int slot = id - base;
+    String content = contents[slot];
+    List<Integer> ranges = new ArrayList<>();
+    Tokenizer.tokenize(content, (term, start, end) -> {
+      if (queryTerms.contains(term)) {
+        ranges.add(start);
+        ranges.add(end);
+      }
+    });
+    int[] highlights = new int[ranges.size()];
+    for (int i = 0; i < highlights.length; i++) {
+      highlights[i] = ranges.get(i);
+    }
+    return new SearchHit(id, MessageType.values()[types[slot]], senderNames[slot], roomNames[slot],
+            Instant.ofEpochMilli(timestamps[slot]), content, candidate.score(), highlights);
+  }
+
+  /**
+   * Drops the oldest message: it stops matching now and its content goes, while its postings
+   * and column slots are trimmed once enough dropped messages have piled up.
+   */
+  private void dropOldest() {
+    int slot = first - base;
+    totalLength -= lengths[slot];
+    contents[slot] = null;
+    senderNames[slot] = null;
+    roomNames[slot] = null;
+    first++;
+
+    if (first - base < trimAfter) return;
+    trim(terms);
+    trim(senders);
+    trim(rooms);
+
+    int kept = next - first;
+    int dropped = first - base;
+    System.arraycopy(contents, dropped, contents, 0, kept);
+    System.arraycopy(senderNames, dropped, senderNames, 0, kept);
+    System.arraycopy(roomNames, dropped, roomNames, 0, kept);
+    System.arraycopy(timestamps, dropped, timestamps, 0, kept);
+    System.arraycopy(lengths, dropped, lengths, 0, kept);
+    System.arraycopy(types, dropped, types, 0, kept);
+    Arrays.fill(contents, kept, kept + dropped, null);
+    Arrays.fill(senderNames, kept, kept + dropped, null);
+    Arrays.fill(roomNames, kept, kept + dropped, null);
+    base = first;
+  }
+
+  private void trim(Map<String, PostingList> lists) {
+    lists.values().removeIf(list -> {
+      list.dropBefore(first);
+      return list.count() == 0;
+    });
+  }
+
+  private void ensureCapacity(int needed) {
+    if (needed <= contents.length) return;
+    int capacity = Math.max(needed, contents.length * 2);
+    contents = Arrays.copyOf(contents, capacity);
+    senderNames = Arrays.copyOf(senderNames, capacity);
+    roomNames = Arrays.copyOf(roomNames, capacity);
+    timestamps = Arrays.copyOf(timestamps, capacity);
+    lengths = Arrays.copyOf(lengths, capacity);
+    types = Arrays.copyOf(types, capacity);
+  }
+}
@@ -0,0 +1,41 @@
+package io.olmosjt.client.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A parsed search: words that must all occur, plus optional sender and room filters.
+ * <p>
+ * Syntax: {@code [from:<sender>] [in:<room>] word...}, e.g. {@code from:alice in:#3 deploy}.
+ *
+ * @param terms lower-cased terms, each required
+ * @param sender sender filter, or null
+ * @param room room filter, or null
+ */
+public record SearchQuery(List<String> terms, String sender, String room) {
+
+  public static SearchQuery parse(String text) {
+    Set<String> terms = new LinkedHashSet<>();
+    String sender = null;
+    String room = null;
+
+    for (String word : text.trim().split("\\s+")) {
+      if (word.isEmpty()) continue;
+      String lower = word.toLowerCase();
+      if (lower.startsWith("from:") && word.length() > 5) {
+        sender = word.substring(5);
+      } else if (lower.startsWith("in:") && word.length() > 3) {
+        room = word.substring(3);
+      } else {
+        Tokenizer.tokenize(word, (term, start, end) -> terms.add(term));
+      }
+    }
+    return new SearchQuery(new ArrayList<>(terms), sender, room);
+  }
+
+  public boolean isEmpty() {
+    return terms.isEmpty() && sender == null && room == null;
+  }
+}
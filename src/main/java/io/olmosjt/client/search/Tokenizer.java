@@ -0,0 +1,43 @@
+package io.olmosjt.client.search;
+
+/**
+ * Splits text into lower-case terms: maximal runs of letters and digits.
+ */
+final class Tokenizer {
+  static final int MAX_TERM_LENGTH = 64;
+
+  @FunctionalInterface
+  interface TermHandler {
+    /**
+     * @param term the lower-cased term
+     * @param start index of the term's first char in the text
+     * @param end index just past the term's last char
+     */
+    void onTerm(String term, int start, int end);
+  }
+
+  private Tokenizer() { }
+
+  static void tokenize(CharSequence text, TermHandler handler) {
+    StringBuilder term = new StringBuilder(16);
+    int length = text.length();
+    int start = -1;
+    int i = 0;
+    while (i <= length) {
+      int cp = i < length ? Character.codePointAt(text, i) : -1;
+      if (cp >= 0 && Character.isLetterOrDigit(cp)) {
+        if (start < 0) {
+          start = i;
+          term.setLength(0);
+        }
+        if (term.length() < MAX_TERM_LENGTH) {
+          term.appendCodePoint(Character.toLowerCase(cp));
+        }
+      } else if (start >= 0) {
+        handler.onTerm(term.toString(), start, i);
+        start = -1;
+      }
+      i += cp > 0xFFFF ? 2 : 1;
+    }
+  }
+}
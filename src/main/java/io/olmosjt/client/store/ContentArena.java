@@ -0,0 +1,96 @@
+package io.olmosjt.client.store;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A circular byte region for message content, on the heap or off it.
+ * <p>
+ * Content is addressed by a position that only grows; its bytes live at the position modulo
+ * the capacity. The region is made of chunks allocated as writing first reaches them, so a
+ * generous capacity costs nothing until it is used. An entry never straddles two chunks: one
+ * that would is written at the start of the next chunk instead, skipping the remainder. An
+ * entry written at position {@code p} with length {@code n} overwrites every entry that
+ * starts before {@code p + n - capacity}, so the caller must stop reading those first.
+ * <p>
+ * Reads use absolute gets and may race with writes; callers validate what they read.
+ */
+final class ContentArena {
+  // Under half the smallest G1 region, so heap chunks are not humongous objects each
+  // taking regions of their own
+  private static final int CHUNK_SIZE = 1 << 18;
+
+  private final ByteBuffer[] chunks;
+  private final int chunkSize;
+  private final long capacity;
+  private final boolean offHeap;
+  private long position;
+
+  /**
+   * @param capacity bytes held; rounded up to a whole number of chunks
+   * @param offHeap whether to allocate outside the Java heap
+   */
+  ContentArena(long capacity, boolean offHeap) {
+    if (capacity <= 0 || capacity > (1L << 40)) {
+      throw new IllegalArgumentException("capacity out of range: " + capacity);
+    }
+    this.chunkSize = (int) Math.min(CHUNK_SIZE, capacity);
+    int count = (int) ((capacity + chunkSize - 1) / chunkSize);
+    this.chunks = new ByteBuffer[count];
+    this.capacity = (long) count * chunkSize;
+    this.offHeap = offHeap;
+  }
+
+  long capacity() {
+    return capacity;
+  }
+
+  /**
+   * The longest entry that fits in a chunk.
+   */
+  int chunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Position an entry of the given length will be written at.
+   */
+  long reserve(int length) {
+    int index = (int) (position % chunkSize);
+    if (index + length > chunkSize) {
+      return position + chunkSize - index;
+    }
+    return position;
+  }
+
+  /**
+   * Writes an entry at the position {@link #reserve} returned for its length.
+   */
+  void write(long at, byte[] content, int length) {
+    int chunk = (int) ((at % capacity) / chunkSize);
+    ByteBuffer bytes = chunks[chunk];
+    if (bytes == null) {
+      bytes = offHeap ? ByteBuffer.allocateDirect(chunkSize) : ByteBuffer.allocate(chunkSize);
+      chunks[chunk] = bytes;
+    }
+    bytes.put((int) (at % chunkSize), content, 0, length);
+    position = at + length;
+  }
+
+  /**
+   * Copies an entry out.
+   *
+   * @return the bytes, or null if the position and length do not describe an entry of this
+   *         region, which a read racing with a write may see
+   */
+  byte[] read(long at, int length) {
+    if (at < 0 || length < 0) return null;
+    int index = (int) (at % chunkSize);
+    ByteBuffer bytes = chunks[(int) ((at % capacity) / chunkSize)];
+    if (bytes == null || index + length > chunkSize) {
+      return null;
+    }
+    byte[] content = new byte[length];
+    bytes.get(index, content, 0, length);
+    return content;
+  }
+}
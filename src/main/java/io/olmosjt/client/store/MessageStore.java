@@ -0,0 +1,204 @@
+package io.olmosjt.client.store;
+
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.model.MessageType;
+
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed-capacity ring of messages stored as columns rather than objects.
+ * <p>
+ * Each message costs 25 bytes of columns: the timestamp as epoch millis, the type as a byte,
+ * the sender and recipient as ids into a shared {@link SymbolTable}, and the position and
+ * length of its content in a {@link ContentArena} packed into one long. Content is stored as
+ * Latin-1 when every character fits, which covers most chat, and as UTF-8 otherwise, and is
+ * truncated past 64 KiB. The arena may live off the heap, leaving the collector only the
+ * column arrays to look at.
+ * <p>
+ * The columns form a ring: messages are addressed by sequence number and the oldest are
+ * dropped once the ring is full, or once the arena needs their bytes.
+ * {@link #get} rebuilds a {@link Message} on demand, so callers should only ask for what
+ * they are about to use.
+ * <p>
+ * {@link #append}, {@link #appendAll} and {@link #clear} must only be called from one thread
+ * at a time; the read methods may be called from any thread. Readers take no lock: they read
+ * a slot and then check that it was not reused meanwhile, like a seqlock.
+ */
+public final class MessageStore {
+  private static final MessageType[] TYPES = MessageType.values();
+  private static final byte UTF_8 = (byte) 0x80;
+  private static final int NO_RECIPIENT = -1;
+  // A span is the content's arena position shifted left by this, or'ed with its length
+  private static final int LENGTH_BITS = 16;
+
+  private final SymbolTable names = new SymbolTable();
+  private final ContentArena arena;
+  private final int maxContent;
+  private final int capacity;
+
+  // Per-message columns, indexed by sequence modulo the capacity
+  private final long[] stamps;
+  private final byte[] types;
+  private final int[] senders;
+  private final int[] recipients;
+  private final long[] spans;
+
+  // Sequence one past the newest published message
+  private final AtomicLong end = new AtomicLong();
+  // Oldest sequence still retained; advanced before its slot or bytes are reused
+  private final AtomicLong start = new AtomicLong();
+
+  /**
+   * @param capacity number of messages to retain
+   * @param contentBytes bytes of content to retain; allocated in chunks as it fills
+   * @param offHeap whether to keep content outside the Java heap
+   */
+  public MessageStore(int capacity, long contentBytes, boolean offHeap) {
+    if (capacity <= 0 || capacity > (1 << 30)) {
+      throw new IllegalArgumentException("capacity out of range: " + capacity);
+    }
+    this.capacity = capacity;
+    this.arena = new ContentArena(contentBytes, offHeap);
+    this.maxContent = Math.min(arena.chunkSize(), (1 << LENGTH_BITS) - 1);
+
+    this.stamps = new long[capacity];
+    this.types = new byte[capacity];
+    this.senders = new int[capacity];
+    this.recipients = new int[capacity];
+    this.spans = new long[capacity];
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  // --- Producer ---
+
+  public void append(Message message) {
+    long seq = end.get();
+    write(seq, message);
+    end.setRelease(seq + 1);
+  }
+
+  /**
+   * Appends all messages and publishes them together.
+   */
+  public void appendAll(List<Message> messages) {
+    if (messages.isEmpty()) return;
+    long seq = end.get();
+    for (Message message : messages) {
+      write(seq++, message);
+    }
+    end.setRelease(seq);
+  }
+
+  /**
+   * Logically empties the store. Sequence numbers keep increasing.
+   */
+  public void clear() {
+    retainFrom(end.get());
+  }
+
+  private void write(long seq, Message message) {
+    String content = message.content();
+    boolean latin1 = isLatin1(content);
+    byte[] bytes = content.getBytes(latin1 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+    int length = Math.min(bytes.length, maxContent);
+
+    // Drop whatever this message's slot and bytes would overwrite
+    retainFrom(seq + 1 - capacity);
+    long at = arena.reserve(length);
+    long overwritten = at + length - arena.capacity();
+    long retained = start.get();
+    while (retained < seq && spans[(int) (retained % capacity)] >>> LENGTH_BITS < overwritten) {
+      retained++;
+    }
+    retainFrom(retained);
+    // Readers that see any of the writes below must also see the advanced start
+    VarHandle.releaseFence();
+
+    int slot = (int) (seq % capacity);
+    stamps[slot] = message.timestamp().toEpochMilli();
+    types[slot] = (byte) (message.type().ordinal() | (latin1 ? 0 : UTF_8));
+    senders[slot] = names.intern(message.sender());
+    recipients[slot] = message.recipient() == null ? NO_RECIPIENT : names.intern(message.recipient());
+    spans[slot] = at << LENGTH_BITS | length;
+    arena.write(at, bytes, length);
+  }
+
+  private void retainFrom(long seq) {
+    if (seq > start.get()) {
+      start.setRelease(seq);
+    }
+  }
+
+  private static boolean isLatin1(String text) {
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) > 0xFF) return false;
+    }
+    return true;
+  }
+
+  // --- Consumer ---
+
+  /**
+   * Sequence of the oldest retained message.
+   */
+  public long startSequence() {
+    return start.getAcquire();
+  }
+
+  /**
+   * Sequence one past the newest message.
+   */
+  public long endSequence() {
+    return end.getAcquire();
+  }
+
+  public int size() {
+    long endSeq = endSequence();
+    return (int) Math.max(0, endSeq - startSequence());
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * Distinct senders and rooms seen so far.
+   */
+  public int symbols() {
+    return names.size();
+  }
+
+  /**
+   * Rebuilds the message with the given sequence number.
+   *
+   * @return the message, or null if it is not yet published, no longer retained, or was
+   *         overwritten during the read
+   */
+  public Message get(long sequence) {
+    if (sequence < 0 || sequence >= end.getAcquire()) return null;
+    int slot = (int) (sequence % capacity);
+    long stamp = stamps[slot];
+    byte type = types[slot];
+    int sender = senders[slot];
+    int recipient = recipients[slot];
+    long span = spans[slot];
+    byte[] content = arena.read(span >>> LENGTH_BITS, (int) (span & ((1 << LENGTH_BITS) - 1)));
+    // Everything above was read before checking that the slot still holds this sequence
+    VarHandle.acquireFence();
+    if (content == null || sequence < start.getAcquire()) return null;
+
+    return new Message(
+            TYPES[type & ~UTF_8],
+            names.name(sender),
+            recipient == NO_RECIPIENT ? null : names.name(recipient),
+            new String(content, (type & UTF_8) != 0 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1),
+            Instant.ofEpochMilli(stamp));
+  }
+}
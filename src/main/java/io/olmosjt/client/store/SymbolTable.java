@@ -0,0 +1,47 @@
+package io.olmosjt.client.store;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns names, such as senders and rooms, to small ints.
+ * <p>
+ * A busy room repeats the same few hundred senders across millions of lines, and every line
+ * decoded from the wire carries its own copy of the name. Storing the id instead keeps one
+ * copy per distinct name. Names are never removed.
+ * <p>
+ * {@link #intern} must only be called from one thread at a time. {@link #name} may be called
+ * from any thread for an id obtained through a happens-before edge with the {@code intern}
+ * call that returned it, such as a release store of a structure containing the id.
+ */
+public final class SymbolTable {
+  private final Map<String, Integer> ids = new HashMap<>();
+  private volatile String[] names = new String[64];
+  private int size;
+
+  /**
+   * @return the id of the name, assigning the next one if it is new
+   */
+  public int intern(String name) {
+    Integer id = ids.get(name);
+    if (id != null) return id;
+
+    String[] current = names;
+    if (size == current.length) {
+      current = Arrays.copyOf(current, size * 2);
+      names = current;
+    }
+    current[size] = name;
+    ids.put(name, size);
+    return size++;
+  }
+
+  public String name(int id) {
+    return names[id];
+  }
+
+  public int size() {
+    return ids.size();
+  }
+}
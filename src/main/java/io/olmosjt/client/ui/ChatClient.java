@@ -1,68 +1,216 @@
 package io.olmosjt.client.ui;
 
+import io.olmosjt.client.history.HistoryPage;
+import io.olmosjt.client.history.HistoryStore;
+import io.olmosjt.client.metrics.ClientMetrics;
 import io.olmosjt.client.model.Command;
 import io.olmosjt.client.model.CommandType;
 import io.olmosjt.client.model.Message;
 import io.olmosjt.client.model.MessageType;
+import io.olmosjt.client.net.CorrelatingNetworkService;
+import io.olmosjt.client.net.Heartbeat;
+import io.olmosjt.client.net.LinkStatus;
 import io.olmosjt.client.net.MessageListener;
 import io.olmosjt.client.net.NetworkService;
+import io.olmosjt.client.rooms.RoomSessions;
+import io.olmosjt.client.search.SearchIndex;
+import io.olmosjt.client.ui.router.ResponseRouter;
+import io.olmosjt.client.ui.router.RoomListParser;
 import io.olmosjt.client.ui.state.ClientState;
 import io.olmosjt.client.ui.state.UIState;
+import io.olmosjt.client.util.EventLoop;
 import io.olmosjt.client.util.LoggerUtil;
 
 import java.io.IOException;
 import java.time.Instant;
-import java.util.Arrays;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * The Controller in the Model-View-Controller (MVC) pattern.
  * This class contains the application's core logic. It responds to user input
  * from the View and network events from the NetworkService.
+ * <p>
+ * All of its state is owned by an {@link EventLoop}. Network events, completed requests and
+ * link status changes are posted to the loop, and so are calls from the view made on any
+ * other thread; calls made on the loop, such as from a view sharing it, run at once. The view
+ * is therefore only ever called on the loop thread.
  */
-public class ChatClient implements UIController, MessageListener {
-  private final NetworkService networkService;
+public final class ChatClient implements UIController, MessageListener {
+  private static final String ROOM_LIST_PREFIX = "Available rooms:";
+  private static final String JOIN_NOTICE = "has joined the room.";
+  private static final Pattern QUOTED_NAME = Pattern.compile("'([^']*)'");
+  private static final int MAX_OUTBOX = 100;
+  private static final int HISTORY_PAGE = 200;
+  private static final int SEARCH_LIMIT = 100;
+  private static final long DEFAULT_ROOM_LIST_TTL_MILLIS = 5000;
+  private static final int DEFAULT_ROOM_BUFFER = 2000;
+  // With history on: a stored tail plus as much chat again before the tail is read anew
+  private static final int DEFAULT_HISTORY_ROOM_BUFFER = 2 * HISTORY_PAGE;
+  private static final int DEFAULT_ROOM_BUFFER_TOTAL = 20_000;
+
+  private final CorrelatingNetworkService networkService;
+  private final Heartbeat heartbeat;
+  // Off with -Dtermitalk.ping=false: no pings, no STALE/OFFLINE link status
+  private final boolean watchLink;
+  private final Map<ClientState, ResponseRouter> okRoutes = new EnumMap<>(ClientState.class);
+  private final EventLoop loop;
+  private final boolean ownsLoop;
   private UIView view;
-  private String pendingRoomId;
 
+  // Joined rooms, all restored after a reconnect; the last one rejoined finishes the resume
+  private final RoomSessions sessions;
+  // Counted in the room buffer gauge until shut down
+  private final LongSupplier roomBufferDepth;
+  private String resumeTarget;
+  private boolean resuming = false;
+  private final ArrayDeque<String> outbox = new ArrayDeque<>();
+
+  // Local room history; null when disabled
+  private final HistoryStore history;
+  private String server = "";
+  private long historyCursor;
+  private boolean historyExhausted = true;
+  private boolean historyLoading = false;
+  // Counts tail reads; a page read for an earlier one is stale
+  private long historyGeneration;
+  // Room whose stored tail is being read; its new messages are appended once it is read
+  private String tailRoom;
+  private final List<Message> heldHistory = new ArrayList<>();
+  // Where older history continues for the room buffers seeded with a tail
+  private final Map<String, HistoryPosition> historyPositions = new HashMap<>();
+
+  private record HistoryPosition(long cursor, boolean exhausted) { }
+
+  // Every chat message seen this session; null when search is disabled
+  private final SearchIndex searchIndex;
+
+  // Last room list received; LIST_ROOMS within the TTL is answered from it
+  private final long roomListTtlNanos =
+          TimeUnit.MILLISECONDS.toNanos(Long.getLong("termitalk.roomListTtl", DEFAULT_ROOM_LIST_TTL_MILLIS));
+  private List<String> cachedRooms;
+  private long cachedRoomsAt;
+  private boolean roomListPending = false;
+
+  /**
+   * The connection state; may be read from any thread.
+   */
   public ClientState getClientState() {
     return clientState;
   }
 
-  private ClientState clientState = ClientState.DISCONNECTED;
+  // Written on the loop, and by start() before anything is posted to it
+  private volatile ClientState clientState = ClientState.DISCONNECTED;
   private String username;
 
   public ChatClient(NetworkService networkService) {
-    this.networkService = networkService;
+    this(networkService, null);
+  }
+
+  /**
+   * @param history where room messages are kept across sessions, or null for none
+   */
+  public ChatClient(NetworkService networkService, HistoryStore history) {
+    this(networkService, history, new SearchIndex());
+  }
+
+  /**
+   * Runs on an event loop of its own, stopped by {@link #shutdown}.
+   *
+   * @param history where room messages are kept across sessions, or null for none
+   * @param searchIndex where chat messages are indexed for {@link #search}, or null for none
+   */
+  public ChatClient(NetworkService networkService, HistoryStore history, SearchIndex searchIndex) {
+    this(networkService, history, searchIndex, new EventLoop("chat-client").start(), true);
+  }
+
+  /**
+   * @param history where room messages are kept across sessions, or null for none
+   * @param searchIndex where chat messages are indexed for {@link #search}, or null for none
+   * @param loop the loop that owns the client's state, typically shared with the view
+   */
+  public ChatClient(NetworkService networkService, HistoryStore history, SearchIndex searchIndex, EventLoop loop) {
+    this(networkService, history, searchIndex, loop, false);
+  }
+
+  private ChatClient(NetworkService networkService, HistoryStore history, SearchIndex searchIndex,
+                     EventLoop loop, boolean ownsLoop) {
+    this.loop = loop;
+    this.ownsLoop = ownsLoop;
+    this.searchIndex = searchIndex;
+    this.networkService = networkService instanceof CorrelatingNetworkService correlating
+            ? correlating
+            : new CorrelatingNetworkService(networkService);
+    this.history = history;
+    int roomBuffer = Integer.getInteger("termitalk.rooms.buffer",
+            history != null ? DEFAULT_HISTORY_ROOM_BUFFER : DEFAULT_ROOM_BUFFER);
+    this.sessions = new RoomSessions(roomBuffer,
+            Math.max(roomBuffer, Integer.getInteger("termitalk.rooms.bufferTotal", DEFAULT_ROOM_BUFFER_TOTAL)));
+    this.roomBufferDepth = sessions::buffered;
+    ClientMetrics.ROOM_BUFFER.add(roomBufferDepth);
+    this.heartbeat = new Heartbeat(this.networkService, this::onLinkStatus);
+    this.watchLink = !"false".equalsIgnoreCase(System.getProperty("termitalk.ping"));
+    registerResponses();
   }
 
   public void setView(UIView view) {
     this.view = view;
   }
 
+  /**
+   * Connects on the calling thread. Must be called once, before anything else.
+   */
   @Override
   public boolean start(String host, int port) {
+    // Not in the constructor: the routes capture this client
+    registerOkRoutes();
     try {
       clientState = ClientState.CONNECTING;
+      server = host + ":" + port;
       networkService.setMessageListener(this);
       networkService.connect(host, port);
+      if (watchLink) {
+        heartbeat.start();
+      }
       return true; // Success
     } catch (IOException e) {
-      if (view != null) {
-        view.showLoginError("Connection failed: " + e.getMessage());
-      }
       clientState = ClientState.DISCONNECTED;
+      loop.execute(() -> {
+        if (view != null) {
+          view.showLoginError("Connection failed: " + e.getMessage());
+        }
+      });
       return false; // Failure
     }
   }
 
+  /**
+   * Posts a call to the loop unless it is being made there already.
+   *
+   * @return true if the call was posted, and the caller should return
+   */
+  private boolean deferToLoop(Runnable call) {
+    if (loop.inLoop()) return false;
+    loop.execute(call);
+    return true;
+  }
+
   // --- UIController Implementation (Commands from the View) ---
 
   @Override
   public void attemptLogin(String username) {
+    if (deferToLoop(() -> attemptLogin(username))) return;
     if (clientState == ClientState.AWAITING_LOGIN) {
       this.username = username;
       networkService.sendRequest(new Command(CommandType.LOGIN, username));
@@ -71,17 +219,42 @@ public class ChatClient implements UIController, MessageListener {
 
   @Override
   public void createRoom(String roomName) {
+    if (deferToLoop(() -> createRoom(roomName))) return;
+    // The "created" response refreshes the room list
     networkService.sendRequest(new Command(CommandType.CREATE_ROOM, roomName));
-    requestRoomList();
   }
 
+  /**
+   * Shows the room list. A list received within the last {@code termitalk.roomListTtl} ms
+   * (default 5000) is shown again without asking the server, and only one LIST_ROOMS is in
+   * flight at a time; a request made meanwhile is served by its response.
+   */
   @Override
   public void requestRoomList() {
-    networkService.sendRequest(new Command(CommandType.LIST_ROOMS, ""));
+    if (deferToLoop(this::requestRoomList)) return;
+    if (cachedRooms != null && System.nanoTime() - cachedRoomsAt < roomListTtlNanos) {
+      view.updateRoomList(cachedRooms);
+      return;
+    }
+    if (roomListPending) return;
+    roomListPending = true;
+
+    networkService.request(new Command(CommandType.LIST_ROOMS, ""))
+            .whenCompleteAsync((response, error) -> {
+              roomListPending = false;
+              if (error != null) {
+                LoggerUtil.warn("Room list not received: " + error.getMessage());
+              } else if (response.type() == MessageType.NOK) {
+                handleNokResponse(response);
+              } else {
+                onRoomList(response);
+              }
+            }, loop);
   }
 
   @Override
   public void joinRoom(String roomInfo) {
+    if (deferToLoop(() -> joinRoom(roomInfo))) return;
     String roomId = roomInfo.replaceAll("[^0-9]", "");
 
     if (roomId.isEmpty()) {
@@ -91,24 +264,131 @@ public class ChatClient implements UIController, MessageListener {
       return;
     }
 
-    this.pendingRoomId = "#" + roomId;
-    networkService.sendRequest(new Command(CommandType.JOIN, roomId));
+    if (sessions.contains("#" + roomId)) {
+      switchRoom("#" + roomId);
+    } else {
+      sendJoin("#" + roomId);
+    }
+  }
+
+  /**
+   * Shows another joined room at once. A JOIN is sent too, because the server delivers MSG to
+   * the room joined last; a server that keeps a connection in one room at a time moves it.
+   */
+  @Override
+  public void switchRoom(String roomId) {
+    if (deferToLoop(() -> switchRoom(roomId))) return;
+    if (!sessions.contains(roomId)) return;
+    if (clientState == ClientState.AUTHENTICATED) {
+      sendJoin(roomId);
+    }
+    showRoom(roomId);
+  }
+
+  /**
+   * Shows the lobby without leaving any room; chat in the active room then counts as unread.
+   */
+  @Override
+  public void showLobby() {
+    if (deferToLoop(this::showLobby)) return;
+    sessions.hide();
+    view.showState(UIState.LOBBY);
+    view.updateRoomTabs(sessions.tabs());
   }
 
   @Override
   public void leaveRoom() {
+    if (deferToLoop(this::leaveRoom)) return;
     networkService.sendRequest(new Command(CommandType.LEAVE, ""));
   }
 
+  /**
+   * Sends a chat message, or keeps it for replay while the connection is being restored.
+   */
   @Override
   public void sendMessage(String text) {
-    networkService.sendRequest(new Command(CommandType.MSG, text));
+    sendMessages(List.of(text));
+  }
+
+  /**
+   * Queues the lines back to back, so the connection's writer drains and flushes them as one
+   * batch; offline they go to the outbox like single messages.
+   */
+  @Override
+  public void sendMessages(List<String> lines) {
+    if (deferToLoop(() -> sendMessages(lines))) return;
+    if (clientState == ClientState.RECONNECTING || resuming) {
+      for (String line : lines) {
+        if (outbox.size() == MAX_OUTBOX) {
+          outbox.pollFirst();
+        }
+        outbox.addLast(line);
+      }
+      if (view != null) {
+        view.showFeedback("Offline: " + outbox.size() + " message(s) will be sent after reconnecting.", true);
+      }
+      return;
+    }
+    for (String line : lines) {
+      networkService.sendRequest(new Command(CommandType.MSG, line));
+    }
+  }
+
+  /**
+   * Reads the page of history before the oldest message shown off the loop, then shows it.
+   */
+  @Override
+  public void loadOlderHistory() {
+    if (deferToLoop(this::loadOlderHistory)) return;
+    String roomId = sessions.active();
+    if (history == null || roomId == null || historyExhausted || historyLoading) {
+      return;
+    }
+    historyLoading = true;
+    long cursor = historyCursor;
+    long generation = historyGeneration;
+    Thread.ofVirtual().name("history-page").start(() -> {
+      HistoryPage read = null;
+      try {
+        read = history.before(historyKey(roomId), cursor, HISTORY_PAGE);
+      } catch (IOException e) {
+        LoggerUtil.error("Loading room history failed: " + e.getMessage());
+      }
+      HistoryPage page = read;
+      loop.execute(() -> {
+        // Ignore the page if the room changed meanwhile
+        if (generation != historyGeneration) return;
+        historyLoading = false;
+        if (page != null && roomId.equals(sessions.active()) && cursor == historyCursor) {
+          historyCursor = page.cursor();
+          historyExhausted = page.exhausted();
+          view.prependMessages(page.messages());
+        }
+      });
+    });
+  }
+
+  @Override
+  public void search(String query) {
+    if (deferToLoop(() -> search(query))) return;
+    if (view == null) return;
+    view.showSearchResults(query, searchIndex == null ? List.of() : searchIndex.search(query, SEARCH_LIMIT));
   }
 
   @Override
   public void shutdown() {
+    if (deferToLoop(this::shutdown)) return;
+    heartbeat.stop();
     networkService.disconnect();
+    ClientMetrics.ROOM_BUFFER.remove(roomBufferDepth);
     clientState = ClientState.DISCONNECTED;
+    if (history != null) {
+      releaseHeldHistory();
+      history.close();
+    }
+    if (ownsLoop) {
+      loop.shutdown();
+    }
   }
 
 
@@ -116,11 +396,24 @@ public class ChatClient implements UIController, MessageListener {
 
   @Override
   public void onMessage(Message message) {
+    loop.execute(() -> handleMessage(message));
+  }
+
+  private void handleMessage(Message message) {
     if (view == null) return;
+    long start = ClientMetrics.start();
+    dispatch(message);
+    ClientMetrics.DISPATCH_TIME.recordSince(start);
+  }
 
+  private void dispatch(Message message) {
 
     if (message.type() == MessageType.SYSTEM && "SOCKET_DISCONNECT".equals(message.sender())) {
       clientState = ClientState.DISCONNECTED;
+      resuming = false;
+      clearOutbox();
+      heartbeat.stop();
+      view.showConnectionState(ClientState.DISCONNECTED);
       view.showLoginError(message.content());
       return;
     }
@@ -136,70 +429,484 @@ public class ChatClient implements UIController, MessageListener {
       case SYSTEM:
       case USER:
       case PRIVATE:
-        view.addMessage(message);
+        showChat(List.of(message));
         break;
     }
   }
 
-  private void handleOkResponse(Message message) {
-    String content = message.content();
-    switch (clientState) {
-      case CONNECTING:
-        // First message from server after connecting
-        if (content.startsWith("Welcome!")) {
-          clientState = ClientState.AWAITING_LOGIN;
-          view.addMessage(message); // Show welcome message on login screen
-        }
-        break;
+  @Override
+  public void onReconnecting(int attempt, long delayMillis) {
+    if (deferToLoop(() -> onReconnecting(attempt, delayMillis))) return;
+    heartbeat.pause();
+    clientState = ClientState.RECONNECTING;
+    // Only a logged-in session is restored; otherwise the user logs in again as usual
+    resuming = username != null;
+    if (view == null) return;
+    view.showConnectionState(ClientState.RECONNECTING);
+    view.showFeedback(String.format("Connection lost. Reconnecting in %.1fs (attempt %d)...",
+            delayMillis / 1000.0, attempt), true);
+  }
 
-      case AWAITING_LOGIN:
-        // Response to our LOGIN command
-        if (content.startsWith("Welcome,")) {
-          clientState = ClientState.AUTHENTICATED;
-          view.showState(UIState.LOBBY); // Transition to Lobby screen
-        }
+  @Override
+  public void onReconnected() {
+    if (deferToLoop(this::onReconnected)) return;
+    cachedRooms = null; // The server may have restarted
+    heartbeat.resume();
+    if (view != null) {
+      view.showConnectionState(ClientState.CONNECTING);
+    }
+  }
+
+  /**
+   * Handles a batch from the network. Runs of chat messages are handed to the view in one
+   * call; server responses in between are still processed one by one, in order.
+   */
+  @Override
+  public void onMessages(List<Message> messages) {
+    // The list is only valid during this call
+    List<Message> batch = List.copyOf(messages);
+    loop.execute(() -> handleMessages(batch));
+  }
+
+  private void handleMessages(List<Message> messages) {
+    if (view == null) return;
+    long start = ClientMetrics.start();
+
+    List<Message> chat = new ArrayList<>(messages.size());
+    for (Message message : messages) {
+      if (isChatMessage(message)) {
+        chat.add(message);
+      } else {
+        flushChat(chat);
+        dispatch(message);
+      }
+    }
+    flushChat(chat);
+    ClientMetrics.DISPATCH_TIME.recordSince(start);
+  }
+
+  private boolean isChatMessage(Message message) {
+    return switch (message.type()) {
+      case SYSTEM -> !"SOCKET_DISCONNECT".equals(message.sender());
+      case USER, PRIVATE -> true;
+      default -> false;
+    };
+  }
+
+  private void flushChat(List<Message> chat) {
+    if (chat.isEmpty()) return;
+    showChat(chat);
+    chat.clear();
+  }
+
+  /**
+   * Sorts chat messages into their rooms, shows those of the room on screen and updates the
+   * tabs if a background room got new ones.
+   */
+  private void showChat(List<Message> chat) {
+    List<Message> shown = sessions.route(chat, username);
+    if (shown.size() == 1) {
+      view.addMessage(shown.getFirst());
+    } else if (!shown.isEmpty()) {
+      view.addMessages(shown);
+    }
+    recordChat(chat);
+    if (sessions.takeChanged()) {
+      view.updateRoomTabs(sessions.tabs());
+    }
+  }
+
+  /**
+   * Indexes chat messages for search and appends them to the history of their rooms. Messages
+   * sent to no joined room belong to the active one. Notices the client made up itself, such
+   * as "You have been disconnected.", are neither.
+   */
+  private void recordChat(List<Message> chat) {
+    if (searchIndex == null && history == null) return;
+    List<Message> messages = chat;
+    for (int i = 0; i < chat.size(); i++) {
+      if (isLocalNotice(chat.get(i))) {
+        messages = chat.stream().filter(message -> !isLocalNotice(message)).toList();
         break;
+      }
+    }
+    String active = sessions.active();
+    String runRoom = null;
+    int runStart = 0;
+    for (int i = 0; i < messages.size(); i++) {
+      Message message = messages.get(i);
+      String roomId = sessions.roomOf(message);
+      if (roomId == null) {
+        roomId = active;
+      }
+      if (searchIndex != null) {
+        searchIndex.add(message, roomId != null ? roomId : message.recipient());
+      }
+      if (i > 0 && !Objects.equals(roomId, runRoom)) {
+        appendHistory(runRoom, messages.subList(runStart, i));
+        runStart = i;
+      }
+      runRoom = roomId;
+    }
+    appendHistory(runRoom, messages.subList(runStart, messages.size()));
+  }
+
+  private static boolean isLocalNotice(Message message) {
+    return message.type() == MessageType.SYSTEM && "CLIENT".equals(message.sender());
+  }
+
+  private void appendHistory(String roomId, List<Message> messages) {
+    if (history == null || roomId == null || messages.isEmpty()) return;
+    if (roomId.equals(tailRoom)) {
+      heldHistory.addAll(messages);
+    } else {
+      history.append(historyKey(roomId), messages);
+    }
+  }
+
+  /**
+   * Shows the newest stored messages of the room just shown. They are read off the loop,
+   * since reading waits for queued writes and touches mapped files; chat arriving meanwhile is
+   * shown at once, and only stored once the read is done so it is not read back as well.
+   * The room's buffer is seeded with them, so it can be shown again without a read.
+   */
+  private void loadHistoryTail(String roomId) {
+    cancelHistoryLoad();
+    if (history == null || roomId == null) return;
 
-      case AUTHENTICATED:
-        LoggerUtil.info("Received OK response in AUTHENTICATED state: " + content);
-        // Check for specific OK messages while in Lobby or Room
-        if (content.startsWith("Available rooms:")) {
-          // This is a response to LIST_ROOMS. Parse and update the UI.
-          List<String> rooms = Arrays.stream(content.replace("Available rooms: ", "").split(","))
-                  .map(String::trim)
-                  .filter(s -> !s.isEmpty())
-                  .collect(Collectors.toList());
-          view.updateRoomList(rooms);
-        } else if (content.startsWith("Joined room '")) {
-          Pattern pattern = Pattern.compile("'([^']*)'");
-          Matcher matcher = pattern.matcher(content);
-          String roomName = matcher.find() ? matcher.group(1) : "Unknown";
-
-          view.setRoomDetails(roomName, pendingRoomId);
-          view.showState(UIState.IN_ROOM);
-          pendingRoomId = null;
-        } else if (content.contains("has joined the room.")) {
-          // Server notifies join event; show as feedback in lobby
-          view.showFeedback(content, false);
-        } else if (content.startsWith("Room '") && content.contains(" created")) {
-          // Room created message
-          view.showFeedback(content, false);
-          requestRoomList();
-        } else if (content.equals("You have left the room.")
-                || content.contains("has left the room.")
-                || content.startsWith("Left room '")
-                || content.startsWith("You have left '")
-        ) {
-          view.showState(UIState.LOBBY);
-        } else {
-          // Default: show as a regular message (for in-room context)
-          view.addMessage(message);
+    sessions.discard(roomId);
+    historyLoading = true;
+    tailRoom = roomId;
+    long generation = historyGeneration;
+    Thread.ofVirtual().name("history-tail").start(() -> {
+      HistoryPage read = null;
+      try {
+        read = history.tail(historyKey(roomId), HISTORY_PAGE);
+      } catch (IOException e) {
+        LoggerUtil.error("Loading room history failed: " + e.getMessage());
+      }
+      HistoryPage page = read;
+      loop.execute(() -> {
+        // Another room was shown meanwhile
+        if (generation != historyGeneration) return;
+        historyLoading = false;
+        releaseHeldHistory();
+        if (page == null) return;
+        if (sessions.prepend(roomId, page.messages())) {
+          historyPositions.put(roomId, new HistoryPosition(page.cursor(), page.exhausted()));
         }
-        break;
+        if (roomId.equals(sessions.active())) {
+          historyCursor = page.cursor();
+          historyExhausted = page.exhausted();
+          view.prependMessages(page.messages());
+        }
+      });
+    });
+  }
+
+  /**
+   * Shows a room's buffer seeded with its stored tail, if nothing was dropped from it since.
+   *
+   * @return false if the tail has to be read again
+   */
+  private boolean showSeededRoom(String roomId, RoomSessions.Backlog backlog) {
+    HistoryPosition position = historyPositions.get(roomId);
+    if (!backlog.seeded() || position == null) return false;
+    cancelHistoryLoad();
+    historyCursor = position.cursor();
+    historyExhausted = position.exhausted();
+    view.addMessages(backlog.messages());
+    return true;
+  }
+
+  /**
+   * Stops waiting for a tail or page read for the room shown before.
+   */
+  private void cancelHistoryLoad() {
+    releaseHeldHistory();
+    historyGeneration++;
+    historyExhausted = true;
+    historyLoading = false;
+  }
+
+  /**
+   * Stores the chat held back while a tail was read.
+   */
+  private void releaseHeldHistory() {
+    if (tailRoom == null) return;
+    String roomId = tailRoom;
+    tailRoom = null;
+    if (!heldHistory.isEmpty()) {
+      history.append(historyKey(roomId), List.copyOf(heldHistory));
+      heldHistory.clear();
+    }
+  }
+
+  // Room ids are only unique per server
+  private String historyKey(String roomId) {
+    return server + roomId;
+  }
+
+  private void handleOkResponse(Message message) {
+    if (clientState == ClientState.AUTHENTICATED) {
+      LoggerUtil.debug(() -> "Received OK response in AUTHENTICATED state: " + message.content());
+    }
+    ResponseRouter router = okRoutes.get(clientState);
+    if (router != null) {
+      router.route(message);
+    }
+  }
+
+  /**
+   * Tells the correlation layer which OK answers each request type, so round trips are timed
+   * and {@link NetworkService#request} can be used. NOK answers any of them, including the
+   * requests answered only when refused, which are registered so a NOK stays with its request.
+   */
+  private void registerResponses() {
+    networkService
+            .expect(CommandType.LOGIN, message -> message.content().startsWith("Welcome,"))
+            .expect(CommandType.LIST_ROOMS, message -> message.content().startsWith(ROOM_LIST_PREFIX))
+            .expect(CommandType.CREATE_ROOM, message ->
+                    message.content().startsWith("Room '") && message.content().contains(" created"))
+            .expect(CommandType.JOIN, message -> message.content().startsWith("Joined room '"))
+            .expect(CommandType.LEAVE, message -> message.content().equals("You have left the room.")
+                    || message.content().startsWith("Left room '")
+                    || message.content().startsWith("You have left '"))
+            .expect(CommandType.WHO, message -> message.content().startsWith("Users in room:"))
+            // The server sends a chat line back to its sender too
+            .expectRefusal(CommandType.MSG, (command, message) ->
+                    message.type() == MessageType.USER && message.content().strip().equals(command.payload().strip()))
+            .expectRefusal(CommandType.PRIVMSG)
+            .expectRefusal(CommandType.NICK);
+  }
+
+  /**
+   * Routes for OK responses in the given state. Further responses can be handled by
+   * registering them here; the built-in routes are added by {@link #start}, after any
+   * registered before it.
+   */
+  public ResponseRouter okRoutes(ClientState state) {
+    return okRoutes.computeIfAbsent(state, s -> new ResponseRouter());
+  }
+
+  private void registerOkRoutes() {
+    // First message from server after connecting. After a reconnect it can arrive before
+    // onReconnected(), while still RECONNECTING.
+    okRoutes(ClientState.CONNECTING).onPrefix("Welcome!", this::onServerWelcome);
+    okRoutes(ClientState.RECONNECTING).onPrefix("Welcome!", this::onServerWelcome);
+
+    // Response to our LOGIN command
+    okRoutes(ClientState.AWAITING_LOGIN)
+            .onPrefix("Welcome,", message -> {
+              clientState = ClientState.AUTHENTICATED;
+              if (resuming) {
+                resumeRoom();
+              } else {
+                view.showState(UIState.LOBBY); // Transition to Lobby screen
+              }
+            });
+
+    // Specific OK messages while in Lobby or Room. A join notice is checked before the
+    // created and left responses, so those prefixes only match without one.
+    Predicate<String> noJoinNotice = content -> !content.contains(JOIN_NOTICE);
+    okRoutes(ClientState.AUTHENTICATED)
+            .onPrefix(ROOM_LIST_PREFIX, this::onRoomList)
+            .onPrefix("Room '", content -> content.contains(" created") && noJoinNotice.test(content), message -> {
+              view.showFeedback(message.content(), false);
+              cachedRooms = null;
+              requestRoomList();
+            })
+            .onExact("You have left the room.", this::onLeftRoom)
+            .onPrefix("Left room '", noJoinNotice, this::onLeftRoom)
+            .onPrefix("You have left '", noJoinNotice, this::onLeftRoom)
+            // Server notifies join event; show as feedback in lobby
+            .onContains(JOIN_NOTICE, message -> view.showFeedback(message.content(), false))
+            .onContains("has left the room.", this::onLeftRoom)
+            // Default: show as a regular message (for in-room context)
+            .otherwise(message -> view.addMessage(message));
+  }
+
+  /**
+   * Joins a room. The response is matched to this request, so the room id is known even when
+   * several joins are in flight.
+   */
+  private void sendJoin(String roomId) {
+    networkService.request(new Command(CommandType.JOIN, roomId.substring(1)))
+            .whenCompleteAsync((response, error) -> {
+              if (error != null) {
+                onJoinFailed(roomId, error);
+              } else if (response.type() == MessageType.NOK) {
+                if (sessions.contains(roomId) && !(resuming && roomId.equals(resumeTarget))) {
+                  dropRoom(roomId, response.content());
+                } else {
+                  handleNokResponse(response);
+                }
+              } else {
+                onJoined(roomId, response);
+              }
+            }, loop);
+  }
+
+  private void onJoined(String roomId, Message response) {
+    if (sessions.contains(roomId)) {
+      // Joined again to make it active, or to rejoin after a reconnect
+      if (resuming && roomId.equals(resumeTarget)) {
+        finishResume();
+      }
+      return;
+    }
+    Matcher matcher = QUOTED_NAME.matcher(response.content());
+    String roomName = matcher.find() ? matcher.group(1) : "Unknown";
+
+    sessions.open(roomId, roomName);
+    showRoom(roomId);
+  }
+
+  /**
+   * Puts an open room on screen: its buffered messages, or with history on, its stored tail
+   * unless its buffer still holds that tail and everything since.
+   */
+  private void showRoom(String roomId) {
+    RoomSessions.Backlog backlog = sessions.show(roomId);
+    if (backlog == null) return;
+    view.setRoomDetails(backlog.name(), roomId);
+    view.showState(UIState.IN_ROOM);
+    if (history != null) {
+      if (!showSeededRoom(roomId, backlog)) {
+        loadHistoryTail(roomId);
+      }
+    } else {
+      historyExhausted = true;
+      view.addMessages(backlog.messages());
+    }
+    sessions.takeChanged();
+    view.updateRoomTabs(sessions.tabs());
+  }
+
+  /**
+   * The server left the active room; show the next open one, or the lobby if none is left.
+   */
+  private void onLeftRoom(Message message) {
+    String roomId = sessions.active();
+    String next = roomId == null ? null : sessions.close(roomId);
+    if (next != null) {
+      switchRoom(next);
+    } else {
+      view.showState(UIState.LOBBY);
+      view.updateRoomTabs(sessions.tabs());
+    }
+  }
+
+  /**
+   * An open room could not be joined again, e.g. because it was deleted.
+   */
+  private void dropRoom(String roomId, String reason) {
+    boolean onScreen = roomId.equals(sessions.active()) && sessions.showing();
+    String next = sessions.close(roomId);
+    view.showFeedback(roomId + ": " + reason, true);
+    if (onScreen && next != null) {
+      switchRoom(next);
+    } else {
+      if (onScreen) {
+        view.showState(UIState.LOBBY);
+      }
+      view.updateRoomTabs(sessions.tabs());
+    }
+  }
+
+  private void onJoinFailed(String roomId, Throwable error) {
+    // A lost connection is reported, and the room rejoined, by the reconnect path
+    if (error instanceof TimeoutException && view != null) {
+      view.showFeedback("No response to joining " + roomId + ".", true);
+    }
+  }
+
+  private void onLinkStatus(LinkStatus status) {
+    loop.execute(() -> {
+      if (view != null) {
+        view.showLinkStatus(status);
+      }
+    });
+  }
+
+  private void onRoomList(Message message) {
+    List<String> rooms = RoomListParser.parse(message.content(), ROOM_LIST_PREFIX.length());
+    cachedRoomsAt = System.nanoTime();
+    cachedRooms = rooms;
+    view.updateRoomList(rooms);
+  }
+
+  private void onServerWelcome(Message message) {
+    clientState = ClientState.AWAITING_LOGIN;
+    if (resuming) {
+      networkService.sendRequest(new Command(CommandType.LOGIN, username));
+    } else {
+      view.addMessage(message); // Show welcome message on login screen
+    }
+  }
+
+  /**
+   * Logged in again after a reconnect: rejoin the open rooms, the active one last.
+   */
+  private void resumeRoom() {
+    view.showConnectionState(ClientState.AUTHENTICATED);
+    List<String> rooms = sessions.joinOrder();
+    if (rooms.isEmpty()) {
+      resuming = false;
+      clearOutbox();
+      view.showState(UIState.LOBBY);
+      view.showFeedback("Reconnected.", false);
+      return;
+    }
+    resumeTarget = rooms.getLast();
+    for (String roomId : rooms) {
+      sendJoin(roomId);
+    }
+  }
+
+  /**
+   * Back in the room after a reconnect: keep the scrollback and send what was typed offline.
+   */
+  private void finishResume() {
+    resuming = false;
+    List<String> queued = new ArrayList<>(outbox);
+    outbox.clear();
+    for (String text : queued) {
+      networkService.sendRequest(new Command(CommandType.MSG, text));
     }
+    view.showFeedback(queued.isEmpty()
+            ? "Reconnected."
+            : "Reconnected. Sent " + queued.size() + " queued message(s).", false);
+  }
+
+  /**
+   * The session could not be restored; start over the way a fresh client would.
+   */
+  private void abandonResume(String reason) {
+    resuming = false;
+    sessions.clear();
+    clearOutbox();
+    view.updateRoomTabs(List.of());
+    view.showConnectionState(clientState);
+    if (clientState == ClientState.AWAITING_LOGIN) {
+      view.showState(UIState.LOGIN);
+      view.showLoginError(reason);
+    } else {
+      view.showState(UIState.LOBBY);
+      view.showFeedback(reason, true);
+    }
+  }
+
+  private void clearOutbox() {
+    outbox.clear();
   }
 
   private void handleNokResponse(Message message) {
+    if (resuming && clientState != ClientState.RECONNECTING) {
+      // Login or rejoin after a reconnect was refused
+      abandonResume(message.content());
+      return;
+    }
     if (clientState == ClientState.AWAITING_LOGIN) {
       // Most likely a failed login attempt
       view.showLoginError(message.content());
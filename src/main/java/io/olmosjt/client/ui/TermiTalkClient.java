@@ -1,5 +1,6 @@
 package io.olmosjt.client.ui;
 
+import com.googlecode.lanterna.SGR;
 import com.googlecode.lanterna.TerminalPosition;
 import com.googlecode.lanterna.TerminalSize;
 import com.googlecode.lanterna.TextColor;
@@ -10,56 +11,202 @@ import com.googlecode.lanterna.screen.Screen;
 import com.googlecode.lanterna.screen.TerminalScreen;
 import com.googlecode.lanterna.terminal.DefaultTerminalFactory;
 import com.googlecode.lanterna.terminal.Terminal;
+import io.olmosjt.client.history.HistoryStore;
+import io.olmosjt.client.load.LoadRunner;
+import io.olmosjt.client.metrics.ClientMetrics;
+import io.olmosjt.client.metrics.Metric;
 import io.olmosjt.client.model.Message;
+import io.olmosjt.client.net.LinkStatus;
 import io.olmosjt.client.net.NetworkService;
+import io.olmosjt.client.net.NioNetworkService;
+import io.olmosjt.client.net.ReconnectingNetworkService;
 import io.olmosjt.client.net.SocketNetworkService;
+import io.olmosjt.client.rooms.RoomDirectory;
+import io.olmosjt.client.rooms.RoomEntry;
+import io.olmosjt.client.rooms.RoomTab;
+import io.olmosjt.client.search.SearchHit;
+import io.olmosjt.client.search.SearchIndex;
+import io.olmosjt.client.store.MessageStore;
+import io.olmosjt.client.ui.input.BracketedPaste;
+import io.olmosjt.client.ui.input.LineEditor;
 import io.olmosjt.client.ui.state.ClientState;
+import io.olmosjt.client.ui.layout.DisplayWidth;
+import io.olmosjt.client.ui.layout.ScrollbackView;
+import io.olmosjt.client.ui.render.BlinkTimer;
+import io.olmosjt.client.ui.render.DirtyRegions;
+import io.olmosjt.client.ui.render.FrameScheduler;
+import io.olmosjt.client.ui.render.Region;
 import io.olmosjt.client.ui.state.UIState;
+import io.olmosjt.client.util.EventLoop;
 import io.olmosjt.client.util.LoggerUtil;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
 
 /**
  * The View in the Model-View-Controller (MVC) pattern.
  * This class is responsible ONLY for drawing the UI and capturing user input.
  * It is a "dumb" component that delegates all logic to the UIController.
+ * <p>
+ * The view state is owned by an {@link EventLoop}, normally shared with the controller: the
+ * {@link UIView} methods must be called on it, and keystrokes are posted to it. After each
+ * batch the loop publishes an immutable {@link ViewSnapshot} and marks the regions the batch
+ * changed; the render thread only ever draws the latest snapshot. The channel scrollback is
+ * the exception, shared lock-free through {@link ScrollbackView}.
  */
 public class TermiTalkClient implements UIView {
-
-  private UIState currentState = UIState.LOGIN;
+  private static final DateTimeFormatter CLOCK_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
+  private static final int BOX_WIDTH = 40;
+  private static final int LOBBY_LIST_TOP = 8;
+  private static final int BOX_HEIGHT = 7;
+  private static final int DEFAULT_SCROLLBACK = 10_000;
+  private static final DateTimeFormatter HIT_TIME_FORMATTER =
+          DateTimeFormatter.ofPattern("MM-dd HH:mm").withZone(ZoneId.systemDefault());
+  private static final String SEARCH_COMMAND = "/search";
+  private static final long FEEDBACK_MILLIS = 4000;
+  private static final long LOGIN_ERROR_MILLIS = 3000;
+  private static final int FIELD_LIMIT = 256;
+  private static final int ROOM_NAME_LIMIT = 30;
+  private static final int CHAT_LIMIT = 4096;
+  private static final int PASTE_LIMIT = 64 * 1024;
+  // Off by default: a multi-line paste goes into the input as one line. When on, it is sent
+  // a message per line, up to this many lines
+  private static final boolean PASTE_SENDS_LINES = Boolean.getBoolean("termitalk.paste.send");
+  private static final int PASTE_MAX_LINES = Integer.getInteger("termitalk.paste.maxLines", 20);
+
+  /**
+   * Everything the renderer draws apart from the scrollback, as of the end of a batch.
+   *
+   * @param lobbyRooms the rooms matching the filter
+   * @param keystrokes keys handled so far, so the renderer can restart the cursor blink
+   */
+  private record ViewSnapshot(
+          UIState state, LineEditor.Line usernameInput, String loginError,
+          ClientState connectionState, LinkStatus linkStatus,
+          List<RoomEntry> lobbyRooms, int roomCount, LineEditor.Line roomFilter, int lobbySelection,
+          boolean showJoinDialog, LineEditor.Line channelIdInput,
+          boolean showCreateDialog, LineEditor.Line roomNameInput,
+          String channelName, String channelId, List<RoomTab> roomTabs, LineEditor.Line chatInput,
+          List<SearchHit> searchHits, String searchQuery, int searchOffset,
+          String feedbackText, boolean feedbackIsError, boolean showDiagnostics, long keystrokes) { }
+
+  private final EventLoop loop;
   private UIController controller;
 
-  // --- UI State Fields (for drawing) ---
-  private String usernameInput = "";
+  // --- UI State Fields; loop thread only ---
+  private UIState currentState = UIState.LOGIN;
+  private final LineEditor usernameInput = new LineEditor(FIELD_LIMIT);
   private String loginError = null;
-  private long loginErrorTime = 0;
+  private long loginErrorSerial = 0;
+  private ClientState connectionState = ClientState.CONNECTING;
+  private LinkStatus linkStatus = LinkStatus.UNKNOWN;
 
-  private List<String> roomList = new ArrayList<>();
-  private int lobbyScrollPosition = 0;
+  // The lobby shows the rooms matching the typed filter
+  private final RoomDirectory rooms = new RoomDirectory();
+  private final LineEditor roomFilter = new LineEditor(FIELD_LIMIT);
+  private int lobbySelection = 0;
 
   private boolean showJoinDialog = false;
-  private String channelIdInput = "";
+  private final LineEditor channelIdInput = new LineEditor(FIELD_LIMIT);
   private boolean showCreateDialog = false;
-  private String roomNameInput = "";
+  private final LineEditor roomNameInput = new LineEditor(ROOM_NAME_LIMIT);
 
   private String currentChannelName = "";
   private String currentChannelId = "";
-  private final List<String> channelMessages = new ArrayList<>();
-  private String chatInput = "";
+  // Joined rooms; shown as tabs above the channel once there is more than one
+  private List<RoomTab> roomTabs = List.of();
+  // Appended on the loop, read by the render thread, neither takes a lock
+  private final ScrollbackView channelMessages;
+  // Ctrl+P/N recall sent lines; the arrows scroll the channel
+  private final LineEditor chatInput =
+          new LineEditor(CHAT_LIMIT, Integer.getInteger("termitalk.input.history", 100));
+
+  // Search mode: hits shown in place of the channel messages while non-null
+  private List<SearchHit> searchHits = null;
+  private String searchQuery = "";
+  private int searchOffset = 0;
 
   // Transient feedback/status area
   private String feedbackText = null;
   private boolean feedbackIsError = false;
-  private long feedbackAt = 0L;
+  private long feedbackSerial = 0;
+
+  // F12 toggles a live view of the client metrics over whatever screen is showing
+  private boolean showDiagnostics = false;
+  private long keystrokes = 0;
+
+  // Regions changed by the current batch, marked dirty once its snapshot is published
+  private final Set<Region> changed = EnumSet.noneOf(Region.class);
+
+  // --- Rendering State ---
+  // Publishing a snapshot invalidates the regions it changed; the render loop sleeps until
+  // something is dirty or the next timer is due, and the frame scheduler spaces frames out
+  // while events keep arriving.
+  private volatile ViewSnapshot published;
+  private final DirtyRegions dirty = new DirtyRegions();
+  private final FrameScheduler frames = new FrameScheduler();
+  private final BlinkTimer cursorBlink = new BlinkTimer(1000);
+  private final AtomicInteger pendingKeys = new AtomicInteger();
+  private long nextClockNanos = System.nanoTime();
+
+  // Render thread only: the snapshot being drawn, and the lobby row shown first
+  private ViewSnapshot view;
+  private int lobbyScrollPosition = 0;
+
+  public TermiTalkClient(EventLoop loop) {
+    this(loop, Integer.getInteger("termitalk.scrollback", DEFAULT_SCROLLBACK));
+  }
+
+  /**
+   * @param loop the loop that owns the view state
+   * @param scrollbackCapacity number of channel messages kept for scrolling back
+   */
+  public TermiTalkClient(EventLoop loop, int scrollbackCapacity) {
+    this.loop = loop;
+    // Room for an average of 256 bytes of content per message before the oldest are dropped
+    // early; the store only allocates what the messages it holds take
+    long contentBytes = Long.getLong("termitalk.scrollback.bytes", scrollbackCapacity * 256L);
+    MessageStore store = new MessageStore(scrollbackCapacity, contentBytes,
+            Boolean.getBoolean("termitalk.scrollback.offHeap"));
+    this.channelMessages = new ScrollbackView(store, this::formatServerMessage);
+    this.published = snapshot();
+    this.view = published;
+    loop.onBatchEnd(this::publish);
+  }
 
   public static void main(String[] args) throws IOException {
-    NetworkService networkService = new SocketNetworkService();
-    ChatClient controller = new ChatClient(networkService);
-    UIView ui = new TermiTalkClient();
+    if (args.length > 0 && args[0].equals("load")) {
+      // Headless load generation instead of the interactive client
+      LoadRunner.main(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+
+    boolean nio = Boolean.getBoolean("termitalk.nio");
+    NetworkService networkService = new ReconnectingNetworkService(
+            () -> nio ? new NioNetworkService() : new SocketNetworkService());
+    String metricsFile = System.getProperty("termitalk.metrics.file");
+    if (metricsFile != null) {
+      ClientMetrics.REGISTRY.startPeriodicDump(Path.of(metricsFile),
+              Duration.ofSeconds(Long.getLong("termitalk.metrics.interval", 10)));
+    }
+
+    // The controller and the view share one loop, so they call each other directly
+    EventLoop loop = new EventLoop("termitalk").start();
+    ChatClient controller = new ChatClient(networkService, HistoryStore.openDefault(), new SearchIndex(), loop);
+    UIView ui = new TermiTalkClient(loop);
 
     ui.setController(controller);
     controller.setView(ui);
@@ -71,6 +218,7 @@ public class TermiTalkClient implements UIView {
     } else {
       ui.drawInitialConnectionError();
     }
+    loop.shutdown();
   }
 
   @Override
@@ -80,84 +228,275 @@ public class TermiTalkClient implements UIView {
 
   @Override
   public void start() {
+    LongSupplier inputQueueDepth = pendingKeys::get;
+    ClientMetrics.INPUT_QUEUE.add(inputQueueDepth);
     DefaultTerminalFactory factory = new DefaultTerminalFactory();
     try (Terminal terminal = factory.createTerminal();
          Screen screen = new TerminalScreen(terminal)) {
 
       screen.startScreen();
+      LoggerUtil.setTerminalActive(true);
       screen.setCursorPosition(null);
-
-      TerminalSize lastKnownSize = screen.getTerminalSize();
-
-      while (currentState != UIState.QUIT) {
-        TerminalSize newSize = screen.doResizeIfNecessary();
-        if (newSize != null) {
-          screen.clear();
+      terminal.addResizeListener((t, newSize) -> dirty.markAll());
+      boolean bracketedPaste = BracketedPaste.enable(terminal);
+
+      Thread inputReader = Thread.ofVirtual().name("tui-input").start(() -> readInputLoop(screen));
+      dirty.markAll();
+      boolean resized = false;
+      long keysSeen = 0;
+
+      while (published.state() != UIState.QUIT) {
+        if (screen.doResizeIfNecessary() != null) {
+          resized = true;
+          dirty.markAll();
+          frames.eventsApplied(1);
         }
 
-        draw(screen); // Draw the current UI state
-
-        // Poll for input without blocking for too long
-        KeyStroke keyStroke = screen.pollInput();
-        if (keyStroke != null) {
-          handleInput(keyStroke, screen.getTerminalSize());
+        long now = System.nanoTime();
+        long keys = published.keystrokes();
+        if (keys != keysSeen) {
+          keysSeen = keys;
+          cursorBlink.restart(now);
         }
 
-        // Add a small sleep to prevent the loop from consuming 100% CPU
+        long untilNextTimer = tick(now);
+
         try {
-          Thread.sleep(16); // ~60 FPS
+          long untilNextFrame = frames.untilNextFrame(now);
+          if (untilNextFrame > 0 && !dirty.isEmpty()) {
+            // Too soon after the last frame: let more events collect and paint them together
+            Thread.sleep(Duration.ofNanos(Math.min(untilNextFrame, untilNextTimer)));
+            continue;
+          }
+
+          Set<Region> regions = dirty.drain();
+          if (!regions.isEmpty()) {
+            render(screen, regions, resized);
+            frames.framePainted(now);
+            resized = false;
+          } else {
+            ClientMetrics.FRAMES_SKIPPED.increment();
+          }
+
+          // Block until a region is invalidated, a key arrives, or a timer is due
+          dirty.awaitWork(TimeUnit.NANOSECONDS.toMillis(untilNextTimer) + 1);
         } catch (InterruptedException e) {
           Thread.currentThread().interrupt();
           break;
         }
       }
+      inputReader.interrupt();
+      if (bracketedPaste) {
+        BracketedPaste.disable(terminal);
+      }
       screen.stopScreen();
     } catch (IOException e) {
       LoggerUtil.error(e.getMessage());
+    } finally {
+      LoggerUtil.setTerminalActive(false);
+      ClientMetrics.INPUT_QUEUE.remove(inputQueueDepth);
     }
   }
 
-  // --- UIView Implementation (Commands from the Controller) ---
+  /**
+   * Blocks on terminal input and posts each keystroke to the loop, with the terminal size it
+   * was typed at. A bracketed paste is read to its end and posted as one task.
+   */
+  private void readInputLoop(Screen screen) {
+    try {
+      while (published.state() != UIState.QUIT) {
+        KeyStroke keyStroke = screen.readInput();
+        if (keyStroke == null || keyStroke.getKeyType() == KeyType.EOF) {
+          break;
+        }
+        if (keyStroke == BracketedPaste.START) {
+          String text = BracketedPaste.read(screen, PASTE_LIMIT);
+          pendingKeys.incrementAndGet();
+          loop.execute(() -> {
+            pendingKeys.decrementAndGet();
+            handlePaste(text);
+          });
+          continue;
+        }
+        TerminalSize size = screen.getTerminalSize();
+        pendingKeys.incrementAndGet();
+        loop.execute(() -> {
+          pendingKeys.decrementAndGet();
+          handleInput(keyStroke, size);
+        });
+      }
+    } catch (IOException e) {
+      if (published.state() != UIState.QUIT) {
+        LoggerUtil.error(e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Runs the clock and cursor blink timers that are due, invalidating what changed.
+   *
+   * @return nanoseconds until the next timer is due
+   */
+  private long tick(long now) {
+    if (now - nextClockNanos >= 0) {
+      dirty.mark(Region.STATUS);
+      // Next repaint on a wall-clock second boundary, so the seconds change on time
+      long toNextSecond = TimeUnit.MILLISECONDS.toNanos(1000 - System.currentTimeMillis() % 1000);
+      nextClockNanos = now + frames.clockPeriodNanos(now) - TimeUnit.SECONDS.toNanos(1) + toNextSecond;
+    }
+
+    if (frames.isIdle(now)) {
+      if (cursorBlink.stop()) {
+        dirty.mark(Region.INPUT);
+      }
+    } else if (!cursorBlink.running()) {
+      cursorBlink.restart(now);
+    }
+    if (cursorBlink.advance(now)) {
+      dirty.mark(Region.INPUT);
+    }
+    return Math.max(0, Math.min(nextClockNanos - now, cursorBlink.untilNextToggle(now)));
+  }
+
+  // --- Loop side: publishing ---
+
+  private void invalidate(Region first, Region... rest) {
+    changed.add(first);
+    Collections.addAll(changed, rest);
+  }
+
+  private void invalidateAll() {
+    changed.addAll(EnumSet.allOf(Region.class));
+  }
+
+  /**
+   * Batch hook: publishes a snapshot if the batch changed anything on screen, then marks
+   * what changed, so the renderer never paints a region from older state than it was
+   * marked for.
+   */
+  private void publish() {
+    if (changed.isEmpty()) return;
+    published = snapshot();
+    dirty.mark(changed);
+    changed.clear();
+  }
+
+  private ViewSnapshot snapshot() {
+    return new ViewSnapshot(currentState, usernameInput.line(), loginError, connectionState, linkStatus,
+            rooms.filter(roomFilter.text()), rooms.size(), roomFilter.line(), lobbySelection,
+            showJoinDialog, channelIdInput.line(), showCreateDialog, roomNameInput.line(),
+            currentChannelName, currentChannelId, roomTabs, chatInput.line(),
+            searchHits, searchQuery, searchOffset,
+            feedbackText, feedbackIsError, showDiagnostics, keystrokes);
+  }
+
+  /**
+   * Clears feedback after 4 seconds, unless newer feedback replaced it or a connection error
+   * is shown.
+   */
+  private void expireFeedback(long serial) {
+    boolean connectionError = loginError != null && loginError.startsWith("ERROR: Connection");
+    if (serial == feedbackSerial && feedbackText != null && !connectionError) {
+      feedbackText = null;
+      invalidate(Region.FEEDBACK);
+    }
+  }
+
+  private void expireLoginError(long serial) {
+    if (serial == loginErrorSerial && loginError != null) {
+      loginError = null;
+      invalidate(Region.STATUS, Region.CONTENT);
+    }
+  }
+
+  // --- UIView Implementation (Commands from the Controller, on the loop) ---
 
   @Override
   public void showState(UIState state) {
     this.currentState = state;
+    this.searchHits = null;
+    frames.eventsApplied(1);
+    invalidateAll();
     // Reset screen-specific data when changing states
     if (state == UIState.LOBBY) {
       channelMessages.clear();
-      chatInput = "";
+      chatInput.clear();
+      roomFilter.clear();
+      lobbySelection = 0;
       controller.requestRoomList(); // Ask controller to refresh room list
     } else if (state == UIState.LOGIN) {
-      usernameInput = "";
+      usernameInput.clear();
     }
   }
 
   @Override
-  public void updateRoomList(List<String> rooms) {
-    this.roomList = rooms;
-    // Adjust scroll position if it's out of bounds
-    int maxScroll = Math.max(0, rooms.size() - 10); // Assuming a view height of 10
-    if(lobbyScrollPosition > maxScroll) {
-      lobbyScrollPosition = maxScroll;
-    }
+  public void updateRoomList(List<String> roomList) {
+    // The same list again, e.g. from the cache, changes nothing on screen
+    if (rooms.update(roomList).isEmpty()) return;
+    lobbySelection = Math.max(0, Math.min(lobbySelection, rooms.filter(roomFilter.text()).size() - 1));
+    frames.eventsApplied(1);
+    invalidate(Region.CONTENT);
   }
 
   @Override
   public void addMessage(Message message) {
-    String formatted = formatServerMessage(message);
-    synchronized (channelMessages) {
-      channelMessages.add(formatted);
-      if (channelMessages.size() > 1000) { // Keep buffer size reasonable
-        channelMessages.removeFirst();
-      }
-    }
+    channelMessages.append(message);
+    frames.eventsApplied(1);
+    invalidate(Region.CONTENT);
+  }
+
+  @Override
+  public void addMessages(List<Message> messages) {
+    if (messages.isEmpty()) return;
+
+    channelMessages.appendAll(messages);
+    frames.eventsApplied(messages.size());
+    invalidate(Region.CONTENT);
+  }
+
+  @Override
+  public void prependMessages(List<Message> messages) {
+    if (messages.isEmpty()) return;
+
+    channelMessages.prependAll(messages);
+    frames.eventsApplied(messages.size());
+    invalidate(Region.CONTENT);
+  }
+
+  @Override
+  public void showSearchResults(String query, List<SearchHit> hits) {
+    this.searchQuery = query;
+    this.searchOffset = 0;
+    this.searchHits = hits;
+    frames.eventsApplied(1);
+    invalidate(Region.CONTENT, Region.FOOTER);
   }
 
   @Override
   public void showLoginError(String reason) {
     this.loginError = "ERROR: " + reason;
-    this.loginErrorTime = System.currentTimeMillis();
-    this.usernameInput = ""; // Clear the invalid username
+    this.usernameInput.clear(); // Clear the invalid username
+    long serial = ++loginErrorSerial;
+    // Cleared after 3 seconds, except connection errors
+    if (!loginError.contains("Connection")) {
+      loop.schedule(LOGIN_ERROR_MILLIS, TimeUnit.MILLISECONDS, () -> expireLoginError(serial));
+    }
+    frames.eventsApplied(1);
+    invalidate(Region.STATUS, Region.CONTENT);
+  }
+
+  @Override
+  public void showConnectionState(ClientState state) {
+    this.connectionState = state;
+    frames.eventsApplied(1);
+    invalidate(Region.STATUS);
+  }
+
+  @Override
+  public void showLinkStatus(LinkStatus status) {
+    this.linkStatus = status;
+    frames.eventsApplied(1);
+    invalidate(Region.STATUS);
   }
 
   @Override
@@ -165,13 +504,25 @@ public class TermiTalkClient implements UIView {
     this.currentChannelName = channelName;
     this.currentChannelId = channelId;
     this.channelMessages.clear(); // Clear old messages
+    frames.eventsApplied(1);
+    invalidate(Region.CONTENT);
+  }
+
+  @Override
+  public void updateRoomTabs(List<RoomTab> tabs) {
+    this.roomTabs = tabs;
+    frames.eventsApplied(1);
+    invalidate(Region.TABS, Region.FOOTER);
   }
 
   @Override
   public void showFeedback(String text, boolean isError) {
     this.feedbackText = text;
     this.feedbackIsError = isError;
-    this.feedbackAt = System.currentTimeMillis();
+    long serial = ++feedbackSerial;
+    loop.schedule(FEEDBACK_MILLIS, TimeUnit.MILLISECONDS, () -> expireFeedback(serial));
+    frames.eventsApplied(1);
+    invalidate(Region.FEEDBACK);
   }
 
   // This method can be reused from the original draft
@@ -186,10 +537,26 @@ public class TermiTalkClient implements UIView {
     };
   }
 
-  // --- Input Handling (Reports user actions to Controller) ---
+  // --- Input Handling (Reports user actions to Controller, on the loop) ---
 
   private void handleInput(KeyStroke keyStroke, TerminalSize size) {
+    keystrokes++;
+    frames.eventsApplied(1);
+    invalidate(Region.INPUT);
+    if (keyStroke.getKeyType() == KeyType.F12) {
+      showDiagnostics = !showDiagnostics;
+      invalidateAll();
+      return;
+    }
+
     if (keyStroke.getKeyType() == KeyType.Escape) {
+      if (showJoinDialog || showCreateDialog) {
+        invalidate(Region.CONTENT);
+      }
+      if (searchHits != null) {
+        searchHits = null;
+        invalidate(Region.CONTENT, Region.FOOTER);
+      }
       showJoinDialog = false;
       showCreateDialog = false;
       return;
@@ -208,7 +575,7 @@ public class TermiTalkClient implements UIView {
     switch (currentState) {
       case LOGIN -> handleLoginInput(keyStroke);
       case LOBBY -> handleLobbyInput(keyStroke, size);
-      case IN_ROOM -> handleChannelInput(keyStroke);
+      case IN_ROOM -> handleChannelInput(keyStroke, size);
       case QUIT -> {} // No input handled in QUIT state
     }
   }
@@ -216,14 +583,10 @@ public class TermiTalkClient implements UIView {
   private void handleLoginInput(KeyStroke keyStroke) {
     if (keyStroke.getKeyType() == KeyType.Enter) {
       if (!usernameInput.isEmpty()) {
-        controller.attemptLogin(usernameInput);
-      }
-    } else if (keyStroke.getKeyType() == KeyType.Backspace) {
-      if (!usernameInput.isEmpty()) {
-        usernameInput = usernameInput.substring(0, usernameInput.length() - 1);
+        controller.attemptLogin(usernameInput.text());
       }
-    } else if (keyStroke.getKeyType() == KeyType.Character) {
-      usernameInput += keyStroke.getCharacter();
+    } else if (usernameInput.handle(keyStroke)) {
+      invalidate(Region.INPUT);
     }
   }
 
@@ -231,90 +594,303 @@ public class TermiTalkClient implements UIView {
     if (keyStroke.getKeyType() == KeyType.F10) {
       controller.shutdown();
       currentState = UIState.QUIT;
+      invalidateAll();
+    } else if (keyStroke.getKeyType() == KeyType.F4) {
+      List<RoomTab> tabs = roomTabs;
+      if (!tabs.isEmpty()) {
+        controller.switchRoom(tabs.get(activeTab(tabs)).id()); // Back to the room last shown
+      }
     } else if (keyStroke.getKeyType() == KeyType.F2) {
       showJoinDialog = true;
-      channelIdInput = "";
+      channelIdInput.clear();
+      invalidate(Region.CONTENT);
     } else if (keyStroke.getKeyType() == KeyType.F3) {
       showCreateDialog = true;
-      roomNameInput = "";
+      roomNameInput.clear();
+      invalidate(Region.CONTENT);
     } else if (keyStroke.getKeyType() == KeyType.ArrowDown) {
-      if (lobbyScrollPosition < Math.max(0, roomList.size() - 1)) {
-        lobbyScrollPosition++;
-      }
+      moveLobbySelection(1);
     } else if (keyStroke.getKeyType() == KeyType.ArrowUp) {
-      if (lobbyScrollPosition > 0) {
-        lobbyScrollPosition--;
+      moveLobbySelection(-1);
+    } else if (keyStroke.getKeyType() == KeyType.PageDown) {
+      moveLobbySelection(lobbyListHeight(size));
+    } else if (keyStroke.getKeyType() == KeyType.PageUp) {
+      moveLobbySelection(-lobbyListHeight(size));
+    } else if (keyStroke.getKeyType() == KeyType.Enter) {
+      List<RoomEntry> shown = rooms.filter(roomFilter.text());
+      if (lobbySelection < shown.size() && shown.get(lobbySelection).id() != null) {
+        controller.joinRoom(shown.get(lobbySelection).id());
       }
+    } else {
+      String before = roomFilter.text();
+      if (roomFilter.handle(keyStroke)) {
+        filterChanged(before);
+      }
+    }
+  }
+
+  private void moveLobbySelection(int delta) {
+    int count = rooms.filter(roomFilter.text()).size();
+    int selection = Math.max(0, Math.min(count - 1, lobbySelection + delta));
+    if (selection != lobbySelection) {
+      lobbySelection = selection;
+      invalidate(Region.CONTENT);
+    }
+  }
+
+  /**
+   * Starts the selection over if an edit changed the filter; moving the cursor only redraws
+   * the input line.
+   */
+  private void filterChanged(String before) {
+    if (!roomFilter.text().equals(before)) {
+      lobbySelection = 0;
+      invalidate(Region.CONTENT);
     }
   }
 
   private void handleJoinDialogInput(KeyStroke keyStroke) {
     if (keyStroke.getKeyType() == KeyType.Enter) {
       if (!channelIdInput.isEmpty()) {
-        controller.joinRoom(channelIdInput);
+        controller.joinRoom(channelIdInput.text());
       }
       showJoinDialog = false;
-    } else if (keyStroke.getKeyType() == KeyType.Backspace) {
-      if (!channelIdInput.isEmpty()) {
-        channelIdInput = channelIdInput.substring(0, channelIdInput.length() - 1);
-      }
-    } else if (keyStroke.getKeyType() == KeyType.Character) {
-      channelIdInput += keyStroke.getCharacter();
+      invalidate(Region.CONTENT);
+    } else if (channelIdInput.handle(keyStroke)) {
+      invalidate(Region.INPUT);
     }
   }
 
   private void handleCreateDialogInput(KeyStroke keyStroke) {
     if (keyStroke.getKeyType() == KeyType.Enter) {
       if (!roomNameInput.isEmpty()) {
-        controller.createRoom(roomNameInput);
+        controller.createRoom(roomNameInput.text());
       }
       showCreateDialog = false;
-    } else if (keyStroke.getKeyType() == KeyType.Backspace) {
-      if (!roomNameInput.isEmpty()) {
-        roomNameInput = roomNameInput.substring(0, roomNameInput.length() - 1);
-      }
-    } else if (keyStroke.getKeyType() == KeyType.Character) {
-      if (roomNameInput.length() < 30) {
-        roomNameInput += keyStroke.getCharacter();
-      }
+      invalidate(Region.CONTENT);
+    } else if (roomNameInput.handle(keyStroke)) {
+      invalidate(Region.INPUT);
     }
   }
 
-  private void handleChannelInput(KeyStroke keyStroke) {
+  private void handleChannelInput(KeyStroke keyStroke, TerminalSize size) {
+    int page = Math.max(1, messageAreaHeight(size) - 1);
     if (keyStroke.getKeyType() == KeyType.F10) {
       controller.leaveRoom();
+    } else if (keyStroke.getKeyType() == KeyType.F4) {
+      controller.showLobby();
+    } else if (keyStroke.getKeyType() == KeyType.Tab || keyStroke.getKeyType() == KeyType.ReverseTab) {
+      List<RoomTab> tabs = roomTabs;
+      if (tabs.size() > 1) {
+        int step = keyStroke.getKeyType() == KeyType.Tab ? 1 : tabs.size() - 1;
+        controller.switchRoom(tabs.get((activeTab(tabs) + step) % tabs.size()).id());
+      }
+    } else if (searchHits != null && isScrollKey(keyStroke.getKeyType())) {
+      scrollSearch(keyStroke.getKeyType(), page, size);
+    } else if (keyStroke.getKeyType() == KeyType.Enter && isSearchCommand(chatInput.text())) {
+      String query = chatInput.submit().substring(SEARCH_COMMAND.length()).trim();
+      if (query.isEmpty()) {
+        showFeedback("Usage: /search [from:<user>] [in:<#room>] words", true);
+      } else {
+        controller.search(query);
+      }
+      invalidate(Region.INPUT);
+    } else if (keyStroke.getKeyType() == KeyType.PageUp) {
+      scrollChannel(-page);
+    } else if (keyStroke.getKeyType() == KeyType.PageDown) {
+      scrollChannel(page);
+    } else if (keyStroke.getKeyType() == KeyType.ArrowUp) {
+      scrollChannel(-1);
+    } else if (keyStroke.getKeyType() == KeyType.ArrowDown) {
+      scrollChannel(1);
     } else if (keyStroke.getKeyType() == KeyType.Enter) {
       if (!chatInput.isEmpty()) {
-        controller.sendMessage(chatInput);
-        chatInput = "";
+        controller.sendMessage(chatInput.submit());
       }
-    } else if (keyStroke.getKeyType() == KeyType.Backspace) {
-      if (!chatInput.isEmpty()) {
-        chatInput = chatInput.substring(0, chatInput.length() - 1);
+      invalidate(Region.INPUT);
+    } else if (chatInput.handle(keyStroke)) {
+      invalidate(Region.INPUT);
+    }
+  }
+
+  /**
+   * Inserts a whole paste into the focused input as one edit. A paste of several lines into
+   * the chat is sent a message per line, together with what was already typed around the
+   * cursor, unless that is turned off or there are too many lines.
+   */
+  private void handlePaste(String text) {
+    keystrokes++;
+    frames.eventsApplied(1);
+    invalidate(Region.INPUT);
+    if (showJoinDialog) {
+      channelIdInput.insert(text);
+    } else if (showCreateDialog) {
+      roomNameInput.insert(text);
+    } else {
+      switch (currentState) {
+        case LOGIN -> usernameInput.insert(text);
+        case LOBBY -> {
+          String before = roomFilter.text();
+          roomFilter.insert(text);
+          filterChanged(before);
+        }
+        case IN_ROOM -> pasteIntoChat(text);
+        case QUIT -> {}
       }
-    } else if (keyStroke.getKeyType() == KeyType.Character) {
-      chatInput += keyStroke.getCharacter();
     }
   }
 
-  // --- All Drawing Methods (largely unchanged from your draft) ---
+  private void pasteIntoChat(String text) {
+    if (!PASTE_SENDS_LINES || text.indexOf('\n') < 0) {
+      chatInput.insert(text);
+      return;
+    }
+    LineEditor.Line line = chatInput.line();
+    String combined = line.text().substring(0, line.cursor()) + text + line.text().substring(line.cursor());
+    List<String> lines = combined.lines().filter(l -> !l.isBlank()).toList();
+    if (lines.size() < 2) {
+      chatInput.insert(text);
+    } else if (lines.size() > PASTE_MAX_LINES) {
+      chatInput.insert(text);
+      showFeedback("Pasted " + lines.size() + " lines as one; up to " + PASTE_MAX_LINES
+              + " are sent as separate messages.", false);
+    } else {
+      chatInput.clear();
+      controller.sendMessages(lines);
+    }
+  }
+
+  private static int activeTab(List<RoomTab> tabs) {
+    for (int i = 0; i < tabs.size(); i++) {
+      if (tabs.get(i).active()) return i;
+    }
+    return 0;
+  }
+
+  private static boolean isSearchCommand(String input) {
+    return input.equals(SEARCH_COMMAND) || input.startsWith(SEARCH_COMMAND + " ");
+  }
+
+  private static boolean isScrollKey(KeyType type) {
+    return type == KeyType.PageUp || type == KeyType.PageDown || type == KeyType.ArrowUp || type == KeyType.ArrowDown;
+  }
+
+  private void scrollSearch(KeyType key, int page, TerminalSize size) {
+    int delta = switch (key) {
+      case PageUp -> -page;
+      case PageDown -> page;
+      case ArrowUp -> -1;
+      default -> 1;
+    };
+    int maxOffset = Math.max(0, searchHits.size() - messageAreaHeight(size));
+    searchOffset = Math.max(0, Math.min(maxOffset, searchOffset + delta));
+    invalidate(Region.CONTENT);
+  }
+
+  /**
+   * Moves the channel view by the given number of visual rows (negative scrolls back). The
+   * renderer carries it out, and asks for older history if that reaches the top.
+   */
+  private void scrollChannel(int delta) {
+    channelMessages.scroll(delta);
+    invalidate(Region.CONTENT);
+  }
+
+  private int messageAreaHeight(TerminalSize size) {
+    return size.getRows() - 10;
+  }
+
+  private int messageAreaWidth(TerminalSize size) {
+    return size.getColumns() - 6;
+  }
+
+  // --- All Drawing Methods ---
+
+  // Package-private so the draw benchmarks can paint into a virtual terminal
+  void draw(Screen screen) throws IOException {
+    render(screen, EnumSet.allOf(Region.class), true);
+  }
 
-  private void draw(Screen screen) throws IOException {
-    screen.clear();
+  /**
+   * Repaints only the given regions of the latest snapshot into the screen's back buffer,
+   * then pushes the difference to the terminal. A full refresh is only needed after a resize.
+   */
+  void render(Screen screen, Set<Region> regions, boolean resized) throws IOException {
+    long start = ClientMetrics.start();
+    view = published;
     TerminalSize size = screen.getTerminalSize();
     TextGraphics g = screen.newTextGraphics();
 
-    drawMainFrame(g, size);
-    drawStatusBar(g, size);
-    drawFeedbackBar(g, size);
+    if (regions.contains(Region.FRAME)) {
+      regions = EnumSet.allOf(Region.class);
+      g.fill(' ');
+      drawMainFrame(g, size);
+    } else if (regions.contains(Region.CONTENT)) {
+      // The content area spans the feedback and input lines, so they must be repainted too
+      regions = EnumSet.copyOf(regions);
+      regions.add(Region.FEEDBACK);
+      regions.add(Region.INPUT);
+    }
 
-    switch (currentState) {
+    if (regions.contains(Region.STATUS)) {
+      blank(g, 1, 1, size.getColumns() - 2, 1);
+      drawStatusBar(g, size);
+    }
+    if (regions.contains(Region.CONTENT)) {
+      blank(g, 1, 3, size.getColumns() - 2, size.getRows() - 4);
+      drawContent(g, size);
+    } else if (regions.contains(Region.TABS)) {
+      drawTabRow(g, size);
+    }
+    if (regions.contains(Region.FEEDBACK)) {
+      drawFeedbackBar(g, size);
+    }
+    if (regions.contains(Region.INPUT)) {
+      drawInputLine(g, size);
+    }
+    if (regions.contains(Region.FOOTER)) {
+      blank(g, 1, size.getRows() - 2, size.getColumns() - 2, size.getRows() - 2);
+      drawFooterBar(g, size);
+    }
+    if (view.showDiagnostics()) {
+      // Painted last so it stays on top of whichever regions were repainted
+      drawDiagnostics(g, size);
+    }
+
+    if (ClientMetrics.ENABLED) {
+      ClientMetrics.CELLS_WRITTEN.add(resized ? (long) size.getColumns() * size.getRows() : changedCells(screen, size));
+    }
+    screen.refresh(resized ? Screen.RefreshType.COMPLETE : Screen.RefreshType.DELTA);
+    ClientMetrics.FRAME_TIME.recordSince(start);
+  }
+
+  /**
+   * Cells a DELTA refresh will send: those whose back buffer differs from what is on screen.
+   */
+  private static long changedCells(Screen screen, TerminalSize size) {
+    long changed = 0;
+    for (int y = 0; y < size.getRows(); y++) {
+      for (int x = 0; x < size.getColumns(); x++) {
+        if (!screen.getBackCharacter(x, y).equals(screen.getFrontCharacter(x, y))) {
+          changed++;
+        }
+      }
+    }
+    return changed;
+  }
+
+  private void blank(TextGraphics g, int left, int top, int right, int bottom) {
+    if (right < left || bottom < top) return;
+    g.fillRectangle(new TerminalPosition(left, top), new TerminalSize(right - left + 1, bottom - top + 1), ' ');
+  }
+
+  private void drawContent(TextGraphics g, TerminalSize size) {
+    switch (view.state()) {
       case LOGIN -> drawLoginScreen(g, size);
       case LOBBY -> {
         drawLobbyScreen(g, size);
-        drawFooterBar(g, size);
-        if (showJoinDialog) drawJoinChannelDialog(g, size);
-        if (showCreateDialog) drawCreateRoomDialog(g, size);
+        if (view.showJoinDialog()) drawJoinChannelDialog(g, size);
+        if (view.showCreateDialog()) drawCreateRoomDialog(g, size);
       }
       case IN_ROOM -> drawChannelScreen(g, size);
       case QUIT -> {
@@ -322,7 +898,79 @@ public class TermiTalkClient implements UIView {
         g.putString((size.getColumns() - msg.length()) / 2, size.getRows() / 2, msg);
       }
     }
-    screen.refresh();
+  }
+
+  private void drawInputLine(TextGraphics g, TerminalSize size) {
+    switch (view.state()) {
+      case LOGIN -> {
+        int left = (size.getColumns() - BOX_WIDTH) / 2;
+        int top = (size.getRows() - BOX_HEIGHT) / 2;
+        blank(g, 1, top + 3, size.getColumns() - 2, top + 3);
+        drawPrompt(g, left + 2, top + 3, BOX_WIDTH - 7, view.usernameInput());
+      }
+      case LOBBY -> {
+        if (view.showJoinDialog() || view.showCreateDialog()) {
+          int left = (size.getColumns() - BOX_WIDTH) / 2;
+          int top = (size.getRows() - BOX_HEIGHT) / 2;
+          g.setBackgroundColor(TextColor.ANSI.BLACK);
+          blank(g, left + 1, top + 3, left + BOX_WIDTH - 2, top + 3);
+          drawPrompt(g, left + 2, top + 3, BOX_WIDTH - 7,
+                  view.showJoinDialog() ? view.channelIdInput() : view.roomNameInput());
+          g.setBackgroundColor(TextColor.ANSI.DEFAULT);
+        } else {
+          // Between the room list and the feedback line
+          int inputY = size.getRows() - 5;
+          blank(g, 1, inputY, size.getColumns() - 2, inputY);
+          g.putString(3, inputY, "Filter:");
+          drawPrompt(g, 11, inputY, size.getColumns() - 16, view.roomFilter());
+        }
+      }
+      case IN_ROOM -> {
+        int innerLeft = 3;
+        int inputY = size.getRows() - 4;
+        blank(g, 1, inputY, size.getColumns() - 2, inputY);
+        drawPrompt(g, innerLeft - 1, inputY, size.getColumns() - 7, view.chatInput());
+      }
+      case QUIT -> {}
+    }
+  }
+
+  /**
+   * Draws "> " and as much of the input as fits in the width, scrolled sideways to keep the
+   * cursor in view. The cursor blinks as '_' at the end of the input, and as the character it
+   * is on in reverse video elsewhere. Offsets are counted in terminal columns, so wide
+   * characters take the two cells they are drawn in.
+   */
+  private void drawPrompt(TextGraphics g, int x, int y, int width, LineEditor.Line input) {
+    String text = input.text();
+    int cursor = input.cursor();
+    int under = cursor < text.length() ? text.codePointAt(cursor) : '_';
+    int underWidth = Math.max(1, DisplayWidth.of(under));
+    // Scroll past whole characters until the cursor's cell fits
+    int offset = 0;
+    int column = DisplayWidth.of(text, 0, cursor);
+    while (offset < cursor && column + underWidth > width) {
+      int codePoint = text.codePointAt(offset);
+      column -= DisplayWidth.of(codePoint);
+      offset += Character.charCount(codePoint);
+    }
+    int end = offset;
+    for (int used = 0; end < text.length(); ) {
+      int codePoint = text.codePointAt(end);
+      used += DisplayWidth.of(codePoint);
+      if (used > width) break;
+      end += Character.charCount(codePoint);
+    }
+    g.putString(x, y, "> " + text.substring(offset, end));
+    if (cursorBlink.visible()) {
+      if (cursor < text.length()) {
+        g.enableModifiers(SGR.REVERSE);
+        g.putString(x + 2 + column, y, Character.toString(under));
+        g.disableModifiers(SGR.REVERSE);
+      } else {
+        g.setCharacter(x + 2 + column, y, '_');
+      }
+    }
   }
 
   @Override
@@ -330,87 +978,91 @@ public class TermiTalkClient implements UIView {
     DefaultTerminalFactory factory = new DefaultTerminalFactory();
     try (Terminal terminal = factory.createTerminal();
          Screen screen = new TerminalScreen(terminal)) {
+      loop.flush(); // The error is shown by a task posted to the loop
       screen.startScreen();
+      LoggerUtil.setTerminalActive(true);
       draw(screen); // This will draw the login screen with the error
       screen.readInput(); // Wait for any key press before exiting
       screen.stopScreen();
     } catch (IOException e) {
       LoggerUtil.error(e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      LoggerUtil.setTerminalActive(false);
     }
   }
 
-  private void drawDialogBox(TextGraphics g, TerminalSize size, String title, String prompt, String input) {
-    int boxWidth = 40;
-    int boxHeight = 7;
-    int left = (size.getColumns() - boxWidth) / 2;
-    int top = (size.getRows() - boxHeight) / 2;
+  private void drawDialogBox(TextGraphics g, TerminalSize size, String title, String prompt) {
+    int left = (size.getColumns() - BOX_WIDTH) / 2;
+    int top = (size.getRows() - BOX_HEIGHT) / 2;
 
     g.setBackgroundColor(TextColor.ANSI.BLACK);
-    g.fillRectangle(new TerminalPosition(left, top), new TerminalSize(boxWidth, boxHeight), ' ');
-    g.drawRectangle(new TerminalPosition(left, top), new TerminalSize(boxWidth, boxHeight), '║');
-    g.drawLine(left + 1, top, left + boxWidth - 2, top, '═');
-    g.drawLine(left + 1, top + boxHeight - 1, left + boxWidth - 2, top + boxHeight - 1, '═');
-    g.setCharacter(left, top, '╔'); g.setCharacter(left + boxWidth - 1, top, '╗');
-    g.setCharacter(left, top + boxHeight - 1, '╚'); g.setCharacter(left + boxWidth - 1, top + boxHeight - 1, '╝');
-
-    g.putString(left + (boxWidth - title.length()) / 2, top, title);
+    g.fillRectangle(new TerminalPosition(left, top), new TerminalSize(BOX_WIDTH, BOX_HEIGHT), ' ');
+    g.drawRectangle(new TerminalPosition(left, top), new TerminalSize(BOX_WIDTH, BOX_HEIGHT), '║');
+    g.drawLine(left + 1, top, left + BOX_WIDTH - 2, top, '═');
+    g.drawLine(left + 1, top + BOX_HEIGHT - 1, left + BOX_WIDTH - 2, top + BOX_HEIGHT - 1, '═');
+    g.setCharacter(left, top, '╔'); g.setCharacter(left + BOX_WIDTH - 1, top, '╗');
+    g.setCharacter(left, top + BOX_HEIGHT - 1, '╚'); g.setCharacter(left + BOX_WIDTH - 1, top + BOX_HEIGHT - 1, '╝');
+
+    g.putString(left + (BOX_WIDTH - title.length()) / 2, top, title);
     g.putString(left + 2, top + 2, prompt);
-    g.putString(left + 2, top + 3, "> " + input);
-
-    if (System.currentTimeMillis() % 1000 > 500) {
-      g.setCharacter(left + 4 + input.length(), top + 3, '_');
-    }
+    g.setBackgroundColor(TextColor.ANSI.DEFAULT);
   }
 
   private void drawLoginScreen(TextGraphics g, TerminalSize size) {
-    // ... (drawing code from your draft, but using `usernameInput`)
-    // Centered box drawing logic here...
-    String title = "USER AUTHENTICATION";
-    int boxWidth = 40;
-    int boxHeight = 7;
-    int left = (size.getColumns() - boxWidth) / 2;
-    int top = (size.getRows() - boxHeight) / 2;
+    int left = (size.getColumns() - BOX_WIDTH) / 2;
+    int top = (size.getRows() - BOX_HEIGHT) / 2;
     g.putString(left + 2, top + 2, "Enter Callsign:");
-    g.putString(left + 2, top + 3, "> " + usernameInput);
-    if (System.currentTimeMillis() % 1000 > 500) {
-      g.setCharacter(left + 4 + usernameInput.length(), top + 3, '_');
-    }
 
+    String loginError = view.loginError();
     if (loginError != null) {
-      if (!loginError.contains("Connection") && System.currentTimeMillis() - loginErrorTime > 3000) {
-        loginError = null;
-      } else {
-        g.setForegroundColor(TextColor.ANSI.RED);
-        g.putString(left + (boxWidth - loginError.length()) / 2, top + 5, loginError);
-        g.setForegroundColor(TextColor.ANSI.DEFAULT);
-      }
+      g.setForegroundColor(TextColor.ANSI.RED);
+      g.putString(left + (BOX_WIDTH - loginError.length()) / 2, top + 5, loginError);
+      g.setForegroundColor(TextColor.ANSI.DEFAULT);
     }
   }
 
+  private static int lobbyListHeight(TerminalSize size) {
+    return Math.max(1, size.getRows() - 5 - LOBBY_LIST_TOP);
+  }
+
+  /**
+   * Draws only the rows of the filtered room list that fit, scrolled so the selection shows.
+   */
   private void drawLobbyScreen(TextGraphics g, TerminalSize size) {
-    // ... (drawing code from your draft, but using `this.roomList`)
     int innerLeft = 3;
-    int contentTopY = 4;
     String title = "=[ LOBBY ]=";
     g.putString((size.getColumns() - title.length()) / 2, 3, title);
-    g.putString(innerLeft, contentTopY + 2, "Available Channels:");
-
-    int listTopY = contentTopY + 4;
-    int listHeight = size.getRows() - 4 - listTopY;
+    drawLobbyTabs(g, size);
+
+    List<RoomEntry> shown = view.lobbyRooms();
+    int total = view.roomCount();
+    g.putString(innerLeft, LOBBY_LIST_TOP - 2, shown.size() == total
+            ? "Available Channels (" + total + "):"
+            : "Available Channels (" + shown.size() + " of " + total + " match):");
+
+    int listHeight = lobbyListHeight(size);
+    int lobbySelection = view.lobbySelection();
+    if (lobbySelection < lobbyScrollPosition) {
+      lobbyScrollPosition = lobbySelection;
+    } else if (lobbySelection >= lobbyScrollPosition + listHeight) {
+      lobbyScrollPosition = lobbySelection - listHeight + 1;
+    }
+    lobbyScrollPosition = Math.max(0, Math.min(lobbyScrollPosition, shown.size() - listHeight));
 
-    for (int i = 0; i < listHeight; i++) {
+    int maxWidth = size.getColumns() - innerLeft - 3;
+    for (int i = 0; i < listHeight && lobbyScrollPosition + i < shown.size(); i++) {
       int roomIndex = lobbyScrollPosition + i;
-      if (roomIndex < roomList.size()) {
-        g.putString(innerLeft, listTopY + i, "- " + roomList.get(roomIndex));
+      String line = (roomIndex == lobbySelection ? "> " : "- ") + shown.get(roomIndex).text();
+      if (roomIndex == lobbySelection) {
+        g.setForegroundColor(TextColor.ANSI.YELLOW_BRIGHT);
       }
+      g.putString(innerLeft, LOBBY_LIST_TOP + i, line.length() > maxWidth ? line.substring(0, maxWidth) : line);
+      g.setForegroundColor(TextColor.ANSI.DEFAULT);
     }
-    // ... (add scrollbar drawing if desired)
   }
 
-  // Include the rest of your excellent drawing methods here:
-  // drawMainFrame, drawStatusBar, drawFooterBar, drawChannelScreen,
-  // drawJoinChannelDialog, drawCreateRoomDialog, etc. They can be
-  // copied almost verbatim from your original draft.
   private void drawMainFrame(TextGraphics g, TerminalSize size) {
     g.setForegroundColor(TextColor.ANSI.WHITE);
     g.drawLine(0, 0, size.getColumns() - 1, 0, '═');
@@ -433,46 +1085,60 @@ public class TermiTalkClient implements UIView {
         g.setCharacter(size.getColumns() - 1, y, '║');
       }
     }
-  }
 
-  private void drawStatusBar(TextGraphics g, TerminalSize size) {
     String title = "=[ TERMITALK ]=";
     g.putString((size.getColumns() - title.length()) / 2, 0, title);
+    // Partial repaints start from the default colour; a full one must match or every cell differs
+    g.setForegroundColor(TextColor.ANSI.DEFAULT);
+  }
 
-    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm:ss");
-    String dateTime = LocalDateTime.now().format(formatter);
+  private void drawStatusBar(TextGraphics g, TerminalSize size) {
+    String dateTime = LocalDateTime.now().format(CLOCK_FORMATTER);
     g.putString(2, 1, dateTime);
 
     String status;
+    TextColor color = TextColor.ANSI.DEFAULT;
+    LinkStatus link = view.linkStatus();
 
-    if (loginError != null && loginError.startsWith("ERROR: Connection")) {
+    if (view.loginError() != null && view.loginError().startsWith("ERROR: Connection")) {
+      status = "STATUS: [OFFLINE]";
+    } else if (view.state() == UIState.QUIT) {
       status = "STATUS: [OFFLINE]";
-    } else if (currentState == UIState.QUIT) {
+    } else if (view.connectionState() == ClientState.RECONNECTING) {
+      status = "STATUS: [RECONNECTING]";
+      color = TextColor.ANSI.YELLOW;
+    } else if (link.liveness() == LinkStatus.Liveness.OFFLINE) {
       status = "STATUS: [OFFLINE]";
+      color = TextColor.ANSI.RED;
+    } else if (link.liveness() == LinkStatus.Liveness.STALE) {
+      status = "STATUS: [STALE " + TimeUnit.NANOSECONDS.toSeconds(link.silentNanos()) + "s]";
+      color = TextColor.ANSI.YELLOW;
+    } else if (link.rttNanos() >= 0) {
+      status = "STATUS: [CONNECTED " + millis(link.rttNanos()) + "ms ±" + millis(link.jitterNanos()) + "ms]";
     } else {
       status = "STATUS: [CONNECTED]";
     }
 
+    g.setForegroundColor(color);
     g.putString(size.getColumns() - status.length() - 2, 1, status);
+    g.setForegroundColor(TextColor.ANSI.DEFAULT);
+  }
+
+  private static long millis(long nanos) {
+    return Math.round(nanos / 1e6);
   }
 
   private void drawFeedbackBar(TextGraphics g, TerminalSize size) {
     // Draw a single-line feedback just above the footer divider in Lobby/Login
     // In Room view, draw higher to avoid colliding with the chat input line.
-    int y = (currentState == UIState.IN_ROOM) ? (size.getRows() - 6) : (size.getRows() - 4);
-    // Auto-clear after 4 seconds (except connection errors)
-    if (feedbackText != null && !(loginError != null && loginError.startsWith("ERROR: Connection"))) {
-      if (System.currentTimeMillis() - feedbackAt > 4000) {
-        feedbackText = null;
-      }
-    }
+    int y = (view.state() == UIState.IN_ROOM) ? (size.getRows() - 6) : (size.getRows() - 4);
 
     // Clear the line
-    String blank = " ".repeat(Math.max(0, size.getColumns() - 4));
-    g.putString(2, y, blank);
+    blank(g, 2, y, size.getColumns() - 3, y);
 
+    String feedbackText = view.feedbackText();
     if (feedbackText != null && !feedbackText.isBlank()) {
-      if (feedbackIsError) {
+      if (view.feedbackIsError()) {
         g.setForegroundColor(TextColor.ANSI.RED);
       } else {
         g.setForegroundColor(TextColor.ANSI.GREEN);
@@ -486,46 +1152,208 @@ public class TermiTalkClient implements UIView {
   }
 
   private void drawFooterBar(TextGraphics g, TerminalSize size) {
-    String footer = "F2: Join | F3: Create | Arrows: Scroll | F10: Quit";
+    String footer = switch (view.state()) {
+      case LOBBY -> view.roomTabs().isEmpty()
+              ? "Type to filter | Enter: Join | F2: Join by id | F3: Create | F10: Quit"
+              : "Type to filter | Enter: Join | F2: By id | F3: Create | F4: Back to Room | F10: Quit";
+      case IN_ROOM -> view.searchHits() != null
+              ? "Esc: Close Search | PgUp/PgDn: Scroll | F10: Leave Channel"
+              : view.roomTabs().size() > 1
+              ? "PgUp/PgDn: Scroll | Tab: Next Room | F4: Lobby | /search | F10: Leave"
+              : "PgUp/PgDn: Scroll | F4: Lobby | /search <words> | F10: Leave Channel";
+      default -> "";
+    };
     g.putString(2, size.getRows() - 2, footer);
   }
 
+  /**
+   * Repaints just the row the room tabs are on, when only the counts changed.
+   */
+  private void drawTabRow(TextGraphics g, TerminalSize size) {
+    if (view.state() == UIState.IN_ROOM) {
+      blank(g, 1, 3, size.getColumns() - 2, 3);
+      drawChannelTitle(g, size, view.searchHits());
+    } else if (view.state() == UIState.LOBBY && !view.showJoinDialog() && !view.showCreateDialog()) {
+      blank(g, 1, 4, size.getColumns() - 2, 4);
+      drawLobbyTabs(g, size);
+    }
+  }
+
+  private void drawChannelTitle(TextGraphics g, TerminalSize size, List<SearchHit> hits) {
+    List<RoomTab> tabs = view.roomTabs();
+    if (hits == null && tabs.size() > 1) {
+      drawRoomTabs(g, tabs, 3, 3, size.getColumns() - 6);
+      return;
+    }
+    String title = hits != null
+            ? String.format("=[ SEARCH: %s (%d hits) ]=", view.searchQuery(), hits.size())
+            : String.format("=[ CHANNEL: %s [%s] ]=", view.channelName(), view.channelId());
+    g.putString(Math.max(1, (size.getColumns() - title.length()) / 2), 3, title);
+  }
+
+  private void drawLobbyTabs(TextGraphics g, TerminalSize size) {
+    List<RoomTab> tabs = view.roomTabs();
+    if (tabs.isEmpty()) return;
+    String label = "Joined:";
+    g.putString(3, 4, label);
+    drawRoomTabs(g, tabs, 4 + label.length(), 4, size.getColumns() - 7 - label.length());
+  }
+
+  /**
+   * Draws one label per joined room on a row, with unread and mention counts, starting late
+   * enough that the active room fits. The active room is bracketed, rooms with mentions are
+   * red and rooms with unread messages bright.
+   */
+  private void drawRoomTabs(TextGraphics g, List<RoomTab> tabs, int left, int y, int width) {
+    List<String> labels = new ArrayList<>(tabs.size());
+    int active = activeTab(tabs);
+    for (RoomTab tab : tabs) {
+      String counts = tab.mentions() > 0 ? " (" + tab.unread() + " @" + tab.mentions() + ")"
+              : tab.unread() > 0 ? " (" + tab.unread() + ")" : "";
+      String label = tab.id() + " " + tab.name() + counts;
+      labels.add(tab.active() ? "[" + label + "]" : " " + label + " ");
+    }
+
+    int first = 0;
+    int span = 0;
+    for (int i = 0; i <= active; i++) {
+      span += labels.get(i).length() + 1;
+    }
+    while (first < active && span - 1 > width) {
+      span -= labels.get(first).length() + 1;
+      first++;
+    }
+
+    int x = left;
+    int right = left + width;
+    if (first > 0) {
+      g.putString(x, y, "<");
+      x += 2;
+    }
+    for (int i = first; i < labels.size() && x < right; i++) {
+      RoomTab tab = tabs.get(i);
+      String label = labels.get(i);
+      if (x + label.length() > right) {
+        label = label.substring(0, Math.max(0, right - x - 1)) + ">";
+      }
+      if (tab.active()) {
+        g.setForegroundColor(TextColor.ANSI.YELLOW_BRIGHT);
+      } else if (tab.mentions() > 0) {
+        g.setForegroundColor(TextColor.ANSI.RED_BRIGHT);
+      } else if (tab.unread() > 0) {
+        g.setForegroundColor(TextColor.ANSI.WHITE_BRIGHT);
+      }
+      g.putString(x, y, label);
+      g.setForegroundColor(TextColor.ANSI.DEFAULT);
+      x += label.length() + 1;
+    }
+  }
+
   private void drawChannelScreen(TextGraphics g, TerminalSize size) {
     int innerLeft = 3;
     int contentTopY = 4;
     int contentBottomY = size.getRows() - 4;
 
-    String title = String.format("=[ CHANNEL: %s [%s] ]=", currentChannelName, currentChannelId);
-    g.putString((size.getColumns() - title.length()) / 2, 3, title);
+    List<SearchHit> hits = view.searchHits();
+    drawChannelTitle(g, size, hits);
 
-    int messageAreaHeight = contentBottomY - contentTopY - 2;
+    int messageAreaHeight = messageAreaHeight(size);
     int messageTopY = contentTopY;
 
-    synchronized(channelMessages) {
-      int messagesToDraw = Math.min(channelMessages.size(), messageAreaHeight);
-      int startIndex = channelMessages.size() - messagesToDraw;
-      for(int i = 0; i < messagesToDraw; i++) {
-        g.putString(innerLeft, messageTopY + i, channelMessages.get(startIndex + i));
-      }
+    int messageAreaWidth = messageAreaWidth(size);
+    int inputTopY = contentBottomY - 1;
+    if (hits != null) {
+      drawSearchResults(g, hits, innerLeft, messageTopY, messageAreaWidth, messageAreaHeight);
+      g.drawLine(innerLeft - 1, inputTopY, size.getColumns() - innerLeft, inputTopY, '─');
+      return;
+    }
+
+    if (channelMessages.applyScroll(messageAreaWidth, messageAreaHeight)) {
+      controller.loadOlderHistory(); // Reached the top; fetch the previous page
+    }
+    List<String> rows = channelMessages.visibleRows(messageAreaWidth, messageAreaHeight);
+    for (int i = 0; i < rows.size(); i++) {
+      g.putString(innerLeft, messageTopY + i, rows.get(i));
     }
 
-    int inputTopY = contentBottomY - 1;
     g.drawLine(innerLeft - 1, inputTopY, size.getColumns() - innerLeft, inputTopY, '─');
-    g.putString(innerLeft - 1, inputTopY + 1, "> " + chatInput);
-    if (System.currentTimeMillis() % 1000 > 500) {
-      g.setCharacter(innerLeft + 1 + chatInput.length(), inputTopY + 1, '_');
+
+    long newer = channelMessages.newerBelow(messageAreaWidth);
+    if (!channelMessages.isFollowing() && newer > 0) {
+      String hint = " " + newer + " newer (PgDn) ";
+      g.putString(size.getColumns() - innerLeft - hint.length() - 1, inputTopY, hint);
     }
+  }
 
-    String footer = "F10: Leave Channel";
-    g.putString(2, size.getRows() - 2, footer);
+  /**
+   * One row per hit: when, who and where, then the message with matched terms highlighted.
+   */
+  private void drawSearchResults(TextGraphics g, List<SearchHit> hits, int left, int top, int width, int height) {
+    if (hits.isEmpty()) {
+      g.putString(left, top, "No matches.");
+      return;
+    }
+    int offset = view.searchOffset();
+    for (int row = 0; row < height && offset + row < hits.size(); row++) {
+      SearchHit hit = hits.get(offset + row);
+      String prefix = HIT_TIME_FORMATTER.format(hit.timestamp()) + " <" + hit.sender() + ">"
+              + (hit.room() == null || hit.room().isEmpty() ? "" : " " + hit.room()) + " ";
+      int y = top + row;
+      g.putString(left, y, prefix.length() > width ? prefix.substring(0, width) : prefix);
+
+      int x = left + prefix.length();
+      int limit = width - prefix.length();
+      if (limit <= 0) continue;
+      String content = hit.content().replace('\n', ' ');
+      if (content.length() > limit) {
+        content = content.substring(0, limit);
+      }
+
+      int[] highlights = hit.highlights();
+      int from = 0;
+      for (int i = 0; i + 1 < highlights.length && highlights[i] < content.length(); i += 2) {
+        int start = highlights[i];
+        int end = Math.min(highlights[i + 1], content.length());
+        g.putString(x + from, y, content.substring(from, start));
+        g.setForegroundColor(TextColor.ANSI.YELLOW_BRIGHT);
+        g.putString(x + start, y, content.substring(start, end));
+        g.setForegroundColor(TextColor.ANSI.DEFAULT);
+        from = end;
+      }
+      g.putString(x + from, y, content.substring(from));
+    }
+  }
+
+  private void drawDiagnostics(TextGraphics g, TerminalSize size) {
+    List<Metric> metrics = ClientMetrics.REGISTRY.metrics();
+    int width = Math.min(size.getColumns() - 4, 100);
+    int height = Math.min(size.getRows() - 6, metrics.size() + 2);
+    if (width < 20 || height < 3) return;
+    int left = (size.getColumns() - width) / 2;
+    int top = 3;
+
+    blank(g, left, top, left + width - 1, top + height - 1);
+    g.setForegroundColor(TextColor.ANSI.CYAN);
+    g.drawRectangle(new TerminalPosition(left, top), new TerminalSize(width, height), '·');
+    long painted = ClientMetrics.FRAMES.get();
+    long events = ClientMetrics.UI_EVENTS.get();
+    String title = String.format(" DIAGNOSTICS (F12 to close) | %d events in %d frames, %.1f per frame ",
+            events, painted, painted == 0 ? 0.0 : (double) events / painted);
+    g.putString(left + 2, top, title.length() > width - 4 ? title.substring(0, width - 4) : title);
+    g.setForegroundColor(TextColor.ANSI.DEFAULT);
+
+    for (int i = 0; i < metrics.size() && i < height - 2; i++) {
+      Metric metric = metrics.get(i);
+      String line = String.format("%-30s %s", metric.name().replaceFirst("^termitalk_", ""), metric.summary());
+      g.putString(left + 2, top + 1 + i, line.length() > width - 4 ? line.substring(0, width - 4) : line);
+    }
   }
 
   private void drawJoinChannelDialog(TextGraphics g, TerminalSize size) {
-    drawDialogBox(g, size, "JOIN CHANNEL", "Enter Room Info (e.g., #123):", channelIdInput);
+    drawDialogBox(g, size, "JOIN CHANNEL", "Enter Room Info (e.g., #123):");
   }
 
   private void drawCreateRoomDialog(TextGraphics g, TerminalSize size) {
-    drawDialogBox(g, size, "CREATE ROOM", "Enter Room Name:", roomNameInput);
+    drawDialogBox(g, size, "CREATE ROOM", "Enter Room Name:");
   }
 }
-
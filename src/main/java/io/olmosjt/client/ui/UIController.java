@@ -1,5 +1,7 @@
 package io.olmosjt.client.ui;
 
+import java.util.List;
+
 public interface UIController {
 
   public boolean start(String host, int port);
@@ -8,7 +10,34 @@ public interface UIController {
   void requestRoomList();
   void createRoom(String roomName);
   void joinRoom(String roomId);
+
+  /**
+   * Shows another joined room, such as "#12", without leaving the one on screen.
+   */
+  void switchRoom(String roomId);
+
+  /**
+   * Goes back to the lobby while staying in the joined rooms.
+   */
+  void showLobby();
   void sendMessage(String text);
+
+  /**
+   * Sends several lines, such as a multi-line paste, a message each, in order and written to
+   * the connection together.
+   */
+  void sendMessages(List<String> lines);
   void leaveRoom();
+
+  /**
+   * Asks for the page of room history preceding what the view holds, if there is one.
+   */
+  void loadOlderHistory();
+
+  /**
+   * Searches the messages seen so far; results go to {@link UIView#showSearchResults}.
+   * Syntax: {@code [from:<sender>] [in:<room>] word...}
+   */
+  void search(String query);
   void shutdown();
 }
@@ -1,6 +1,10 @@
 package io.olmosjt.client.ui;
 
 import io.olmosjt.client.model.Message;
+import io.olmosjt.client.net.LinkStatus;
+import io.olmosjt.client.rooms.RoomTab;
+import io.olmosjt.client.search.SearchHit;
+import io.olmosjt.client.ui.state.ClientState;
 import io.olmosjt.client.ui.state.UIState;
 
 import java.util.List;
@@ -11,10 +15,41 @@ public interface UIView {
   void showState(UIState state);
   void updateRoomList(List<String> rooms);
   void addMessage(Message message);
+
+  /**
+   * Appends a batch of messages in order, as one update.
+   * The list is only valid for the duration of the call.
+   */
+  void addMessages(List<Message> messages);
+
+  /**
+   * Puts older messages (e.g. from local history), oldest first, in front of those shown.
+   */
+  void prependMessages(List<Message> messages);
   void showLoginError(String reason);
+
+  /**
+   * Shows ranked search hits, best first, in place of the channel messages.
+   */
+  void showSearchResults(String query, List<SearchHit> hits);
   void setRoomDetails(String channelName, String channelId);
+
+  /**
+   * Shows the joined rooms, in tab order, with their unread and mention counts.
+   */
+  void updateRoomTabs(List<RoomTab> tabs);
   void drawInitialConnectionError();
 
+  /**
+   * Reflects the connection state in the status bar, e.g. while reconnecting.
+   */
+  void showConnectionState(ClientState state);
+
+  /**
+   * Reflects the measured latency and liveness of the connection in the status bar.
+   */
+  void showLinkStatus(LinkStatus status);
+
   /**
    * Displays a transient feedback/status message in the UI.
    * @param text The feedback text
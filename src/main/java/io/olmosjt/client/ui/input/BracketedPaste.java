@@ -0,0 +1,99 @@
+package io.olmosjt.client.ui.input;
+
+import com.googlecode.lanterna.input.BasicCharacterPattern;
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
+import com.googlecode.lanterna.screen.Screen;
+import com.googlecode.lanterna.terminal.Terminal;
+import com.googlecode.lanterna.terminal.ansi.StreamBasedTerminal;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Bracketed paste: the terminal wraps pasted text in {@code ESC[200~} and {@code ESC[201~},
+ * so a paste can be taken as one insert instead of replayed as keystrokes, each redrawing
+ * the input line and a newline in it submitting half the text.
+ * <p>
+ * Lanterna 3.1 neither asks the terminal for it nor decodes the markers, so {@link #enable}
+ * does both: it teaches the terminal's input decoder the two sequences, which then arrive as
+ * {@link #START} and {@link #END}, and switches the mode on. Terminals that do not support
+ * the mode ignore the request and pastes arrive as keystrokes as before.
+ */
+public final class BracketedPaste {
+  /**
+   * Read when a paste begins; compare by identity.
+   */
+  public static final KeyStroke START = new KeyStroke(KeyType.Unknown);
+
+  /**
+   * Read when a paste ends; compare by identity.
+   */
+  public static final KeyStroke END = new KeyStroke(KeyType.Unknown);
+
+  private static final String ENABLE = "\u001b[?2004h";
+  private static final String DISABLE = "\u001b[?2004l";
+
+  private BracketedPaste() {}
+
+  /**
+   * Decodes the paste markers and turns the mode on, if the terminal is a text terminal.
+   *
+   * @return whether the mode was requested
+   */
+  public static boolean enable(Terminal terminal) throws IOException {
+    if (!(terminal instanceof StreamBasedTerminal streamTerminal)) {
+      return false;
+    }
+    streamTerminal.getInputDecoder().addProfile(() -> List.of(
+            new BasicCharacterPattern(START, '\u001b', '[', '2', '0', '0', '~'),
+            new BasicCharacterPattern(END, '\u001b', '[', '2', '0', '1', '~')));
+    write(terminal, ENABLE);
+    return true;
+  }
+
+  /**
+   * Turns the mode off again, so the shell the client exits to is not left with it.
+   */
+  public static void disable(Terminal terminal) throws IOException {
+    if (terminal instanceof StreamBasedTerminal) {
+      write(terminal, DISABLE);
+    }
+  }
+
+  /**
+   * Reads the rest of a paste after {@link #START}, up to {@link #END}. Enter and Tab come
+   * back as line breaks and tabs; other keys a terminal should not send inside a paste are
+   * dropped, and so are characters past the limit.
+   *
+   * @param maxLength characters kept
+   * @return the pasted text, possibly cut short if input ended first
+   */
+  public static String read(Screen screen, int maxLength) throws IOException {
+    StringBuilder text = new StringBuilder();
+    KeyStroke key;
+    while ((key = screen.readInput()) != null && key != END && key.getKeyType() != KeyType.EOF) {
+      if (text.length() >= maxLength) continue;
+      switch (key.getKeyType()) {
+        case Character -> text.append(key.getCharacter());
+        case Enter -> text.append('\n');
+        case Tab -> text.append('\t');
+        default -> {}
+      }
+    }
+    return text.toString();
+  }
+
+  /**
+   * Writes a mode switch that Lanterna would filter out of {@code putString} as control
+   * characters. The default terminal writes to {@link System#out}, so the switch goes there,
+   * after whatever the terminal has buffered.
+   */
+  private static void write(Terminal terminal, String sequence) throws IOException {
+    terminal.flush();
+    PrintStream out = System.out;
+    out.print(sequence);
+    out.flush();
+  }
+}
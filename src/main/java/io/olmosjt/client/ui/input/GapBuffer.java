@@ -0,0 +1,109 @@
+package io.olmosjt.client.ui.input;
+
+import java.util.Arrays;
+
+/**
+ * Characters held in one array with a gap at the edit position.
+ * <p>
+ * Inserting or deleting at the gap only moves its edges, so typing, deleting and pasting at
+ * the cursor cost as much as the characters involved however long the text is. Moving the
+ * cursor moves the gap, copying the characters in between.
+ */
+final class GapBuffer {
+  private static final int INITIAL_CAPACITY = 64;
+
+  private char[] chars = new char[INITIAL_CAPACITY];
+  // The gap is [gapStart, gapEnd); text before it is at the start, text after it at the end
+  private int gapStart = 0;
+  private int gapEnd = INITIAL_CAPACITY;
+
+  int length() {
+    return chars.length - (gapEnd - gapStart);
+  }
+
+  /**
+   * Index of the gap in the text, where the next insert goes.
+   */
+  int position() {
+    return gapStart;
+  }
+
+  char charAt(int index) {
+    return index < gapStart ? chars[index] : chars[index + gapEnd - gapStart];
+  }
+
+  void moveTo(int index) {
+    if (index < 0 || index > length()) {
+      throw new IndexOutOfBoundsException("position " + index + " of " + length());
+    }
+    if (index < gapStart) {
+      int count = gapStart - index;
+      System.arraycopy(chars, index, chars, gapEnd - count, count);
+      gapStart -= count;
+      gapEnd -= count;
+    } else if (index > gapStart) {
+      int count = index - gapStart;
+      System.arraycopy(chars, gapEnd, chars, gapStart, count);
+      gapStart += count;
+      gapEnd += count;
+    }
+  }
+
+  void insert(char c) {
+    ensureGap(1);
+    chars[gapStart++] = c;
+  }
+
+  void insert(CharSequence text, int start, int end) {
+    ensureGap(end - start);
+    for (int i = start; i < end; i++) {
+      chars[gapStart++] = text.charAt(i);
+    }
+  }
+
+  /**
+   * Deletes up to {@code count} characters before the gap.
+   */
+  void deleteBefore(int count) {
+    gapStart -= Math.min(count, gapStart);
+  }
+
+  /**
+   * Deletes up to {@code count} characters after the gap.
+   */
+  void deleteAfter(int count) {
+    gapEnd += Math.min(count, chars.length - gapEnd);
+  }
+
+  void clear() {
+    gapStart = 0;
+    gapEnd = chars.length;
+  }
+
+  String substring(int start, int end) {
+    StringBuilder text = new StringBuilder(end - start);
+    if (start < gapStart) {
+      text.append(chars, start, Math.min(end, gapStart) - start);
+    }
+    if (end > gapStart) {
+      int from = Math.max(start, gapStart);
+      text.append(chars, from + gapEnd - gapStart, end - from);
+    }
+    return text.toString();
+  }
+
+  @Override
+  public String toString() {
+    return substring(0, length());
+  }
+
+  private void ensureGap(int needed) {
+    if (gapEnd - gapStart >= needed) return;
+    int after = chars.length - gapEnd;
+    int capacity = Math.max(chars.length * 2, length() + needed + INITIAL_CAPACITY);
+    char[] grown = Arrays.copyOf(chars, capacity);
+    System.arraycopy(chars, gapEnd, grown, capacity - after, after);
+    chars = grown;
+    gapEnd = capacity - after;
+  }
+}
@@ -0,0 +1,341 @@
+package io.olmosjt.client.ui.input;
+
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One line of editable input with a cursor, kept in a {@link GapBuffer} so typing anywhere
+ * on the line does not copy the rest of it.
+ * <p>
+ * Keys follow the usual shell bindings: arrows, Home/End and Ctrl+A/E/B/F move the cursor,
+ * Ctrl or Alt with an arrow (or Alt+B/F) moves by word, Ctrl+W and Alt+Backspace delete the
+ * word before the cursor, Alt+D and Ctrl+Delete the word after it, Ctrl+U and Ctrl+K delete
+ * to the start and end of the line. With a history, Ctrl+P/N and the up and down arrows walk
+ * through the lines submitted before, keeping what was being typed to come back to.
+ * <p>
+ * Not thread-safe; the view's event loop owns its editors.
+ */
+public final class LineEditor {
+
+  /**
+   * What the renderer needs of an editor: its text and where the cursor is in it.
+   */
+  public record Line(String text, int cursor) {
+    public static final Line EMPTY = new Line("", 0);
+  }
+
+  private final GapBuffer buffer = new GapBuffer();
+  private final int maxLength;
+  private final int historySize;
+  private final List<String> history = new ArrayList<>();
+  // Entry shown while browsing the history; history.size() when not browsing
+  private int historyIndex = 0;
+  private String draft = "";
+  // Rebuilt on the next call to line() after an edit
+  private Line line = Line.EMPTY;
+
+  /**
+   * An editor without history.
+   */
+  public LineEditor(int maxLength) {
+    this(maxLength, 0);
+  }
+
+  /**
+   * @param maxLength characters the line may hold; more typed or pasted are dropped
+   * @param historySize submitted lines kept to recall, oldest dropped first
+   */
+  public LineEditor(int maxLength, int historySize) {
+    if (maxLength <= 0 || historySize < 0) {
+      throw new IllegalArgumentException("maxLength " + maxLength + ", historySize " + historySize);
+    }
+    this.maxLength = maxLength;
+    this.historySize = historySize;
+  }
+
+  public String text() {
+    return line().text();
+  }
+
+  public int length() {
+    return buffer.length();
+  }
+
+  public boolean isEmpty() {
+    return buffer.length() == 0;
+  }
+
+  public int cursor() {
+    return buffer.position();
+  }
+
+  /**
+   * The text and cursor as an immutable value, the same instance until the next edit.
+   */
+  public Line line() {
+    if (line == null) {
+      line = new Line(buffer.toString(), buffer.position());
+    }
+    return line;
+  }
+
+  /**
+   * Applies an editing key.
+   *
+   * @return false if the key is not an editing key, so the caller may handle it
+   */
+  public boolean handle(KeyStroke key) {
+    boolean ctrl = key.isCtrlDown();
+    boolean alt = key.isAltDown();
+    switch (key.getKeyType()) {
+      case Character -> {
+        char c = key.getCharacter();
+        if (ctrl) return handleControl(c);
+        if (alt) return handleAlt(c);
+        insert(c);
+      }
+      case Backspace -> {
+        if (ctrl || alt) {
+          deleteWordBefore();
+        } else {
+          deleteBefore(cursor() - previousCodePoint());
+        }
+      }
+      case Delete -> {
+        if (ctrl || alt) {
+          deleteWordAfter();
+        } else {
+          deleteAfter(nextCodePoint() - cursor());
+        }
+      }
+      case ArrowLeft -> moveTo(ctrl || alt ? wordStartBefore() : previousCodePoint());
+      case ArrowRight -> moveTo(ctrl || alt ? wordEndAfter() : nextCodePoint());
+      case Home -> moveTo(0);
+      case End -> moveTo(length());
+      case ArrowUp -> {
+        if (historySize == 0) return false;
+        previousEntry();
+      }
+      case ArrowDown -> {
+        if (historySize == 0) return false;
+        nextEntry();
+      }
+      default -> {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean handleControl(char c) {
+    switch (Character.toLowerCase(c)) {
+      case 'a' -> moveTo(0);
+      case 'e' -> moveTo(length());
+      case 'b' -> moveTo(previousCodePoint());
+      case 'f' -> moveTo(nextCodePoint());
+      case 'd' -> deleteAfter(nextCodePoint() - cursor());
+      case 'h' -> deleteBefore(cursor() - previousCodePoint());
+      case 'w' -> deleteWordBefore();
+      case 'u' -> deleteBefore(cursor());
+      case 'k' -> deleteAfter(length() - cursor());
+      case 'p' -> {
+        if (historySize == 0) return false;
+        previousEntry();
+      }
+      case 'n' -> {
+        if (historySize == 0) return false;
+        nextEntry();
+      }
+      default -> {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean handleAlt(char c) {
+    switch (Character.toLowerCase(c)) {
+      case 'b' -> moveTo(wordStartBefore());
+      case 'f' -> moveTo(wordEndAfter());
+      case 'd' -> deleteWordAfter();
+      default -> {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Inserts text at the cursor in one edit, as a paste does. The input is one line: line
+   * breaks and tabs become spaces, a CR LF pair a single space, and other control characters
+   * are dropped. Whatever does not fit in the maximum length is dropped too.
+   */
+  public void insert(CharSequence text) {
+    int room = maxLength - buffer.length();
+    int start = 0;
+    for (int i = 0; i < text.length() && room > 0; i++) {
+      char c = text.charAt(i);
+      if (!Character.isISOControl(c)) continue;
+      int end = Math.min(i, start + room);
+      int kept = fitting(text, start, end);
+      buffer.insert(text, start, kept);
+      // A pair cut off at the limit fills the line
+      room = kept < end ? 0 : room - (end - start);
+      start = i + 1;
+      if (room > 0 && (c == '\n' || c == '\t' || (c == '\r' && !next(text, i, '\n')))) {
+        buffer.insert(' ');
+        room--;
+      }
+    }
+    if (room > 0 && start < text.length()) {
+      buffer.insert(text, start, fitting(text, start, Math.min(text.length(), start + room)));
+    }
+    line = null;
+  }
+
+  // Backs end off the middle of a surrogate pair, so a cut paste keeps whole code points
+  private static int fitting(CharSequence text, int start, int end) {
+    if (end > start && end < text.length()
+            && Character.isHighSurrogate(text.charAt(end - 1)) && Character.isLowSurrogate(text.charAt(end))) {
+      return end - 1;
+    }
+    return end;
+  }
+
+  private static boolean next(CharSequence text, int i, char c) {
+    return i + 1 < text.length() && text.charAt(i + 1) == c;
+  }
+
+  private void insert(char c) {
+    if (buffer.length() < maxLength && !Character.isISOControl(c)) {
+      buffer.insert(c);
+      line = null;
+    }
+  }
+
+  public void clear() {
+    buffer.clear();
+    historyIndex = history.size();
+    draft = "";
+    line = Line.EMPTY;
+  }
+
+  /**
+   * Takes the line as entered: records it in the history unless it repeats the last entry,
+   * and leaves the editor empty.
+   */
+  public String submit() {
+    String text = text();
+    if (historySize > 0 && !text.isBlank()
+            && (history.isEmpty() || !history.get(history.size() - 1).equals(text))) {
+      if (history.size() == historySize) {
+        history.remove(0);
+      }
+      history.add(text);
+    }
+    clear();
+    return text;
+  }
+
+  private void previousEntry() {
+    if (historyIndex == 0) return;
+    if (historyIndex == history.size()) {
+      draft = text();
+    }
+    historyIndex--;
+    replace(history.get(historyIndex));
+  }
+
+  private void nextEntry() {
+    if (historyIndex == history.size()) return;
+    historyIndex++;
+    replace(historyIndex == history.size() ? draft : history.get(historyIndex));
+  }
+
+  private void replace(String text) {
+    buffer.clear();
+    buffer.insert(text, 0, Math.min(text.length(), maxLength));
+    line = null;
+  }
+
+  private void moveTo(int index) {
+    int target = Math.max(0, Math.min(length(), index));
+    if (target != cursor()) {
+      buffer.moveTo(target);
+      line = null;
+    }
+  }
+
+  private void deleteBefore(int count) {
+    if (count > 0 && cursor() > 0) {
+      buffer.deleteBefore(count);
+      line = null;
+    }
+  }
+
+  private void deleteAfter(int count) {
+    if (count > 0 && cursor() < length()) {
+      buffer.deleteAfter(count);
+      line = null;
+    }
+  }
+
+  private void deleteWordBefore() {
+    deleteBefore(cursor() - wordStartBefore());
+  }
+
+  private void deleteWordAfter() {
+    deleteAfter(wordEndAfter() - cursor());
+  }
+
+  /**
+   * Start of the code point before the cursor, so a surrogate pair moves and deletes as one.
+   */
+  private int previousCodePoint() {
+    int i = cursor();
+    if (i == 0) return 0;
+    i--;
+    if (i > 0 && Character.isLowSurrogate(buffer.charAt(i)) && Character.isHighSurrogate(buffer.charAt(i - 1))) i--;
+    return i;
+  }
+
+  /**
+   * End of the code point after the cursor.
+   */
+  private int nextCodePoint() {
+    int i = cursor();
+    int length = length();
+    if (i == length) return length;
+    i++;
+    if (i < length && Character.isHighSurrogate(buffer.charAt(i - 1)) && Character.isLowSurrogate(buffer.charAt(i))) i++;
+    return i;
+  }
+
+  /**
+   * Start of the word before the cursor, skipping the separators in between.
+   */
+  private int wordStartBefore() {
+    int i = cursor();
+    while (i > 0 && !isWordChar(buffer.charAt(i - 1))) i--;
+    while (i > 0 && isWordChar(buffer.charAt(i - 1))) i--;
+    return i;
+  }
+
+  /**
+   * End of the word after the cursor, skipping the separators in between.
+   */
+  private int wordEndAfter() {
+    int i = cursor();
+    int length = length();
+    while (i < length && !isWordChar(buffer.charAt(i))) i++;
+    while (i < length && isWordChar(buffer.charAt(i))) i++;
+    return i;
+  }
+
+  private static boolean isWordChar(char c) {
+    return Character.isLetterOrDigit(c) || c == '_';
+  }
+}
@@ -0,0 +1,337 @@
+package io.olmosjt.client.ui.layout;
+
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.store.MessageStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Channel scrollback laid out into visual rows.
+ * <p>
+ * Messages are kept as they arrive in a compact {@link MessageStore}. Only those the renderer
+ * reaches for are formatted and wrapped, and the results are cached by sequence in a small
+ * table, so drawing the visible window is a slice of cached rows however much is retained.
+ * Scrolling moves a (message sequence, row) anchor by visual rows, so long wrapped messages
+ * scroll smoothly.
+ * <p>
+ * Older messages loaded from history can be put in front with {@link #prependAll}. They take
+ * the sequence numbers just below the store's oldest entry. Once the store drops entries,
+ * the prepended block would no longer be adjacent, so it is discarded and further prepends
+ * are refused until the next {@link #clear}.
+ * <p>
+ * {@link #append}, {@link #appendAll}, {@link #prependAll}, {@link #scroll} and {@link #clear}
+ * are called from the thread that owns the view's state; everything else from the render
+ * thread. Scrolling is requested by the former and carried out by the latter, which knows
+ * the layout.
+ */
+public final class ScrollbackView {
+  private record OlderPage(long generation, List<Message> messages) { }
+
+  // Formatted messages cached by the render thread, direct-mapped by sequence
+  private static final int CACHE_SIZE = 1024;
+
+  private final MessageStore messages;
+  private final Function<Message, String> formatter;
+
+  // Bottom visible row while scrolled back; prepended messages have negative sequences
+  private volatile boolean following = true;
+  private volatile long anchorSeq = 0;
+  private volatile int anchorRow = 0;
+  // Visual rows to move by, requested but not yet applied
+  private final AtomicInteger pendingScroll = new AtomicInteger();
+
+  // Bumped by clear() so the render thread drops state from before it
+  private volatile long generation = 0;
+  private final Queue<OlderPage> pendingOlder = new ConcurrentLinkedQueue<>();
+
+  // Owned by the render thread: prepended messages, newest first, sitting below store sequence olderTop
+  private final List<Message> older = new ArrayList<>();
+  private long olderTop = 0;
+  private long seenGeneration = 0;
+  private boolean detached = false;
+  // Width the renderer last asked for; messages are wrapped for it when first cached
+  private int wrapWidth = 74;
+  private final long[] cachedSequences = new long[CACHE_SIZE];
+  private final WrappedMessage[] cached = new WrappedMessage[CACHE_SIZE];
+
+  private record Position(long seq, int row) {
+    boolean before(Position other) {
+      return seq < other.seq || (seq == other.seq && row < other.row);
+    }
+  }
+
+  /**
+   * @param messages where arriving messages are kept
+   * @param formatter turns a message into the text drawn for it
+   */
+  public ScrollbackView(MessageStore messages, Function<Message, String> formatter) {
+    this.messages = messages;
+    this.formatter = formatter;
+    Arrays.fill(cachedSequences, Long.MIN_VALUE);
+  }
+
+  // --- Producer ---
+
+  public void append(Message message) {
+    messages.append(message);
+  }
+
+  public void appendAll(List<Message> batch) {
+    messages.appendAll(batch);
+  }
+
+  /**
+   * Puts older messages, oldest first, in front of everything shown so far. Applied by the
+   * render thread on its next call.
+   */
+  public void prependAll(List<Message> batch) {
+    if (batch.isEmpty()) return;
+    pendingOlder.add(new OlderPage(generation, List.copyOf(batch)));
+  }
+
+  /**
+   * Moves the view by {@code delta} visual rows (negative scrolls back). Applied by the
+   * render thread on its next {@link #applyScroll}.
+   */
+  public void scroll(int delta) {
+    pendingScroll.addAndGet(delta);
+  }
+
+  public void clear() {
+    messages.clear();
+    pendingScroll.set(0);
+    following = true;
+    generation++;
+  }
+
+  // --- Renderer ---
+
+  public boolean isFollowing() {
+    return following;
+  }
+
+  /**
+   * Returns up to {@code height} visual rows ending at the current scroll position,
+   * oldest first, wrapped to {@code width} columns.
+   */
+  public List<String> visibleRows(int width, int height) {
+    syncOlder(width);
+    List<String> rows = new ArrayList<>(height);
+    if (isEmpty() || height <= 0) return rows;
+
+    Position bottom = bottom(width);
+    long first = firstSequence();
+    long seq = bottom.seq();
+    int row = bottom.row();
+
+    // Walk backwards from the bottom row, then reverse
+    while (rows.size() < height && seq >= first) {
+      WrappedMessage message = message(seq);
+      if (message == null) break; // Overwritten while we were reading
+      String[] messageRows = message.rows(width);
+      for (int i = Math.min(row, messageRows.length - 1); i >= 0 && rows.size() < height; i--) {
+        rows.add(messageRows[i]);
+      }
+      seq--;
+      row = Integer.MAX_VALUE;
+    }
+    return rows.reversed();
+  }
+
+  /**
+   * Number of messages below the visible window.
+   */
+  public long newerBelow(int width) {
+    syncOlder(width);
+    if (isEmpty()) return 0;
+    return messages.endSequence() - 1 - bottom(width).seq();
+  }
+
+  /**
+   * Carries out the scrolling requested since the last call. Scrolling back stops once the
+   * oldest row reaches the top; scrolling past the newest row resumes following new messages.
+   *
+   * @return true if it scrolled back and {@link #wantsOlder} holds
+   */
+  public boolean applyScroll(int width, int height) {
+    int delta = pendingScroll.getAndSet(0);
+    if (delta == 0) return false;
+    moveBy(delta, width, height);
+    return delta < 0 && wantsOlder(width, height);
+  }
+
+  private void moveBy(int delta, int width, int height) {
+    syncOlder(width);
+    if (isEmpty()) return;
+
+    Position newest = newest(width);
+    Position target = move(bottom(width), delta, width);
+    Position oldestBottom = oldestBottom(width, height);
+
+    if (target.before(oldestBottom)) {
+      target = oldestBottom;
+    }
+    if (!target.before(newest)) {
+      following = true;
+    } else {
+      anchorRow = target.row();
+      anchorSeq = target.seq();
+      following = false;
+    }
+  }
+
+  /**
+   * True when the oldest row held is on screen and older messages could still be put in
+   * front, i.e. when it is time to load the previous page of history.
+   */
+  public boolean wantsOlder(int width, int height) {
+    syncOlder(width);
+    if (detached || !pendingOlder.isEmpty()) return false;
+    if (isEmpty()) return true;
+    return !oldestBottom(width, height).before(bottom(width));
+  }
+
+  // --- Sequence space: prepended messages below the store ---
+
+  /**
+   * Applies prepended pages and drops the prepended block once it is stale.
+   */
+  private void syncOlder(int width) {
+    wrapWidth = width;
+    if (generation != seenGeneration) {
+      seenGeneration = generation;
+      dropOlder();
+      detached = false;
+    }
+
+    long ringStart = messages.startSequence();
+    if (!older.isEmpty() && ringStart != olderTop) {
+      // The store dropped entries, so the block is no longer adjacent
+      dropOlder();
+      detached = true;
+    }
+
+    OlderPage page;
+    while ((page = pendingOlder.poll()) != null) {
+      if (page.generation() != seenGeneration || detached) continue;
+      if (messages.size() + older.size() + page.messages().size() > messages.capacity()) {
+        detached = true; // Full; keep what is held
+        continue;
+      }
+      if (older.isEmpty()) {
+        // Sequences below the store may still be cached for messages it has since dropped
+        dropOlder();
+        olderTop = ringStart;
+      }
+      older.addAll(page.messages().reversed());
+    }
+  }
+
+  /**
+   * Forgets the prepended block, and what was cached for its sequences, which a later block
+   * may reuse.
+   */
+  private void dropOlder() {
+    older.clear();
+    Arrays.fill(cachedSequences, Long.MIN_VALUE);
+    Arrays.fill(cached, null);
+  }
+
+  private boolean isEmpty() {
+    return messages.isEmpty() && older.isEmpty();
+  }
+
+  private long firstSequence() {
+    return messages.startSequence() - older.size();
+  }
+
+  /**
+   * The message with the given sequence, formatted and wrapped, or null if it is not held.
+   */
+  private WrappedMessage message(long seq) {
+    long ringStart = messages.startSequence();
+    if (seq < ringStart - older.size() || seq >= messages.endSequence()) {
+      return null;
+    }
+    int slot = (int) (seq & (CACHE_SIZE - 1));
+    if (cachedSequences[slot] == seq) {
+      return cached[slot];
+    }
+
+    Message message = seq >= ringStart ? messages.get(seq) : older.get((int) (ringStart - 1 - seq));
+    if (message == null) return null; // Overwritten while we were reading
+    WrappedMessage wrapped = new WrappedMessage(formatter.apply(message), wrapWidth);
+    cachedSequences[slot] = seq;
+    cached[slot] = wrapped;
+    return wrapped;
+  }
+
+  private Position oldestBottom(int width, int height) {
+    return move(new Position(firstSequence(), 0), height - 1, width);
+  }
+
+  private Position bottom(int width) {
+    if (following) {
+      return newest(width);
+    }
+    long seq = anchorSeq;
+    int row = anchorRow;
+    long end = messages.endSequence();
+    if (seq >= end) {
+      return newest(width);
+    }
+    long first = firstSequence();
+    if (seq < first) {
+      // The anchor scrolled out of the retained history
+      return new Position(first, 0);
+    }
+    return new Position(seq, row);
+  }
+
+  private Position newest(int width) {
+    long seq = messages.endSequence() - 1;
+    WrappedMessage message = message(seq);
+    return new Position(seq, message == null ? 0 : message.rows(width).length - 1);
+  }
+
+  /**
+   * Moves a position by a number of visual rows, clamped to the retained messages.
+   */
+  private Position move(Position from, int delta, int width) {
+    long first = firstSequence();
+    long last = messages.endSequence() - 1;
+    long seq = from.seq();
+    WrappedMessage current = message(seq);
+    // The anchor row may be past the end of its message after a resize
+    int row = current == null ? 0 : Math.min(from.row(), current.rows(width).length - 1);
+
+    while (delta > 0) {
+      WrappedMessage message = message(seq);
+      int rowCount = message == null ? 1 : message.rows(width).length;
+      int step = Math.min(delta, rowCount - 1 - row);
+      row += step;
+      delta -= step;
+      if (delta == 0 || seq >= last) break;
+      seq++;
+      row = 0;
+      delta--;
+    }
+    while (delta < 0) {
+      int step = Math.min(-delta, row);
+      row -= step;
+      delta += step;
+      if (delta == 0 || seq <= first) break;
+      seq--;
+      WrappedMessage message = message(seq);
+      row = message == null ? 0 : message.rows(width).length - 1;
+      delta++;
+    }
+    return new Position(seq, row);
+  }
+}
@@ -0,0 +1,70 @@
+package io.olmosjt.client.ui.layout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Greedy word wrapping measured in terminal columns.
+ */
+public final class TextWrapper {
+  private static final String[] EMPTY_LINE = {""};
+
+  private TextWrapper() { }
+
+  /**
+   * Splits text into visual rows no wider than {@code width} columns. Rows break after the
+   * last space that fits; words longer than a row are broken mid-word. Embedded newlines
+   * always start a new row.
+   */
+  public static String[] wrap(String text, int width) {
+    if (text.isEmpty()) return EMPTY_LINE;
+    if (width <= 0) return new String[] {text};
+
+    List<String> rows = new ArrayList<>(2);
+    int rowStart = 0;
+    int column = 0;
+    int lastBreak = -1; // index just after the last space in the current row
+
+    for (int i = 0; i < text.length(); ) {
+      int codePoint = text.codePointAt(i);
+      int next = i + Character.charCount(codePoint);
+
+      if (codePoint == '\n') {
+        rows.add(text.substring(rowStart, i));
+        rowStart = next;
+        column = 0;
+        lastBreak = -1;
+        i = next;
+        continue;
+      }
+
+      int charWidth = DisplayWidth.of(codePoint);
+      if (column + charWidth > width && i > rowStart) {
+        if (lastBreak > rowStart) {
+          rows.add(stripTrailingSpaces(text, rowStart, lastBreak));
+          rowStart = lastBreak;
+          column = DisplayWidth.of(text, rowStart, i);
+        } else {
+          rows.add(text.substring(rowStart, i));
+          rowStart = i;
+          column = 0;
+        }
+        lastBreak = -1;
+      }
+
+      column += charWidth;
+      if (codePoint == ' ') {
+        lastBreak = next;
+      }
+      i = next;
+    }
+    rows.add(text.substring(rowStart));
+
+    return rows.toArray(new String[0]);
+  }
+
+  private static String stripTrailingSpaces(String text, int start, int end) {
+    while (end > start && text.charAt(end - 1) == ' ') end--;
+    return text.substring(start, end);
+  }
+}
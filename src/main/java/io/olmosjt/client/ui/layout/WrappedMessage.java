@@ -0,0 +1,31 @@
+package io.olmosjt.client.ui.layout;
+
+/**
+ * A formatted chat line together with its cached visual rows.
+ * The rows are computed for the wrap width current when the line is first drawn and only
+ * recomputed when it is drawn at a different width. Only the render thread may call
+ * {@link #rows(int)}.
+ */
+public final class WrappedMessage {
+  private final String text;
+  private int width;
+  private String[] rows;
+
+  public WrappedMessage(String text, int width) {
+    this.text = text;
+    this.width = width;
+    this.rows = TextWrapper.wrap(text, width);
+  }
+
+  public String text() {
+    return text;
+  }
+
+  public String[] rows(int width) {
+    if (width != this.width) {
+      this.rows = TextWrapper.wrap(text, width);
+      this.width = width;
+    }
+    return rows;
+  }
+}
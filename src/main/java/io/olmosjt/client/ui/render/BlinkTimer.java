@@ -0,0 +1,77 @@
+package io.olmosjt.client.ui.render;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cursor blink as a timer of its own: the render loop asks when the next toggle is due and
+ * sleeps until then, instead of every draw deriving the phase from the wall clock.
+ * <p>
+ * A keystroke restarts the period with the cursor shown, as editors do, so the cursor never
+ * disappears while typing. Stopping leaves it shown and schedules nothing.
+ * Used by the render thread only.
+ */
+public final class BlinkTimer {
+  private final long halfPeriodNanos;
+
+  private boolean visible = true;
+  private boolean running = false;
+  private long nextToggleNanos;
+
+  public BlinkTimer(long periodMillis) {
+    this.halfPeriodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis) / 2;
+  }
+
+  public boolean visible() {
+    return visible;
+  }
+
+  /**
+   * Shows the cursor and starts a new period.
+   *
+   * @return true if the cursor was hidden
+   */
+  public boolean restart(long now) {
+    boolean changed = !visible;
+    visible = true;
+    running = true;
+    nextToggleNanos = now + halfPeriodNanos;
+    return changed;
+  }
+
+  /**
+   * Shows the cursor and stops blinking.
+   *
+   * @return true if the cursor was hidden
+   */
+  public boolean stop() {
+    boolean changed = !visible;
+    visible = true;
+    running = false;
+    return changed;
+  }
+
+  public boolean running() {
+    return running;
+  }
+
+  /**
+   * Toggles the cursor if a toggle is due.
+   *
+   * @return true if the cursor changed
+   */
+  public boolean advance(long now) {
+    if (!running || now - nextToggleNanos < 0) return false;
+    visible = !visible;
+    // Skip whole periods missed while the loop was busy rather than flickering to catch up
+    long late = now - nextToggleNanos;
+    nextToggleNanos = now + halfPeriodNanos - late % halfPeriodNanos;
+    return true;
+  }
+
+  /**
+   * @return nanoseconds until the next toggle, or {@link Long#MAX_VALUE} while stopped
+   */
+  public long untilNextToggle(long now) {
+    return running ? Math.max(0, nextToggleNanos - now) : Long.MAX_VALUE;
+  }
+}
@@ -0,0 +1,117 @@
+package io.olmosjt.client.ui.render;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe set of screen regions that need repainting.
+ * Any thread may invalidate regions; the render loop blocks in {@link #awaitWork(long)}
+ * until something is dirty (or it is woken for other work such as key input) and then
+ * drains the set.
+ */
+public final class DirtyRegions {
+  private static final int ALL = (1 << Region.values().length) - 1;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+
+  private int mask = 0;
+  private boolean woken = false;
+
+  public void mark(Region region) {
+    signal(region.bit());
+  }
+
+  public void mark(Region first, Region... rest) {
+    int bits = first.bit();
+    for (Region region : rest) {
+      bits |= region.bit();
+    }
+    signal(bits);
+  }
+
+  public void mark(Set<Region> regions) {
+    int bits = 0;
+    for (Region region : regions) {
+      bits |= region.bit();
+    }
+    signal(bits);
+  }
+
+  public void markAll() {
+    signal(ALL);
+  }
+
+  /**
+   * Wakes the render loop without invalidating anything, e.g. when input is pending.
+   */
+  public void wake() {
+    lock.lock();
+    try {
+      woken = true;
+      changed.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Blocks until a region is dirty, {@link #wake()} is called, or the timeout elapses.
+   */
+  public void awaitWork(long timeoutMillis) throws InterruptedException {
+    long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    lock.lock();
+    try {
+      while (mask == 0 && !woken && remaining > 0) {
+        remaining = changed.awaitNanos(remaining);
+      }
+      woken = false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public boolean isEmpty() {
+    lock.lock();
+    try {
+      return mask == 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the dirty regions and resets the set.
+   */
+  public Set<Region> drain() {
+    int bits;
+    lock.lock();
+    try {
+      bits = mask;
+      mask = 0;
+    } finally {
+      lock.unlock();
+    }
+
+    EnumSet<Region> regions = EnumSet.noneOf(Region.class);
+    for (Region region : Region.values()) {
+      if ((bits & region.bit()) != 0) {
+        regions.add(region);
+      }
+    }
+    return regions;
+  }
+
+  private void signal(int bits) {
+    lock.lock();
+    try {
+      mask |= bits;
+      changed.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package io.olmosjt.client.ui.render;
+
+import io.olmosjt.client.metrics.ClientMetrics;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces the render loop.
+ * <p>
+ * Invalidations only mark {@link DirtyRegions}, so however many messages arrive between two
+ * frames they are painted together. This class adds a floor on the time between frames: while
+ * messages flood in, the loop paints at most {@code maxFps} frames a second and applies
+ * everything that arrived in between to the next one. A frame that is due after a quiet spell
+ * is painted at once, so typing stays immediate.
+ * <p>
+ * When no event has been applied for {@code idleAfter}, the window counts as idle: periodic
+ * work such as the cursor blink stops and the loop only wakes at {@code idleFps} for the
+ * clock. The next event ends the idle spell.
+ * <p>
+ * Frames painted and events applied are counted in {@link ClientMetrics}; their ratio shows
+ * how much coalescing saved.
+ */
+public final class FrameScheduler {
+  private final long minFrameNanos;
+  private final long idleWakeNanos;
+  private final long idleAfterNanos;
+
+  private volatile long lastEventNanos = System.nanoTime();
+  // Render thread only
+  private long lastFrameNanos = Long.MIN_VALUE / 2;
+
+  /**
+   * Reads {@code termitalk.maxFps} (default 60), {@code termitalk.idleFps} (default 1) and
+   * {@code termitalk.idleAfter} in milliseconds (default 5000).
+   */
+  public FrameScheduler() {
+    this(Double.parseDouble(System.getProperty("termitalk.maxFps", "60")),
+            Double.parseDouble(System.getProperty("termitalk.idleFps", "1")),
+            Duration.ofMillis(Long.getLong("termitalk.idleAfter", 5000)));
+  }
+
+  public FrameScheduler(double maxFps, double idleFps, Duration idleAfter) {
+    if (maxFps <= 0 || idleFps <= 0) {
+      throw new IllegalArgumentException("Frame rates must be positive");
+    }
+    this.minFrameNanos = (long) (TimeUnit.SECONDS.toNanos(1) / maxFps);
+    this.idleWakeNanos = (long) (TimeUnit.SECONDS.toNanos(1) / idleFps);
+    this.idleAfterNanos = idleAfter.toNanos();
+  }
+
+  /**
+   * Records events applied to the view state (messages, keystrokes, state changes). Any
+   * thread may call this.
+   */
+  public void eventsApplied(int count) {
+    ClientMetrics.UI_EVENTS.add(count);
+    lastEventNanos = System.nanoTime();
+  }
+
+  public boolean isIdle(long now) {
+    return now - lastEventNanos >= idleAfterNanos;
+  }
+
+  /**
+   * @return nanoseconds until the next frame may be painted, zero or less if it may be now
+   */
+  public long untilNextFrame(long now) {
+    return lastFrameNanos + minFrameNanos - now;
+  }
+
+  public void framePainted(long now) {
+    lastFrameNanos = now;
+    ClientMetrics.FRAMES.increment();
+  }
+
+  /**
+   * How often the clock is repainted: every second, or less often while idle if the idle rate
+   * is below 1 Hz.
+   */
+  public long clockPeriodNanos(long now) {
+    long second = TimeUnit.SECONDS.toNanos(1);
+    return isIdle(now) ? Math.max(second, idleWakeNanos) : second;
+  }
+}
@@ -0,0 +1,18 @@
+package io.olmosjt.client.ui.render;
+
+/**
+ * Independently repaintable areas of the TUI screen.
+ */
+public enum Region {
+  FRAME,    // borders and title; repainting it implies every other region
+  STATUS,   // clock and connection status line
+  CONTENT,  // main body of the current screen (login form, room list, messages, dialogs)
+  TABS,     // the row of joined rooms at the top of the body; part of CONTENT
+  FEEDBACK, // transient feedback bar
+  INPUT,    // the line the user is currently typing on
+  FOOTER;   // key hints at the bottom
+
+  final int bit() {
+    return 1 << ordinal();
+  }
+}
@@ -0,0 +1,8 @@
+package io.olmosjt.client.ui.router;
+
+import io.olmosjt.client.model.Message;
+
+@FunctionalInterface
+public interface ResponseHandler {
+  void handle(Message message);
+}
@@ -0,0 +1,137 @@
+package io.olmosjt.client.ui.router;
+
+import io.olmosjt.client.model.Message;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Dispatches server responses to handlers by their content.
+ * <p>
+ * Routes are tried in this order: exact matches, then prefixes (longest first, looked up in
+ * a character trie so the cost depends on the prefix length rather than the number of
+ * routes), then "contains" routes in registration order, and finally the fallback.
+ * A prefix route may carry a guard; if the guard rejects the content, shorter prefixes and
+ * later routes are still tried.
+ */
+public final class ResponseRouter {
+
+  private record Route(Predicate<String> guard, ResponseHandler handler) { }
+
+  private static final class Node {
+    private char[] keys = new char[0];
+    private Node[] children = new Node[0];
+    private final List<Route> routes = new ArrayList<>(1);
+
+    Node child(char key) {
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] == key) return children[i];
+      }
+      return null;
+    }
+
+    Node childOrCreate(char key) {
+      Node existing = child(key);
+      if (existing != null) return existing;
+      keys = Arrays.copyOf(keys, keys.length + 1);
+      children = Arrays.copyOf(children, children.length + 1);
+      keys[keys.length - 1] = key;
+      return children[children.length - 1] = new Node();
+    }
+  }
+
+  private final Map<String, ResponseHandler> exact = new HashMap<>();
+  private final Node prefixes = new Node();
+  private final List<String> fragments = new ArrayList<>();
+  private final List<ResponseHandler> fragmentHandlers = new ArrayList<>();
+  private ResponseHandler fallback;
+
+  public ResponseRouter onExact(String content, ResponseHandler handler) {
+    exact.put(content, handler);
+    return this;
+  }
+
+  public ResponseRouter onPrefix(String prefix, ResponseHandler handler) {
+    return onPrefix(prefix, null, handler);
+  }
+
+  /**
+   * Routes content starting with {@code prefix} and accepted by {@code guard}.
+   */
+  public ResponseRouter onPrefix(String prefix, Predicate<String> guard, ResponseHandler handler) {
+    Node node = prefixes;
+    for (int i = 0; i < prefix.length(); i++) {
+      node = node.childOrCreate(prefix.charAt(i));
+    }
+    node.routes.add(new Route(guard, handler));
+    return this;
+  }
+
+  public ResponseRouter onContains(String fragment, ResponseHandler handler) {
+    fragments.add(fragment);
+    fragmentHandlers.add(handler);
+    return this;
+  }
+
+  /**
+   * Handler for content no other route matches.
+   */
+  public ResponseRouter otherwise(ResponseHandler handler) {
+    this.fallback = handler;
+    return this;
+  }
+
+  /**
+   * @return true if a route (including the fallback) handled the message
+   */
+  public boolean route(Message message) {
+    String content = message.content();
+
+    ResponseHandler handler = exact.get(content);
+    if (handler != null) {
+      handler.handle(message);
+      return true;
+    }
+
+    if (routePrefix(prefixes, content, 0, message)) {
+      return true;
+    }
+
+    for (int i = 0; i < fragments.size(); i++) {
+      if (content.contains(fragments.get(i))) {
+        fragmentHandlers.get(i).handle(message);
+        return true;
+      }
+    }
+
+    if (fallback != null) {
+      fallback.handle(message);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Descends as far as the content matches, then tries routes on the way back up so the
+   * longest matching prefix wins.
+   */
+  private static boolean routePrefix(Node node, String content, int depth, Message message) {
+    if (depth < content.length()) {
+      Node child = node.child(content.charAt(depth));
+      if (child != null && routePrefix(child, content, depth + 1, message)) {
+        return true;
+      }
+    }
+    for (Route route : node.routes) {
+      if (route.guard() == null || route.guard().test(content)) {
+        route.handler().handle(message);
+        return true;
+      }
+    }
+    return false;
+  }
+}
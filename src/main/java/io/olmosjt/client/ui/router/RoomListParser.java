@@ -0,0 +1,41 @@
+package io.olmosjt.client.ui.router;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the comma-separated room list of an "Available rooms:" response by index,
+ * creating one String per room and nothing else.
+ */
+public final class RoomListParser {
+
+  private RoomListParser() { }
+
+  /**
+   * @param content the full response content
+   * @param from index where the list starts (just after the prefix)
+   * @return the trimmed, non-empty room entries in order
+   */
+  public static List<String> parse(String content, int from) {
+    List<String> rooms = new ArrayList<>();
+    int length = content.length();
+    int start = from;
+
+    while (start <= length) {
+      int comma = content.indexOf(',', start);
+      int end = comma < 0 ? length : comma;
+
+      int first = start;
+      int last = end;
+      while (first < last && Character.isWhitespace(content.charAt(first))) first++;
+      while (last > first && Character.isWhitespace(content.charAt(last - 1))) last--;
+      if (first < last) {
+        rooms.add(content.substring(first, last));
+      }
+
+      if (comma < 0) break;
+      start = comma + 1;
+    }
+    return rooms;
+  }
+}
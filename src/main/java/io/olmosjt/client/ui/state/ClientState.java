@@ -4,5 +4,6 @@ public enum ClientState {
   DISCONNECTED,
   CONNECTING,
   AWAITING_LOGIN,
-  AUTHENTICATED;
+  AUTHENTICATED,
+  RECONNECTING;
 }
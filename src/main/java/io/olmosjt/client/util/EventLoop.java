@@ -0,0 +1,224 @@
+package io.olmosjt.client.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One thread that owns some state and runs every task touching it, one at a time, in the
+ * order they were posted.
+ * <p>
+ * Any thread may post a task with {@link #execute}, or a timer with {@link #schedule}; tasks
+ * go through an {@link MpscQueue}, so posting never blocks. The loop thread takes tasks and
+ * due timers in batches, and after each batch runs the hooks registered with
+ * {@link #onBatchEnd}, which is where a view publishes what the batch changed. State only
+ * touched by tasks needs no locks or volatile fields, and given the same tasks in the same
+ * order it ends up the same, whichever threads posted them.
+ * <p>
+ * A loop is either started on a virtual thread of its own with {@link #start}, or driven by
+ * the first thread that calls {@link #runPending}, as benchmarks do to run tasks
+ * synchronously. A task that throws is logged and the loop carries on.
+ */
+public final class EventLoop implements Executor {
+  // Tasks run before the batch hooks get a turn, so a flood still gets published in steps
+  private static final int MAX_BATCH = 256;
+
+  private record Timer(long dueNanos, long order, Runnable task) { }
+
+  private static final Comparator<Timer> BY_DUE =
+          Comparator.comparingLong(Timer::dueNanos).thenComparingLong(Timer::order);
+
+  private final String name;
+  private final MpscQueue<Runnable> tasks = new MpscQueue<>();
+  private final List<Runnable> batchHooks = new CopyOnWriteArrayList<>();
+
+  // Loop thread only
+  private final PriorityQueue<Timer> timers = new PriorityQueue<>(BY_DUE);
+  private final List<Runnable> afterBatch = new ArrayList<>();
+  private long timerOrder;
+
+  private volatile Thread owner;
+  private volatile boolean parked;
+  private volatile boolean stopped;
+
+  public EventLoop(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Starts the loop on a virtual thread of its own.
+   */
+  public synchronized EventLoop start() {
+    if (owner != null) {
+      throw new IllegalStateException(name + " is already running");
+    }
+    Thread thread = Thread.ofVirtual().name(name).unstarted(this::run);
+    owner = thread;
+    thread.start();
+    return this;
+  }
+
+  /**
+   * Stops taking tasks. Tasks still queued are dropped, and so are any posted later.
+   */
+  public void shutdown() {
+    stopped = true;
+    wakeUp();
+  }
+
+  /**
+   * True on the loop thread, where loop-owned state may be touched directly.
+   */
+  public boolean inLoop() {
+    return Thread.currentThread() == owner;
+  }
+
+  /**
+   * Posts a task to run on the loop thread after those posted before it.
+   */
+  @Override
+  public void execute(Runnable task) {
+    if (stopped) return;
+    tasks.offer(task);
+    if (parked) {
+      wakeUp();
+    }
+  }
+
+  /**
+   * Runs a task on the loop thread once the delay has passed. Timers due at the same time run
+   * in the order they were scheduled.
+   */
+  public void schedule(long delay, TimeUnit unit, Runnable task) {
+    long dueNanos = System.nanoTime() + unit.toNanos(delay);
+    if (inLoop()) {
+      timers.add(new Timer(dueNanos, timerOrder++, task));
+    } else {
+      execute(() -> timers.add(new Timer(dueNanos, timerOrder++, task)));
+    }
+  }
+
+  /**
+   * Registers a hook to run on the loop thread after every batch that ran at least one task.
+   */
+  public void onBatchEnd(Runnable hook) {
+    batchHooks.add(hook);
+  }
+
+  /**
+   * Waits until the tasks posted so far, and the batch hooks after them, have run, or returns
+   * at once if the loop was shut down. Must not be called from the loop thread.
+   */
+  public void flush() throws InterruptedException {
+    if (inLoop()) {
+      throw new IllegalStateException("flush() would wait for itself on " + name);
+    }
+    if (stopped) return;
+    CountDownLatch done = new CountDownLatch(1);
+    execute(() -> afterBatch.add(done::countDown));
+    if (owner == null) {
+      runPending();
+    }
+    // The task is dropped if the loop shuts down before reaching it
+    while (!done.await(100, TimeUnit.MILLISECONDS)) {
+      if (stopped) return;
+    }
+  }
+
+  /**
+   * Runs the tasks posted so far and the timers that are due, on the calling thread, which
+   * becomes the loop thread for good. For loops that are never started.
+   *
+   * @return the number of tasks and timers run
+   */
+  public int runPending() {
+    synchronized (this) {
+      if (owner == null) {
+        owner = Thread.currentThread();
+      } else if (!inLoop()) {
+        throw new IllegalStateException(name + " is driven by " + owner.getName());
+      }
+    }
+    int total = 0;
+    int ran;
+    while ((ran = runBatch()) > 0) {
+      total += ran;
+    }
+    return total;
+  }
+
+  private void run() {
+    while (!stopped) {
+      if (runBatch() == 0) {
+        park();
+      }
+    }
+  }
+
+  /**
+   * Runs the due timers, then queued tasks up to the batch limit, then the batch hooks.
+   */
+  private int runBatch() {
+    int ran = 0;
+    long now = System.nanoTime();
+    Timer timer;
+    while ((timer = timers.peek()) != null && timer.dueNanos() - now <= 0) {
+      timers.poll();
+      runSafely(timer.task());
+      ran++;
+    }
+    Runnable task;
+    while (ran < MAX_BATCH && !stopped && (task = tasks.poll()) != null) {
+      runSafely(task);
+      ran++;
+    }
+    if (ran == 0) return 0;
+
+    for (Runnable hook : batchHooks) {
+      runSafely(hook);
+    }
+    for (int i = 0; i < afterBatch.size(); i++) {
+      runSafely(afterBatch.get(i));
+    }
+    afterBatch.clear();
+    return ran;
+  }
+
+  /**
+   * Sleeps until a task is posted or the next timer is due. The flag is raised before the
+   * queue is checked again, so a producer that misses it has already made its task visible.
+   */
+  private void park() {
+    parked = true;
+    if (tasks.isEmpty() && !stopped) {
+      Timer next = timers.peek();
+      if (next == null) {
+        LockSupport.park(this);
+      } else {
+        LockSupport.parkNanos(this, next.dueNanos() - System.nanoTime());
+      }
+    }
+    parked = false;
+  }
+
+  private void wakeUp() {
+    Thread thread = owner;
+    if (thread != null) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  private void runSafely(Runnable task) {
+    try {
+      task.run();
+    } catch (RuntimeException e) {
+      LoggerUtil.error(() -> name + ": task failed: " + e);
+    }
+  }
+}
@@ -1,38 +1,365 @@
 package io.olmosjt.client.util;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
+/**
+ * Asynchronous, level-filtered logger.
+ * <p>
+ * Callers only check the level and add a record to a lock-free queue; a background thread
+ * formats records and writes them through a buffered {@link FileChannel} to a log file that
+ * is rotated by size. Nothing is printed to the terminal while the TUI owns it (see
+ * {@link #setTerminalActive}); console echo is opt-in otherwise.
+ * <p>
+ * Configuration, through system properties:
+ * <ul>
+ *   <li>{@code termitalk.log.level} - lowest level written (default INFO)</li>
+ *   <li>{@code termitalk.log.file} - log file (default termitalk.log)</li>
+ *   <li>{@code termitalk.log.maxBytes} - size at which the file is rotated (default 10 MB)</li>
+ *   <li>{@code termitalk.log.files} - rotated files kept (default 3)</li>
+ *   <li>{@code termitalk.log.console} - also echo to stderr when the TUI is not active</li>
+ * </ul>
+ */
 public class LoggerUtil {
   public enum Level {
-    INFO,
-    WARN,
-    ERROR,
-    DEBUG,
-    TRACE
+    INFO(2),
+    WARN(3),
+    ERROR(4),
+    DEBUG(1),
+    TRACE(0);
+
+    private final int severity;
+
+    Level(int severity) {
+      this.severity = severity;
+    }
   }
 
+  private record LogRecord(long epochMillis, Level level, String message) { }
+
   private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+  private static final int MAX_QUEUED = 64 * 1024;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final Queue<LogRecord> QUEUE = new ConcurrentLinkedQueue<>();
+  private static final AtomicInteger QUEUED = new AtomicInteger();
+  private static final AtomicLong DROPPED = new AtomicLong();
+
+  private static volatile Level threshold = parseLevel(System.getProperty("termitalk.log.level"));
+  private static volatile boolean terminalActive = false;
+  private static final boolean CONSOLE = Boolean.getBoolean("termitalk.log.console");
+
+  private static final Writer WRITER = new Writer(
+          Path.of(System.getProperty("termitalk.log.file", "termitalk.log")),
+          Long.getLong("termitalk.log.maxBytes", 10L * 1024 * 1024),
+          Integer.getInteger("termitalk.log.files", 3)
+  );
+
+  static {
+    Thread thread = Thread.ofPlatform().daemon().name("logger").unstarted(WRITER);
+    WRITER.thread = thread;
+    thread.start();
+    Runtime.getRuntime().addShutdownHook(new Thread(LoggerUtil::flush, "logger-shutdown"));
+  }
+
+  // --- Configuration ---
+
+  public static void setLevel(Level level) {
+    threshold = level;
+  }
+
+  public static boolean isEnabled(Level level) {
+    return level.severity >= threshold.severity;
+  }
+
+  /**
+   * Marks whether a full-screen UI is drawing on the terminal. While it is, console echo is
+   * suppressed so log lines can never corrupt the screen.
+   */
+  public static void setTerminalActive(boolean active) {
+    terminalActive = active;
+  }
+
+  /**
+   * Number of records waiting for the writer thread.
+   */
+  public static long queued() {
+    return QUEUED.get();
+  }
+
+  /**
+   * Number of records discarded because the queue was full.
+   */
+  public static long dropped() {
+    return DROPPED.get();
+  }
+
+  // --- Logging ---
 
   public static void log(Level level, String message) {
-    String timestamp = LocalDateTime.now().format(FORMATTER);
-    System.out.printf("[%s] [%s] %s%n", timestamp, level, message);
+    if (!isEnabled(level)) return;
+    if (QUEUED.incrementAndGet() > MAX_QUEUED) {
+      QUEUED.decrementAndGet();
+      DROPPED.incrementAndGet();
+      return;
+    }
+    QUEUE.offer(new LogRecord(System.currentTimeMillis(), level, message));
+    WRITER.wake();
+  }
+
+  /**
+   * Builds the message only if {@code level} is enabled.
+   */
+  public static void log(Level level, Supplier<String> message) {
+    if (isEnabled(level)) {
+      log(level, message.get());
+    }
   }
 
   public static void info(String message) {
     log(Level.INFO, message);
   }
 
+  public static void info(Supplier<String> message) {
+    log(Level.INFO, message);
+  }
+
   public static void warn(String message) {
     log(Level.WARN, message);
   }
 
+  public static void warn(Supplier<String> message) {
+    log(Level.WARN, message);
+  }
+
   public static void error(String message) {
     log(Level.ERROR, message);
   }
 
+  public static void error(Supplier<String> message) {
+    log(Level.ERROR, message);
+  }
+
   public static void debug(String message) {
     log(Level.DEBUG, message);
   }
 
+  public static void debug(Supplier<String> message) {
+    log(Level.DEBUG, message);
+  }
+
+  public static void trace(Supplier<String> message) {
+    log(Level.TRACE, message);
+  }
+
+  /**
+   * Waits (briefly) until everything logged so far is written out.
+   */
+  public static void flush() {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+    while (QUEUED.get() > 0 && System.nanoTime() < deadline) {
+      WRITER.wake();
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+    WRITER.requestFlush();
+    while (WRITER.flushRequested && System.nanoTime() < deadline) {
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+  }
+
+  private static Level parseLevel(String name) {
+    if (name == null) return Level.INFO;
+    try {
+      return Level.valueOf(name.trim().toUpperCase());
+    } catch (IllegalArgumentException e) {
+      return Level.INFO;
+    }
+  }
+
+  /**
+   * The background thread: formats queued records and appends them to the log file.
+   */
+  private static final class Writer implements Runnable {
+    private final Path file;
+    private final long maxBytes;
+    private final int maxFiles;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final StringBuilder line = new StringBuilder(256);
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private volatile Thread thread;
+    private volatile boolean parked = false;
+    private volatile boolean flushRequested = false;
+
+    private FileChannel channel;
+    private long fileSize;
+    private boolean fileFailed = false;
+
+    // Formatted timestamp, reused for every record within the same second
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedTimestamp;
+
+    Writer(Path file, long maxBytes, int maxFiles) {
+      this.file = file;
+      this.maxBytes = maxBytes;
+      this.maxFiles = Math.max(1, maxFiles);
+    }
+
+    void wake() {
+      if (parked) {
+        LockSupport.unpark(thread);
+      }
+    }
+
+    void requestFlush() {
+      flushRequested = true;
+      LockSupport.unpark(thread);
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        LogRecord record;
+        while ((record = QUEUE.poll()) != null) {
+          QUEUED.decrementAndGet();
+          write(record);
+        }
+        // Queue drained: push what we have to the file before sleeping
+        writeBuffer();
+        flushRequested = false;
+
+        parked = true;
+        if (QUEUE.isEmpty() && !flushRequested) {
+          LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(250));
+        }
+        parked = false;
+      }
+    }
+
+    private void write(LogRecord record) {
+      line.setLength(0);
+      line.append('[').append(timestamp(record.epochMillis())).append("] [")
+              .append(record.level()).append("] ")
+              .append(record.message())
+              .append(System.lineSeparator());
+      String text = line.toString();
+
+      if (CONSOLE && !terminalActive) {
+        System.err.print(text);
+      }
+
+      byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+      if (bytes.length > buffer.remaining()) {
+        writeBuffer();
+      }
+      if (bytes.length > buffer.capacity()) {
+        writeFully(ByteBuffer.wrap(bytes));
+      } else {
+        buffer.put(bytes);
+      }
+    }
+
+    private String timestamp(long epochMillis) {
+      long second = Math.floorDiv(epochMillis, 1000);
+      if (second != cachedSecond) {
+        cachedSecond = second;
+        cachedTimestamp = LocalDateTime.ofInstant(Instant.ofEpochSecond(second), zone).format(FORMATTER);
+      }
+      return cachedTimestamp;
+    }
+
+    private void writeBuffer() {
+      if (buffer.position() == 0) return;
+      buffer.flip();
+      writeFully(buffer);
+      buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) {
+      if (!ensureOpen()) return;
+      try {
+        if (fileSize + bytes.remaining() > maxBytes && fileSize > 0) {
+          rotate();
+        }
+        while (bytes.hasRemaining()) {
+          fileSize += channel.write(bytes);
+        }
+      } catch (IOException e) {
+        disable(e);
+      }
+    }
+
+    private boolean ensureOpen() {
+      if (channel != null) return true;
+      if (fileFailed) return false;
+      try {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+          Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileSize = channel.size();
+        return true;
+      } catch (IOException e) {
+        disable(e);
+        return false;
+      }
+    }
+
+    /**
+     * termitalk.log becomes termitalk.log.1, .1 becomes .2, and so on; the oldest is dropped.
+     */
+    private void rotate() throws IOException {
+      channel.close();
+      channel = null;
+      for (int i = maxFiles - 1; i >= 1; i--) {
+        Path from = i == 1 ? file : rotated(i - 1);
+        if (Files.exists(from)) {
+          Files.move(from, rotated(i), StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+      if (maxFiles == 1) {
+        Files.deleteIfExists(file);
+      }
+      if (!ensureOpen()) {
+        throw new IOException("Cannot reopen " + file);
+      }
+    }
+
+    private Path rotated(int index) {
+      return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void disable(IOException e) {
+      fileFailed = true;
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException ignored) {
+          // Already failing
+        }
+        channel = null;
+      }
+      if (!terminalActive) {
+        System.err.println("Logging to " + file + " disabled: " + e.getMessage());
+      }
+    }
+  }
 }
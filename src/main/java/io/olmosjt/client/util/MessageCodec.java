@@ -1,14 +1,36 @@
 package io.olmosjt.client.util;
 
+import io.olmosjt.client.metrics.ClientMetrics;
 import io.olmosjt.client.model.Message;
 import io.olmosjt.client.model.MessageType;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.util.Optional;
 
 public final class MessageCodec {
-  private static final String DELIMITER = "|";
-  private static final String DELIMITER_REGEX = "\\|";
+  private static final char DELIMITER = '|';
+
+  // Perfect hash of (token length, first character) -> MessageType; verified against the full name
+  private static final int MAX_TYPE_LENGTH = 15;
+  private static final MessageType[] TYPE_TABLE = new MessageType[(MAX_TYPE_LENGTH + 1) * 128];
+  private static final String[] TYPE_NAMES = new String[MessageType.values().length];
+
+  private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[256]);
+
+  static {
+    for (MessageType type : MessageType.values()) {
+      String name = type.name();
+      int slot = typeSlot(name.length(), name.charAt(0));
+      if (slot < 0 || TYPE_TABLE[slot] != null) {
+        throw new IllegalStateException("MessageType names no longer hash uniquely: " + name);
+      }
+      TYPE_TABLE[slot] = type;
+      TYPE_NAMES[type.ordinal()] = name;
+    }
+  }
+
+  private MessageCodec() { }
 
   /**
    * Deserializes a raw string from the server into a Message object.
@@ -17,27 +39,149 @@ public final class MessageCodec {
    * @param rawMessage The pipe-delimited string from the server.
    * @return A structured Message object, or null if the message is malformed.
    */
-  public static Optional<Message> decode(String rawMessage) {
+  public static Message decode(String rawMessage) {
     if (rawMessage == null || rawMessage.isBlank()) {
-      return Optional.empty();
+      return null;
     }
+    return decode((CharSequence) rawMessage);
+  }
 
-    String[] parts = rawMessage.split(DELIMITER_REGEX, 4);
-    if (parts.length < 4) {
-      return Optional.empty();
+  /**
+   * Decodes a line in a single pass, scanning for delimiters by index.
+   * The payload may itself contain '|'; only the first three delimiters are significant.
+   *
+   * @return the decoded Message, or null if the line is malformed or its type is unknown.
+   */
+  public static Message decode(CharSequence line) {
+    long start = ClientMetrics.start();
+    return measured(parse(line), start);
+  }
+
+  /**
+   * Decodes the UTF-8 line held in buffer[start, end) without building a String for the
+   * whole line; each field is decoded straight from the buffer. The buffer's position and
+   * limit are not changed.
+   *
+   * @return the decoded Message, or null if the line is malformed or its type is unknown.
+   */
+  public static Message decode(ByteBuffer buffer, int start, int end) {
+    long begin = ClientMetrics.start();
+    return measured(parse(buffer, start, end), begin);
+  }
+
+  private static Message measured(Message message, long start) {
+    ClientMetrics.DECODE_TIME.recordSince(start);
+    if (message == null) {
+      ClientMetrics.MALFORMED.increment();
     }
+    return message;
+  }
+
+  private static Message parse(CharSequence line) {
+    if (line == null) return null;
+    int end = line.length();
+
+    int typeEnd = indexOf(line, 0, end);
+    if (typeEnd < 0) return null;
+    int senderEnd = indexOf(line, typeEnd + 1, end);
+    if (senderEnd < 0) return null;
+    int recipientEnd = indexOf(line, senderEnd + 1, end);
+    if (recipientEnd < 0) return null;
+
+    MessageType type = typeOf(line, 0, typeEnd);
+    if (type == null) return null;
+
+    String sender = line.subSequence(typeEnd + 1, senderEnd).toString();
+    // Recipient can be empty for broadcast messages
+    String recipient = recipientEnd == senderEnd + 1 ? null : line.subSequence(senderEnd + 1, recipientEnd).toString();
+    String content = line.subSequence(recipientEnd + 1, end).toString();
+
+    return new Message(type, sender, recipient, content, Instant.now());
+  }
+
+  private static Message parse(ByteBuffer buffer, int start, int end) {
+    // '|' is ASCII, so it can never appear inside a multibyte UTF-8 sequence
+    int typeEnd = indexOf(buffer, start, end);
+    if (typeEnd < 0) return null;
+    int senderEnd = indexOf(buffer, typeEnd + 1, end);
+    if (senderEnd < 0) return null;
+    int recipientEnd = indexOf(buffer, senderEnd + 1, end);
+    if (recipientEnd < 0) return null;
 
-    try {
-      MessageType type = MessageType.valueOf(parts[0]);
-      String sender = parts[1];
-      // Recipient can be empty for broadcast messages
-      String recipient = parts[2].isEmpty() ? null : parts[2];
-      String content = parts[3];
+    MessageType type = typeOf(buffer, start, typeEnd);
+    if (type == null) return null;
+
+    String sender = utf8(buffer, typeEnd + 1, senderEnd);
+    String recipient = recipientEnd == senderEnd + 1 ? null : utf8(buffer, senderEnd + 1, recipientEnd);
+    String content = utf8(buffer, recipientEnd + 1, end);
+
+    return new Message(type, sender, recipient, content, Instant.now());
+  }
+
+  // --- Helpers ---
+
+  private static int typeSlot(int length, int first) {
+    if (length == 0 || length > MAX_TYPE_LENGTH || first >= 128) return -1;
+    return length * 128 + first;
+  }
+
+  private static MessageType typeOf(CharSequence line, int start, int end) {
+    int length = end - start;
+    int slot = typeSlot(length, length == 0 ? 0 : line.charAt(start));
+    if (slot < 0) return null;
+
+    MessageType candidate = TYPE_TABLE[slot];
+    if (candidate == null) return null;
+
+    String name = TYPE_NAMES[candidate.ordinal()];
+    for (int i = 1; i < length; i++) {
+      if (line.charAt(start + i) != name.charAt(i)) return null;
+    }
+    return candidate;
+  }
+
+  private static MessageType typeOf(ByteBuffer buffer, int start, int end) {
+    int length = end - start;
+    int slot = typeSlot(length, length == 0 ? 0 : buffer.get(start) & 0xFF);
+    if (slot < 0) return null;
+
+    MessageType candidate = TYPE_TABLE[slot];
+    if (candidate == null) return null;
+
+    String name = TYPE_NAMES[candidate.ordinal()];
+    for (int i = 1; i < length; i++) {
+      if (buffer.get(start + i) != name.charAt(i)) return null;
+    }
+    return candidate;
+  }
+
+  private static int indexOf(CharSequence line, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (line.charAt(i) == DELIMITER) return i;
+    }
+    return -1;
+  }
+
+  private static int indexOf(ByteBuffer buffer, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (buffer.get(i) == DELIMITER) return i;
+    }
+    return -1;
+  }
+
+  private static String utf8(ByteBuffer buffer, int start, int end) {
+    int length = end - start;
+    if (length == 0) return "";
+    if (buffer.hasArray()) {
+      return new String(buffer.array(), buffer.arrayOffset() + start, length, StandardCharsets.UTF_8);
+    }
 
-      return Optional.of(new Message(type, sender, recipient, content, Instant.now()));
-    } catch (IllegalArgumentException e) {
-      // This happens if the MessageType is unknown.
-      return Optional.empty();
+    byte[] scratch = SCRATCH.get();
+    if (scratch.length < length) {
+      scratch = new byte[Math.max(length, scratch.length * 2)];
+      SCRATCH.set(scratch);
     }
+    buffer.get(start, scratch, 0, length);
+    return new String(scratch, 0, length, StandardCharsets.UTF_8);
   }
 }
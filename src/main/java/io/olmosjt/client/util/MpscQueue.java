@@ -0,0 +1,61 @@
+package io.olmosjt.client.util;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An unbounded, lock-free, multi-producer/single-consumer queue.
+ * <p>
+ * Producers link a new node behind the newest with one atomic swap, so they never wait for
+ * each other or for the consumer. For an instant between the swap and the link, the newest
+ * item is not yet reachable and {@link #poll} may report the queue empty even though
+ * {@link #offer} is under way; a producer that needs the consumer to notice its item must
+ * signal it after {@code offer} returns.
+ * <p>
+ * {@link #offer} may be called from any thread; {@link #poll} and {@link #isEmpty} only from
+ * one thread at a time.
+ */
+public final class MpscQueue<T> {
+  private static final class Node<T> {
+    T value;
+    volatile Node<T> next;
+
+    Node(T value) {
+      this.value = value;
+    }
+  }
+
+  // Newest node; producers swap themselves in here
+  private final AtomicReference<Node<T>> head;
+  // Node before the oldest item; consumer only
+  private Node<T> tail;
+
+  public MpscQueue() {
+    Node<T> stub = new Node<>(null);
+    this.head = new AtomicReference<>(stub);
+    this.tail = stub;
+  }
+
+  public void offer(T value) {
+    Node<T> node = new Node<>(value);
+    Node<T> previous = head.getAndSet(node);
+    previous.next = node;
+  }
+
+  /**
+   * Removes the oldest item.
+   *
+   * @return the item, or null if none is reachable
+   */
+  public T poll() {
+    Node<T> next = tail.next;
+    if (next == null) return null;
+    T value = next.value;
+    next.value = null; // The node stays on as the new stub
+    tail = next;
+    return value;
+  }
+
+  public boolean isEmpty() {
+    return tail.next == null;
+  }
+}
@@ -0,0 +1,116 @@
+package io.olmosjt.client.net;
+
+import io.olmosjt.client.model.Command;
+import io.olmosjt.client.model.CommandType;
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.model.MessageType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CorrelatingNetworkServiceTest {
+  private ScriptedTransport transport;
+  private CorrelatingNetworkService service;
+  private final List<Message> passedOn = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    transport = new ScriptedTransport();
+    service = new CorrelatingNetworkService(transport, 10_000)
+            .expect(CommandType.JOIN, message -> message.content().startsWith("Joined"))
+            .expectRefusal(CommandType.MSG);
+    service.setMessageListener(passedOn::add);
+  }
+
+  @Test
+  void refusedRequestDoesNotTakeTheNextAnswer() throws Exception {
+    transport.accepting = false;
+    assertFalse(service.sendRequest(new Command(CommandType.MSG, "queue full")));
+    CompletableFuture<Message> refusedJoin = service.request(new Command(CommandType.JOIN, "2"));
+    assertInstanceOf(IOException.class, assertThrows(ExecutionException.class, refusedJoin::get).getCause());
+
+    transport.accepting = true;
+    CompletableFuture<Message> join = service.request(new Command(CommandType.JOIN, "99"));
+    transport.deliver(new Message(MessageType.NOK, "SERVER", null, "Room not found.", Instant.now()));
+    assertEquals("Room not found.", join.get(1, TimeUnit.SECONDS).content());
+    assertEquals(0, service.inFlight());
+  }
+
+  @Test
+  void droppedRequestDoesNotTakeTheNextAnswer() throws Exception {
+    Command evicted = new Command(CommandType.MSG, "evicted");
+    assertTrue(service.sendRequest(evicted));
+    CompletableFuture<Message> join = service.request(new Command(CommandType.JOIN, "99"));
+    transport.listener.onDropped(evicted);
+    transport.deliver(new Message(MessageType.NOK, "SERVER", null, "Room not found.", Instant.now()));
+
+    assertEquals("Room not found.", join.get(1, TimeUnit.SECONDS).content());
+    assertTrue(passedOn.isEmpty());
+  }
+
+  @Test
+  void matchesResponsesWhileASenderIsBlocked() throws Exception {
+    CompletableFuture<Message> join = service.request(new Command(CommandType.JOIN, "1"));
+    transport.blocking = new CountDownLatch(1);
+    Thread sender = Thread.ofVirtual().start(() -> service.sendRequest(new Command(CommandType.MSG, "waits")));
+    transport.blocked.await(1, TimeUnit.SECONDS);
+
+    transport.deliver(new Message(MessageType.OK, "SERVER", null, "Joined room 'general'.", Instant.now()));
+    assertEquals(MessageType.OK, join.get(1, TimeUnit.SECONDS).type());
+    transport.blocking.countDown();
+    sender.join();
+  }
+
+  /**
+   * Records requests, refuses them or blocks on demand, and delivers whatever the test says.
+   */
+  private static final class ScriptedTransport implements NetworkService {
+    volatile boolean accepting = true;
+    volatile CountDownLatch blocking;
+    final CountDownLatch blocked = new CountDownLatch(1);
+    MessageListener listener;
+
+    void deliver(Message message) {
+      listener.onMessage(message);
+    }
+
+    @Override
+    public void connect(String host, Integer port) { }
+
+    @Override
+    public void disconnect() { }
+
+    @Override
+    public boolean sendRequest(Command command) {
+      CountDownLatch latch = blocking;
+      if (latch != null) {
+        blocked.countDown();
+        try {
+          latch.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return accepting;
+    }
+
+    @Override
+    public void setMessageListener(MessageListener listener) {
+      this.listener = listener;
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package io.olmosjt.client.net;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WireCompressionTest {
+
+  @Test
+  void roundTripsSyncFlushedBatches() throws IOException {
+    for (WireCompression mode : WireCompression.values()) {
+      ByteArrayOutputStream wire = new ByteArrayOutputStream();
+      StringBuilder sent = new StringBuilder();
+      try (OutputStream out = mode.wrapOutput(wire)) {
+        for (int batch = 0; batch < 50; batch++) {
+          for (int i = 0; i < 20; i++) {
+            String line = "USER|user" + (i % 7) + "|#1|message " + batch + "-" + i + " naïve 🚀\n";
+            out.write(line.getBytes(StandardCharsets.UTF_8));
+            sent.append(line);
+          }
+          out.flush();
+        }
+      }
+      byte[] expected = sent.toString().getBytes(StandardCharsets.UTF_8);
+      if (mode != WireCompression.NONE) {
+        assertTrue(wire.size() < expected.length / 3, mode + " wrote " + wire.size() + " of " + expected.length);
+      }
+      try (InputStream in = mode.wrapInput(new ByteArrayInputStream(wire.toByteArray()))) {
+        assertArrayEquals(expected, in.readAllBytes(), mode.token());
+      }
+    }
+  }
+
+  @Test
+  void parsesOffers() {
+    assertEquals(List.of(), WireCompression.parseOffer(null));
+    assertEquals(List.of(), WireCompression.parseOffer("off"));
+    assertEquals(List.of(WireCompression.DEFLATE_DICT, WireCompression.DEFLATE), WireCompression.parseOffer("on"));
+    assertEquals(List.of(WireCompression.DEFLATE), WireCompression.parseOffer(" Deflate ,none"));
+    assertThrows(IllegalArgumentException.class, () -> WireCompression.parseOffer("gzip"));
+  }
+}
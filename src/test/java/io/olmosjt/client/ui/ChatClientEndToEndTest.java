@@ -0,0 +1,399 @@
+package io.olmosjt.client.ui;
+
+import io.olmosjt.client.history.HistoryConfig;
+import io.olmosjt.client.history.HistoryStore;
+import io.olmosjt.client.loopback.LoopbackServer;
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.model.MessageType;
+import io.olmosjt.client.net.LinkStatus;
+import io.olmosjt.client.net.NetworkService;
+import io.olmosjt.client.net.NioNetworkService;
+import io.olmosjt.client.net.OverflowPolicy;
+import io.olmosjt.client.net.ReconnectingNetworkService;
+import io.olmosjt.client.net.SocketNetworkService;
+import io.olmosjt.client.net.WireCompression;
+import io.olmosjt.client.rooms.RoomTab;
+import io.olmosjt.client.search.SearchHit;
+import io.olmosjt.client.ui.state.ClientState;
+import io.olmosjt.client.ui.state.UIState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Runs {@link ChatClient} against the {@link LoopbackServer} over a real socket, through the
+ * same transport stack the terminal client uses, and checks what it shows.
+ */
+class ChatClientEndToEndTest {
+  private static final long TIMEOUT_MILLIS = 5_000;
+
+  private LoopbackServer server;
+  private ChatClient client;
+  private RecordingView view;
+
+  @BeforeEach
+  void startServer() throws IOException {
+    server = new LoopbackServer();
+  }
+
+  @AfterEach
+  void stop() {
+    if (client != null) {
+      client.shutdown();
+    }
+    server.close();
+  }
+
+  @Test
+  void logsInJoinsChatsAndLeaves() throws InterruptedException {
+    connect();
+    view.await("welcome", v -> v.hasMessage(m -> m.content().startsWith("Welcome!")));
+
+    client.attemptLogin("alice");
+    view.await("lobby", v -> v.state == UIState.LOBBY);
+
+    client.requestRoomList();
+    view.await("room list", v -> v.rooms.stream().anyMatch(room -> room.startsWith("#1 general")));
+
+    client.joinRoom("#1");
+    view.await("room", v -> v.state == UIState.IN_ROOM);
+    assertEquals("general", view.roomName());
+    assertEquals("#1", view.roomId());
+
+    client.sendMessage("hello there");
+    view.await("echo", v -> v.hasMessage(m -> m.type() == MessageType.USER
+            && m.sender().equals("alice") && m.content().equals("hello there")));
+
+    client.leaveRoom();
+    view.await("lobby again", v -> v.state == UIState.LOBBY);
+    assertTrue(server.requests().containsAll(List.of(
+            "REQ|LOGIN|alice", "REQ|LIST_ROOMS|", "REQ|JOIN|1", "REQ|MSG|hello there", "REQ|LEAVE|")));
+  }
+
+  @Test
+  void showsRefusedLoginAndStaysOnLoginScreen() throws InterruptedException {
+    connect();
+    view.await("welcome", v -> v.hasMessage(m -> m.content().startsWith("Welcome!")));
+
+    client.attemptLogin("a|b");
+    view.await("login error", v -> v.loginErrors.contains("Invalid username."));
+    assertEquals(UIState.LOGIN, view.state());
+
+    client.attemptLogin("bob");
+    view.await("lobby", v -> v.state == UIState.LOBBY);
+  }
+
+  @Test
+  void showsRefusedRequestsAsErrorsAndKeepsGoing() throws InterruptedException {
+    loggedIn("carol");
+
+    client.joinRoom("#99");
+    view.await("join refused", v -> v.errors.contains("Room not found."));
+    assertEquals(UIState.LOBBY, view.state());
+
+    client.leaveRoom();
+    view.await("leave refused", v -> v.errors.contains("You are not in a room."));
+
+    // The refused chat line must not take the answer meant for the join sent after it
+    int errors = view.errorCount();
+    client.sendMessage("nobody hears this");
+    client.joinRoom("#1");
+    view.await("room", v -> v.state == UIState.IN_ROOM);
+    view.await("chat refused", v -> v.errorCount() > errors);
+    assertEquals("general", view.roomName());
+  }
+
+  @Test
+  void resumesRoomAfterReconnect() throws InterruptedException {
+    loggedIn("dave");
+    client.joinRoom("#1");
+    view.await("room", v -> v.state == UIState.IN_ROOM);
+
+    server.disconnectAll();
+    view.await("reconnecting", v -> v.connectionStates.contains(ClientState.RECONNECTING));
+    view.await("resumed", v -> v.feedback.stream().anyMatch(text -> text.startsWith("Reconnected.")));
+    assertEquals(UIState.IN_ROOM, view.state());
+    assertEquals(2, server.requests().stream().filter("REQ|LOGIN|dave"::equals).count());
+    assertEquals(2, server.requests().stream().filter("REQ|JOIN|1"::equals).count());
+
+    client.sendMessage("back again");
+    view.await("echo", v -> v.hasMessage(m -> m.type() == MessageType.USER && m.content().equals("back again")));
+  }
+
+  @Test
+  void skipsMalformedLines() throws InterruptedException {
+    loggedIn("erin");
+    client.joinRoom("#1");
+    view.await("room", v -> v.state == UIState.IN_ROOM);
+
+    server.sendRaw("THIS LINE IS NOT A MESSAGE");
+    server.sendRaw("USER|only|three");
+    server.sendRaw("SHOUT|frank|#1|unknown type");
+    server.sendRaw("");
+    server.sendRaw("USER|frank|#1|still talking | with pipes");
+
+    view.await("valid line", v -> v.hasMessage(m -> m.content().equals("still talking | with pipes")));
+    assertFalse(view.hasMessage(m -> m.content().contains("unknown type") || m.content().equals("three")));
+    assertEquals(UIState.IN_ROOM, view.state());
+
+    client.sendMessage("still connected");
+    view.await("echo", v -> v.hasMessage(m -> m.content().equals("still connected")));
+  }
+
+  @Test
+  void chatsOverCompressedConnection() throws InterruptedException {
+    server.compression(true);
+    loggedIn("grace", () -> new SocketNetworkService(1024, OverflowPolicy.FAIL,
+            List.of(WireCompression.DEFLATE_DICT, WireCompression.DEFLATE)));
+    assertEquals("REQ|COMPRESS|deflate-dict,deflate", server.requests().getFirst());
+
+    client.joinRoom("#1");
+    view.await("room", v -> v.state == UIState.IN_ROOM);
+    server.burst(1, "heidi", 500, "compressed line");
+    client.sendMessage("last one");
+    view.await("burst and echo", v -> v.hasMessage(m -> m.content().equals("last one")));
+    assertEquals(500, view.messageCount(m -> m.sender().equals("heidi")));
+  }
+
+  @Test
+  void fallsBackToPlainWhenCompressionIsRefused() throws InterruptedException {
+    loggedIn("ivan", () -> new SocketNetworkService(1024, OverflowPolicy.FAIL, List.of(WireCompression.DEFLATE)));
+    client.joinRoom("#1");
+    view.await("room", v -> v.state == UIState.IN_ROOM);
+    client.sendMessage("plain text");
+    view.await("echo", v -> v.hasMessage(m -> m.content().equals("plain text")));
+  }
+
+  @Test
+  void chatsOverNioTransport() throws InterruptedException {
+    loggedIn("liam", NioNetworkService::new);
+    client.joinRoom("#1");
+    view.await("room", v -> v.state == UIState.IN_ROOM);
+
+    // Many more bytes than one write buffer holds, then a line longer than the whole buffer
+    List<String> lines = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      lines.add("line " + i + " " + "ü".repeat(100));
+    }
+    client.sendMessages(lines);
+    String longLine = "long " + "x".repeat(40_000);
+    client.sendMessage(longLine);
+    client.sendMessage("after the long line");
+    view.await("echo", v -> v.hasMessage(m -> m.content().equals("after the long line")));
+    assertEquals(300, view.messageCount(m -> m.sender().equals("liam") && m.content().startsWith("line ")));
+    assertTrue(view.hasMessage(m -> m.content().equals(lines.getLast())));
+    // Its echo is too long for the reader to frame, but the server got it whole and in order
+    List<String> requests = server.requests();
+    assertEquals(requests.indexOf("REQ|MSG|after the long line") - 1, requests.indexOf("REQ|MSG|" + longLine));
+  }
+
+  @Test
+  void showsEachRoomsHistoryOnceWhenSwitching(@TempDir Path historyDir) throws IOException, InterruptedException {
+    server.multiRoom(true);
+    int second = server.createRoom("random");
+    connect(SocketNetworkService::new, new HistoryStore(historyDir, HistoryConfig.defaults()));
+    view.await("welcome", v -> v.hasMessage(m -> m.content().startsWith("Welcome!")));
+    client.attemptLogin("judy");
+    view.await("lobby", v -> v.state == UIState.LOBBY);
+
+    client.joinRoom("#1");
+    view.await("first room", v -> "#1".equals(v.roomId));
+    client.sendMessage("in general");
+    view.await("echo", v -> v.hasMessage(m -> m.content().equals("in general")));
+
+    client.joinRoom("#" + second);
+    view.await("second room", v -> ("#" + second).equals(v.roomId));
+    client.sendMessage("in random");
+    view.await("echo", v -> v.hasMessage(m -> m.content().equals("in random")));
+    server.burst(1, "kim", 3, "while away");
+
+    // Read back from disk the first time, from the seeded room buffer after that
+    for (int round = 0; round < 2; round++) {
+      client.switchRoom("#1");
+      view.await("general again", v -> "#1".equals(v.roomId)
+              && v.messageCount(m -> m.sender().equals("kim")) == 3 && v.hasMessage(m -> m.content().equals("in general")));
+      assertEquals(1, view.messageCount(m -> m.content().equals("in general")));
+      assertFalse(view.hasMessage(m -> m.content().equals("in random")));
+
+      client.switchRoom("#" + second);
+      view.await("random again", v -> ("#" + second).equals(v.roomId) && v.hasMessage(m -> m.content().equals("in random")));
+      assertEquals(1, view.messageCount(m -> m.content().equals("in random")));
+      assertFalse(view.hasMessage(m -> m.sender().equals("kim")));
+    }
+  }
+
+  // --- Helpers ---
+
+  private void connect() {
+    connect(SocketNetworkService::new);
+  }
+
+  private void connect(Supplier<NetworkService> transport) {
+    connect(transport, null);
+  }
+
+  private void connect(Supplier<NetworkService> transport, HistoryStore history) {
+    client = new ChatClient(new ReconnectingNetworkService(transport, 100, 1_000, 20), history, null);
+    view = new RecordingView();
+    client.setView(view);
+    view.setController(client);
+    assertTrue(client.start(server.host(), server.port()), "connect");
+  }
+
+  private void loggedIn(String username) throws InterruptedException {
+    loggedIn(username, SocketNetworkService::new);
+  }
+
+  private void loggedIn(String username, Supplier<NetworkService> transport) throws InterruptedException {
+    connect(transport);
+    view.await("welcome", v -> v.hasMessage(m -> m.content().startsWith("Welcome!")));
+    client.attemptLogin(username);
+    view.await("lobby", v -> v.state == UIState.LOBBY);
+  }
+
+  /**
+   * Records what the client shows. The client calls it on its event loop; tests read it
+   * through {@link #await} and the synchronized getters.
+   */
+  static final class RecordingView implements UIView {
+    private final List<Message> messages = new ArrayList<>();
+    private final List<String> rooms = new ArrayList<>();
+    private final List<String> loginErrors = new ArrayList<>();
+    private final List<String> errors = new ArrayList<>();
+    private final List<String> feedback = new ArrayList<>();
+    private final List<ClientState> connectionStates = new ArrayList<>();
+    private UIState state = UIState.LOGIN;
+    private String roomName;
+    private String roomId;
+
+    synchronized void await(String what, Predicate<RecordingView> condition) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+      while (!condition.test(this)) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          fail("Timed out waiting for " + what + "; state " + state + ", errors " + errors
+                  + ", login errors " + loginErrors + ", feedback " + feedback);
+        }
+        wait(remaining);
+      }
+    }
+
+    synchronized boolean hasMessage(Predicate<Message> matches) {
+      return messages.stream().anyMatch(matches);
+    }
+
+    synchronized long messageCount(Predicate<Message> matches) {
+      return messages.stream().filter(matches).count();
+    }
+
+    synchronized UIState state() {
+      return state;
+    }
+
+    synchronized String roomName() {
+      return roomName;
+    }
+
+    synchronized String roomId() {
+      return roomId;
+    }
+
+    synchronized int errorCount() {
+      return errors.size();
+    }
+
+    private synchronized void changed() {
+      notifyAll();
+    }
+
+    // --- UIView ---
+
+    @Override
+    public void setController(UIController controller) { }
+
+    @Override
+    public void start() { }
+
+    @Override
+    public synchronized void showState(UIState state) {
+      this.state = state;
+      changed();
+    }
+
+    @Override
+    public synchronized void updateRoomList(List<String> rooms) {
+      this.rooms.clear();
+      this.rooms.addAll(rooms);
+      changed();
+    }
+
+    @Override
+    public synchronized void addMessage(Message message) {
+      messages.add(message);
+      changed();
+    }
+
+    @Override
+    public synchronized void addMessages(List<Message> messages) {
+      this.messages.addAll(messages);
+      changed();
+    }
+
+    @Override
+    public synchronized void prependMessages(List<Message> messages) {
+      this.messages.addAll(0, messages);
+      changed();
+    }
+
+    @Override
+    public synchronized void showLoginError(String reason) {
+      loginErrors.add(reason);
+      changed();
+    }
+
+    @Override
+    public void showSearchResults(String query, List<SearchHit> hits) { }
+
+    @Override
+    public synchronized void setRoomDetails(String channelName, String channelId) {
+      roomName = channelName;
+      roomId = channelId;
+      messages.clear();
+      changed();
+    }
+
+    @Override
+    public void updateRoomTabs(List<RoomTab> tabs) { }
+
+    @Override
+    public void drawInitialConnectionError() { }
+
+    @Override
+    public synchronized void showConnectionState(ClientState state) {
+      connectionStates.add(state);
+      changed();
+    }
+
+    @Override
+    public void showLinkStatus(LinkStatus status) { }
+
+    @Override
+    public synchronized void showFeedback(String text, boolean isError) {
+      (isError ? errors : feedback).add(text);
+      changed();
+    }
+  }
+}
@@ -0,0 +1,199 @@
+package io.olmosjt.client.util;
+
+import io.olmosjt.client.model.Message;
+import io.olmosjt.client.model.MessageType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks every {@link MessageCodec} entry point against the decoder it replaced, which split
+ * the line on the first three delimiters and looked the type up with
+ * {@link MessageType#valueOf}.
+ */
+class MessageCodecTest {
+  private static final int LINES = 200_000;
+
+  private static final String[] TYPES = {
+          "OK", "NOK", "SYSTEM", "USER", "PRIVATE", "COMMAND",
+          "ok", "User", "USERS", "USE", "NOKK", "OKAY", "PING", "", " USER", "USER ", "ÜSER", "日本"
+  };
+  private static final String[] FIELDS = {
+          "", "SERVER", "alice", "#1", "#12", "hello world", "Joined room 'general'",
+          "é", "naïve café", "日本語", "🚀", "a|b", "||", " ", "\t", "\u0000", "\r", "x".repeat(300)
+  };
+
+  @Test
+  void decodesWellFormedLines() {
+    Message message = MessageCodec.decode("USER|alice|#1|hello | world");
+    assertNotNull(message);
+    assertEquals(MessageType.USER, message.type());
+    assertEquals("alice", message.sender());
+    assertEquals("#1", message.recipient());
+    assertEquals("hello | world", message.content());
+  }
+
+  @Test
+  void emptyRecipientIsNull() {
+    Message message = MessageCodec.decode("OK|SERVER||Welcome! Please log in.");
+    assertNotNull(message);
+    assertNull(message.recipient());
+    assertEquals("Welcome! Please log in.", message.content());
+  }
+
+  @Test
+  void keepsEmptyFieldsAndTrailingPipes() {
+    assertSameAsBaseline("USER|||");
+    assertSameAsBaseline("USER|a|b|");
+    assertSameAsBaseline("USER|a|b||||");
+    assertSameAsBaseline("SYSTEM||#1|");
+  }
+
+  @Test
+  void rejectsMalformedLines() {
+    for (String line : new String[]{"", " ", "USER", "USER|a", "USER|a|b", "|||", "user|a|b|c",
+            "UNKNOWN|a|b|c", "THIS LINE IS NOT A MESSAGE", "USER a b c"}) {
+      assertNull(MessageCodec.decode(line), line);
+      assertSameAsBaseline(line);
+    }
+    assertNull(MessageCodec.decode((String) null));
+    assertNull(MessageCodec.decode((CharSequence) null));
+  }
+
+  @Test
+  void decodesMultibyteFieldsFromBuffers() {
+    assertSameAsBaseline("PRIVATE|Jürgen|日本|привет 🚀 | ok");
+    assertSameAsBaseline("USER|🚀|🚀|🚀");
+  }
+
+  @Test
+  void matchesBaselineOnFuzzedLines() {
+    Random random = new Random(20260917);
+    for (int i = 0; i < LINES; i++) {
+      assertSameAsBaseline(i % 4 == 0 ? noise(random) : line(random));
+    }
+  }
+
+  @Test
+  void matchesBaselineOnFuzzedBytes() {
+    Random random = new Random(42);
+    for (int i = 0; i < LINES / 4; i++) {
+      byte[] bytes = line(random).getBytes(StandardCharsets.UTF_8);
+      // Corrupt a byte now and then, so invalid UTF-8 is decoded too
+      if (bytes.length > 0 && random.nextInt(3) == 0) {
+        bytes[random.nextInt(bytes.length)] = (byte) random.nextInt(256);
+      }
+      Message expected = baseline(new String(bytes, StandardCharsets.UTF_8));
+      assertFields(expected, decodeHeap(bytes, random.nextInt(8)), bytes);
+      assertFields(expected, decodeDirect(bytes, random.nextInt(8)), bytes);
+    }
+  }
+
+  // --- Helpers ---
+
+  private static void assertSameAsBaseline(String line) {
+    Message expected = baseline(line);
+    assertFields(expected, MessageCodec.decode(line), line);
+    assertFields(expected, MessageCodec.decode(new StringBuilder(line)), line);
+
+    byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+    assertFields(expected, decodeHeap(bytes, 3), line);
+    assertFields(expected, decodeDirect(bytes, 5), line);
+  }
+
+  /**
+   * The decoder before the single-pass one, except for returning null instead of an empty
+   * Optional.
+   */
+  private static Message baseline(String rawMessage) {
+    if (rawMessage == null || rawMessage.isBlank()) {
+      return null;
+    }
+    String[] parts = rawMessage.split("\\|", 4);
+    if (parts.length < 4) {
+      return null;
+    }
+    try {
+      MessageType type = MessageType.valueOf(parts[0]);
+      return new Message(type, parts[1], parts[2].isEmpty() ? null : parts[2], parts[3], null);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Decodes the bytes from the middle of a larger heap buffer, behind a slice so the array
+   * offset is not zero.
+   */
+  private static Message decodeHeap(byte[] bytes, int padding) {
+    ByteBuffer backing = ByteBuffer.allocate(bytes.length + 2 * padding + 1);
+    backing.put(1 + padding, bytes);
+    ByteBuffer slice = backing.slice(1, backing.capacity() - 1);
+    return MessageCodec.decode(slice, padding, padding + bytes.length);
+  }
+
+  private static Message decodeDirect(byte[] bytes, int padding) {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 2 * padding);
+    buffer.put(padding, bytes);
+    return MessageCodec.decode(buffer, padding, padding + bytes.length);
+  }
+
+  private static void assertFields(Message expected, Message actual, Object line) {
+    if (expected == null) {
+      assertNull(actual, () -> "decoded " + describe(line));
+      return;
+    }
+    assertNotNull(actual, () -> "rejected " + describe(line));
+    assertEquals(expected.type(), actual.type(), () -> "type of " + describe(line));
+    assertEquals(expected.sender(), actual.sender(), () -> "sender of " + describe(line));
+    assertEquals(expected.recipient(), actual.recipient(), () -> "recipient of " + describe(line));
+    assertEquals(expected.content(), actual.content(), () -> "content of " + describe(line));
+  }
+
+  private static String describe(Object line) {
+    if (line instanceof byte[] bytes) {
+      StringBuilder hex = new StringBuilder();
+      for (byte b : bytes) {
+        hex.append(String.format("%02x ", b));
+      }
+      return "bytes [" + hex.toString().trim() + "]";
+    }
+    return "'" + line + "'";
+  }
+
+  /**
+   * A line made of known types and field values, with between one and five delimiters.
+   */
+  private static String line(Random random) {
+    StringBuilder line = new StringBuilder(TYPES[random.nextInt(TYPES.length)]);
+    int delimiters = 1 + random.nextInt(5);
+    for (int i = 0; i < delimiters; i++) {
+      line.append('|').append(FIELDS[random.nextInt(FIELDS.length)]);
+    }
+    return line.toString();
+  }
+
+  /**
+   * Up to 12 characters drawn mostly from delimiters, letters of type names and non-ASCII.
+   */
+  private static String noise(Random random) {
+    String alphabet = "|||OKNUSERYTMPIV é日🚀\u0000";
+    StringBuilder line = new StringBuilder();
+    int length = random.nextInt(13);
+    while (line.length() < length) {
+      int at = random.nextInt(alphabet.length());
+      if (Character.isHighSurrogate(alphabet.charAt(at))) {
+        line.append(alphabet, at, at + 2);
+      } else if (!Character.isLowSurrogate(alphabet.charAt(at))) {
+        line.append(alphabet.charAt(at));
+      }
+    }
+    return line.toString();
+  }
+}
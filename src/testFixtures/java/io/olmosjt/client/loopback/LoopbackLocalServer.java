@@ -0,0 +1,40 @@
+package io.olmosjt.client.loopback;
+
+import io.olmosjt.client.load.LoadOptions;
+import io.olmosjt.client.load.LocalServer;
+
+import java.io.IOException;
+
+/**
+ * The {@link LoopbackServer} as the target of a {@code --loopback} load run: compression is
+ * accepted and every room the options name exists.
+ */
+public final class LoopbackLocalServer implements LocalServer {
+  private final LoopbackServer server;
+
+  public LoopbackLocalServer(LoadOptions options) throws IOException {
+    server = new LoopbackServer().compression(true);
+    int highest = 0;
+    for (String room : options.rooms()) {
+      highest = Math.max(highest, Integer.parseInt(room.trim()));
+    }
+    while (server.roomCount() < highest) {
+      server.createRoom("load-" + (server.roomCount() + 1));
+    }
+  }
+
+  @Override
+  public String host() {
+    return server.host();
+  }
+
+  @Override
+  public int port() {
+    return server.port();
+  }
+
+  @Override
+  public void close() {
+    server.close();
+  }
+}
@@ -0,0 +1,523 @@
+package io.olmosjt.client.loopback;
+
+import io.olmosjt.client.model.CommandType;
+import io.olmosjt.client.net.WireCompression;
+import io.olmosjt.client.util.LoggerUtil;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An in-process stand-in for the TermiTalk server, listening on a loopback port.
+ * <p>
+ * It reads {@code REQ|COMMAND|payload} lines and answers with {@code TYPE|SENDER|RECIPIENT|PAYLOAD}
+ * lines worded the way the client's response routes expect: a greeting on connect, then
+ * LOGIN, LIST_ROOMS, CREATE_ROOM, JOIN, LEAVE, MSG, PRIVMSG, WHO, PING and QUIT. Chat messages are
+ * broadcast to everyone in the room, the sender included. Room "#1 general" always exists.
+ * Like the real server, a connection is in one room at a time and JOIN moves it, unless
+ * {@link #multiRoom} lets it stay in every room it joins.
+ * The COMPRESS handshake of {@link WireCompression} is accepted once enabled with
+ * {@link #compression}; until then it is refused like any unknown command.
+ * <p>
+ * Faults can be scripted while it runs: response latency with jitter, commands that are
+ * never answered, a share of responses replaced by malformed lines, raw lines, bursts of
+ * chat messages, and dropped connections. Every request line received is recorded.
+ * <p>
+ * Each connection is served by its own virtual thread, which handles requests in order, so
+ * injected latency delays a connection's responses without reordering them.
+ * <p>
+ * A test fixture: the tests, the load runner and the benchmarks use it; the client jar does
+ * not contain it.
+ */
+public final class LoopbackServer implements Closeable {
+  private static final String SERVER = "SERVER";
+  private static final String MALFORMED = "THIS LINE IS NOT A MESSAGE";
+
+  private record Room(int id, String name, Set<Connection> members) { }
+
+  private final ServerSocket serverSocket;
+  private final Map<Integer, Room> rooms = new ConcurrentHashMap<>();
+  private final AtomicInteger nextRoomId = new AtomicInteger(1);
+  private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+  private final Map<String, Connection> users = new ConcurrentHashMap<>();
+  private final List<String> requests = new CopyOnWriteArrayList<>();
+
+  // Script
+  private volatile Duration latency = Duration.ZERO;
+  private volatile Duration jitter = Duration.ZERO;
+  private volatile double malformedRate = 0;
+  private volatile boolean compression = false;
+  private volatile boolean multiRoom = false;
+  private final Set<CommandType> ignored = EnumSet.noneOf(CommandType.class);
+
+  private volatile boolean running = true;
+
+  /**
+   * Starts listening on an ephemeral port of the loopback interface.
+   */
+  public LoopbackServer() throws IOException {
+    this(0);
+  }
+
+  public LoopbackServer(int port) throws IOException {
+    this.serverSocket = new ServerSocket(port, 4096, InetAddress.getLoopbackAddress());
+    addRoom("general");
+    Thread.ofVirtual().name("loopback-accept").start(this::acceptLoop);
+  }
+
+  public String host() {
+    return serverSocket.getInetAddress().getHostAddress();
+  }
+
+  public int port() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Adds a room, as if a client had created it.
+   *
+   * @return the new room's id
+   */
+  public int createRoom(String name) {
+    return addRoom(name).id();
+  }
+
+  public int roomCount() {
+    return rooms.size();
+  }
+
+  // --- Script ---
+
+  /**
+   * Delays each response by {@code latency} plus a uniformly random part of {@code jitter}.
+   */
+  public LoopbackServer latency(Duration latency, Duration jitter) {
+    this.latency = latency;
+    this.jitter = jitter;
+    return this;
+  }
+
+  /**
+   * Leaves requests of this type unanswered (their side effects still happen).
+   */
+  public LoopbackServer ignore(CommandType type) {
+    synchronized (ignored) {
+      ignored.add(type);
+    }
+    return this;
+  }
+
+  /**
+   * Replaces this share (0..1) of responses with a line the client cannot decode.
+   */
+  public LoopbackServer malformedRate(double rate) {
+    this.malformedRate = rate;
+    return this;
+  }
+
+  /**
+   * Accepts compression offers from now on.
+   */
+  public LoopbackServer compression(boolean enabled) {
+    this.compression = enabled;
+    return this;
+  }
+
+  /**
+   * Lets connections stay in every room they join from now on. JOIN of a room a connection is
+   * already in then only makes it the room its MSG goes to; LEAVE leaves that room.
+   */
+  public LoopbackServer multiRoom(boolean enabled) {
+    this.multiRoom = enabled;
+    return this;
+  }
+
+  /**
+   * Sends {@code count} chat messages from {@code sender} to everyone in the room, as fast as
+   * the connections take them.
+   *
+   * @return the number of lines written
+   */
+  public int burst(int roomId, String sender, int count, String text) {
+    Room room = rooms.get(roomId);
+    if (room == null) return 0;
+    int written = 0;
+    for (int i = 0; i < count; i++) {
+      written += broadcast(room, "USER|" + sender + "|#" + roomId + "|" + text);
+    }
+    return written;
+  }
+
+  /**
+   * Writes a line as-is to every connected client, e.g. to test malformed input.
+   */
+  public void sendRaw(String line) {
+    for (Connection connection : connections) {
+      connection.send(line);
+    }
+  }
+
+  /**
+   * Drops every connection without a goodbye, as a crashed server or broken network would.
+   */
+  public void disconnectAll() {
+    for (Connection connection : connections) {
+      connection.close();
+    }
+  }
+
+  /**
+   * Every request line received so far, in arrival order across connections.
+   */
+  public List<String> requests() {
+    return List.copyOf(requests);
+  }
+
+  public int connectionCount() {
+    return connections.size();
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    try {
+      serverSocket.close();
+    } catch (IOException ignored) {
+      // Closing anyway
+    }
+    disconnectAll();
+  }
+
+  // --- Protocol ---
+
+  private void acceptLoop() {
+    while (running) {
+      try {
+        Socket socket = serverSocket.accept();
+        socket.setTcpNoDelay(true);
+        Connection connection = new Connection(socket);
+        connections.add(connection);
+        Thread.ofVirtual().name("loopback-" + socket.getPort()).start(connection::serve);
+      } catch (IOException e) {
+        if (running) {
+          LoggerUtil.warn("Loopback server accept failed: " + e.getMessage());
+        }
+      }
+    }
+  }
+
+  private Room addRoom(String name) {
+    int id = nextRoomId.getAndIncrement();
+    Room room = new Room(id, name, ConcurrentHashMap.newKeySet());
+    rooms.put(id, room);
+    return room;
+  }
+
+  private int broadcast(Room room, String line) {
+    int written = 0;
+    for (Connection member : room.members()) {
+      member.send(line);
+      written++;
+    }
+    return written;
+  }
+
+  /**
+   * One client. Requests are handled on the connection's own thread; other threads only write
+   * to it, under its lock.
+   */
+  private final class Connection {
+    private final Socket socket;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // Replaced when compression is switched on; out is guarded by the write lock
+    private BufferedWriter out;
+    private BufferedReader in;
+
+    private String username;
+    private Room room;
+
+    Connection(Socket socket) throws IOException {
+      this.socket = socket;
+      this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+      this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    void serve() {
+      try {
+        send(ok("Welcome! Please log in."));
+        String line;
+        while ((line = in.readLine()) != null) {
+          requests.add(line);
+          delay();
+          handle(line);
+        }
+      } catch (IOException e) {
+        // Client went away or the script dropped the connection
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        for (Room joined : rooms.values()) {
+          if (joined != room) {
+            joined.members().remove(this);
+          }
+        }
+        leave();
+        if (username != null) {
+          users.remove(username, this);
+        }
+        connections.remove(this);
+        close();
+        release();
+      }
+    }
+
+    private void delay() throws InterruptedException {
+      Duration base = latency;
+      Duration spread = jitter;
+      long nanos = base.toNanos() + (spread.isZero() ? 0 : ThreadLocalRandom.current().nextLong(spread.toNanos()));
+      if (nanos > 0) {
+        Thread.sleep(Duration.ofNanos(nanos));
+      }
+    }
+
+    private void handle(String line) {
+      String[] parts = line.split("\\|", 3);
+      if (parts.length < 2 || !parts[0].equals("REQ")) {
+        respond(null, nok("Invalid request format."));
+        return;
+      }
+      CommandType type = CommandType.fromString(parts[1]);
+      String payload = parts.length == 3 ? parts[2].trim() : "";
+
+      if (type != CommandType.LOGIN && type != CommandType.QUIT && type != CommandType.COMPRESS
+              && type != CommandType.PING && username == null) {
+        respond(type, nok("Please log in first."));
+        return;
+      }
+      switch (type) {
+        case LOGIN -> login(payload);
+        case LIST_ROOMS -> respond(type, ok("Available rooms: " + roomList()));
+        case CREATE_ROOM -> {
+          if (payload.isEmpty()) {
+            respond(type, nok("Room name is required."));
+          } else {
+            Room created = addRoom(payload);
+            respond(type, ok("Room '" + created.name() + "' created with id #" + created.id() + "."));
+          }
+        }
+        case JOIN -> join(payload);
+        case LEAVE -> {
+          if (room == null) {
+            respond(type, nok("You are not in a room."));
+          } else {
+            leave();
+            respond(type, ok("You have left the room."));
+          }
+        }
+        case MSG -> {
+          if (room == null) {
+            respond(type, nok("You are not in a room."));
+          } else {
+            broadcast(room, "USER|" + username + "|#" + room.id() + "|" + payload);
+          }
+        }
+        case PRIVMSG -> privateMessage(payload);
+        case WHO -> respond(type, room == null
+                ? nok("You are not in a room.")
+                : ok("Users in room: " + String.join(", ", memberNames(room))));
+        case PING -> respond(type, ok("PONG"));
+        case QUIT -> close();
+        case COMPRESS -> compress(payload);
+        default -> respond(type, nok("Unknown command."));
+      }
+    }
+
+    private void login(String name) {
+      if (name.isEmpty() || name.contains("|")) {
+        respond(CommandType.LOGIN, nok("Invalid username."));
+      } else if (username != null) {
+        respond(CommandType.LOGIN, nok("Already logged in."));
+      } else if (users.putIfAbsent(name, this) != null) {
+        respond(CommandType.LOGIN, nok("Username already taken."));
+      } else {
+        username = name;
+        respond(CommandType.LOGIN, ok("Welcome, " + name));
+      }
+    }
+
+    private void join(String payload) {
+      Room target;
+      try {
+        target = rooms.get(Integer.parseInt(payload.replace("#", "")));
+      } catch (NumberFormatException e) {
+        target = null;
+      }
+      if (target == null) {
+        respond(CommandType.JOIN, nok("Room not found."));
+        return;
+      }
+      if (!multiRoom) {
+        leave();
+      } else if (target.members().contains(this)) {
+        room = target;
+        respond(CommandType.JOIN, ok("Joined room '" + target.name() + "'"));
+        return;
+      }
+      room = target;
+      respond(CommandType.JOIN, ok("Joined room '" + target.name() + "'"));
+      String notice = "SYSTEM|" + SERVER + "|#" + target.id() + "|" + username + " has joined the room.";
+      for (Connection member : target.members()) {
+        member.send(notice);
+      }
+      target.members().add(this);
+    }
+
+    private void leave() {
+      Room current = room;
+      if (current == null) return;
+      room = null;
+      current.members().remove(this);
+      broadcast(current, "SYSTEM|" + SERVER + "|#" + current.id() + "|" + username + " left.");
+    }
+
+    private void privateMessage(String payload) {
+      int space = payload.indexOf(' ');
+      Connection target = space < 0 ? null : users.get(payload.substring(0, space));
+      if (target == null) {
+        respond(CommandType.PRIVMSG, nok("User not found."));
+        return;
+      }
+      target.send("PRIVATE|" + username + "|" + target.username + "|" + payload.substring(space + 1));
+    }
+
+    /**
+     * Takes the first offered mode, answers in plain text and switches both directions.
+     * The client sends nothing more until it has read the answer, so no compressed bytes can
+     * be sitting in the old reader's buffer.
+     */
+    private void compress(String offer) {
+      WireCompression chosen = null;
+      for (String token : offer.split(",")) {
+        WireCompression mode = WireCompression.fromToken(token);
+        if (compression && mode != null && mode != WireCompression.NONE) {
+          chosen = mode;
+          break;
+        }
+      }
+      if (chosen == null) {
+        respond(CommandType.COMPRESS, nok("Unknown command."));
+        return;
+      }
+      if (isIgnored(CommandType.COMPRESS)) return;
+
+      writeLock.lock();
+      try {
+        out.write(ok("Compression: " + chosen.token()));
+        out.write('\n');
+        out.flush();
+        out = new BufferedWriter(new OutputStreamWriter(chosen.wrapOutput(socket.getOutputStream()), StandardCharsets.UTF_8));
+        in = new BufferedReader(new InputStreamReader(chosen.wrapInput(socket.getInputStream()), StandardCharsets.UTF_8));
+      } catch (IOException e) {
+        close();
+      } finally {
+        writeLock.unlock();
+      }
+    }
+
+    private void respond(CommandType type, String line) {
+      if (type != null && isIgnored(type)) return;
+      double rate = malformedRate;
+      send(rate > 0 && ThreadLocalRandom.current().nextDouble() < rate ? MALFORMED : line);
+    }
+
+    void send(String line) {
+      writeLock.lock();
+      try {
+        out.write(line);
+        out.write('\n');
+        out.flush();
+      } catch (IOException e) {
+        close(); // The reader notices and cleans up
+      } finally {
+        writeLock.unlock();
+      }
+    }
+
+    void close() {
+      try {
+        socket.close();
+      } catch (IOException ignored) {
+        // Already closed
+      }
+    }
+
+    /**
+     * Closes the streams once the socket is closed, which ends a compressed connection's
+     * deflater and inflater.
+     */
+    private void release() {
+      writeLock.lock();
+      try {
+        out.close();
+      } catch (IOException ignored) {
+        // The socket is closed already
+      } finally {
+        writeLock.unlock();
+      }
+      try {
+        in.close();
+      } catch (IOException ignored) {
+        // The socket is closed already
+      }
+    }
+  }
+
+  private boolean isIgnored(CommandType type) {
+    synchronized (ignored) {
+      return ignored.contains(type);
+    }
+  }
+
+  private String roomList() {
+    List<String> entries = new ArrayList<>();
+    for (Room room : rooms.values()) {
+      entries.add("#" + room.id() + " " + room.name() + " (" + room.members().size() + ")");
+    }
+    return String.join(", ", entries);
+  }
+
+  private static List<String> memberNames(Room room) {
+    List<String> names = new ArrayList<>();
+    for (Connection member : room.members()) {
+      names.add(member.username);
+    }
+    return names;
+  }
+
+  private static String ok(String content) {
+    return "OK|" + SERVER + "||" + content;
+  }
+
+  private static String nok(String content) {
+    return "NOK|" + SERVER + "||" + content;
+  }
+}